@@ -112,6 +112,7 @@ public class DataInitializer implements CommandLineRunner {
         permissions.add(createPermissionIfNotExists("CASA_CUSTOMER_VIEW", "View Customers", "查看客户", "CASA_CUSTOMER"));
         permissions.add(createPermissionIfNotExists("CASA_CUSTOMER_CREATE", "Create Customers", "创建客户", "CASA_CUSTOMER"));
         permissions.add(createPermissionIfNotExists("CASA_CUSTOMER_UPDATE", "Update Customers", "更新客户", "CASA_CUSTOMER"));
+        permissions.add(createPermissionIfNotExists("CASA_CUSTOMER_EXPORT", "Export Customers", "导出客户", "CASA_CUSTOMER"));
         
         // CASA Module - Account Type Management Permissions
         permissions.add(createPermissionIfNotExists("CASA_TYPE_VIEW", "View Account Types", "查看账户类型", "CASA_ACCOUNT_TYPE"));
@@ -124,6 +125,18 @@ public class DataInitializer implements CommandLineRunner {
         permissions.add(createPermissionIfNotExists("CASA_ACCOUNT_UPDATE", "Update Accounts", "更新账户", "CASA_ACCOUNT"));
         permissions.add(createPermissionIfNotExists("CASA_ACCOUNT_CLOSE", "Close Accounts", "关闭账户", "CASA_ACCOUNT"));
         
+        // CASA Module - Transaction Posting Permissions
+        permissions.add(createPermissionIfNotExists("CASA_TXN_VIEW", "View Transactions", "查看交易", "CASA_TRANSACTION"));
+        permissions.add(createPermissionIfNotExists("CASA_TXN_POST", "Post Transactions", "过账交易", "CASA_TRANSACTION"));
+        
+        // CASA Module - Hold Permissions
+        permissions.add(createPermissionIfNotExists("CASA_HOLD_VIEW", "View Holds", "查看冻结", "CASA_HOLD"));
+        permissions.add(createPermissionIfNotExists("CASA_HOLD_MANAGE", "Place and Release Holds", "设置及解除冻结", "CASA_HOLD"));
+        
+        // Batch Module Permissions
+        permissions.add(createPermissionIfNotExists("BATCH_VIEW", "View Batch Jobs", "查看批处理", "BATCH"));
+        permissions.add(createPermissionIfNotExists("BATCH_RUN", "Run Batch Jobs", "运行批处理", "BATCH"));
+        
         return permissions;
     }
 
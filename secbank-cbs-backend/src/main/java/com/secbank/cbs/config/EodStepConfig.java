@@ -0,0 +1,59 @@
+package com.secbank.cbs.config;
+
+import com.secbank.cbs.service.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * EOD Step Configuration / 日终步骤配置
+ * The end-of-day steps and their dependencies. Dormancy runs first so newly dormant accounts
+ * are not charged monthly fees; interest is accrued before it is posted, and posted before
+ * deposits mature. Balances are snapshotted, and month-end statements rendered, after every
+ * step that moves money.
+ * 日终步骤及依赖：先处理休眠，再计提、入账利息，之后处理到期及月末收费，最后生成余额快照及月末对账单
+ */
+@Configuration
+public class EodStepConfig {
+
+    @Bean
+    public EodStep dormancySweepStep(DormancySweepService dormancySweepService) {
+        return EodStep.daily(DormancySweepService.JOB_NAME, dormancySweepService::sweep);
+    }
+
+    @Bean
+    public EodStep interestAccrualStep(InterestAccrualService interestAccrualService) {
+        return EodStep.daily(InterestAccrualService.JOB_NAME, interestAccrualService::accrue);
+    }
+
+    @Bean
+    public EodStep interestPostingStep(InterestPostingService interestPostingService) {
+        return EodStep.daily(InterestPostingService.JOB_NAME, interestPostingService::post,
+            InterestAccrualService.JOB_NAME);
+    }
+
+    @Bean
+    public EodStep maturityStep(MaturityService maturityService) {
+        return EodStep.daily(MaturityService.JOB_NAME, maturityService::process,
+            InterestPostingService.JOB_NAME);
+    }
+
+    @Bean
+    public EodStep monthlyFeeStep(FeeService feeService) {
+        return EodStep.monthEnd(FeeService.JOB_NAME, date -> feeService.charge(date).getRun(),
+            DormancySweepService.JOB_NAME, InterestPostingService.JOB_NAME);
+    }
+
+    @Bean
+    public EodStep balanceSnapshotStep(BalanceSnapshotService balanceSnapshotService) {
+        return EodStep.daily(BalanceSnapshotService.JOB_NAME, balanceSnapshotService::snapshot,
+            DormancySweepService.JOB_NAME, InterestPostingService.JOB_NAME, MaturityService.JOB_NAME, FeeService.JOB_NAME);
+    }
+
+    @Bean
+    public EodStep statementStep(StatementService statementService,
+                                 @Value("${app.statements.format:CSV}") StatementService.Format format) {
+        return EodStep.monthEnd(StatementService.JOB_NAME, date -> statementService.generate(date, format),
+            InterestPostingService.JOB_NAME, MaturityService.JOB_NAME, FeeService.JOB_NAME);
+    }
+}
@@ -2,6 +2,7 @@ package com.secbank.cbs.config;
 
 import com.secbank.cbs.security.CustomUserDetailsService;
 import com.secbank.cbs.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -66,6 +67,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/swagger-ui.html").permitAll()
                 .requestMatchers("/actuator/**").permitAll()
+                // Async re-dispatch of streaming responses (SSE, exports) was authorized on the original request
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // All other endpoints require authentication
                 .anyRequest().authenticated()
             )
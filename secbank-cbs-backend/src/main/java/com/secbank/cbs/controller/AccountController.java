@@ -5,7 +5,15 @@ import com.secbank.cbs.entity.Account;
 import com.secbank.cbs.entity.Account.AccountStatus;
 import com.secbank.cbs.security.CurrentUser;
 import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.AccountLookupCache;
 import com.secbank.cbs.service.AccountService;
+import com.secbank.cbs.service.AccountStatsService;
+import com.secbank.cbs.service.AuditLogService;
+import com.secbank.cbs.service.BalanceSnapshotService;
+import com.secbank.cbs.service.DepositCubeService;
+import com.secbank.cbs.service.DepositCubeService.Dimension;
+import com.secbank.cbs.service.ExportService;
+import com.secbank.cbs.service.StatementService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -14,13 +22,22 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +51,13 @@ import java.util.stream.Collectors;
 public class AccountController {
 
     private final AccountService accountService;
+    private final AccountStatsService accountStatsService;
+    private final DepositCubeService depositCubeService;
+    private final AccountLookupCache accountLookupCache;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final StatementService statementService;
+    private final ExportService exportService;
+    private final AuditLogService auditLogService;
 
     @GetMapping
     @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
@@ -50,22 +74,44 @@ public class AccountController {
         return ResponseEntity.ok(ApiResponse.success(dtos));
     }
 
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
+    @Operation(summary = "Export accounts / 导出账户", description = "Stream all accounts, optionally filtered, as CSV or NDJSON / 以CSV或NDJSON流式导出账户")
+    public ResponseEntity<StreamingResponseBody> exportAccounts(
+            @RequestParam(required = false) AccountStatus status,
+            @RequestParam(required = false) Long branchId,
+            @RequestParam(defaultValue = "CSV") ExportService.Format format,
+            @CurrentUser UserPrincipal currentUser) {
+        ExportService.Slot slot = exportService.acquireSlot();
+        auditLogService.logAction(currentUser.getId(), "EXPORT", "CASA", "Account", null, null, null,
+                "Exported accounts as " + format + " (status=" + status + ", branchId=" + branchId + ")");
+        StreamingResponseBody body = out -> {
+            try (slot) {
+                exportService.exportAccounts(status, branchId, format, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"accounts." + format.getExtension() + "\"")
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
     @Operation(summary = "Get account by ID / 根据ID获取账户", description = "Get account details by ID / 根据ID获取账户详情")
     public ResponseEntity<ApiResponse<AccountDTO>> getAccountById(@PathVariable Long id) {
-        Account account = accountService.findById(id)
+        AccountDTO account = accountLookupCache.findById(id)
                 .orElseThrow(() -> new RuntimeException("Account not found / 账户不存在"));
-        return ResponseEntity.ok(ApiResponse.success(AccountDTO.fromEntity(account)));
+        return ResponseEntity.ok(ApiResponse.success(account));
     }
 
     @GetMapping("/number/{accountNumber}")
     @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
     @Operation(summary = "Get account by number / 根据账号获取账户", description = "Get account details by account number / 根据账号获取账户详情")
     public ResponseEntity<ApiResponse<AccountDTO>> getAccountByNumber(@PathVariable String accountNumber) {
-        Account account = accountService.findByAccountNumber(accountNumber)
+        AccountDTO account = accountLookupCache.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new RuntimeException("Account not found / 账户不存在"));
-        return ResponseEntity.ok(ApiResponse.success(AccountDTO.fromEntity(account)));
+        return ResponseEntity.ok(ApiResponse.success(account));
     }
 
     @GetMapping("/search")
@@ -181,17 +227,46 @@ public class AccountController {
         return ResponseEntity.ok(ApiResponse.success("Account closed / 账户已关闭", AccountDTO.fromEntity(updated)));
     }
 
+    @GetMapping("/{id}/balance-history")
+    @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
+    @Operation(summary = "Get balance history / 获取余额历史", description = "Get end-of-day balances over a date range of up to 366 days / 获取区间内每日日终余额（最长366天）")
+    public ResponseEntity<ApiResponse<List<BalanceSnapshotDTO>>> getBalanceHistory(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success(balanceSnapshotService.getHistory(id, from, to)));
+    }
+
+    @GetMapping("/{id}/average-daily-balance")
+    @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
+    @Operation(summary = "Get average daily balance / 获取日均余额", description = "Get the month-to-date average daily balance as of a date / 获取截至指定日期的月初至今日均余额")
+    public ResponseEntity<ApiResponse<BalanceSnapshotDTO>> getAverageDailyBalance(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(ApiResponse.success(balanceSnapshotService.getAverageDailyBalance(id, date)));
+    }
+
+    @GetMapping("/{id}/statement")
+    @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
+    @Operation(summary = "Download statement / 下载对账单", description = "Stream the account statement for a period as CSV or fixed-width text / 以CSV或定长文本流式输出指定期间对账单")
+    public ResponseEntity<StreamingResponseBody> getStatement(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "CSV") StatementService.Format format) {
+        StreamingResponseBody body = out -> statementService.writeStatement(id, from, to, format, Channels.newChannel(out));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-" + id + "-" + from + "-" + to
+                        + "." + format.getExtension() + "\"")
+                .contentType(format == StatementService.Format.CSV ? MediaType.parseMediaType("text/csv") : MediaType.TEXT_PLAIN)
+                .body(body);
+    }
+
     @GetMapping("/stats")
     @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
     @Operation(summary = "Get account statistics / 获取账户统计", description = "Get account count and balance statistics / 获取账户数量和余额统计")
     public ResponseEntity<ApiResponse<AccountStatsDTO>> getAccountStats() {
-        AccountStatsDTO stats = AccountStatsDTO.builder()
-                .totalActive(accountService.countByStatus(AccountStatus.ACTIVE))
-                .totalDormant(accountService.countByStatus(AccountStatus.DORMANT))
-                .totalFrozen(accountService.countByStatus(AccountStatus.FROZEN))
-                .totalClosed(accountService.countByStatus(AccountStatus.CLOSED))
-                .totalActiveBalance(accountService.sumActiveBalances())
-                .build();
+        AccountStatsDTO stats = accountStatsService.getAccountStats();
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
 
@@ -199,11 +274,26 @@ public class AccountController {
     @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
     @Operation(summary = "Get branch account statistics / 获取分行账户统计", description = "Get account statistics for a specific branch / 获取特定分行的账户统计")
     public ResponseEntity<ApiResponse<BranchAccountStatsDTO>> getBranchAccountStats(@PathVariable Long branchId) {
-        BranchAccountStatsDTO stats = BranchAccountStatsDTO.builder()
-                .branchId(branchId)
-                .totalAccounts(accountService.countByBranchId(branchId))
-                .totalBalance(accountService.sumActiveBalancesByBranch(branchId))
-                .build();
+        BranchAccountStatsDTO stats = accountStatsService.getBranchStats(branchId);
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
+
+    @GetMapping("/stats/cube")
+    @PreAuthorize("hasAuthority('CASA_ACCOUNT_VIEW')")
+    @Operation(summary = "Drill down deposit cube / 存款立方体钻取",
+               description = "Roll up account counts and balances by any of BRANCH, ACCOUNT_TYPE, STATUS, CURRENCY, OPEN_MONTH, sliced by optional filters / 按维度汇总账户数量与余额，可按条件切片")
+    public ResponseEntity<ApiResponse<List<DepositCubeRowDTO>>> getDepositCube(
+            @RequestParam(required = false) Set<Dimension> groupBy,
+            @RequestParam(required = false) Long branchId,
+            @RequestParam(required = false) Long accountTypeId,
+            @RequestParam(required = false) AccountStatus status,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) YearMonth fromMonth,
+            @RequestParam(required = false) YearMonth toMonth) {
+        Set<Dimension> dimensions = groupBy != null && !groupBy.isEmpty()
+                ? EnumSet.copyOf(groupBy) : EnumSet.noneOf(Dimension.class);
+        List<DepositCubeRowDTO> rows = depositCubeService.query(
+                dimensions, branchId, accountTypeId, status, currency, fromMonth, toMonth);
+        return ResponseEntity.ok(ApiResponse.success(rows));
+    }
 }
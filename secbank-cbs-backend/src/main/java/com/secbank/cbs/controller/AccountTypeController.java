@@ -1,12 +1,14 @@
 package com.secbank.cbs.controller;
 
 import com.secbank.cbs.dto.*;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
 import com.secbank.cbs.entity.AccountType;
 import com.secbank.cbs.entity.AccountType.AccountCategory;
 import com.secbank.cbs.entity.AccountType.Status;
 import com.secbank.cbs.security.CurrentUser;
 import com.secbank.cbs.security.UserPrincipal;
 import com.secbank.cbs.service.AccountTypeService;
+import com.secbank.cbs.service.ReferenceDataCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -19,6 +21,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -34,6 +37,7 @@ import java.util.stream.Collectors;
 public class AccountTypeController {
 
     private final AccountTypeService accountTypeService;
+    private final ReferenceDataCache referenceDataCache;
 
     @GetMapping
     @PreAuthorize("hasAuthority('CASA_TYPE_VIEW')")
@@ -51,12 +55,16 @@ public class AccountTypeController {
     @GetMapping("/active")
     @PreAuthorize("hasAuthority('CASA_TYPE_VIEW')")
     @Operation(summary = "Get active account types / 获取活跃账户类型", description = "Get list of all active account types / 获取所有活跃账户类型列表")
-    public ResponseEntity<ApiResponse<List<AccountTypeDTO>>> getActiveAccountTypes() {
+    public ResponseEntity<ApiResponse<List<AccountTypeDTO>>> getActiveAccountTypes(WebRequest request) {
+        String etag = referenceDataCache.getETag(Kind.ACCOUNT_TYPE);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<AccountType> types = accountTypeService.findAllActive();
         List<AccountTypeDTO> dtos = types.stream()
                 .map(AccountTypeDTO::fromEntity)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(ApiResponse.success(dtos));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(dtos));
     }
 
     @GetMapping("/category/{category}")
@@ -0,0 +1,185 @@
+package com.secbank.cbs.controller;
+
+import com.secbank.cbs.dto.ApiResponse;
+import com.secbank.cbs.dto.BatchCheckpointDTO;
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.EodRunDTO;
+import com.secbank.cbs.dto.FeeRunSummaryDTO;
+import com.secbank.cbs.service.BalanceSnapshotService;
+import com.secbank.cbs.service.DormancySweepService;
+import com.secbank.cbs.service.DuplicateCustomerService;
+import com.secbank.cbs.service.EodService;
+import com.secbank.cbs.service.FeeService;
+import com.secbank.cbs.service.InterestAccrualService;
+import com.secbank.cbs.service.InterestPostingService;
+import com.secbank.cbs.service.MaturityService;
+import com.secbank.cbs.service.PartitionedBatchRunner;
+import com.secbank.cbs.service.StatementService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Batch Controller / 批处理控制器
+ * REST API endpoints for running end-of-day batch jobs and inspecting their progress.
+ */
+@RestController
+@RequestMapping("/api/v1/batch")
+@RequiredArgsConstructor
+@Tag(name = "Batch / 批处理", description = "APIs for end-of-day batch jobs / 日终批处理相关API")
+public class BatchController {
+
+    private final InterestAccrualService interestAccrualService;
+    private final InterestPostingService interestPostingService;
+    private final DormancySweepService dormancySweepService;
+    private final MaturityService maturityService;
+    private final FeeService feeService;
+    private final BalanceSnapshotService balanceSnapshotService;
+    private final StatementService statementService;
+    private final DuplicateCustomerService duplicateCustomerService;
+    private final EodService eodService;
+    private final PartitionedBatchRunner batchRunner;
+
+    @PostMapping("/eod")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run end of day / 运行日终批处理", description = "Run or resume EOD for the current business date and roll the date over / 运行或续跑当前营业日的日终批处理并滚动营业日")
+    public ResponseEntity<ApiResponse<EodRunDTO>> runEod() {
+        EodRunDTO run = eodService.run();
+        return ResponseEntity.ok(ApiResponse.success("End of day completed / 日终批处理完成", run));
+    }
+
+    @GetMapping("/eod/business-date")
+    @PreAuthorize("hasAuthority('BATCH_VIEW')")
+    @Operation(summary = "Get business date / 获取营业日", description = "Business date the next EOD run is for / 下一次日终批处理的营业日")
+    public ResponseEntity<ApiResponse<LocalDate>> getBusinessDate() {
+        return ResponseEntity.ok(ApiResponse.success(eodService.getBusinessDate()));
+    }
+
+    @GetMapping("/eod/{businessDate}")
+    @PreAuthorize("hasAuthority('BATCH_VIEW')")
+    @Operation(summary = "Get EOD run / 获取日终运行", description = "Get an EOD run with per-step status, duration and throughput / 获取日终运行及各步骤状态、耗时与吞吐量")
+    public ResponseEntity<ApiResponse<EodRunDTO>> getEodRun(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        return ResponseEntity.ok(ApiResponse.success(eodService.getRun(businessDate)));
+    }
+
+    @PostMapping("/interest-accrual")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run interest accrual / 运行利息计提", description = "Accrue interest through the business date, resuming an interrupted run / 计提截至营业日的利息，可从中断处继续")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> accrueInterest(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        BatchRunSummaryDTO summary = interestAccrualService.accrue(businessDate);
+        return ResponseEntity.ok(ApiResponse.success("Interest accrual completed / 利息计提完成", summary));
+    }
+
+    @PostMapping("/interest-posting")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run interest posting / 运行利息入账", description = "Capitalize accrued interest of accounts due on the business date, net of withholding tax / 将到期账户的已计提利息扣税后入账")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> postInterest(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        BatchRunSummaryDTO summary = interestPostingService.post(businessDate);
+        return ResponseEntity.ok(ApiResponse.success("Interest posting completed / 利息入账完成", summary));
+    }
+
+    @PostMapping("/dormancy-sweep")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run dormancy sweep / 运行休眠账户处理", description = "Flag accounts inactive beyond the dormancy period and charge the dormancy fee / 将超过休眠期未交易的账户转为休眠并收取休眠费")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> sweepDormancy(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        BatchRunSummaryDTO summary = dormancySweepService.sweep(businessDate);
+        return ResponseEntity.ok(ApiResponse.success("Dormancy sweep completed / 休眠账户处理完成", summary));
+    }
+
+    @PostMapping("/maturity")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run time deposit maturity / 运行定期存款到期处理", description = "Renew or pay out time deposits matured on or before the business date, resuming an interrupted run / 续存或支付截至营业日到期的定期存款，可从中断处继续")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> processMaturities(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        BatchRunSummaryDTO summary = maturityService.process(businessDate);
+        return ResponseEntity.ok(ApiResponse.success("Maturity processing completed / 到期处理完成", summary));
+    }
+
+    @PostMapping("/fees")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run monthly fees / 运行月度收费", description = "Charge maintenance and below-minimum fees for the business date's month / 收取本月账户管理费及低于最低余额费")
+    public ResponseEntity<ApiResponse<FeeRunSummaryDTO>> chargeFees(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        FeeRunSummaryDTO summary = feeService.charge(businessDate);
+        return ResponseEntity.ok(ApiResponse.success("Monthly fees charged / 月度费用已收取", summary));
+    }
+
+    @PostMapping("/balance-snapshot")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run balance snapshot / 运行余额快照", description = "Snapshot every account's balance for the business date, resuming an interrupted run / 生成营业日账户余额快照，可从中断处继续")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> snapshotBalances(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        BatchRunSummaryDTO summary = balanceSnapshotService.snapshot(businessDate);
+        return ResponseEntity.ok(ApiResponse.success("Balance snapshot completed / 余额快照完成", summary));
+    }
+
+    @PostMapping("/statements")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Generate statements / 生成对账单", description = "Write every account's statement for the business date's month, one file per branch / 生成本月所有账户对账单，每分行一个文件")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> generateStatements(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate,
+            @RequestParam(defaultValue = "CSV") StatementService.Format format) {
+        BatchRunSummaryDTO summary = statementService.generate(businessDate, format);
+        return ResponseEntity.ok(ApiResponse.success("Statements generated / 对账单已生成", summary));
+    }
+
+    @PostMapping("/customer-dedupe")
+    @PreAuthorize("hasAuthority('BATCH_RUN')")
+    @Operation(summary = "Run duplicate-customer detection / 运行重复客户识别", description = "Rebuild every customer's blocking keys and record possible duplicates / 重建客户分块键并记录疑似重复客户")
+    public ResponseEntity<ApiResponse<BatchRunSummaryDTO>> detectDuplicateCustomers() {
+        BatchRunSummaryDTO summary = duplicateCustomerService.detect();
+        return ResponseEntity.ok(ApiResponse.success("Duplicate-customer detection completed / 重复客户识别完成", summary));
+    }
+
+    @GetMapping("/fees/summary")
+    @PreAuthorize("hasAuthority('BATCH_VIEW')")
+    @Operation(summary = "Get monthly fee summary / 获取月度收费汇总", description = "Fees charged for the business date's month by account type / 按账户类型汇总本月已收费用")
+    public ResponseEntity<ApiResponse<FeeRunSummaryDTO>> getFeeSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        return ResponseEntity.ok(ApiResponse.success(feeService.getSummary(businessDate)));
+    }
+
+    @GetMapping(value = "/fees/projection", produces = "text/csv")
+    @PreAuthorize("hasAuthority('BATCH_VIEW')")
+    @Operation(summary = "Project monthly fees (dry run) / 预测月度费用（试运行）", description = "Stream the fees a run would charge now as CSV, without touching balances / 以CSV流式输出预测费用，不改动余额")
+    public ResponseEntity<StreamingResponseBody> projectFees(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            feeService.writeProjection(businessDate, writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"fee-projection-" + businessDate + ".csv\"")
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .body(body);
+    }
+
+    @GetMapping("/{jobName}/checkpoints")
+    @PreAuthorize("hasAuthority('BATCH_VIEW')")
+    @Operation(summary = "Get batch checkpoints / 获取批处理检查点", description = "Get partition progress of a batch run / 获取批处理各分区进度")
+    public ResponseEntity<ApiResponse<List<BatchCheckpointDTO>>> getCheckpoints(
+            @PathVariable String jobName,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate businessDate) {
+        return ResponseEntity.ok(ApiResponse.success(batchRunner.getCheckpoints(jobName, businessDate).stream()
+            .map(BatchCheckpointDTO::fromEntity)
+            .toList()));
+    }
+}
@@ -1,9 +1,11 @@
 package com.secbank.cbs.controller;
 
 import com.secbank.cbs.dto.*;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
 import com.secbank.cbs.security.CurrentUser;
 import com.secbank.cbs.security.UserPrincipal;
 import com.secbank.cbs.service.BranchService;
+import com.secbank.cbs.service.ReferenceDataCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -16,6 +18,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -30,6 +33,7 @@ import java.util.List;
 public class BranchController {
 
     private final BranchService branchService;
+    private final ReferenceDataCache referenceDataCache;
 
     @GetMapping
     @PreAuthorize("hasAuthority('BRANCH_VIEW')")
@@ -43,9 +47,13 @@ public class BranchController {
     @GetMapping("/active")
     @PreAuthorize("hasAuthority('BRANCH_VIEW')")
     @Operation(summary = "Get active branches / 获取活跃分行", description = "Get list of all active branches / 获取所有活跃分行列表")
-    public ResponseEntity<ApiResponse<List<BranchDTO>>> getActiveBranches() {
+    public ResponseEntity<ApiResponse<List<BranchDTO>>> getActiveBranches(WebRequest request) {
+        String etag = referenceDataCache.getETag(Kind.BRANCH);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<BranchDTO> branches = branchService.getActiveBranches();
-        return ResponseEntity.ok(ApiResponse.success(branches));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(branches));
     }
 
     @GetMapping("/{id}")
@@ -6,7 +6,11 @@ import com.secbank.cbs.entity.Customer.CustomerStatus;
 import com.secbank.cbs.entity.Customer.CustomerType;
 import com.secbank.cbs.security.CurrentUser;
 import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.AuditLogService;
+import com.secbank.cbs.service.CustomerImportService;
 import com.secbank.cbs.service.CustomerService;
+import com.secbank.cbs.service.DuplicateCustomerService;
+import com.secbank.cbs.service.ExportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -15,10 +19,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Customer Controller / 客户控制器
@@ -31,6 +46,10 @@ import org.springframework.web.bind.annotation.*;
 public class CustomerController {
 
     private final CustomerService customerService;
+    private final ExportService exportService;
+    private final CustomerImportService customerImportService;
+    private final DuplicateCustomerService duplicateCustomerService;
+    private final AuditLogService auditLogService;
 
     @GetMapping
     @PreAuthorize("hasAuthority('CASA_CUSTOMER_VIEW')")
@@ -46,6 +65,48 @@ public class CustomerController {
         return ResponseEntity.ok(ApiResponse.success(dtos));
     }
 
+    @GetMapping("/exists")
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_VIEW')")
+    @Operation(summary = "Check customer uniqueness / 检查客户唯一性", description = "Whether customers with the given email, ID number or tax ID already exist / 检查邮箱、证件号或税号是否已被使用")
+    public ResponseEntity<ApiResponse<Map<String, Boolean>>> checkExists(
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String idNumber,
+            @RequestParam(required = false) String taxId) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (email != null) {
+            result.put("email", customerService.existsByEmail(email));
+        }
+        if (idNumber != null) {
+            result.put("idNumber", customerService.existsByIdNumber(idNumber));
+        }
+        if (taxId != null) {
+            result.put("taxId", customerService.existsByTaxId(taxId));
+        }
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_EXPORT')")
+    @Operation(summary = "Export customers / 导出客户", description = "Stream all customers, optionally filtered, as CSV or NDJSON / 以CSV或NDJSON流式导出客户")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @RequestParam(required = false) CustomerStatus status,
+            @RequestParam(required = false) Long branchId,
+            @RequestParam(defaultValue = "CSV") ExportService.Format format,
+            @CurrentUser UserPrincipal currentUser) {
+        ExportService.Slot slot = exportService.acquireSlot();
+        auditLogService.logAction(currentUser.getId(), "EXPORT", "CASA", "Customer", null, null, null,
+                "Exported customers as " + format + " (status=" + status + ", branchId=" + branchId + ")");
+        StreamingResponseBody body = out -> {
+            try (slot) {
+                exportService.exportCustomers(status, branchId, format, out);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"customers." + format.getExtension() + "\"")
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAuthority('CASA_CUSTOMER_VIEW')")
     @Operation(summary = "Get customer by ID / 根据ID获取客户", description = "Get customer details by ID / 根据ID获取客户详情")
@@ -82,56 +143,67 @@ public class CustomerController {
             @Valid @RequestBody CreateCustomerRequest request,
             @CurrentUser UserPrincipal currentUser) {
         
-        Customer customer = new Customer();
-        customer.setCustomerType(request.getCustomerType());
-        
-        // Individual fields
-        customer.setFirstName(request.getFirstName());
-        customer.setMiddleName(request.getMiddleName());
-        customer.setLastName(request.getLastName());
-        customer.setFirstNameCn(request.getFirstNameCn());
-        customer.setLastNameCn(request.getLastNameCn());
-        customer.setDateOfBirth(request.getDateOfBirth());
-        customer.setGender(request.getGender());
-        customer.setNationality(request.getNationality());
-        
-        // Corporate fields
-        customer.setCompanyName(request.getCompanyName());
-        customer.setCompanyNameCn(request.getCompanyNameCn());
-        customer.setRegistrationNumber(request.getRegistrationNumber());
-        customer.setDateOfIncorporation(request.getDateOfIncorporation());
-        customer.setIndustry(request.getIndustry());
-        
-        // Contact
-        customer.setEmail(request.getEmail());
-        customer.setMobilePhone(request.getMobilePhone());
-        customer.setHomePhone(request.getHomePhone());
-        customer.setWorkPhone(request.getWorkPhone());
-        
-        // Address
-        customer.setAddressLine1(request.getAddressLine1());
-        customer.setAddressLine2(request.getAddressLine2());
-        customer.setCity(request.getCity());
-        customer.setProvince(request.getProvince());
-        customer.setPostalCode(request.getPostalCode());
-        customer.setCountry(request.getCountry());
-        
-        // ID
-        customer.setIdType(request.getIdType());
-        customer.setIdNumber(request.getIdNumber());
-        customer.setIdExpiryDate(request.getIdExpiryDate());
-        customer.setTaxId(request.getTaxId());
-        
-        // Risk
-        customer.setRiskRating(request.getRiskRating());
-        customer.setRelationshipManager(request.getRelationshipManager());
-        customer.setRemarks(request.getRemarks());
-        
-        Customer created = customerService.create(customer, request.getBranchId(), currentUser.getId());
+        Customer created = customerService.create(toCustomer(request), request.getBranchId(), currentUser.getId());
         return ResponseEntity.status(HttpStatus.CREATED)
             .body(ApiResponse.success("Customer created successfully / 客户创建成功", CustomerDTO.fromEntity(created)));
     }
 
+    @PostMapping("/possible-duplicates")
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_CREATE')")
+    @Operation(summary = "Check possible duplicates / 预检疑似重复客户", description = "Existing customers an application resembles, checked before creating it / 开户前检查与申请相似的现有客户")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidateDTO>>> checkPossibleDuplicates(
+            @Valid @RequestBody CreateCustomerRequest request) {
+        return ResponseEntity.ok(ApiResponse.success(duplicateCustomerService.findPossibleDuplicates(toCustomer(request))));
+    }
+
+    @GetMapping("/duplicates")
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_VIEW')")
+    @Operation(summary = "Get duplicate candidates / 获取疑似重复客户", description = "Candidate duplicate pairs in a review status, best match first / 按审核状态获取疑似重复客户对，按相似度排序")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidateDTO>>> getDuplicateCandidates(
+            @RequestParam(defaultValue = "OPEN") DuplicateCustomerService.CandidateStatus status,
+            @RequestParam(defaultValue = "0") BigDecimal minScore,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(
+                duplicateCustomerService.getCandidates(status, minScore, Math.min(limit, 1000))));
+    }
+
+    @GetMapping("/{id}/duplicates")
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_VIEW')")
+    @Operation(summary = "Get customer duplicate candidates / 获取客户疑似重复记录", description = "Candidate duplicate pairs involving a customer / 获取涉及该客户的疑似重复客户对")
+    public ResponseEntity<ApiResponse<List<DuplicateCandidateDTO>>> getCustomerDuplicates(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(duplicateCustomerService.getCandidates(id)));
+    }
+
+    @PutMapping("/{id}/duplicates/{duplicateOfId}")
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_UPDATE')")
+    @Operation(summary = "Review duplicate candidate / 审核疑似重复客户", description = "Confirm or dismiss a candidate duplicate pair / 确认或排除疑似重复客户对")
+    public ResponseEntity<ApiResponse<Void>> reviewDuplicate(
+            @PathVariable Long id,
+            @PathVariable Long duplicateOfId,
+            @RequestParam DuplicateCustomerService.CandidateStatus status,
+            @CurrentUser UserPrincipal currentUser) {
+        duplicateCustomerService.review(id, duplicateOfId, status, currentUser.getId());
+        auditLogService.logAction(currentUser.getId(), "REVIEW_DUPLICATE", "CASA", "Customer", id, null, null,
+                "Marked customer " + id + " as duplicate of " + duplicateOfId + ": " + status);
+        return ResponseEntity.ok(ApiResponse.success("Duplicate candidate reviewed / 疑似重复客户已审核", null));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('CASA_CUSTOMER_CREATE')")
+    @Operation(summary = "Bulk import customers / 批量导入客户", description = "Import customers from a CSV file with a header of column names; invalid rows are reported, valid rows are created / 从带列名表头的CSV文件批量导入客户，报告无效行并创建有效行")
+    public ResponseEntity<ApiResponse<CustomerImportResultDTO>> importCustomers(
+            @RequestParam("file") MultipartFile file,
+            @CurrentUser UserPrincipal currentUser) throws IOException {
+        CustomerImportResultDTO result;
+        try (InputStream in = file.getInputStream()) {
+            result = customerImportService.importCsv(in, currentUser.getId());
+        }
+        auditLogService.logAction(currentUser.getId(), "IMPORT", "CASA", "Customer", null, null, null,
+                "Imported " + result.getImported() + " customers from " + file.getOriginalFilename()
+                        + ", " + result.getRejected() + " rows rejected");
+        return ResponseEntity.ok(ApiResponse.success("Customer import completed / 客户导入完成", result));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAuthority('CASA_CUSTOMER_UPDATE')")
     @Operation(summary = "Update customer / 更新客户", description = "Update an existing customer / 更新现有客户")
@@ -233,4 +305,53 @@ public class CustomerController {
                 .build();
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
+
+    private static Customer toCustomer(CreateCustomerRequest request) {
+        Customer customer = new Customer();
+        customer.setCustomerType(request.getCustomerType());
+        
+        // Individual fields
+        customer.setFirstName(request.getFirstName());
+        customer.setMiddleName(request.getMiddleName());
+        customer.setLastName(request.getLastName());
+        customer.setFirstNameCn(request.getFirstNameCn());
+        customer.setLastNameCn(request.getLastNameCn());
+        customer.setDateOfBirth(request.getDateOfBirth());
+        customer.setGender(request.getGender());
+        customer.setNationality(request.getNationality());
+        
+        // Corporate fields
+        customer.setCompanyName(request.getCompanyName());
+        customer.setCompanyNameCn(request.getCompanyNameCn());
+        customer.setRegistrationNumber(request.getRegistrationNumber());
+        customer.setDateOfIncorporation(request.getDateOfIncorporation());
+        customer.setIndustry(request.getIndustry());
+        
+        // Contact
+        customer.setEmail(request.getEmail());
+        customer.setMobilePhone(request.getMobilePhone());
+        customer.setHomePhone(request.getHomePhone());
+        customer.setWorkPhone(request.getWorkPhone());
+        
+        // Address
+        customer.setAddressLine1(request.getAddressLine1());
+        customer.setAddressLine2(request.getAddressLine2());
+        customer.setCity(request.getCity());
+        customer.setProvince(request.getProvince());
+        customer.setPostalCode(request.getPostalCode());
+        customer.setCountry(request.getCountry());
+        
+        // ID
+        customer.setIdType(request.getIdType());
+        customer.setIdNumber(request.getIdNumber());
+        customer.setIdExpiryDate(request.getIdExpiryDate());
+        customer.setTaxId(request.getTaxId());
+        
+        // Risk
+        customer.setRiskRating(request.getRiskRating());
+        customer.setRelationshipManager(request.getRelationshipManager());
+        customer.setRemarks(request.getRemarks());
+        
+        return customer;
+    }
 }
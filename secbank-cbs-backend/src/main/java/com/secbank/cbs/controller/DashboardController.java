@@ -2,12 +2,15 @@ package com.secbank.cbs.controller;
 
 import com.secbank.cbs.dto.*;
 import com.secbank.cbs.service.DashboardService;
+import com.secbank.cbs.service.MetricsStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Dashboard Controller / 仪表板控制器
@@ -20,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final MetricsStreamService metricsStreamService;
 
     @GetMapping("/stats")
     @PreAuthorize("hasAuthority('DASHBOARD_VIEW') or hasAuthority('USER_VIEW')")
@@ -29,4 +33,12 @@ public class DashboardController {
         DashboardStatsDTO stats = dashboardService.getStats();
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAuthority('DASHBOARD_VIEW') or hasAuthority('USER_VIEW')")
+    @Operation(summary = "Stream live metrics / 实时指标推送",
+               description = "Server-Sent Events stream of dashboard and account metrics: a snapshot, then deltas / 仪表板与账户指标的SSE推送：先快照后增量")
+    public SseEmitter streamMetrics() {
+        return metricsStreamService.subscribe();
+    }
 }
@@ -0,0 +1,69 @@
+package com.secbank.cbs.controller;
+
+import com.secbank.cbs.dto.AccountHoldDTO;
+import com.secbank.cbs.dto.ApiResponse;
+import com.secbank.cbs.dto.PlaceHoldRequest;
+import com.secbank.cbs.security.CurrentUser;
+import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.HoldService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Hold Controller / 冻结控制器
+ * REST API endpoints for account holds and liens.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+@Tag(name = "Holds / 冻结", description = "APIs for account holds and liens / 账户冻结与留置相关API")
+public class HoldController {
+
+    private final HoldService holdService;
+
+    @GetMapping("/accounts/{accountId}/holds")
+    @PreAuthorize("hasAuthority('CASA_HOLD_VIEW')")
+    @Operation(summary = "Get account holds / 获取账户冻结", description = "Get holds of an account / 获取账户的冻结记录")
+    public ResponseEntity<ApiResponse<List<AccountHoldDTO>>> getHolds(
+            @PathVariable Long accountId,
+            @RequestParam(defaultValue = "true") boolean activeOnly) {
+        return ResponseEntity.ok(ApiResponse.success(holdService.getHolds(accountId, activeOnly)));
+    }
+
+    @PostMapping("/accounts/{accountId}/holds")
+    @PreAuthorize("hasAuthority('CASA_HOLD_MANAGE')")
+    @Operation(summary = "Place hold / 设置冻结", description = "Place a hold on an account / 对账户设置冻结")
+    public ResponseEntity<ApiResponse<AccountHoldDTO>> placeHold(
+            @PathVariable Long accountId,
+            @Valid @RequestBody PlaceHoldRequest request,
+            @CurrentUser UserPrincipal currentUser) {
+        AccountHoldDTO hold = holdService.placeHold(accountId, request, currentUser.getId());
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success("Hold placed successfully / 冻结设置成功", hold));
+    }
+
+    @GetMapping("/holds/{holdId}")
+    @PreAuthorize("hasAuthority('CASA_HOLD_VIEW')")
+    @Operation(summary = "Get hold / 获取冻结", description = "Get a hold by ID / 根据ID获取冻结")
+    public ResponseEntity<ApiResponse<AccountHoldDTO>> getHold(@PathVariable Long holdId) {
+        return ResponseEntity.ok(ApiResponse.success(holdService.getHold(holdId)));
+    }
+
+    @PostMapping("/holds/{holdId}/release")
+    @PreAuthorize("hasAuthority('CASA_HOLD_MANAGE')")
+    @Operation(summary = "Release hold / 解除冻结", description = "Release an active hold / 解除生效中的冻结")
+    public ResponseEntity<ApiResponse<AccountHoldDTO>> releaseHold(
+            @PathVariable Long holdId,
+            @CurrentUser UserPrincipal currentUser) {
+        AccountHoldDTO hold = holdService.releaseHold(holdId, currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success("Hold released successfully / 冻结解除成功", hold));
+    }
+}
@@ -0,0 +1,75 @@
+package com.secbank.cbs.controller;
+
+import com.secbank.cbs.dto.*;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.security.CurrentUser;
+import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.LedgerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Ledger Controller / 账务控制器
+ * REST API endpoints for double-entry posting and journal inquiry.
+ */
+@RestController
+@Validated
+@RequestMapping("/api/v1/ledger")
+@RequiredArgsConstructor
+@Tag(name = "Ledger / 账务", description = "APIs for journal posting and inquiry / 日志过账与查询相关API")
+public class LedgerController {
+
+    private final LedgerService ledgerService;
+
+    @Value("${app.ledger.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @PostMapping("/postings")
+    @PreAuthorize("hasAuthority('CASA_TXN_POST')")
+    @Operation(summary = "Post journal entry / 过账分录", description = "Post one balanced journal entry / 过账一笔平衡分录")
+    public ResponseEntity<ApiResponse<PostingResultDTO>> post(
+            @Valid @RequestBody PostingRequest request,
+            @CurrentUser UserPrincipal currentUser) {
+        PostingResultDTO result = ledgerService.post(request, currentUser.getId());
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success("Entry posted successfully / 分录过账成功", result));
+    }
+
+    @PostMapping("/postings/batch")
+    @PreAuthorize("hasAuthority('CASA_TXN_POST')")
+    @Operation(summary = "Post journal entries in batch / 批量过账分录", description = "Post a batch of balanced journal entries atomically / 原子性批量过账平衡分录")
+    public ResponseEntity<ApiResponse<List<PostingResultDTO>>> postBatch(
+            @RequestBody List<@Valid PostingRequest> requests,
+            @CurrentUser UserPrincipal currentUser) {
+        if (requests.size() > maxBatchSize) {
+            throw new BusinessException("Batch size exceeds " + maxBatchSize + " / 批次数量超过上限");
+        }
+        List<PostingResultDTO> results = ledgerService.postBatch(requests, currentUser.getId());
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success("Entries posted successfully / 分录批量过账成功", results));
+    }
+
+    @GetMapping("/accounts/{accountId}/lines")
+    @PreAuthorize("hasAuthority('CASA_TXN_VIEW')")
+    @Operation(summary = "Get account journal lines / 获取账户日志分录", description = "Get journal lines of an account within a date range / 获取账户在日期范围内的日志分录")
+    public ResponseEntity<ApiResponse<List<JournalLineDTO>>> getAccountLines(
+            @PathVariable Long accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "500") int limit) {
+        List<JournalLineDTO> lines = ledgerService.getAccountLines(accountId, from, to, Math.min(limit, 5000));
+        return ResponseEntity.ok(ApiResponse.success(lines));
+    }
+}
@@ -1,13 +1,16 @@
 package com.secbank.cbs.controller;
 
 import com.secbank.cbs.dto.*;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
 import com.secbank.cbs.service.PermissionService;
+import com.secbank.cbs.service.ReferenceDataCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -23,22 +26,31 @@ import java.util.Map;
 public class PermissionController {
 
     private final PermissionService permissionService;
+    private final ReferenceDataCache referenceDataCache;
 
     @GetMapping
     @PreAuthorize("hasAuthority('PERMISSION_VIEW')")
     @Operation(summary = "Get all permissions / 获取所有权限", description = "Get list of all permissions / 获取所有权限列表")
-    public ResponseEntity<ApiResponse<List<PermissionDTO>>> getAllPermissions() {
+    public ResponseEntity<ApiResponse<List<PermissionDTO>>> getAllPermissions(WebRequest request) {
+        String etag = referenceDataCache.getETag(Kind.PERMISSION);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<PermissionDTO> permissions = permissionService.getAllPermissions();
-        return ResponseEntity.ok(ApiResponse.success(permissions));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(permissions));
     }
 
     @GetMapping("/grouped")
     @PreAuthorize("hasAuthority('PERMISSION_VIEW')")
     @Operation(summary = "Get permissions grouped by module / 按模块分组获取权限", 
                description = "Get permissions organized by module / 按模块组织的权限列表")
-    public ResponseEntity<ApiResponse<Map<String, List<PermissionDTO>>>> getPermissionsByModule() {
+    public ResponseEntity<ApiResponse<Map<String, List<PermissionDTO>>>> getPermissionsByModule(WebRequest request) {
+        String etag = referenceDataCache.getETag(Kind.PERMISSION);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         Map<String, List<PermissionDTO>> permissions = permissionService.getPermissionsByModule();
-        return ResponseEntity.ok(ApiResponse.success(permissions));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(permissions));
     }
 
     @GetMapping("/module/{module}")
@@ -0,0 +1,42 @@
+package com.secbank.cbs.controller;
+
+import com.secbank.cbs.dto.*;
+import com.secbank.cbs.security.CurrentUser;
+import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.PostingEngine;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Posting Engine Controller / 记账引擎控制器
+ * REST API endpoint for the high-volume single-account posting path.
+ */
+@RestController
+@RequestMapping("/api/v1/ledger/engine")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.posting-engine", name = "enabled", havingValue = "true")
+@Tag(name = "Ledger / 账务", description = "APIs for journal posting and inquiry / 日志过账与查询相关API")
+public class PostingEngineController {
+
+    private final PostingEngine postingEngine;
+
+    @PostMapping("/postings")
+    @PreAuthorize("hasAuthority('CASA_TXN_POST')")
+    @Operation(summary = "Post through engine / 引擎过账", description = "Post a single-account entry through the in-memory posting engine / 通过内存记账引擎过账单账户分录")
+    public CompletableFuture<ResponseEntity<ApiResponse<PostingResultDTO>>> post(
+            @Valid @RequestBody PostingRequest request,
+            @CurrentUser UserPrincipal currentUser) {
+        return postingEngine.submit(request, currentUser.getId())
+            .thenApply(result -> ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Entry posted successfully / 分录过账成功", result)));
+    }
+}
@@ -1,9 +1,11 @@
 package com.secbank.cbs.controller;
 
 import com.secbank.cbs.dto.*;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
 import com.secbank.cbs.security.CurrentUser;
 import com.secbank.cbs.security.UserPrincipal;
 import com.secbank.cbs.service.RoleService;
+import com.secbank.cbs.service.ReferenceDataCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -16,6 +18,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -30,6 +33,7 @@ import java.util.List;
 public class RoleController {
 
     private final RoleService roleService;
+    private final ReferenceDataCache referenceDataCache;
 
     @GetMapping
     @PreAuthorize("hasAuthority('ROLE_VIEW')")
@@ -43,9 +47,13 @@ public class RoleController {
     @GetMapping("/active")
     @PreAuthorize("hasAuthority('ROLE_VIEW')")
     @Operation(summary = "Get active roles / 获取活跃角色", description = "Get list of all active roles / 获取所有活跃角色列表")
-    public ResponseEntity<ApiResponse<List<RoleDTO>>> getActiveRoles() {
+    public ResponseEntity<ApiResponse<List<RoleDTO>>> getActiveRoles(WebRequest request) {
+        String etag = referenceDataCache.getETag(Kind.ROLE);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         List<RoleDTO> roles = roleService.getActiveRoles();
-        return ResponseEntity.ok(ApiResponse.success(roles));
+        return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(roles));
     }
 
     @GetMapping("/{id}")
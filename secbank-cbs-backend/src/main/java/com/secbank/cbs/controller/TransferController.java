@@ -0,0 +1,38 @@
+package com.secbank.cbs.controller;
+
+import com.secbank.cbs.dto.*;
+import com.secbank.cbs.security.CurrentUser;
+import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.TransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Transfer Controller / 转账控制器
+ * REST API endpoints for internal fund transfers.
+ */
+@RestController
+@RequestMapping("/api/v1/transfers")
+@RequiredArgsConstructor
+@Tag(name = "Transfers / 转账", description = "APIs for internal fund transfers / 内部转账相关API")
+public class TransferController {
+
+    private final TransferService transferService;
+
+    @PostMapping
+    @PreAuthorize("hasAuthority('CASA_TXN_POST')")
+    @Operation(summary = "Transfer funds / 转账", description = "Transfer funds between two accounts / 两个账户之间转账")
+    public ResponseEntity<ApiResponse<PostingResultDTO>> transfer(
+            @Valid @RequestBody TransferRequest request,
+            @CurrentUser UserPrincipal currentUser) {
+        PostingResultDTO result = transferService.transfer(request, currentUser.getId());
+        return ResponseEntity.status(HttpStatus.CREATED)
+            .body(ApiResponse.success("Transfer completed successfully / 转账成功", result));
+    }
+}
@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class AccountDTO {
     
     private Long id;
@@ -47,12 +47,14 @@ public class AccountDTO {
     // Interest
     private BigDecimal accruedInterest;
     private LocalDate lastInterestDate;
+    private LocalDate nextInterestPostingDate;
     private BigDecimal interestRate;
     
     // Time Deposit
     private LocalDate maturityDate;
     private BigDecimal principalAmount;
     private String maturityInstruction;
+    private Long maturityCreditAccountId;
     
     // Dates
     private LocalDate openDate;
@@ -102,10 +104,12 @@ public class AccountDTO {
                 .overdraftLimit(account.getOverdraftLimit())
                 .accruedInterest(account.getAccruedInterest())
                 .lastInterestDate(account.getLastInterestDate())
+                .nextInterestPostingDate(account.getNextInterestPostingDate())
                 .interestRate(account.getInterestRate())
                 .maturityDate(account.getMaturityDate())
                 .principalAmount(account.getPrincipalAmount())
                 .maturityInstruction(account.getMaturityInstruction())
+                .maturityCreditAccountId(account.getMaturityCreditAccountId())
                 .openDate(account.getOpenDate())
                 .closeDate(account.getCloseDate())
                 .lastTransactionDate(account.getLastTransactionDate())
@@ -0,0 +1,46 @@
+package com.secbank.cbs.dto;
+
+import com.secbank.cbs.entity.AccountHold;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Account Hold DTO / 账户冻结数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountHoldDTO {
+    private Long id;
+    private Long accountId;
+    private BigDecimal amount;
+    private String holdType;
+    private String reason;
+    private String reference;
+    private String status;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private Long createdBy;
+    private LocalDateTime releasedAt;
+    private Long releasedBy;
+
+    public static AccountHoldDTO fromEntity(AccountHold hold) {
+        return AccountHoldDTO.builder()
+            .id(hold.getId())
+            .accountId(hold.getAccountId())
+            .amount(hold.getAmount())
+            .holdType(hold.getHoldType().name())
+            .reason(hold.getReason())
+            .reference(hold.getReference())
+            .status(hold.getStatus().name())
+            .expiresAt(hold.getExpiresAt())
+            .createdAt(hold.getCreatedAt())
+            .createdBy(hold.getCreatedBy())
+            .releasedAt(hold.getReleasedAt())
+            .releasedBy(hold.getReleasedBy())
+            .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Balance Snapshot DTO / 余额快照数据传输对象
+ * End-of-day balance of an account and its month-to-date average daily balance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceSnapshotDTO {
+    private Long accountId;
+    private LocalDate date;
+    private BigDecimal balance;
+    /** Average daily balance from the first snapshot of the month to this date / 月初至今日均余额 */
+    private BigDecimal averageDailyBalance;
+    private Integer monthToDateDays;
+}
@@ -0,0 +1,40 @@
+package com.secbank.cbs.dto;
+
+import com.secbank.cbs.entity.BatchCheckpoint;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Batch Checkpoint DTO / 批处理检查点数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchCheckpointDTO {
+    private String jobName;
+    private LocalDate businessDate;
+    private Integer partitionNo;
+    private Long rangeStart;
+    private Long rangeEnd;
+    private Long lastId;
+    private Long processed;
+    private String status;
+    private LocalDateTime updatedAt;
+
+    public static BatchCheckpointDTO fromEntity(BatchCheckpoint checkpoint) {
+        return BatchCheckpointDTO.builder()
+            .jobName(checkpoint.getJobName())
+            .businessDate(checkpoint.getBusinessDate())
+            .partitionNo(checkpoint.getPartitionNo())
+            .rangeStart(checkpoint.getRangeStart())
+            .rangeEnd(checkpoint.getRangeEnd())
+            .lastId(checkpoint.getLastId())
+            .processed(checkpoint.getProcessed())
+            .status(checkpoint.getStatus())
+            .updatedAt(checkpoint.getUpdatedAt())
+            .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Batch Run Summary DTO / 批处理运行汇总数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchRunSummaryDTO {
+    private String jobName;
+    private LocalDate businessDate;
+    private int partitions;
+    /** Partitions continued from an earlier, interrupted run / 从中断运行继续的分区数 */
+    private int resumedPartitions;
+    /** Rows processed by this run / 本次运行处理的行数 */
+    private long processed;
+    private long durationMs;
+}
@@ -0,0 +1,39 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Customer Import Result DTO / 客户批量导入结果数据传输对象
+ * Outcome of one bulk import: row counts and the per-row errors of the rejected rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerImportResultDTO {
+    private Long importId;
+    /** Data rows read, excluding the header / 读取的数据行数（不含表头） */
+    private long totalRows;
+    private long imported;
+    private long rejected;
+    private long durationMs;
+    /** Errors in row order, capped at the configured maximum / 按行号排序的错误，数量有上限 */
+    private List<RowError> errors;
+    /** Whether more rows were rejected than errors reported / 被拒行数是否超过报告的错误数 */
+    private boolean errorsTruncated;
+
+    /**
+     * Rejection of one row / 单行拒绝原因
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class RowError {
+        /** Row number in the file, the header being row 1 / 文件中的行号（表头为第1行） */
+        private long row;
+        private String message;
+    }
+}
@@ -2,6 +2,8 @@ package com.secbank.cbs.dto;
 
 import lombok.*;
 
+import java.time.LocalDateTime;
+
 /**
  * Dashboard Statistics DTO / 仪表板统计DTO
  */
@@ -19,4 +21,5 @@ public class DashboardStatsDTO {
     private long totalPermissions;
     private long todayAuditLogs;
     private long totalAuditLogs;
+    private LocalDateTime refreshedAt;
 }
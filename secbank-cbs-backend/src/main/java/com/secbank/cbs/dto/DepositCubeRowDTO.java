@@ -0,0 +1,25 @@
+package com.secbank.cbs.dto;
+
+import com.secbank.cbs.entity.Account.AccountStatus;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Deposit Cube Row DTO / 存款立方体行DTO
+ * One roll-up row; dimensions that were not grouped on are left null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DepositCubeRowDTO {
+
+    private Long branchId;
+    private Long accountTypeId;
+    private AccountStatus status;
+    private String currency;
+    private String openMonth;   // yyyy-MM
+    private long accountCount;
+    private BigDecimal totalBalance;
+}
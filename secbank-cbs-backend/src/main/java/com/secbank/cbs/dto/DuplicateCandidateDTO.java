@@ -0,0 +1,32 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Duplicate Candidate DTO / 疑似重复客户数据传输对象
+ * A pair of customers that probably are the same person or company: {@code customerId} is the
+ * newer record, {@code duplicateOfId} the existing one it resembles.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DuplicateCandidateDTO {
+    /** Newer customer; null when screening an application not yet created / 较新客户（开户前预检时为空） */
+    private Long customerId;
+    private String customerNumber;
+    private String customerName;
+    private Long duplicateOfId;
+    private String duplicateOfNumber;
+    private String duplicateOfName;
+    /** Similarity score in [0, 1] / 相似度分值 */
+    private BigDecimal score;
+    /** Attributes that agreed, e.g. NAME,DOB,MOBILE / 一致的属性 */
+    private String matchedOn;
+    /** OPEN, CONFIRMED or DISMISSED / 状态 */
+    private String status;
+    private LocalDateTime detectedAt;
+}
@@ -0,0 +1,71 @@
+package com.secbank.cbs.dto;
+
+import com.secbank.cbs.entity.EodRun;
+import com.secbank.cbs.entity.EodStepRun;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * EOD Run DTO / 日终运行数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EodRunDTO {
+    private LocalDate businessDate;
+    private String status;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private Integer attempts;
+    private List<Step> steps;
+
+    /**
+     * EOD step outcome / 日终步骤结果
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Step {
+        private String name;
+        private Integer order;
+        private String status;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private Long processed;
+        private Long durationMs;
+        /** Rows processed per second / 每秒处理行数 */
+        private Long rowsPerSecond;
+        private String errorMessage;
+
+        public static Step fromEntity(EodStepRun step) {
+            Long durationMs = step.getDurationMs();
+            return Step.builder()
+                .name(step.getStepName())
+                .order(step.getStepOrder())
+                .status(step.getStatus())
+                .startedAt(step.getStartedAt())
+                .finishedAt(step.getFinishedAt())
+                .processed(step.getProcessed())
+                .durationMs(durationMs)
+                .rowsPerSecond(durationMs != null && durationMs > 0 ? step.getProcessed() * 1000 / durationMs : null)
+                .errorMessage(step.getErrorMessage())
+                .build();
+        }
+    }
+
+    public static EodRunDTO fromEntity(EodRun run, List<EodStepRun> steps) {
+        return EodRunDTO.builder()
+            .businessDate(run.getBusinessDate())
+            .status(run.getStatus())
+            .startedAt(run.getStartedAt())
+            .finishedAt(run.getFinishedAt())
+            .attempts(run.getAttempts())
+            .steps(steps.stream().map(Step::fromEntity).toList())
+            .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Fee Run Summary DTO / 费用批处理汇总数据传输对象
+ * Fees charged for one month, in total and per account type, plus the statistics of the run
+ * that produced the summary.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FeeRunSummaryDTO {
+    private LocalDate periodStart;
+    private LocalDate businessDate;
+    /** AVERAGE or ENDING / 平均余额或期末余额 */
+    private String balanceBasis;
+    private long accountsCharged;
+    private BigDecimal monthlyFeeTotal;
+    private BigDecimal belowMinimumFeeTotal;
+    /** Fees not charged because the available balance could not cover them / 因可用余额不足未收取的费用 */
+    private BigDecimal waivedTotal;
+    private List<ProductTotal> products;
+    private BatchRunSummaryDTO run;
+
+    /**
+     * Totals of one account type / 单个账户类型汇总
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ProductTotal {
+        private Long accountTypeId;
+        private String typeCode;
+        private long accounts;
+        private BigDecimal monthlyFee;
+        private BigDecimal belowMinimumFee;
+        private BigDecimal waived;
+    }
+}
@@ -0,0 +1,29 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Journal Line DTO / 日志分录数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JournalLineDTO {
+    private Long lineId;
+    private Long entryId;
+    private LocalDate entryDate;
+    private String reference;
+    private String txnType;
+    private String description;
+    private Long accountId;
+    private String glCode;
+    private String direction;
+    private BigDecimal amount;
+    private BigDecimal balanceAfter;
+    private LocalDateTime postedAt;
+}
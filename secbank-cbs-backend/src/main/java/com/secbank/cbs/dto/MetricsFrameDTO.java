@@ -0,0 +1,22 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Metrics Frame DTO / 指标推送帧DTO
+ * One server-sent frame: either a full snapshot or only the metrics that changed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetricsFrameDTO {
+
+    private long version;
+    private String type;    // SNAPSHOT, DELTA
+    private Map<String, Object> metrics;
+    private LocalDateTime timestamp;
+}
@@ -1,5 +1,6 @@
 package com.secbank.cbs.dto;
 
+import com.secbank.cbs.entity.Permission;
 import lombok.*;
 
 /**
@@ -17,4 +18,16 @@ public class PermissionDTO {
     private String module;
     private String description;
     private String descriptionCn;
+
+    public static PermissionDTO fromEntity(Permission permission) {
+        return PermissionDTO.builder()
+            .id(permission.getId())
+            .permissionCode(permission.getPermissionCode())
+            .permissionName(permission.getPermissionName())
+            .permissionNameCn(permission.getPermissionNameCn())
+            .module(permission.getModule())
+            .description(permission.getDescription())
+            .descriptionCn(permission.getDescriptionCn())
+            .build();
+    }
 }
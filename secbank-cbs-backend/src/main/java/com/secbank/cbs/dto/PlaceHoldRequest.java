@@ -0,0 +1,36 @@
+package com.secbank.cbs.dto;
+
+import com.secbank.cbs.entity.AccountHold.HoldType;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Place Hold Request / 设置冻结请求
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PlaceHoldRequest {
+
+    @NotNull(message = "Amount is required / 金额必填")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Amount must be positive / 金额必须为正数")
+    @Digits(integer = 16, fraction = 2)
+    private BigDecimal amount;
+
+    @NotNull(message = "Hold type is required / 冻结类型必填")
+    private HoldType holdType;
+
+    @Size(max = 200)
+    private String reason;
+
+    /** Authorization or cheque reference, unique per account / 授权或支票参考号，账户内唯一 */
+    @Size(max = 40)
+    private String reference;
+
+    @Future(message = "Expiry must be in the future / 到期时间必须晚于当前时间")
+    private LocalDateTime expiresAt;
+}
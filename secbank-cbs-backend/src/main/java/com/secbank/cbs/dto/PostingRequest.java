@@ -0,0 +1,69 @@
+package com.secbank.cbs.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Posting Request / 记账请求
+ * One balanced journal entry. Each leg targets either a customer account or a GL code.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostingRequest {
+
+    @Size(max = 40, message = "Reference must not exceed 40 characters / 参考号不能超过40个字符")
+    private String reference;
+
+    @NotBlank(message = "Transaction type is required / 交易类型必填")
+    @Size(max = 30)
+    private String txnType;
+
+    @Size(max = 255)
+    private String description;
+
+    @NotBlank(message = "Currency is required / 币种必填")
+    @Size(min = 3, max = 3)
+    private String currency;
+
+    @NotEmpty(message = "Legs are required / 分录必填")
+    @Size(min = 2, message = "At least two legs are required / 至少需要两条分录")
+    @Valid
+    private List<Leg> legs;
+
+    /**
+     * Posting leg / 分录行
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Leg {
+
+        private Long accountId;
+
+        @Size(max = 20)
+        private String glCode;
+
+        @NotNull(message = "Direction is required / 借贷方向必填")
+        private Direction direction;
+
+        @NotNull(message = "Amount is required / 金额必填")
+        @DecimalMin(value = "0.0", inclusive = false, message = "Amount must be positive / 金额必须为正数")
+        @Digits(integer = 16, fraction = 2)
+        private BigDecimal amount;
+    }
+
+    public enum Direction {
+        DEBIT, CREDIT;
+
+        public String code() {
+            return this == DEBIT ? "D" : "C";
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.secbank.cbs.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Posting Result DTO / 记账结果数据传输对象
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostingResultDTO {
+    private Long entryId;
+    private String reference;
+    private LocalDate entryDate;
+    private BigDecimal totalAmount;
+    private List<AccountBalance> balances;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class AccountBalance {
+        private Long accountId;
+        private BigDecimal currentBalance;
+        private BigDecimal availableBalance;
+    }
+}
@@ -0,0 +1,38 @@
+package com.secbank.cbs.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * Transfer Request / 转账请求
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransferRequest {
+
+    @NotNull(message = "Source account ID is required / 转出账户ID必填")
+    private Long fromAccountId;
+
+    @NotNull(message = "Destination account ID is required / 转入账户ID必填")
+    private Long toAccountId;
+
+    @NotNull(message = "Amount is required / 金额必填")
+    @DecimalMin(value = "0.0", inclusive = false, message = "Amount must be positive / 金额必须为正数")
+    @Digits(integer = 16, fraction = 2)
+    private BigDecimal amount;
+
+    /** Defaults to the source account currency / 默认为转出账户币种 */
+    @Size(min = 3, max = 3)
+    private String currency;
+
+    /** Client reference, used to reject duplicates on the same day / 客户端参考号，用于当日去重 */
+    @Size(max = 40)
+    private String reference;
+
+    @Size(max = 255)
+    private String description;
+}
@@ -12,7 +12,12 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "accounts")
+@Table(name = "accounts", indexes = {
+    @Index(name = "idx_accounts_next_interest_posting", columnList = "next_interest_posting_date"),
+    @Index(name = "idx_accounts_branch_status_last_txn", columnList = "branch_id, status, last_transaction_date"),
+    @Index(name = "idx_accounts_maturity_date", columnList = "maturity_date"),
+    @Index(name = "idx_accounts_branch_id", columnList = "branch_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -73,6 +78,9 @@ public class Account {
     @Column(name = "interest_rate_override", precision = 8, scale = 4)
     private BigDecimal interestRateOverride;  // Override account type rate if needed
     
+    @Column(name = "next_interest_posting_date")
+    private LocalDate nextInterestPostingDate;  // Capitalization date per the type's posting frequency
+    
     // Time Deposit Specific
     @Column(name = "maturity_date")
     private LocalDate maturityDate;
@@ -83,6 +91,9 @@ public class Account {
     @Column(name = "maturity_instruction", length = 20)
     private String maturityInstruction;  // AUTO_RENEW, CREDIT_TO_ACCOUNT, etc.
     
+    @Column(name = "maturity_credit_account_id")
+    private Long maturityCreditAccountId;  // Settlement account for CREDIT_TO_ACCOUNT
+    
     // Account Dates
     @Column(name = "open_date", nullable = false)
     private LocalDate openDate;
@@ -0,0 +1,81 @@
+package com.secbank.cbs.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * AccountHold Entity / 账户冻结实体
+ * An individual hold or lien earmarking part of an account balance. The sum of active holds
+ * is kept in {@code accounts.hold_balance}; rows are written by {@code HoldService} with
+ * conditional SQL so the two never drift apart.
+ * 单笔冻结/留置，活动冻结合计保存在账户hold_balance中
+ */
+@Entity
+@Table(name = "account_holds",
+    uniqueConstraints = @UniqueConstraint(name = "uk_account_holds_reference", columnNames = {"account_id", "reference"}),
+    indexes = {
+        @Index(name = "idx_account_holds_account", columnList = "account_id, status"),
+        @Index(name = "idx_account_holds_expiry", columnList = "status, expires_at")
+    })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(precision = 18, scale = 2, nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "hold_type", nullable = false, length = 20)
+    private HoldType holdType;
+
+    @Column(length = 200)
+    private String reason;
+
+    @Column(length = 40)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private HoldStatus status;
+
+    /** Null for holds that stay until released / 为空表示需手动解除 */
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "created_by")
+    private Long createdBy;
+
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+
+    @Column(name = "released_by")
+    private Long releasedBy;
+
+    public enum HoldType {
+        CARD_AUTHORIZATION, // 卡授权
+        CHEQUE,             // 支票
+        LIEN,               // 留置（可超出可用余额）
+        MANUAL              // 手工冻结
+    }
+
+    public enum HoldStatus {
+        ACTIVE,     // 生效
+        RELEASED,   // 已解除
+        EXPIRED     // 已到期
+    }
+}
@@ -0,0 +1,55 @@
+package com.secbank.cbs.entity;
+
+import com.secbank.cbs.entity.Account.AccountStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Account Statistic Entity / 账户统计实体
+ * Pre-aggregated account counts and balances per status, branch, account type and currency.
+ * Each dimension combination is spread over a few slots so that concurrent postings
+ * on the same branch/product do not all queue on one row.
+ * 按状态、分行、账户类型和币种预聚合的账户数量与余额
+ */
+@Entity
+@Table(name = "account_stats",
+       uniqueConstraints = @UniqueConstraint(name = "uk_account_stats_dims",
+           columnNames = {"status", "branch_id", "account_type_id", "currency", "slot"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountStatistic {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AccountStatus status;
+
+    @Column(name = "branch_id", nullable = false)
+    private Long branchId;
+
+    @Column(name = "account_type_id", nullable = false)
+    private Long accountTypeId;
+
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    @Column(nullable = false)
+    private Integer slot;
+
+    @Column(name = "account_count", nullable = false)
+    private Long accountCount;
+
+    @Column(name = "total_balance", precision = 20, scale = 2, nullable = false)
+    private BigDecimal totalBalance;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,57 @@
+package com.secbank.cbs.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * BatchCheckpoint Entity / 批处理检查点实体
+ * Progress of one id-range partition of a batch job run. Written in the same transaction as
+ * each processed chunk, so a restarted run resumes after the last committed chunk.
+ * 批处理分区进度，与每个数据块同事务写入，重启后从最后提交的数据块之后继续
+ */
+@Entity
+@Table(name = "batch_checkpoints",
+    uniqueConstraints = @UniqueConstraint(name = "uk_batch_checkpoints_partition",
+        columnNames = {"job_name", "business_date", "partition_no"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 50)
+    private String jobName;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    /** Exclusive lower bound of the partition's id range / 分区ID下界（不含） */
+    @Column(name = "range_start", nullable = false)
+    private Long rangeStart;
+
+    /** Inclusive upper bound of the partition's id range / 分区ID上界（含） */
+    @Column(name = "range_end", nullable = false)
+    private Long rangeEnd;
+
+    @Column(name = "last_id", nullable = false)
+    private Long lastId;
+
+    @Column(nullable = false)
+    private Long processed;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -11,7 +11,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "customers")
+@Table(name = "customers", indexes = {
+    @Index(name = "idx_customers_id_number", columnList = "id_number, id_type"),
+    @Index(name = "idx_customers_email", columnList = "email"),
+    @Index(name = "idx_customers_tax_id", columnList = "tax_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,39 @@
+package com.secbank.cbs.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * EodRun Entity / 日终运行实体
+ * One end-of-day run per business date. The business date rolls over to the next day once its
+ * run has completed.
+ * 每个营业日一次日终运行，完成后营业日滚动至下一日
+ */
+@Entity
+@Table(name = "eod_runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EodRun {
+
+    @Id
+    @Column(name = "business_date")
+    private LocalDate businessDate;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    /** Number of times the run was started, including resumptions / 启动次数（含续跑） */
+    @Column(nullable = false)
+    private Integer attempts;
+}
@@ -0,0 +1,55 @@
+package com.secbank.cbs.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * EodStepRun Entity / 日终步骤运行实体
+ * Outcome of one step of an end-of-day run. Completed steps are skipped when a failed run is
+ * resumed; the step's own partition checkpoints resume the step that failed.
+ * 日终步骤运行结果；续跑时跳过已完成步骤，失败步骤由其分区检查点续跑
+ */
+@Entity
+@Table(name = "eod_step_runs",
+    uniqueConstraints = @UniqueConstraint(name = "uk_eod_step_runs_step",
+        columnNames = {"business_date", "step_name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EodStepRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "business_date", nullable = false)
+    private LocalDate businessDate;
+
+    @Column(name = "step_name", nullable = false, length = 50)
+    private String stepName;
+
+    @Column(name = "step_order", nullable = false)
+    private Integer stepOrder;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(nullable = false)
+    private Long processed;
+
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+}
@@ -0,0 +1,55 @@
+package com.secbank.cbs.event;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Account Changed Event / 账户变更事件
+ * Published inside the writing transaction whenever accounts are opened or their status,
+ * balance or terms change. A single event may carry many changes (batch postings); a change
+ * with the same snapshot on both sides only invalidates cached copies of the account.
+ * 在写事务内发布，一个事件可包含多个账户变更
+ */
+@Getter
+public class AccountChangedEvent {
+
+    /** Source of changes posted by the in-memory posting engine. */
+    public static final String SOURCE_POSTING_ENGINE = "POSTING_ENGINE";
+
+    private final List<Change> changes;
+
+    /** Null for the regular transactional paths. */
+    private final String source;
+
+    public AccountChangedEvent(List<Change> changes) {
+        this(changes, null);
+    }
+
+    public AccountChangedEvent(List<Change> changes, String source) {
+        this.changes = List.copyOf(changes);
+        this.source = source;
+    }
+
+    public static AccountChangedEvent opened(AccountSnapshot after) {
+        return new AccountChangedEvent(List.of(new Change(null, after)));
+    }
+
+    public static AccountChangedEvent updated(AccountSnapshot before, AccountSnapshot after) {
+        return new AccountChangedEvent(List.of(new Change(before, after)));
+    }
+
+    /**
+     * One account transition. {@code before} is null for newly opened accounts.
+     */
+    @Value
+    public static class Change {
+        AccountSnapshot before;
+        AccountSnapshot after;
+
+        public Long getAccountId() {
+            return after != null ? after.getAccountId() : before.getAccountId();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.secbank.cbs.event;
+
+import com.secbank.cbs.entity.Account;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import lombok.Builder;
+import lombok.Value;
+import lombok.With;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Account Snapshot / 账户快照
+ * Immutable copy of the account fields that aggregates, caches and streams care about.
+ */
+@Value
+@Builder
+public class AccountSnapshot {
+
+    Long accountId;
+    String accountNumber;
+    @With
+    AccountStatus status;
+    Long branchId;
+    Long accountTypeId;
+    String currency;
+    BigDecimal currentBalance;
+    LocalDate openDate;
+
+    public static AccountSnapshot of(Account account) {
+        return AccountSnapshot.builder()
+            .accountId(account.getId())
+            .accountNumber(account.getAccountNumber())
+            .status(account.getStatus())
+            .branchId(account.getBranch() != null ? account.getBranch().getId() : null)
+            .accountTypeId(account.getAccountType() != null ? account.getAccountType().getId() : null)
+            .currency(account.getCurrency())
+            .currentBalance(account.getCurrentBalance() != null ? account.getCurrentBalance() : BigDecimal.ZERO)
+            .openDate(account.getOpenDate())
+            .build();
+    }
+}
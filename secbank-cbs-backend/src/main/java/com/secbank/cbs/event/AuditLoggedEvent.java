@@ -0,0 +1,17 @@
+package com.secbank.cbs.event;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audit Logged Event / 审计日志写入事件
+ * Published after an audit row has been written.
+ */
+@Value
+public class AuditLoggedEvent {
+
+    String module;
+    String action;
+    LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.secbank.cbs.event;
+
+import com.secbank.cbs.entity.Customer.CustomerType;
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * Customers Imported Event / 客户批量导入事件
+ * Published by a bulk import in place of one {@link StatusChangedEvent} per row; every imported
+ * customer is created ACTIVE, so the counts per customer type are all listeners need.
+ * 批量导入以一个事件代替逐行状态事件；导入客户均为ACTIVE状态，按客户类型计数
+ */
+@Value
+public class CustomersImportedEvent {
+
+    long importId;
+    Map<CustomerType, Long> importedByType;
+}
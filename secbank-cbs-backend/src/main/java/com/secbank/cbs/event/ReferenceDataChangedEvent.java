@@ -0,0 +1,17 @@
+package com.secbank.cbs.event;
+
+import lombok.Value;
+
+/**
+ * Reference Data Changed Event / 参考数据变更事件
+ * Published by the admin update paths so the reference data cache can swap in a fresh copy.
+ */
+@Value
+public class ReferenceDataChangedEvent {
+
+    Kind kind;
+
+    public enum Kind {
+        ACCOUNT_TYPE, BRANCH, ROLE, PERMISSION
+    }
+}
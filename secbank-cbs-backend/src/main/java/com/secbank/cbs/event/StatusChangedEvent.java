@@ -0,0 +1,35 @@
+package com.secbank.cbs.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Status Changed Event / 状态变更事件
+ * Published when a user, branch or customer is created, deleted or changes status.
+ * {@code oldStatus} is null on creation and {@code newStatus} is null on deletion.
+ * {@code category} optionally carries a fixed classification of the entity (the customer type),
+ * so listeners can keep per-category counts without a query.
+ * 创建时旧状态为空，删除时新状态为空；category可携带实体固定分类（如客户类型）
+ */
+@Value
+@AllArgsConstructor
+public class StatusChangedEvent {
+
+    String entityType;
+    Long entityId;
+    String oldStatus;
+    String newStatus;
+    String category;
+
+    public StatusChangedEvent(String entityType, Long entityId, String oldStatus, String newStatus) {
+        this(entityType, entityId, oldStatus, newStatus, null);
+    }
+
+    public boolean isCreated() {
+        return oldStatus == null && newStatus != null;
+    }
+
+    public boolean isDeleted() {
+        return oldStatus != null && newStatus == null;
+    }
+}
@@ -0,0 +1,16 @@
+package com.secbank.cbs.repository;
+
+import com.secbank.cbs.entity.AccountHold;
+import com.secbank.cbs.entity.AccountHold.HoldStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AccountHoldRepository extends JpaRepository<AccountHold, Long> {
+
+    List<AccountHold> findByAccountIdOrderByCreatedAtDesc(Long accountId);
+
+    List<AccountHold> findByAccountIdAndStatusOrderByCreatedAtDesc(Long accountId, HoldStatus status);
+}
@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,4 +70,23 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     
     @Query("SELECT COUNT(a) FROM Account a WHERE a.customer.id = :customerId AND a.status IN ('ACTIVE', 'DORMANT', 'FROZEN')")
     long countActiveAccountsByCustomer(@Param("customerId") Long customerId);
+    
+    @Query("SELECT a FROM Account a JOIN FETCH a.customer JOIN FETCH a.accountType JOIN FETCH a.branch " +
+           "WHERE a.accountNumber = :accountNumber")
+    Optional<Account> findDetailedByAccountNumber(@Param("accountNumber") String accountNumber);
+    
+    @Query("SELECT a.accountNumber FROM Account a WHERE a.id = :id")
+    Optional<String> findAccountNumberById(@Param("id") Long id);
+    
+    @Query("SELECT a.currentBalance AS currentBalance, a.availableBalance AS availableBalance, " +
+           "a.holdBalance AS holdBalance, a.lastTransactionDate AS lastTransactionDate " +
+           "FROM Account a WHERE a.id = :id")
+    Optional<BalanceView> findBalanceViewById(@Param("id") Long id);
+    
+    interface BalanceView {
+        BigDecimal getCurrentBalance();
+        BigDecimal getAvailableBalance();
+        BigDecimal getHoldBalance();
+        LocalDateTime getLastTransactionDate();
+    }
 }
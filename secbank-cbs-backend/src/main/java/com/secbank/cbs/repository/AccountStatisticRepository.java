@@ -0,0 +1,115 @@
+package com.secbank.cbs.repository;
+
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.entity.AccountStatistic;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Account Statistic Repository / 账户统计数据仓库
+ */
+@Repository
+public interface AccountStatisticRepository extends JpaRepository<AccountStatistic, Long> {
+
+    /**
+     * Apply a count/balance delta to one aggregate row, creating it if needed.
+     * 对单个聚合行应用增量，不存在时创建
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_stats (status, branch_id, account_type_id, currency, slot, " +
+                   "account_count, total_balance, updated_at) " +
+                   "VALUES (:status, :branchId, :accountTypeId, :currency, :slot, :countDelta, :balanceDelta, NOW()) " +
+                   "ON CONFLICT (status, branch_id, account_type_id, currency, slot) DO UPDATE SET " +
+                   "account_count = account_stats.account_count + EXCLUDED.account_count, " +
+                   "total_balance = account_stats.total_balance + EXCLUDED.total_balance, " +
+                   "updated_at = NOW()",
+           nativeQuery = true)
+    int applyDelta(@Param("status") String status,
+                   @Param("branchId") Long branchId,
+                   @Param("accountTypeId") Long accountTypeId,
+                   @Param("currency") String currency,
+                   @Param("slot") int slot,
+                   @Param("countDelta") long countDelta,
+                   @Param("balanceDelta") BigDecimal balanceDelta);
+
+    /**
+     * Totals per status.
+     * 按状态汇总
+     */
+    @Query("SELECT s.status AS status, SUM(s.accountCount) AS accountCount, SUM(s.totalBalance) AS totalBalance " +
+           "FROM AccountStatistic s GROUP BY s.status")
+    List<StatusTotals> sumByStatus();
+
+    /**
+     * Account count of a branch, all statuses.
+     * 分行账户总数（所有状态）
+     */
+    @Query("SELECT COALESCE(SUM(s.accountCount), 0) FROM AccountStatistic s WHERE s.branchId = :branchId")
+    long countByBranchId(@Param("branchId") Long branchId);
+
+    /**
+     * Active balance of a branch.
+     * 分行活跃账户余额
+     */
+    @Query("SELECT COALESCE(SUM(s.totalBalance), 0) FROM AccountStatistic s " +
+           "WHERE s.branchId = :branchId AND s.status = 'ACTIVE'")
+    BigDecimal sumActiveBalanceByBranchId(@Param("branchId") Long branchId);
+
+    /**
+     * Block delta writers for the duration of a reconciliation.
+     * 对账期间阻塞增量写入
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE account_stats IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForReconcile();
+
+    /**
+     * Number of dimension combinations whose stored totals differ from a full scan.
+     * 与全表扫描结果不一致的维度组合数量
+     */
+    @Query(value = "SELECT COUNT(*) FROM (" +
+                   "  SELECT status, branch_id, account_type_id, currency, " +
+                   "         COUNT(*) AS account_count, SUM(current_balance) AS total_balance " +
+                   "  FROM accounts GROUP BY status, branch_id, account_type_id, currency) a " +
+                   "FULL JOIN (" +
+                   "  SELECT status, branch_id, account_type_id, currency, " +
+                   "         SUM(account_count) AS account_count, SUM(total_balance) AS total_balance " +
+                   "  FROM account_stats GROUP BY status, branch_id, account_type_id, currency) s " +
+                   "USING (status, branch_id, account_type_id, currency) " +
+                   "WHERE COALESCE(a.account_count, 0) <> COALESCE(s.account_count, 0) " +
+                   "   OR COALESCE(a.total_balance, 0) <> COALESCE(s.total_balance, 0)",
+           nativeQuery = true)
+    long countDrift();
+
+    @Modifying
+    @Query(value = "DELETE FROM account_stats", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * Rebuild all aggregate rows from the accounts table.
+     * 从账户表重建所有聚合行
+     */
+    @Modifying
+    @Query(value = "INSERT INTO account_stats (status, branch_id, account_type_id, currency, slot, " +
+                   "account_count, total_balance, updated_at) " +
+                   "SELECT status, branch_id, account_type_id, currency, CAST(MOD(id, :slots) AS INTEGER), " +
+                   "COUNT(*), COALESCE(SUM(current_balance), 0), NOW() " +
+                   "FROM accounts GROUP BY 1, 2, 3, 4, 5",
+           nativeQuery = true)
+    int rebuildFromAccounts(@Param("slots") int slots);
+
+    /**
+     * Status totals projection / 状态汇总投影
+     */
+    interface StatusTotals {
+        AccountStatus getStatus();
+        Long getAccountCount();
+        BigDecimal getTotalBalance();
+    }
+}
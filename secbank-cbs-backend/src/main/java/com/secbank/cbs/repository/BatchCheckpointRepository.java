@@ -0,0 +1,14 @@
+package com.secbank.cbs.repository;
+
+import com.secbank.cbs.entity.BatchCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BatchCheckpointRepository extends JpaRepository<BatchCheckpoint, Long> {
+
+    List<BatchCheckpoint> findByJobNameAndBusinessDateOrderByPartitionNo(String jobName, LocalDate businessDate);
+}
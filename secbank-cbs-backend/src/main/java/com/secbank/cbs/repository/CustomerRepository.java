@@ -24,6 +24,8 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     boolean existsByIdNumber(String idNumber);
     
+    boolean existsByTaxId(String taxId);
+    
     List<Customer> findByStatus(CustomerStatus status);
     
     List<Customer> findByCustomerType(CustomerType customerType);
@@ -69,6 +71,16 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     long countByCustomerType(CustomerType customerType);
     
+    @Query("SELECT c.status AS status, c.customerType AS customerType, COUNT(c) AS total " +
+           "FROM Customer c GROUP BY c.status, c.customerType")
+    List<StatusTypeCount> countGroupedByStatusAndType();
+    
     @Query("SELECT MAX(c.customerNumber) FROM Customer c WHERE c.customerNumber LIKE :prefix%")
     String findMaxCustomerNumberByPrefix(@Param("prefix") String prefix);
+    
+    interface StatusTypeCount {
+        CustomerStatus getStatus();
+        CustomerType getCustomerType();
+        Long getTotal();
+    }
 }
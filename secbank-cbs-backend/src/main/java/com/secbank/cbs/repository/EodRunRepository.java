@@ -0,0 +1,14 @@
+package com.secbank.cbs.repository;
+
+import com.secbank.cbs.entity.EodRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@Repository
+public interface EodRunRepository extends JpaRepository<EodRun, LocalDate> {
+
+    Optional<EodRun> findTopByOrderByBusinessDateDesc();
+}
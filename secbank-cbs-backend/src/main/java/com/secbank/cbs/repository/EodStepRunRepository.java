@@ -0,0 +1,17 @@
+package com.secbank.cbs.repository;
+
+import com.secbank.cbs.entity.EodStepRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EodStepRunRepository extends JpaRepository<EodStepRun, Long> {
+
+    List<EodStepRun> findByBusinessDateOrderByStepOrder(LocalDate businessDate);
+
+    Optional<EodStepRun> findByBusinessDateAndStepName(LocalDate businessDate, String stepName);
+}
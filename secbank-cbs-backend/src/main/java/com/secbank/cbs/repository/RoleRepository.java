@@ -36,6 +36,13 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
      */
     List<Role> findByStatus(String status);
 
+    /**
+     * Find all roles with their permissions in one query.
+     * 一次查询获取所有角色及其权限
+     */
+    @Query("SELECT DISTINCT r FROM Role r LEFT JOIN FETCH r.permissions")
+    List<Role> findAllWithPermissions();
+
     /**
      * Find roles by status with pagination.
      * 分页查找指定状态的角色
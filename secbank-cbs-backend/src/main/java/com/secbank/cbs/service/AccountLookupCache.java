@@ -0,0 +1,206 @@
+package com.secbank.cbs.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.secbank.cbs.dto.AccountDTO;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.repository.AccountRepository;
+import com.secbank.cbs.repository.AccountRepository.BalanceView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Account Lookup Cache / 账户查询缓存
+ * Bounded cache of account summaries for the channel lookups (teller inquiry, ATM host, IVR).
+ * Caffeine's W-TinyLFU admission keeps the hot accounts resident under a scan of cold ones.
+ * Entries are keyed by account number with a secondary id index, and are invalidated after
+ * every committed {@link AccountChangedEvent}. Staleness is bounded per field group: status
+ * and descriptive fields reload the whole entry, balances are re-read on their own.
+ * 渠道账户查询的有界缓存：W-TinyLFU准入；按账号缓存并带ID索引；提交后按事件精确失效；
+ * 状态与余额分别设置最大陈旧时间
+ */
+@Service
+@Slf4j
+public class AccountLookupCache {
+
+    private final AccountRepository accountRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration statusMaxStaleness;
+    private final Duration balanceMaxStaleness;
+
+    private final Cache<String, Entry> byNumber;
+    private final Map<Long, String> numberById = new ConcurrentHashMap<>();
+    private final Counter balanceRefreshes;
+    private final Counter invalidations;
+
+    public AccountLookupCache(AccountRepository accountRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.account-cache.max-size:200000}") long maxSize,
+                              @Value("${app.account-cache.status-max-staleness:10m}") Duration statusMaxStaleness,
+                              @Value("${app.account-cache.balance-max-staleness:5s}") Duration balanceMaxStaleness) {
+        this.accountRepository = accountRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.statusMaxStaleness = statusMaxStaleness;
+        this.balanceMaxStaleness = balanceMaxStaleness;
+
+        this.byNumber = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(new StatusStalenessExpiry())
+            .removalListener((String number, Entry entry, RemovalCause cause) -> {
+                if (entry != null && cause != RemovalCause.REPLACED) {
+                    numberById.remove(entry.dto().getId(), number);
+                }
+            })
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, byNumber, "account.lookup");
+        this.balanceRefreshes = Counter.builder("account.lookup.balance.refreshes")
+            .description("Cached account entries whose balances were re-read after exceeding the balance staleness")
+            .register(meterRegistry);
+        this.invalidations = Counter.builder("account.lookup.invalidations")
+            .description("Cached account entries invalidated by account change events")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Look up an account summary by account number.
+     * 根据账号查询账户摘要
+     */
+    public Optional<AccountDTO> findByAccountNumber(String accountNumber) {
+        Entry entry = byNumber.get(accountNumber, this::load);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(freshBalances(accountNumber, entry).dto());
+    }
+
+    /**
+     * Look up an account summary by id through the id index.
+     * 通过ID索引查询账户摘要
+     */
+    public Optional<AccountDTO> findById(Long id) {
+        String accountNumber = numberById.get(id);
+        if (accountNumber == null) {
+            accountNumber = readOnlyTransaction.execute(status ->
+                accountRepository.findAccountNumberById(id).orElse(null));
+            if (accountNumber == null) {
+                return Optional.empty();
+            }
+        }
+        return findByAccountNumber(accountNumber);
+    }
+
+    /**
+     * Drop every account touched by a committed change. Runs after commit so a concurrent
+     * load either sees the new row or is removed by this call (Caffeine serialises the load
+     * and the invalidation of the same key).
+     * 提交后使受影响账户失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        for (AccountChangedEvent.Change change : event.getChanges()) {
+            String accountNumber = change.getAfter() != null
+                ? change.getAfter().getAccountNumber()
+                : change.getBefore().getAccountNumber();
+            byNumber.invalidate(accountNumber);
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Drop everything, e.g. after a bulk set-based update that bypassed the event path.
+     * 清空缓存（如绕过事件的批量更新之后）
+     */
+    public void invalidateAll() {
+        byNumber.invalidateAll();
+        log.info("Account lookup cache cleared / 账户查询缓存已清空");
+    }
+
+    private Entry load(String accountNumber) {
+        return readOnlyTransaction.execute(status -> accountRepository.findDetailedByAccountNumber(accountNumber)
+            .map(account -> {
+                long now = System.nanoTime();
+                numberById.put(account.getId(), accountNumber);
+                return new Entry(AccountDTO.fromEntity(account), now, now);
+            })
+            .orElse(null));
+    }
+
+    private Entry freshBalances(String accountNumber, Entry entry) {
+        if (System.nanoTime() - entry.balanceReadAt() < balanceMaxStaleness.toNanos()) {
+            return entry;
+        }
+        Entry refreshed = byNumber.asMap().computeIfPresent(accountNumber, (number, current) -> {
+            if (System.nanoTime() - current.balanceReadAt() < balanceMaxStaleness.toNanos()) {
+                return current;
+            }
+            Optional<BalanceView> balances = readOnlyTransaction.execute(status ->
+                accountRepository.findBalanceViewById(current.dto().getId()));
+            if (balances == null || balances.isEmpty()) {
+                return null;
+            }
+            balanceRefreshes.increment();
+            return current.withBalances(balances.get(), System.nanoTime());
+        });
+        return refreshed != null ? refreshed : entry;
+    }
+
+    /**
+     * Cached summary plus the times it was loaded and its balances were last read.
+     */
+    private record Entry(AccountDTO dto, long loadedAt, long balanceReadAt) {
+
+        Entry withBalances(BalanceView balances, long readAt) {
+            AccountDTO updated = dto.toBuilder()
+                .currentBalance(balances.getCurrentBalance())
+                .availableBalance(balances.getAvailableBalance())
+                .holdBalance(balances.getHoldBalance())
+                .lastTransactionDate(balances.getLastTransactionDate())
+                .build();
+            return new Entry(updated, loadedAt, readAt);
+        }
+    }
+
+    /**
+     * Expires an entry a fixed time after it was fully loaded; a balance-only refresh
+     * replaces the entry but does not extend its life.
+     */
+    private final class StatusStalenessExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return remaining(entry);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return remaining(entry);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long remaining(Entry entry) {
+            return Math.max(0, statusMaxStaleness.toNanos() - (System.nanoTime() - entry.loadedAt()));
+        }
+    }
+}
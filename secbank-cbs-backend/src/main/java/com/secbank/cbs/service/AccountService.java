@@ -5,11 +5,12 @@ import com.secbank.cbs.entity.Account.AccountStatus;
 import com.secbank.cbs.entity.AccountType;
 import com.secbank.cbs.entity.Branch;
 import com.secbank.cbs.entity.Customer;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
 import com.secbank.cbs.repository.AccountRepository;
-import com.secbank.cbs.repository.AccountTypeRepository;
-import com.secbank.cbs.repository.BranchRepository;
 import com.secbank.cbs.repository.CustomerRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -27,8 +28,8 @@ public class AccountService {
     
     private final AccountRepository accountRepository;
     private final CustomerRepository customerRepository;
-    private final AccountTypeRepository accountTypeRepository;
-    private final BranchRepository branchRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataCache referenceDataCache;
     
     public Page<Account> findAll(Pageable pageable) {
         return accountRepository.findAll(pageable);
@@ -79,7 +80,7 @@ public class AccountService {
         }
         
         // Validate account type
-        AccountType accountType = accountTypeRepository.findById(accountTypeId)
+        AccountType accountType = referenceDataCache.getAccountType(accountTypeId)
                 .orElseThrow(() -> new RuntimeException("Account type not found"));
         
         if (accountType.getStatus() != AccountType.Status.ACTIVE) {
@@ -104,7 +105,7 @@ public class AccountService {
         }
         
         // Get branch
-        Branch branch = branchRepository.findById(branchId)
+        Branch branch = referenceDataCache.getBranch(branchId)
                 .orElseThrow(() -> new RuntimeException("Branch not found"));
         
         // Generate account number
@@ -128,7 +129,9 @@ public class AccountService {
         account.setLastInterestDate(LocalDate.now());
         account.setCreatedBy(createdBy);
         
-        return accountRepository.save(account);
+        Account saved = accountRepository.save(account);
+        eventPublisher.publishEvent(AccountChangedEvent.opened(AccountSnapshot.of(saved)));
+        return saved;
     }
     
     @Transactional
@@ -136,11 +139,12 @@ public class AccountService {
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Account not found"));
         
+        AccountSnapshot before = AccountSnapshot.of(account);
         account.setAccountName(updatedAccount.getAccountName());
         account.setRemarks(updatedAccount.getRemarks());
         account.setUpdatedBy(updatedBy);
         
-        return accountRepository.save(account);
+        return saveAndPublish(account, before);
     }
     
     @Transactional
@@ -149,6 +153,7 @@ public class AccountService {
                 .orElseThrow(() -> new RuntimeException("Account not found"));
         
         AccountStatus oldStatus = account.getStatus();
+        AccountSnapshot before = AccountSnapshot.of(account);
         
         // Validate status transitions
         validateStatusTransition(oldStatus, status);
@@ -162,7 +167,7 @@ public class AccountService {
             account.setClosedBy(updatedBy);
         }
         
-        return accountRepository.save(account);
+        return saveAndPublish(account, before);
     }
     
     @Transactional
@@ -174,11 +179,12 @@ public class AccountService {
             throw new RuntimeException("Only active or dormant accounts can be frozen");
         }
         
+        AccountSnapshot before = AccountSnapshot.of(account);
         account.setStatus(AccountStatus.FROZEN);
         account.setStatusReason(reason);
         account.setUpdatedBy(frozenBy);
         
-        return accountRepository.save(account);
+        return saveAndPublish(account, before);
     }
     
     @Transactional
@@ -190,11 +196,12 @@ public class AccountService {
             throw new RuntimeException("Only frozen accounts can be unfrozen");
         }
         
+        AccountSnapshot before = AccountSnapshot.of(account);
         account.setStatus(AccountStatus.ACTIVE);
         account.setStatusReason(null);
         account.setUpdatedBy(unfrozenBy);
         
-        return accountRepository.save(account);
+        return saveAndPublish(account, before);
     }
     
     @Transactional
@@ -210,13 +217,14 @@ public class AccountService {
             throw new RuntimeException("Account balance must be zero before closing");
         }
         
+        AccountSnapshot before = AccountSnapshot.of(account);
         account.setStatus(AccountStatus.CLOSED);
         account.setStatusReason(reason);
         account.setCloseDate(LocalDate.now());
         account.setClosedBy(closedBy);
         account.setUpdatedBy(closedBy);
         
-        return accountRepository.save(account);
+        return saveAndPublish(account, before);
     }
     
     @Transactional
@@ -224,13 +232,14 @@ public class AccountService {
         Account account = accountRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Account not found"));
         
+        AccountSnapshot before = AccountSnapshot.of(account);
         account.setCurrentBalance(newBalance);
         account.setHoldBalance(holdAmount != null ? holdAmount : account.getHoldBalance());
         account.setAvailableBalance(newBalance.subtract(account.getHoldBalance()));
         account.setLastTransactionDate(LocalDateTime.now());
         account.setUpdatedBy(updatedBy);
         
-        return accountRepository.save(account);
+        return saveAndPublish(account, before);
     }
     
     public boolean existsByAccountNumber(String accountNumber) {
@@ -255,6 +264,12 @@ public class AccountService {
         return sum != null ? sum : BigDecimal.ZERO;
     }
     
+    private Account saveAndPublish(Account account, AccountSnapshot before) {
+        Account saved = accountRepository.save(account);
+        eventPublisher.publishEvent(AccountChangedEvent.updated(before, AccountSnapshot.of(saved)));
+        return saved;
+    }
+    
     private String generateAccountNumber(AccountType accountType, Branch branch) {
         // Format: BranchCode(3) + TypeCode(2) + Year(2) + Sequence(7)
         // Example: 001SA26-0000001
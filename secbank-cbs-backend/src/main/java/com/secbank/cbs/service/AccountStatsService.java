@@ -0,0 +1,164 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.AccountStatsDTO;
+import com.secbank.cbs.dto.BranchAccountStatsDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.repository.AccountStatisticRepository;
+import com.secbank.cbs.repository.AccountStatisticRepository.StatusTotals;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Account Statistics Service / 账户统计服务
+ * Maintains the account_stats aggregate by deltas inside the writing transaction,
+ * and reconciles it nightly against a full scan of the accounts table.
+ * 在写事务内增量维护账户统计，并每晚与全表扫描对账
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountStatsService {
+
+    private static final Comparator<StatsKey> KEY_ORDER = Comparator
+        .comparing(StatsKey::status)
+        .thenComparing(StatsKey::branchId)
+        .thenComparing(StatsKey::accountTypeId)
+        .thenComparing(StatsKey::currency)
+        .thenComparingInt(StatsKey::slot);
+
+    private final AccountStatisticRepository statisticRepository;
+
+    @Value("${app.stats.slots:8}")
+    private int slots;
+
+    /**
+     * Apply the deltas of an account change to the aggregate, in the caller's transaction.
+     * Rows are touched in a fixed key order so concurrent writers cannot deadlock on them.
+     * 在调用方事务中应用增量；按固定顺序更新以避免死锁
+     */
+    @EventListener
+    @Transactional
+    public void onAccountChanged(AccountChangedEvent event) {
+        Map<StatsKey, Delta> deltas = new TreeMap<>(KEY_ORDER);
+        for (AccountChangedEvent.Change change : event.getChanges()) {
+            if (change.getBefore() != null) {
+                accumulate(deltas, change.getBefore(), -1);
+            }
+            if (change.getAfter() != null) {
+                accumulate(deltas, change.getAfter(), 1);
+            }
+        }
+
+        deltas.forEach((key, delta) -> {
+            if (delta.count != 0 || delta.balance.signum() != 0) {
+                statisticRepository.applyDelta(key.status().name(), key.branchId(), key.accountTypeId(),
+                    key.currency(), key.slot(), delta.count, delta.balance);
+            }
+        });
+    }
+
+    /**
+     * Get account statistics from the aggregate.
+     * 从聚合表获取账户统计
+     */
+    @Transactional(readOnly = true)
+    public AccountStatsDTO getAccountStats() {
+        Map<AccountStatus, StatusTotals> totals = new EnumMap<>(AccountStatus.class);
+        for (StatusTotals row : statisticRepository.sumByStatus()) {
+            totals.put(row.getStatus(), row);
+        }
+
+        StatusTotals active = totals.get(AccountStatus.ACTIVE);
+        return AccountStatsDTO.builder()
+            .totalActive(countOf(totals.get(AccountStatus.ACTIVE)))
+            .totalDormant(countOf(totals.get(AccountStatus.DORMANT)))
+            .totalFrozen(countOf(totals.get(AccountStatus.FROZEN)))
+            .totalClosed(countOf(totals.get(AccountStatus.CLOSED)))
+            .totalActiveBalance(active != null && active.getTotalBalance() != null
+                ? active.getTotalBalance() : BigDecimal.ZERO)
+            .build();
+    }
+
+    /**
+     * Get statistics for one branch from the aggregate.
+     * 从聚合表获取分行统计
+     */
+    @Transactional(readOnly = true)
+    public BranchAccountStatsDTO getBranchStats(Long branchId) {
+        return BranchAccountStatsDTO.builder()
+            .branchId(branchId)
+            .totalAccounts(statisticRepository.countByBranchId(branchId))
+            .totalBalance(statisticRepository.sumActiveBalanceByBranchId(branchId))
+            .build();
+    }
+
+    /**
+     * Seed the aggregate on first start against an existing accounts table.
+     * 首次启动时从现有账户表初始化聚合
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void initialize() {
+        if (statisticRepository.count() == 0) {
+            log.info("Account stats table is empty, building from accounts... / 账户统计为空，正在初始化...");
+            reconcile();
+        }
+    }
+
+    /**
+     * Nightly reconciliation against a full scan. Delta writers are blocked while the
+     * aggregate is rebuilt, so no change can be lost between the scan and the swap.
+     * 每晚全表对账；重建期间阻塞增量写入
+     */
+    @Scheduled(cron = "${app.stats.reconcile-cron:0 30 1 * * *}")
+    @Transactional
+    public void reconcile() {
+        statisticRepository.lockForReconcile();
+        long drift = statisticRepository.countDrift();
+        statisticRepository.deleteAllRows();
+        int rows = statisticRepository.rebuildFromAccounts(slots);
+
+        if (drift > 0) {
+            log.warn("Account stats reconciled with {} drifted dimension(s), {} rows rebuilt / 账户统计对账发现 {} 处偏差",
+                drift, rows, drift);
+        } else {
+            log.info("Account stats reconciled, no drift, {} rows rebuilt / 账户统计对账无偏差", rows);
+        }
+    }
+
+    private void accumulate(Map<StatsKey, Delta> deltas, AccountSnapshot snapshot, int sign) {
+        StatsKey key = new StatsKey(snapshot.getStatus(), snapshot.getBranchId(), snapshot.getAccountTypeId(),
+            snapshot.getCurrency(), (int) Math.floorMod(snapshot.getAccountId(), (long) slots));
+        Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+        delta.count += sign;
+        delta.balance = sign > 0
+            ? delta.balance.add(snapshot.getCurrentBalance())
+            : delta.balance.subtract(snapshot.getCurrentBalance());
+    }
+
+    private long countOf(StatusTotals totals) {
+        return totals != null && totals.getAccountCount() != null ? totals.getAccountCount() : 0L;
+    }
+
+    private record StatsKey(AccountStatus status, Long branchId, Long accountTypeId, String currency, int slot) {
+    }
+
+    private static class Delta {
+        private long count;
+        private BigDecimal balance = BigDecimal.ZERO;
+    }
+}
@@ -3,8 +3,10 @@ package com.secbank.cbs.service;
 import com.secbank.cbs.entity.AccountType;
 import com.secbank.cbs.entity.AccountType.AccountCategory;
 import com.secbank.cbs.entity.AccountType.Status;
+import com.secbank.cbs.event.ReferenceDataChangedEvent;
 import com.secbank.cbs.repository.AccountTypeRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,8 @@ import java.util.Optional;
 public class AccountTypeService {
     
     private final AccountTypeRepository accountTypeRepository;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Page<AccountType> findAll(Pageable pageable) {
         return accountTypeRepository.findAll(pageable);
@@ -28,7 +32,7 @@ public class AccountTypeService {
     }
     
     public List<AccountType> findAllActive() {
-        return accountTypeRepository.findAllActive();
+        return referenceDataCache.getActiveAccountTypes();
     }
     
     public List<AccountType> findByCategory(AccountCategory category) {
@@ -56,7 +60,9 @@ public class AccountTypeService {
         accountType.setStatus(Status.ACTIVE);
         accountType.setCreatedBy(createdBy);
         
-        return accountTypeRepository.save(accountType);
+        AccountType saved = accountTypeRepository.save(accountType);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ACCOUNT_TYPE));
+        return saved;
     }
     
     @Transactional
@@ -104,7 +110,9 @@ public class AccountTypeService {
         accountType.setCurrency(updatedType.getCurrency());
         accountType.setUpdatedBy(updatedBy);
         
-        return accountTypeRepository.save(accountType);
+        AccountType saved = accountTypeRepository.save(accountType);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ACCOUNT_TYPE));
+        return saved;
     }
     
     @Transactional
@@ -115,7 +123,9 @@ public class AccountTypeService {
         accountType.setStatus(status);
         accountType.setUpdatedBy(updatedBy);
         
-        return accountTypeRepository.save(accountType);
+        AccountType saved = accountTypeRepository.save(accountType);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ACCOUNT_TYPE));
+        return saved;
     }
     
     public boolean existsByTypeCode(String typeCode) {
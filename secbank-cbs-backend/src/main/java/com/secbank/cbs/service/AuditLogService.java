@@ -6,10 +6,12 @@ import com.secbank.cbs.dto.AuditLogDTO;
 import com.secbank.cbs.dto.AuditLogSearchRequest;
 import com.secbank.cbs.entity.AuditLog;
 import com.secbank.cbs.entity.User;
+import com.secbank.cbs.event.AuditLoggedEvent;
 import com.secbank.cbs.repository.AuditLogRepository;
 import com.secbank.cbs.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
@@ -34,6 +36,7 @@ public class AuditLogService {
     private final AuditLogRepository auditLogRepository;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Log an action asynchronously.
@@ -79,7 +82,8 @@ public class AuditLogService {
                 .description(description)
                 .build();
 
-            auditLogRepository.save(auditLog);
+            auditLog = auditLogRepository.save(auditLog);
+            eventPublisher.publishEvent(new AuditLoggedEvent(module, action, auditLog.getCreatedAt()));
             log.debug("Audit log created: {} - {} - {}", action, module, entityType);
         } catch (Exception e) {
             log.error("Failed to create audit log", e);
@@ -0,0 +1,184 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BalanceSnapshotDTO;
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Balance Snapshot Service / 每日余额快照服务
+ * EOD stage writing one row per account and business date into the partitioned
+ * {@code balance_snapshots} table. Runs on the {@link PartitionedBatchRunner}; each chunk reads
+ * the accounts' balances (less any journal movements dated after the business date, so a
+ * catch-up run snapshots the balance as of that date), extends the previous day's running
+ * month-to-date sum, and loads the rows with a single COPY on the chunk's transaction. The
+ * average daily balance of any day is then one row lookup and one division.
+ * 日终将每个账户当日余额写入分区快照表：按数据块COPY批量写入，并递推月初至今余额累计，日均余额O(1)可得
+ */
+@Service
+@Slf4j
+public class BalanceSnapshotService {
+
+    public static final String JOB_NAME = "BALANCE_SNAPSHOT";
+
+    /** Longest range served by the history query / 历史查询最长区间（天） */
+    private static final int MAX_HISTORY_DAYS = 366;
+
+    /** Accounts open on the business date, with the previous day's running sums of the same month. */
+    private static final String CHUNK_SQL =
+        "SELECT a.id, (a.current_balance * 100)::bigint AS balance_minor, p.mtd_sum_minor, p.mtd_days " +
+        "FROM accounts a " +
+        "LEFT JOIN balance_snapshots p ON p.account_id = a.id AND p.snapshot_date = ? " +
+        "WHERE a.id > ? AND a.id <= ? AND a.open_date <= ? AND (a.status <> 'CLOSED' OR a.close_date >= ?) " +
+        "ORDER BY a.id LIMIT ?";
+
+    private static final String MOVEMENTS_AFTER_SQL =
+        "SELECT l.account_id, (SUM(CASE WHEN l.direction = 'C' THEN l.amount ELSE -l.amount END) * 100)::bigint AS after_minor " +
+        "FROM journal_lines l WHERE l.account_id = ANY(?) AND l.entry_date > ? GROUP BY l.account_id";
+
+    /** Makes a chunk re-runnable: rows of an earlier, manually repeated run are replaced. */
+    private static final String CLEAR_SQL =
+        "DELETE FROM balance_snapshots WHERE snapshot_date = ? AND account_id >= ? AND account_id <= ?";
+
+    private static final String COPY_SQL =
+        "COPY balance_snapshots (account_id, snapshot_date, balance_minor, mtd_sum_minor, mtd_days) FROM STDIN";
+
+    private static final String HISTORY_SQL =
+        "SELECT snapshot_date, balance_minor, mtd_sum_minor, mtd_days FROM balance_snapshots " +
+        "WHERE account_id = ? AND snapshot_date BETWEEN ? AND ? ORDER BY snapshot_date";
+
+    private static final String LATEST_IN_MONTH_SQL =
+        "SELECT snapshot_date, balance_minor, mtd_sum_minor, mtd_days FROM balance_snapshots " +
+        "WHERE account_id = ? AND snapshot_date BETWEEN ? AND ? ORDER BY snapshot_date DESC LIMIT 1";
+
+    private final PartitionedBatchRunner batchRunner;
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+
+    public BalanceSnapshotService(PartitionedBatchRunner batchRunner,
+                                  JdbcTemplate jdbcTemplate,
+                                  @Value("${app.snapshots.chunk-size:5000}") int chunkSize) {
+        this.batchRunner = batchRunner;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Snapshot every account open on the business date.
+     * 为营业日所有在用账户生成余额快照
+     */
+    public BatchRunSummaryDTO snapshot(LocalDate businessDate) {
+        return batchRunner.run(JOB_NAME, businessDate, (afterId, rangeEnd) -> snapshotChunk(businessDate, afterId, rangeEnd));
+    }
+
+    /**
+     * Daily balances of an account over a date range (at most {@value #MAX_HISTORY_DAYS} days).
+     * 查询账户区间内每日余额
+     */
+    public List<BalanceSnapshotDTO> getHistory(Long accountId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new BusinessException("From date must not be after to date / 起始日期不能晚于结束日期");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_HISTORY_DAYS) {
+            throw new BusinessException("Balance history is limited to " + MAX_HISTORY_DAYS + " days / 余额历史查询区间过长");
+        }
+        return jdbcTemplate.query(HISTORY_SQL, (rs, rowNum) -> toDto(accountId, rs), accountId, from, to);
+    }
+
+    /**
+     * Month-to-date average daily balance as of a date, from the latest snapshot of that month
+     * on or before the date.
+     * 查询截至指定日期的月初至今日均余额
+     */
+    public BalanceSnapshotDTO getAverageDailyBalance(Long accountId, LocalDate date) {
+        return jdbcTemplate.query(LATEST_IN_MONTH_SQL, (rs, rowNum) -> toDto(accountId, rs),
+                accountId, date.withDayOfMonth(1), date)
+            .stream()
+            .findFirst()
+            .orElseThrow(() -> new ResourceNotFoundException("BalanceSnapshot", "date", date));
+    }
+
+    private PartitionedBatchRunner.Chunk snapshotChunk(LocalDate businessDate, long afterId, long rangeEnd) {
+        // The running sums restart on the first of the month: no previous day to extend.
+        // 每月1日重新累计
+        LocalDate previousDay = businessDate.getDayOfMonth() == 1 ? null : businessDate.minusDays(1);
+        int[] size = {0};
+        long[] ids = new long[chunkSize];
+        long[] balances = new long[chunkSize];
+        long[] sums = new long[chunkSize];
+        int[] days = new int[chunkSize];
+        jdbcTemplate.query(CHUNK_SQL, rs -> {
+            int i = size[0]++;
+            ids[i] = rs.getLong("id");
+            balances[i] = rs.getLong("balance_minor");
+            sums[i] = rs.getLong("mtd_sum_minor");
+            days[i] = rs.getInt("mtd_days");
+        }, previousDay, afterId, rangeEnd, businessDate, businessDate, chunkSize);
+        int count = size[0];
+        if (count == 0) {
+            return null;
+        }
+
+        Long[] chunkIds = Arrays.stream(ids, 0, count).boxed().toArray(Long[]::new);
+        Map<Long, Long> after = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(MOVEMENTS_AFTER_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", chunkIds));
+            ps.setObject(2, businessDate);
+            return ps;
+        }, rs -> {
+            after.put(rs.getLong("account_id"), rs.getLong("after_minor"));
+        });
+
+        StringBuilder rows = new StringBuilder(count * 48);
+        for (int i = 0; i < count; i++) {
+            long balance = balances[i] - after.getOrDefault(ids[i], 0L);
+            rows.append(ids[i]).append('\t')
+                .append(businessDate).append('\t')
+                .append(balance).append('\t')
+                .append(sums[i] + balance).append('\t')
+                .append(days[i] + 1).append('\n');
+        }
+        jdbcTemplate.update(CLEAR_SQL, businessDate, ids[0], ids[count - 1]);
+        jdbcTemplate.execute((ConnectionCallback<Long>) con -> copyIn(con.unwrap(PGConnection.class), rows));
+        return new PartitionedBatchRunner.Chunk(ids[count - 1], count);
+    }
+
+    private static long copyIn(PGConnection con, StringBuilder rows) throws SQLException {
+        try {
+            return con.getCopyAPI().copyIn(COPY_SQL, new StringReader(rows.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BalanceSnapshotDTO toDto(Long accountId, ResultSet rs) throws SQLException {
+        int days = rs.getInt("mtd_days");
+        return BalanceSnapshotDTO.builder()
+            .accountId(accountId)
+            .date(rs.getObject("snapshot_date", LocalDate.class))
+            .balance(MoneyMath.fromMinor(rs.getLong("balance_minor")))
+            .averageDailyBalance(MoneyMath.fromMinor(MoneyMath.divideHalfEven(rs.getLong("mtd_sum_minor"), days)))
+            .monthToDateDays(days)
+            .build();
+    }
+}
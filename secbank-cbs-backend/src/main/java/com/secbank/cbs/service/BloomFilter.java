@@ -0,0 +1,85 @@
+package com.secbank.cbs.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom Filter / 布隆过滤器
+ * Fixed-size set membership sketch over strings: {@link #mightContain} never returns false for
+ * a key that was {@link #put}, and returns true for an absent key with about the configured
+ * false positive probability while the filter holds no more than its expected insertions.
+ * Bits live in an {@link AtomicLongArray}, so puts and lookups are lock-free and may run
+ * concurrently. Bit positions come from one 64-bit hash split into two halves (Kirsch and
+ * Mitzenmacher double hashing).
+ * 字符串布隆过滤器：已加入的键必定命中，未加入的键按设定误判率误报；位数组无锁并发读写；双重哈希定位
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Filter sized for {@code expectedInsertions} keys at false positive probability {@code fpp}.
+     * 按预期元素数与误判率创建
+     */
+    static BloomFilter create(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        long bits = Math.max(64, (long) (-n * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+        return new BloomFilter(bits, hashes);
+    }
+
+    void put(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long bitSize() {
+        return bitCount;
+    }
+
+    /** FNV-1a over the UTF-16 code units, finished with the MurmurHash3 64-bit mixer. */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
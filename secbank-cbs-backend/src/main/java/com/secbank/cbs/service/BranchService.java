@@ -4,17 +4,21 @@ import com.secbank.cbs.dto.BranchDTO;
 import com.secbank.cbs.dto.CreateBranchRequest;
 import com.secbank.cbs.dto.UpdateBranchRequest;
 import com.secbank.cbs.entity.Branch;
+import com.secbank.cbs.event.ReferenceDataChangedEvent;
+import com.secbank.cbs.event.StatusChangedEvent;
 import com.secbank.cbs.exception.BusinessException;
 import com.secbank.cbs.exception.ResourceNotFoundException;
 import com.secbank.cbs.repository.BranchRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -29,6 +33,8 @@ public class BranchService {
 
     private final BranchRepository branchRepository;
     private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataCache referenceDataCache;
 
     /**
      * Get all branches with pagination.
@@ -45,7 +51,7 @@ public class BranchService {
      */
     @Transactional(readOnly = true)
     public List<BranchDTO> getActiveBranches() {
-        return branchRepository.findByStatus("ACTIVE").stream()
+        return referenceDataCache.getActiveBranches().stream()
             .map(this::toDTO)
             .collect(Collectors.toList());
     }
@@ -99,6 +105,8 @@ public class BranchService {
             .build();
 
         branch = branchRepository.save(branch);
+        eventPublisher.publishEvent(new StatusChangedEvent("Branch", branch.getId(), null, branch.getStatus()));
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.BRANCH));
         
         // Log audit
         auditLogService.logAction(currentUserId, "CREATE", "ADMINISTRATION", 
@@ -163,6 +171,11 @@ public class BranchService {
 
         branch.setUpdatedBy(currentUserId);
         branch = branchRepository.save(branch);
+        if (!Objects.equals(oldBranch.getStatus(), branch.getStatus())) {
+            eventPublisher.publishEvent(
+                new StatusChangedEvent("Branch", branch.getId(), oldBranch.getStatus(), branch.getStatus()));
+        }
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.BRANCH));
 
         // Log audit
         auditLogService.logAction(currentUserId, "UPDATE", "ADMINISTRATION",
@@ -190,6 +203,8 @@ public class BranchService {
             "Branch", branch.getId(), branch, null, "Deleted branch: " + branch.getBranchCode());
 
         branchRepository.delete(branch);
+        eventPublisher.publishEvent(new StatusChangedEvent("Branch", branch.getId(), branch.getStatus(), null));
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.BRANCH));
         log.info("Branch deleted: {} by user {}", branch.getBranchCode(), currentUserId);
     }
 
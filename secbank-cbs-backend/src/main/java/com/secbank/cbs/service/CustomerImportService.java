@@ -0,0 +1,544 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.CreateCustomerRequest;
+import com.secbank.cbs.dto.CustomerImportResultDTO;
+import com.secbank.cbs.dto.CustomerImportResultDTO.RowError;
+import com.secbank.cbs.entity.Customer.*;
+import com.secbank.cbs.event.CustomersImportedEvent;
+import com.secbank.cbs.exception.BusinessException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Customer Import Service / 客户批量导入服务
+ * Bulk-loads customers from a CSV file (e.g. a legacy CIF migration). The file is parsed as a
+ * stream into blocks of rows; blocks are validated in parallel with the rules of single
+ * customer creation (the {@link CreateCustomerRequest} constraints and an existing branch) and
+ * the valid rows are COPYed into the unlogged {@code customer_import_staging} table as each
+ * block completes, so at most a few blocks are in memory. One transaction then rejects rows
+ * whose ID document already exists (in {@code customers} or earlier in the file), reserves a
+ * block of CIF numbers per prefix and inserts all remaining rows with a single INSERT ... SELECT.
+ * Rejected rows are reported with their row number at the end; re-importing a partly loaded
+ * file only adds the rows that are still missing. Merged values are recorded in the
+ * {@link CustomerUniquenessFilter} before the merge commits, and a {@link CustomersImportedEvent}
+ * is delivered once it has.
+ * CSV流式解析分块并行校验（与单笔开户规则一致），有效行COPY至暂存表；单事务内剔除证件重复行、按前缀成块分配客户号并集合式插入；最后报告逐行错误
+ */
+@Service
+@Slf4j
+public class CustomerImportService {
+
+    /** Staging columns after {@code import_id, row_no}; also the accepted CSV header names. */
+    private static final List<String> COLUMNS = List.of(
+        "customer_type", "first_name", "middle_name", "last_name", "first_name_cn", "last_name_cn",
+        "date_of_birth", "gender", "nationality", "company_name", "company_name_cn", "registration_number",
+        "date_of_incorporation", "industry", "email", "mobile_phone", "home_phone", "work_phone",
+        "address_line1", "address_line2", "city", "province", "postal_code", "country",
+        "id_type", "id_number", "id_expiry_date", "tax_id", "risk_rating", "branch_id", "relationship_manager", "remarks");
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("customer_type", "id_type", "id_number", "branch_id");
+
+    /** Highest sequence of the six-digit CIF number suffix / 客户号六位序号上限 */
+    private static final int MAX_CIF_SEQUENCE = 999_999;
+
+    private static final String NEXT_IMPORT_ID_SQL = "SELECT nextval('customer_import_seq')";
+
+    private static final String BRANCH_IDS_SQL = "SELECT id FROM branches";
+
+    private static final String COPY_SQL =
+        "COPY customer_import_staging (import_id, row_no, " + String.join(", ", COLUMNS) + ") FROM STDIN";
+
+    private static final String REJECT_EXISTING_SQL =
+        "DELETE FROM customer_import_staging s WHERE s.import_id = ? AND EXISTS (" +
+        "  SELECT 1 FROM customers c WHERE c.id_number = s.id_number AND c.id_type = s.id_type) " +
+        "RETURNING s.row_no";
+
+    private static final String REJECT_REPEATED_SQL =
+        "DELETE FROM customer_import_staging s WHERE s.import_id = ? AND EXISTS (" +
+        "  SELECT 1 FROM customer_import_staging f WHERE f.import_id = s.import_id AND f.id_type = s.id_type " +
+        "  AND f.id_number = s.id_number AND f.row_no < s.row_no) " +
+        "RETURNING s.row_no";
+
+    /** Same format as single creation: CIF + year(2) + type(1) + sequence(6). */
+    private static final String PREFIX_EXPRESSION =
+        "'CIF' || ? || CASE s.customer_type WHEN 'INDIVIDUAL' THEN 'I' ELSE 'C' END";
+
+    private static final String BLOCKS_SQL =
+        "SELECT " + PREFIX_EXPRESSION + " AS prefix, COUNT(*) AS row_count " +
+        "FROM customer_import_staging s WHERE s.import_id = ? GROUP BY 1";
+
+    private static final String MAX_NUMBER_SQL = "SELECT MAX(customer_number) FROM customers WHERE customer_number LIKE ?";
+
+    private static final String MERGE_SQL =
+        "INSERT INTO customers (customer_number, " + String.join(", ", COLUMNS) + ", status, kyc_verified, " +
+        "created_by, created_at, updated_at) " +
+        "SELECT b.prefix || lpad((b.last_seq + row_number() OVER (PARTITION BY b.prefix ORDER BY s.row_no))::text, 6, '0'), " +
+        COLUMNS.stream().map(c -> "s." + c).collect(Collectors.joining(", ")) + ", 'ACTIVE', false, ?, now(), now() " +
+        "FROM customer_import_staging s " +
+        "JOIN unnest(?::text[], ?::int[]) AS b(prefix, last_seq) ON b.prefix = " + PREFIX_EXPRESSION + " " +
+        "WHERE s.import_id = ?";
+
+    private static final String STAGED_VALUES_SQL =
+        "SELECT email, id_number, tax_id FROM customer_import_staging WHERE import_id = ?";
+
+    private static final String CLEAR_SQL = "DELETE FROM customer_import_staging WHERE import_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final CustomerUniquenessFilter uniquenessFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int parallelism;
+    private final int blockSize;
+    private final int maxReportedErrors;
+
+    public CustomerImportService(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 Validator validator,
+                                 CustomerUniquenessFilter uniquenessFilter,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${app.customer-import.parallelism:4}") int parallelism,
+                                 @Value("${app.customer-import.block-size:5000}") int blockSize,
+                                 @Value("${app.customer-import.max-reported-errors:10000}") int maxReportedErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.uniquenessFilter = uniquenessFilter;
+        this.eventPublisher = eventPublisher;
+        this.parallelism = parallelism;
+        this.blockSize = blockSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Import every valid row of a CSV file with a header line of column names.
+     * 导入CSV文件中所有有效行（首行为列名）
+     */
+    public CustomerImportResultDTO importCsv(InputStream in, Long createdBy) {
+        long start = System.nanoTime();
+        long importId = jdbcTemplate.queryForObject(NEXT_IMPORT_ID_SQL, Long.class);
+        Set<Long> branchIds = new HashSet<>(jdbcTemplate.queryForList(BRANCH_IDS_SQL, Long.class));
+        ImportProgress progress = new ImportProgress();
+        try {
+            CsvReader reader = new CsvReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024));
+            Map<String, Integer> header = readHeader(reader);
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                    Thread.ofPlatform().name("customer-import-", 0).factory())) {
+                Deque<Future<Block>> pending = new ArrayDeque<>();
+                long rowNo = 1;
+                List<String> row;
+                List<List<String>> rows = new ArrayList<>(blockSize);
+                long firstRowNo = rowNo + 1;
+                while ((row = reader.next()) != null) {
+                    rowNo++;
+                    rows.add(row);
+                    if (rows.size() == blockSize) {
+                        submit(executor, pending, rows, firstRowNo, header, branchIds, importId, progress);
+                        rows = new ArrayList<>(blockSize);
+                        firstRowNo = rowNo + 1;
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    submit(executor, pending, rows, firstRowNo, header, branchIds, importId, progress);
+                }
+                while (!pending.isEmpty()) {
+                    load(pending.poll(), progress);
+                }
+            }
+
+            long imported = merge(importId, createdBy, progress);
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            log.info("Customer import {}: {} rows, {} imported, {} rejected in {} ms / 客户批量导入完成",
+                importId, progress.totalRows, imported, progress.rejected, durationMs);
+            progress.errors.sort(Comparator.comparingLong(RowError::getRow));
+            return CustomerImportResultDTO.builder()
+                .importId(importId)
+                .totalRows(progress.totalRows)
+                .imported(imported)
+                .rejected(progress.rejected)
+                .durationMs(durationMs)
+                .errors(progress.errors)
+                .errorsTruncated(progress.rejected > progress.errors.size())
+                .build();
+        } catch (IOException e) {
+            throw new BusinessException("Cannot read import file / 无法读取导入文件", e);
+        } finally {
+            jdbcTemplate.update(CLEAR_SQL, importId);
+        }
+    }
+
+    private Map<String, Integer> readHeader(CsvReader reader) throws IOException {
+        List<String> names = reader.next();
+        if (names == null) {
+            throw new BusinessException("Import file is empty / 导入文件为空");
+        }
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i) == null ? "" : names.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+            header.putIfAbsent(name, i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(c -> !header.containsKey(c)).toList();
+        if (!missing.isEmpty()) {
+            throw new BusinessException("Import file lacks required columns " + missing + " / 导入文件缺少必需列");
+        }
+        return header;
+    }
+
+    /**
+     * Queue a block for validation; once enough blocks are in flight the oldest is loaded first,
+     * which keeps memory bounded and the staging load in file order.
+     */
+    private void submit(ExecutorService executor, Deque<Future<Block>> pending, List<List<String>> rows, long firstRowNo,
+                        Map<String, Integer> header, Set<Long> branchIds, long importId, ImportProgress progress) {
+        pending.add(executor.submit(() -> validate(rows, firstRowNo, header, branchIds, importId)));
+        if (pending.size() > 2 * parallelism) {
+            load(pending.poll(), progress);
+        }
+    }
+
+    private void load(Future<Block> future, ImportProgress progress) {
+        Block block;
+        try {
+            block = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Customer import interrupted / 客户导入被中断", e);
+        } catch (ExecutionException e) {
+            throw new BusinessException("Customer import failed / 客户导入失败", e.getCause());
+        }
+        progress.totalRows += block.rows;
+        for (RowError error : block.errors) {
+            progress.reject(error, maxReportedErrors);
+        }
+        if (block.valid > 0) {
+            jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+                try {
+                    return con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL, new StringReader(block.copyText));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Validate the rows of a block and render the valid ones in COPY text format.
+     */
+    private Block validate(List<List<String>> rows, long firstRowNo, Map<String, Integer> header,
+                           Set<Long> branchIds, long importId) {
+        StringBuilder copyText = new StringBuilder(rows.size() * 256);
+        List<RowError> errors = new ArrayList<>();
+        int read = 0;
+        int valid = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            long rowNo = firstRowNo + i;
+            List<String> row = rows.get(i);
+            if (row.size() == 1 && row.get(0).isBlank()) {
+                continue;
+            }
+            read++;
+            Function<String, String> field = name -> {
+                Integer position = header.get(name);
+                if (position == null || position >= row.size()) {
+                    return null;
+                }
+                String value = row.get(position);
+                return value == null || value.isBlank() ? null : value.trim();
+            };
+            List<String> messages = new ArrayList<>();
+            CreateCustomerRequest request = toRequest(field, messages);
+            if (messages.isEmpty()) {
+                for (ConstraintViolation<CreateCustomerRequest> violation : validator.validate(request)) {
+                    messages.add(violation.getMessage());
+                }
+                if (request.getBranchId() != null && !branchIds.contains(request.getBranchId())) {
+                    messages.add("Branch not found / 分行不存在");
+                }
+            }
+            if (!messages.isEmpty()) {
+                errors.add(new RowError(rowNo, String.join("; ", messages)));
+                continue;
+            }
+            copyText.append(importId).append('\t').append(rowNo);
+            for (Object value : stagingValues(request)) {
+                copyText.append('\t');
+                appendCopyValue(copyText, value);
+            }
+            copyText.append('\n');
+            valid++;
+        }
+        return new Block(copyText.toString(), read, valid, errors);
+    }
+
+    /**
+     * Reject rows whose ID document already exists, reserve CIF numbers per prefix and insert the
+     * rest, all in one transaction.
+     */
+    private long merge(long importId, Long createdBy, ImportProgress progress) {
+        String year = String.valueOf(LocalDate.now().getYear()).substring(2);
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(CustomerService.CUSTOMER_NUMBER_LOCK_SQL);
+            for (Long rowNo : jdbcTemplate.queryForList(REJECT_EXISTING_SQL, Long.class, importId)) {
+                progress.reject(new RowError(rowNo, "Customer with this ID document already exists / 该证件客户已存在"), maxReportedErrors);
+            }
+            for (Long rowNo : jdbcTemplate.queryForList(REJECT_REPEATED_SQL, Long.class, importId)) {
+                progress.reject(new RowError(rowNo, "ID document repeats an earlier row of the file / 证件与文件中前面的行重复"), maxReportedErrors);
+            }
+
+            List<String> prefixes = new ArrayList<>();
+            List<Integer> lastSequences = new ArrayList<>();
+            jdbcTemplate.query(BLOCKS_SQL, rs -> {
+                String prefix = rs.getString("prefix");
+                int last = lastSequence(prefix);
+                if (last + rs.getLong("row_count") > MAX_CIF_SEQUENCE) {
+                    throw new BusinessException("Not enough CIF numbers left for prefix " + prefix + " / 客户号序号不足");
+                }
+                prefixes.add(prefix);
+                lastSequences.add(last);
+                progress.importedByType.merge(prefix.endsWith("I") ? CustomerType.INDIVIDUAL : CustomerType.CORPORATE,
+                    rs.getLong("row_count"), Long::sum);
+            }, year, importId);
+            if (prefixes.isEmpty()) {
+                return 0L;
+            }
+            jdbcTemplate.query(STAGED_VALUES_SQL, rs -> {
+                uniquenessFilter.add(rs.getString("email"), rs.getString("id_number"), rs.getString("tax_id"));
+            }, importId);
+            // Delivered once the merge commits, so listeners never count a rolled-back import
+            eventPublisher.publishEvent(new CustomersImportedEvent(importId, Map.copyOf(progress.importedByType)));
+            return (long) jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(MERGE_SQL);
+                ps.setObject(1, createdBy);
+                ps.setArray(2, con.createArrayOf("text", prefixes.toArray()));
+                ps.setArray(3, con.createArrayOf("integer", lastSequences.toArray()));
+                ps.setString(4, year);
+                ps.setLong(5, importId);
+                return ps;
+            });
+        });
+    }
+
+    /** Highest sequence already used under a CIF prefix, read the same way as single creation. */
+    private int lastSequence(String prefix) {
+        String maxNumber = jdbcTemplate.queryForObject(MAX_NUMBER_SQL, String.class, prefix + "%");
+        if (maxNumber != null && maxNumber.length() > prefix.length()) {
+            try {
+                return Integer.parseInt(maxNumber.substring(prefix.length()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static CreateCustomerRequest toRequest(Function<String, String> field, List<String> messages) {
+        CreateCustomerRequest request = new CreateCustomerRequest();
+        request.setCustomerType(parseEnum(CustomerType.class, field, "customer_type", messages));
+        request.setFirstName(field.apply("first_name"));
+        request.setMiddleName(field.apply("middle_name"));
+        request.setLastName(field.apply("last_name"));
+        request.setFirstNameCn(field.apply("first_name_cn"));
+        request.setLastNameCn(field.apply("last_name_cn"));
+        request.setDateOfBirth(parseDate(field, "date_of_birth", messages));
+        request.setGender(parseEnum(Gender.class, field, "gender", messages));
+        request.setNationality(field.apply("nationality"));
+        request.setCompanyName(field.apply("company_name"));
+        request.setCompanyNameCn(field.apply("company_name_cn"));
+        request.setRegistrationNumber(field.apply("registration_number"));
+        request.setDateOfIncorporation(parseDate(field, "date_of_incorporation", messages));
+        request.setIndustry(field.apply("industry"));
+        request.setEmail(field.apply("email"));
+        request.setMobilePhone(field.apply("mobile_phone"));
+        request.setHomePhone(field.apply("home_phone"));
+        request.setWorkPhone(field.apply("work_phone"));
+        request.setAddressLine1(field.apply("address_line1"));
+        request.setAddressLine2(field.apply("address_line2"));
+        request.setCity(field.apply("city"));
+        request.setProvince(field.apply("province"));
+        request.setPostalCode(field.apply("postal_code"));
+        request.setCountry(field.apply("country"));
+        request.setIdType(parseEnum(IdType.class, field, "id_type", messages));
+        request.setIdNumber(field.apply("id_number"));
+        request.setIdExpiryDate(parseDate(field, "id_expiry_date", messages));
+        request.setTaxId(field.apply("tax_id"));
+        request.setRiskRating(parseEnum(RiskRating.class, field, "risk_rating", messages));
+        request.setBranchId(parseLong(field, "branch_id", messages));
+        request.setRelationshipManager(parseLong(field, "relationship_manager", messages));
+        request.setRemarks(field.apply("remarks"));
+        return request;
+    }
+
+    /** Values in {@link #COLUMNS} order. */
+    private static Object[] stagingValues(CreateCustomerRequest r) {
+        return new Object[]{
+            r.getCustomerType(), r.getFirstName(), r.getMiddleName(), r.getLastName(), r.getFirstNameCn(), r.getLastNameCn(),
+            r.getDateOfBirth(), r.getGender(), r.getNationality(), r.getCompanyName(), r.getCompanyNameCn(), r.getRegistrationNumber(),
+            r.getDateOfIncorporation(), r.getIndustry(), r.getEmail(), r.getMobilePhone(), r.getHomePhone(), r.getWorkPhone(),
+            r.getAddressLine1(), r.getAddressLine2(), r.getCity(), r.getProvince(), r.getPostalCode(), r.getCountry(),
+            r.getIdType(), r.getIdNumber(), r.getIdExpiryDate(), r.getTaxId(), r.getRiskRating(), r.getBranchId(),
+            r.getRelationshipManager(), r.getRemarks()};
+    }
+
+    /** COPY text format: {@code \N} for null, backslash escapes for the delimiter and line breaks. */
+    private static void appendCopyValue(StringBuilder out, Object value) {
+        if (value == null) {
+            out.append("\\N");
+            return;
+        }
+        String text = value instanceof Enum<?> e ? e.name() : value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, Function<String, String> field, String name, List<String> messages) {
+        String value = field.apply(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            messages.add("Invalid " + name + " '" + value + "' / " + name + "取值无效");
+            return null;
+        }
+    }
+
+    private static LocalDate parseDate(Function<String, String> field, String name, List<String> messages) {
+        String value = field.apply(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (RuntimeException e) {
+            messages.add("Invalid " + name + " '" + value + "', expected yyyy-MM-dd / " + name + "日期格式无效");
+            return null;
+        }
+    }
+
+    private static Long parseLong(Function<String, String> field, String name, List<String> messages) {
+        String value = field.apply(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            messages.add("Invalid " + name + " '" + value + "' / " + name + "取值无效");
+            return null;
+        }
+    }
+
+    private record Block(String copyText, int rows, int valid, List<RowError> errors) {
+    }
+
+    /** Counters of one import, touched by the reading thread only. */
+    private static final class ImportProgress {
+        private final List<RowError> errors = new ArrayList<>();
+        private final Map<CustomerType, Long> importedByType = new EnumMap<>(CustomerType.class);
+        private long totalRows;
+        private long rejected;
+
+        void reject(RowError error, int maxReported) {
+            rejected++;
+            if (errors.size() < maxReported) {
+                errors.add(error);
+            }
+        }
+    }
+
+    /**
+     * Streaming RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+     */
+    private static final class CsvReader {
+
+        private final Reader reader;
+        private int peeked = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /** Next record, or null at the end of the input. */
+        List<String> next() throws IOException {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean started = false;
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    if (!started) {
+                        return null;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                }
+                started = true;
+                if (quoted) {
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            peeked = n;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.entity.Customer;
+import com.secbank.cbs.entity.Customer.CustomerType;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Customer Matcher / 客户相似度匹配
+ * Blocking keys and pairwise scoring for duplicate-customer detection. A customer gets a few
+ * short keys (surname with birth date, phonetic name codes with birth year, the tail of the ID
+ * number, the mobile number; company name and registration number for corporates) and only
+ * customers sharing a key are ever compared, which turns the all-pairs problem into many
+ * small ones. A pair is scored from the Jaro-Winkler similarity of the names plus exact
+ * agreement on birth date, ID, mobile and email; a different birth date counts against it.
+ * 为客户生成少量分块键（姓+生日、姓名语音码+出生年、证件号尾段、手机号；企业为名称与注册号），
+ * 仅比较同块客户；按姓名Jaro-Winkler相似度与生日、证件、手机、邮箱一致性计分
+ */
+final class CustomerMatcher {
+
+    /** Weight of the name similarity in the score / 姓名相似度权重 */
+    private static final double NAME_WEIGHT = 0.6;
+    private static final double DOB_WEIGHT = 0.25;
+    private static final double ID_WEIGHT = 0.4;
+    private static final double ID_FRAGMENT_WEIGHT = 0.15;
+    private static final double CONTACT_WEIGHT = 0.15;
+
+    private static final int ID_FRAGMENT_LENGTH = 6;
+    private static final int MOBILE_DIGITS = 10;
+
+    private static final Set<String> COMPANY_SUFFIXES = Set.of(
+        "inc", "incorporated", "corp", "corporation", "co", "company", "ltd", "limited", "llc", "plc", "the");
+
+    /** Columns {@link #profile(ResultSet)} reads, for a {@code customers c} alias. */
+    static final String PROFILE_COLUMNS =
+        "c.id, c.customer_type, c.first_name, c.last_name, c.first_name_cn, c.last_name_cn, c.company_name, " +
+        "c.registration_number, c.date_of_birth, c.date_of_incorporation, c.id_number, c.mobile_phone, c.email";
+
+    private CustomerMatcher() {
+    }
+
+    /**
+     * The normalized fields compared; {@code dob} is the date of incorporation for corporates.
+     * 归一化后的比较字段
+     */
+    record Profile(long id, boolean corporate, String surname, String givenName, String nameCn, String companyName,
+                   LocalDate dob, String idNumber, String registration, String mobile, String email) {
+    }
+
+    /**
+     * Pair scored at or above the threshold; {@code customerId} is the newer (higher id) customer.
+     * 达到阈值的疑似重复对
+     */
+    record Match(long customerId, long duplicateOfId, double score, String matchedOn) {
+    }
+
+    static Profile profile(Customer c) {
+        return profile(c.getId() != null ? c.getId() : 0L, c.getCustomerType() == CustomerType.CORPORATE,
+            c.getFirstName(), c.getLastName(), c.getFirstNameCn(), c.getLastNameCn(), c.getCompanyName(),
+            c.getRegistrationNumber(), c.getDateOfBirth(), c.getDateOfIncorporation(), c.getIdNumber(),
+            c.getMobilePhone(), c.getEmail());
+    }
+
+    static Profile profile(ResultSet rs) throws SQLException {
+        Date dob = rs.getDate("date_of_birth");
+        Date incorporated = rs.getDate("date_of_incorporation");
+        return profile(rs.getLong("id"), CustomerType.CORPORATE.name().equals(rs.getString("customer_type")),
+            rs.getString("first_name"), rs.getString("last_name"), rs.getString("first_name_cn"),
+            rs.getString("last_name_cn"), rs.getString("company_name"), rs.getString("registration_number"),
+            dob != null ? dob.toLocalDate() : null, incorporated != null ? incorporated.toLocalDate() : null,
+            rs.getString("id_number"), rs.getString("mobile_phone"), rs.getString("email"));
+    }
+
+    private static Profile profile(long id, boolean corporate, String firstName, String lastName, String firstNameCn,
+                                   String lastNameCn, String companyName, String registration, LocalDate dob,
+                                   LocalDate incorporated, String idNumber, String mobile, String email) {
+        String nameCn = normalize(concat(lastNameCn, firstNameCn));
+        return new Profile(id, corporate, normalize(lastName), normalize(firstName), nameCn,
+            corporate ? companyCore(companyName) : null, corporate ? incorporated : dob,
+            alphanumeric(idNumber), alphanumeric(registration), digits(mobile),
+            email != null && !email.isBlank() ? email.trim().toLowerCase() : null);
+    }
+
+    /**
+     * Blocking keys of a customer; customers sharing any key are compared.
+     * 生成分块键，共享任一键的客户参与比较
+     */
+    static List<String> blockingKeys(Profile p) {
+        List<String> keys = new ArrayList<>(6);
+        if (p.corporate()) {
+            if (p.companyName() != null) {
+                keys.add("C|" + truncate(p.companyName(), 60));
+                String code = soundex(p.companyName());
+                if (code != null) {
+                    keys.add("CP|" + code + (p.dob() != null ? "|" + p.dob().getYear() : ""));
+                }
+            }
+            if (p.registration() != null) {
+                keys.add("R|" + truncate(p.registration(), 60));
+            }
+        } else {
+            String surname = p.surname() != null ? p.surname() : p.nameCn();
+            if (surname != null && p.dob() != null) {
+                keys.add("N|" + truncate(surname, 60) + "|" + p.dob());
+            }
+            String surnameCode = soundex(p.surname());
+            String givenCode = soundex(p.givenName());
+            if (surnameCode != null && givenCode != null) {
+                keys.add("P|" + surnameCode + givenCode + (p.dob() != null ? "|" + p.dob().getYear() : ""));
+            }
+        }
+        if (p.idNumber() != null && p.idNumber().length() >= ID_FRAGMENT_LENGTH) {
+            keys.add("I|" + p.idNumber().substring(p.idNumber().length() - ID_FRAGMENT_LENGTH));
+        }
+        if (p.mobile() != null && p.mobile().length() >= 7) {
+            keys.add("M|" + p.mobile().substring(Math.max(0, p.mobile().length() - MOBILE_DIGITS)));
+        }
+        return keys;
+    }
+
+    /**
+     * Score a pair in [0, 1]; null below the threshold or when the pair cannot be a duplicate.
+     * 计算一对客户的相似分，低于阈值返回null
+     */
+    static Match score(Profile a, Profile b, double threshold) {
+        if (a.id() == b.id() || a.corporate() != b.corporate()) {
+            return null;
+        }
+        double name = nameSimilarity(a, b);
+        if (name == 0) {
+            return null;
+        }
+        List<String> matchedOn = new ArrayList<>(5);
+        double score = NAME_WEIGHT * name;
+        if (name >= 0.9) {
+            matchedOn.add("NAME");
+        }
+        if (a.dob() != null && b.dob() != null) {
+            if (a.dob().equals(b.dob())) {
+                score += DOB_WEIGHT;
+                matchedOn.add(a.corporate() ? "INCORPORATION_DATE" : "DOB");
+            } else {
+                score -= DOB_WEIGHT;
+            }
+        }
+        if (equal(a.idNumber(), b.idNumber()) || equal(a.registration(), b.registration())) {
+            score += ID_WEIGHT;
+            matchedOn.add("ID");
+        } else if (a.idNumber() != null && b.idNumber() != null && a.idNumber().length() >= ID_FRAGMENT_LENGTH
+                && b.idNumber().length() >= ID_FRAGMENT_LENGTH && a.idNumber().endsWith(
+                    b.idNumber().substring(b.idNumber().length() - ID_FRAGMENT_LENGTH))) {
+            score += ID_FRAGMENT_WEIGHT;
+            matchedOn.add("ID_FRAGMENT");
+        }
+        if (a.mobile() != null && b.mobile() != null && a.mobile().length() >= 7 && b.mobile().length() >= 7
+                && tail(a.mobile(), MOBILE_DIGITS).equals(tail(b.mobile(), MOBILE_DIGITS))) {
+            score += CONTACT_WEIGHT;
+            matchedOn.add("MOBILE");
+        }
+        if (equal(a.email(), b.email())) {
+            score += CONTACT_WEIGHT;
+            matchedOn.add("EMAIL");
+        }
+        score = Math.min(1.0, score);
+        if (score < threshold) {
+            return null;
+        }
+        return a.id() > b.id()
+            ? new Match(a.id(), b.id(), score, String.join(",", matchedOn))
+            : new Match(b.id(), a.id(), score, String.join(",", matchedOn));
+    }
+
+    /**
+     * Best name similarity; given and family names may have been entered in either order.
+     */
+    private static double nameSimilarity(Profile a, Profile b) {
+        double best = 0;
+        if (a.corporate()) {
+            if (a.companyName() != null && b.companyName() != null) {
+                best = jaroWinkler(a.companyName(), b.companyName());
+            }
+        } else if (a.surname() != null && b.surname() != null) {
+            String aName = concat(a.givenName(), a.surname());
+            best = Math.max(jaroWinkler(aName, concat(b.givenName(), b.surname())),
+                jaroWinkler(aName, concat(b.surname(), b.givenName())));
+        }
+        if (a.nameCn() != null && b.nameCn() != null) {
+            best = Math.max(best, jaroWinkler(a.nameCn(), b.nameCn()));
+        }
+        return best;
+    }
+
+    /**
+     * Jaro-Winkler similarity: the common-prefix boost (0.1 per character, at most four) applies
+     * only above a Jaro similarity of 0.7.
+     * Jaro-Winkler相似度
+     */
+    static double jaroWinkler(String s, String t) {
+        if (s.equals(t)) {
+            return 1.0;
+        }
+        int sLen = s.length();
+        int tLen = t.length();
+        if (sLen == 0 || tLen == 0) {
+            return 0.0;
+        }
+        int window = Math.max(0, Math.max(sLen, tLen) / 2 - 1);
+        boolean[] sMatched = new boolean[sLen];
+        boolean[] tMatched = new boolean[tLen];
+        int matches = 0;
+        for (int i = 0; i < sLen; i++) {
+            int from = Math.max(0, i - window);
+            int to = Math.min(tLen, i + window + 1);
+            for (int j = from; j < to; j++) {
+                if (!tMatched[j] && s.charAt(i) == t.charAt(j)) {
+                    sMatched[i] = true;
+                    tMatched[j] = true;
+                    matches++;
+                    break;
+                }
+            }
+        }
+        if (matches == 0) {
+            return 0.0;
+        }
+        int transpositions = 0;
+        for (int i = 0, j = 0; i < sLen; i++) {
+            if (sMatched[i]) {
+                while (!tMatched[j]) {
+                    j++;
+                }
+                if (s.charAt(i) != t.charAt(j)) {
+                    transpositions++;
+                }
+                j++;
+            }
+        }
+        double m = matches;
+        double jaro = (m / sLen + m / tLen + (m - transpositions / 2.0) / m) / 3.0;
+        if (jaro < 0.7) {
+            return jaro;
+        }
+        int prefix = 0;
+        while (prefix < Math.min(4, Math.min(sLen, tLen)) && s.charAt(prefix) == t.charAt(prefix)) {
+            prefix++;
+        }
+        return jaro + prefix * 0.1 * (1.0 - jaro);
+    }
+
+    /**
+     * American Soundex of the Latin letters of a normalized name; null when it has none.
+     * 美式Soundex语音码（仅拉丁字母）
+     */
+    static String soundex(String name) {
+        if (name == null) {
+            return null;
+        }
+        StringBuilder code = new StringBuilder(4);
+        char last = 0;
+        for (int i = 0; i < name.length() && code.length() < 4; i++) {
+            char c = name.charAt(i);
+            if (c < 'a' || c > 'z') {
+                continue;
+            }
+            char digit = soundexDigit(c);
+            if (code.isEmpty()) {
+                code.append(Character.toUpperCase(c));
+            } else if (digit != '0' && digit != last) {
+                code.append(digit);
+            }
+            // h and w do not separate equal codes, vowels do
+            if (c != 'h' && c != 'w') {
+                last = digit;
+            }
+        }
+        if (code.isEmpty()) {
+            return null;
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+
+    private static char soundexDigit(char c) {
+        return switch (c) {
+            case 'b', 'f', 'p', 'v' -> '1';
+            case 'c', 'g', 'j', 'k', 'q', 's', 'x', 'z' -> '2';
+            case 'd', 't' -> '3';
+            case 'l' -> '4';
+            case 'm', 'n' -> '5';
+            case 'r' -> '6';
+            default -> '0';
+        };
+    }
+
+    /** Lower case, accents removed, letters and digits only (CJK characters are letters). */
+    static String normalize(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    /** Company name without legal-form words, so "ACME Trading Corp." matches "Acme Trading Inc". */
+    private static String companyCore(String companyName) {
+        if (companyName == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String word : companyName.split("[\\s,.]+")) {
+            String w = normalize(word);
+            if (w != null && !COMPANY_SUFFIXES.contains(w)) {
+                sb.append(w);
+            }
+        }
+        return sb.isEmpty() ? normalize(companyName) : sb.toString();
+    }
+
+    private static String alphanumeric(String value) {
+        String normalized = normalize(value);
+        return normalized != null ? normalized.toUpperCase() : null;
+    }
+
+    private static String digits(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                sb.append(c);
+            }
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    private static String concat(String first, String second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + second;
+    }
+
+    private static String tail(String value, int length) {
+        return value.substring(Math.max(0, value.length() - length));
+    }
+
+    private static String truncate(String value, int length) {
+        return value.length() <= length ? value : value.substring(0, length);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a != null && a.equals(b);
+    }
+}
@@ -4,11 +4,14 @@ import com.secbank.cbs.entity.Branch;
 import com.secbank.cbs.entity.Customer;
 import com.secbank.cbs.entity.Customer.CustomerStatus;
 import com.secbank.cbs.entity.Customer.CustomerType;
+import com.secbank.cbs.event.StatusChangedEvent;
 import com.secbank.cbs.repository.BranchRepository;
 import com.secbank.cbs.repository.CustomerRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,8 +23,15 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CustomerService {
     
+    /** Serializes CIF number allocation with bulk imports until the transaction ends. */
+    static final String CUSTOMER_NUMBER_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('customer_number'))";
+    
     private final CustomerRepository customerRepository;
     private final BranchRepository branchRepository;
+    private final CustomerUniquenessFilter uniquenessFilter;
+    private final DuplicateCustomerService duplicateCustomerService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
     
     public Page<Customer> findAll(Pageable pageable) {
         return customerRepository.findAll(pageable);
@@ -85,7 +95,12 @@ public class CustomerService {
         customer.setKycVerified(false);
         customer.setCreatedBy(createdBy);
         
-        return customerRepository.save(customer);
+        uniquenessFilter.add(customer.getEmail(), customer.getIdNumber(), customer.getTaxId());
+        Customer saved = customerRepository.save(customer);
+        duplicateCustomerService.screen(saved);
+        eventPublisher.publishEvent(new StatusChangedEvent("Customer", saved.getId(), null, saved.getStatus().name(),
+            saved.getCustomerType().name()));
+        return saved;
     }
     
     @Transactional
@@ -138,7 +153,10 @@ public class CustomerService {
         
         customer.setUpdatedBy(updatedBy);
         
-        return customerRepository.save(customer);
+        uniquenessFilter.add(customer.getEmail(), customer.getIdNumber(), customer.getTaxId());
+        Customer saved = customerRepository.save(customer);
+        duplicateCustomerService.screen(saved);
+        return saved;
     }
     
     @Transactional
@@ -146,10 +164,16 @@ public class CustomerService {
         Customer customer = customerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
         
+        CustomerStatus oldStatus = customer.getStatus();
         customer.setStatus(status);
         customer.setUpdatedBy(updatedBy);
         
-        return customerRepository.save(customer);
+        Customer saved = customerRepository.save(customer);
+        if (oldStatus != status) {
+            eventPublisher.publishEvent(new StatusChangedEvent("Customer", saved.getId(),
+                oldStatus != null ? oldStatus.name() : null, status.name()));
+        }
+        return saved;
     }
     
     @Transactional
@@ -170,11 +194,15 @@ public class CustomerService {
     }
     
     public boolean existsByEmail(String email) {
-        return customerRepository.existsByEmail(email);
+        return uniquenessFilter.emailExists(email, customerRepository::existsByEmail);
     }
     
     public boolean existsByIdNumber(String idNumber) {
-        return customerRepository.existsByIdNumber(idNumber);
+        return uniquenessFilter.idNumberExists(idNumber, customerRepository::existsByIdNumber);
+    }
+    
+    public boolean existsByTaxId(String taxId) {
+        return uniquenessFilter.taxIdExists(taxId, customerRepository::existsByTaxId);
     }
     
     public long countByStatus(CustomerStatus status) {
@@ -192,6 +220,8 @@ public class CustomerService {
         String typeCode = type == CustomerType.INDIVIDUAL ? "I" : "C";
         String prefix = "CIF" + year + typeCode;
         
+        // Same lock as CustomerImportService, so MAX()+1 never races an import's reserved block
+        jdbcTemplate.execute(CUSTOMER_NUMBER_LOCK_SQL);
         String maxNumber = customerRepository.findMaxCustomerNumberByPrefix(prefix);
         int sequence = 1;
         if (maxNumber != null && maxNumber.length() > prefix.length()) {
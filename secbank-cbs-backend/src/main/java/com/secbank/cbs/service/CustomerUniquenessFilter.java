@@ -0,0 +1,189 @@
+package com.secbank.cbs.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.function.Predicate;
+
+/**
+ * Customer Uniqueness Filter / 客户唯一性过滤器
+ * In-memory Bloom filters over customer email, ID number and tax ID, consulted before the exact
+ * uniqueness queries: a negative answer is definite and skips the database, only a probable hit
+ * is confirmed with an indexed lookup. The filters are built after startup from a streaming
+ * cursor scan and rebuilt nightly (Bloom filters cannot forget values that were changed away).
+ * Writers {@link #add} values before their transaction commits, so a committed value is always
+ * in the current filter. The filter replaced by a rebuild is still consulted until the next one,
+ * which covers values added just before the swap whose transaction committed after the scan
+ * started. Until the first build completes every check goes to the database, while writes are
+ * already recorded.
+ * 邮箱、证件号、税号的内存布隆过滤器：否定结果确定且免查库，可能命中时再精确查询；启动后游标扫描构建、每晚重建；
+ * 写入方在提交前加入；重建后旧过滤器继续参与判断至下次重建，保证无漏判
+ */
+@Service
+@Slf4j
+public class CustomerUniquenessFilter {
+
+    private static final String SCAN_SQL = "SELECT email, id_number, tax_id FROM customers";
+
+    private static final String ESTIMATE_SQL =
+        "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = 'customers'::regclass";
+
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final Counter skipped;
+    private final Counter falsePositives;
+
+    private volatile Filters current;
+    private volatile Filters previous;
+    private volatile Filters building;
+    private volatile boolean ready;
+
+    public CustomerUniquenessFilter(DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.customer-filter.fetch-size:10000}") int fetchSize,
+                                    @Value("${app.customer-filter.expected-insertions:2000000}") long expectedInsertions,
+                                    @Value("${app.customer-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.current = new Filters(expectedInsertions, falsePositiveProbability);
+        this.skipped = Counter.builder("customer.uniqueness.filter.skipped")
+            .description("Uniqueness checks answered by the filter without a database query")
+            .register(meterRegistry);
+        this.falsePositives = Counter.builder("customer.uniqueness.filter.false.positives")
+            .description("Uniqueness checks the filter passed to the database that found no match")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Build the filters on startup.
+     * 启动时构建过滤器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild from a full scan, sized for at least twice the current row count.
+     * 全表扫描重建过滤器
+     */
+    @Scheduled(cron = "${app.customer-filter.rebuild-cron:0 15 2 * * *}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Long estimate = cursorTemplate.queryForObject(ESTIMATE_SQL, Long.class);
+        long capacity = Math.max(expectedInsertions, 2 * (estimate != null ? estimate : 0));
+        Filters fresh = new Filters(capacity, falsePositiveProbability);
+        building = fresh;
+        long[] rows = {0};
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> cursorTemplate.query(SCAN_SQL, rs -> {
+                fresh.add(rs.getString("email"), rs.getString("id_number"), rs.getString("tax_id"));
+                rows[0]++;
+            }));
+            previous = current;
+            current = fresh;
+            ready = true;
+        } finally {
+            building = null;
+        }
+        log.info("Customer uniqueness filter built: {} customers, {} bits per field in {} ms / 客户唯一性过滤器构建完成",
+            rows[0], fresh.email.bitSize(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Record the values of a customer being created or updated. Call before the write commits.
+     * 记录新建或更新客户的值（须在提交前调用）
+     */
+    public void add(String email, String idNumber, String taxId) {
+        current.add(email, idNumber, taxId);
+        Filters pending = building;
+        if (pending != null) {
+            pending.add(email, idNumber, taxId);
+        }
+    }
+
+    /**
+     * Whether a customer has this email, asking the database only on a probable hit.
+     * 判断邮箱是否已存在，仅在可能命中时查库
+     */
+    public boolean emailExists(String email, Predicate<String> query) {
+        return exists(email, f -> f.email.mightContain(email), query);
+    }
+
+    /**
+     * Whether a customer has this ID number, asking the database only on a probable hit.
+     * 判断证件号是否已存在，仅在可能命中时查库
+     */
+    public boolean idNumberExists(String idNumber, Predicate<String> query) {
+        return exists(idNumber, f -> f.idNumber.mightContain(idNumber), query);
+    }
+
+    /**
+     * Whether a customer has this tax ID, asking the database only on a probable hit.
+     * 判断税号是否已存在，仅在可能命中时查库
+     */
+    public boolean taxIdExists(String taxId, Predicate<String> query) {
+        return exists(taxId, f -> f.taxId.mightContain(taxId), query);
+    }
+
+    private boolean exists(String value, Predicate<Filters> mightContain, Predicate<String> query) {
+        if (value == null) {
+            return false;
+        }
+        if (!ready) {
+            return query.test(value);
+        }
+        Filters replaced = previous;
+        if (!mightContain.test(current) && (replaced == null || !mightContain.test(replaced))) {
+            skipped.increment();
+            return false;
+        }
+        boolean found = query.test(value);
+        if (!found) {
+            falsePositives.increment();
+        }
+        return found;
+    }
+
+    /** One filter per field, so equal strings in different fields do not share bits. */
+    private static final class Filters {
+        private final BloomFilter email;
+        private final BloomFilter idNumber;
+        private final BloomFilter taxId;
+
+        Filters(long capacity, double fpp) {
+            email = BloomFilter.create(capacity, fpp);
+            idNumber = BloomFilter.create(capacity, fpp);
+            taxId = BloomFilter.create(capacity, fpp);
+        }
+
+        void add(String emailValue, String idNumberValue, String taxIdValue) {
+            if (emailValue != null) {
+                email.put(emailValue);
+            }
+            if (idNumberValue != null) {
+                idNumber.put(idNumberValue);
+            }
+            if (taxIdValue != null) {
+                taxId.put(taxIdValue);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.config.LedgerSchemaInitializer;
+import com.secbank.cbs.entity.AccountType;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
+import com.secbank.cbs.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Daily Limit Service / 日限额服务
+ * Enforces the account type's {@code dailyWithdrawalLimit}, {@code dailyTransferLimit} and
+ * {@code maxTransactionsPerDay} from per-account, per-day running totals kept in memory, so the
+ * posting path never runs SUM queries. Totals live in a fixed array of lock stripes keyed by
+ * account id; check-and-reserve takes one uncontended stripe lock and touches one small object.
+ * <p>
+ * Dirty totals are checkpointed to {@code daily_limit_usage} on a schedule. On startup each
+ * total is rebuilt as the larger of its checkpoint and today's journal, so neither a lost
+ * checkpoint nor postings made after it can reopen headroom.
+ * <p>
+ * 日限额：按账户按日在内存分段计数，校验与预占在单个分段锁内原子完成；定期检查点落表，启动时取检查点与当日日志的较大值重建
+ */
+@Service
+@Slf4j
+public class DailyLimitService implements InitializingBean {
+
+    private static final String LOAD_CHECKPOINT_SQL =
+        "SELECT account_id, withdrawn_minor, transferred_minor, txn_count FROM daily_limit_usage WHERE usage_date = ?";
+
+    private static final String JOURNAL_USAGE_SQL =
+        "SELECT l.account_id, " +
+        "       SUM(CASE WHEN e.txn_type = ANY(?) THEN l.amount ELSE 0 END) AS withdrawn, " +
+        "       SUM(CASE WHEN e.txn_type = ANY(?) THEN l.amount ELSE 0 END) AS transferred, " +
+        "       COUNT(DISTINCT l.entry_id) AS txn_count " +
+        "FROM journal_lines l " +
+        "JOIN journal_entries e ON e.id = l.entry_id AND e.entry_date = l.entry_date " +
+        "WHERE l.entry_date = ? AND l.direction = 'D' AND l.account_id IS NOT NULL AND e.txn_type = ANY(?) " +
+        "GROUP BY l.account_id";
+
+    private static final String SAVE_CHECKPOINT_SQL =
+        "INSERT INTO daily_limit_usage (account_id, usage_date, withdrawn_minor, transferred_minor, txn_count, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, now()) " +
+        "ON CONFLICT (account_id, usage_date) DO UPDATE SET withdrawn_minor = EXCLUDED.withdrawn_minor, " +
+        "transferred_minor = EXCLUDED.transferred_minor, txn_count = EXCLUDED.txn_count, updated_at = now()";
+
+    private static final String PURGE_CHECKPOINT_SQL =
+        "DELETE FROM daily_limit_usage WHERE usage_date < ?";
+
+    /**
+     * Which limit a transaction type counts against / 交易类型对应的限额
+     */
+    public enum Category {
+        WITHDRAWAL,
+        TRANSFER
+    }
+
+    /**
+     * Usage taken by one posting, handed back by {@link #release(Reservation)} when it does not commit.
+     */
+    public record Reservation(long accountId, LocalDate date, Category category, long amountMinor) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceDataCache;
+    private final Set<String> withdrawalTypes;
+    private final Set<String> transferTypes;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final Counter rejections;
+    /** Converted account type limits, valid for {@link #limitsVersion} of the reference data. */
+    private final Map<Long, Limits> limitsByType = new ConcurrentHashMap<>();
+    private volatile long limitsVersion = -1;
+
+    public DailyLimitService(JdbcTemplate jdbcTemplate,
+                             ReferenceDataCache referenceDataCache,
+                             MeterRegistry meterRegistry,
+                             LedgerSchemaInitializer schemaInitializer,
+                             @Value("${app.limits.withdrawal-txn-types:WITHDRAWAL,CASH_WITHDRAWAL,ATM_WITHDRAWAL}") List<String> withdrawalTypes,
+                             @Value("${app.limits.transfer-txn-types:TRANSFER}") List<String> transferTypes,
+                             @Value("${app.limits.stripes:64}") int stripeCount) {
+        // schemaInitializer is only injected so the checkpoint table exists before the rebuild
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceDataCache = referenceDataCache;
+        this.withdrawalTypes = Set.copyOf(withdrawalTypes);
+        this.transferTypes = Set.copyOf(transferTypes);
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = size - 1;
+        this.rejections = Counter.builder("limits.rejections")
+            .description("Postings rejected by daily limits")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild(LocalDate.now());
+    }
+
+    /**
+     * Category of a transaction type, or null when the type is not subject to daily limits.
+     * 交易类型对应的限额类别，不受限时返回null
+     */
+    public Category categoryOf(String txnType) {
+        if (withdrawalTypes.contains(txnType)) {
+            return Category.WITHDRAWAL;
+        }
+        if (transferTypes.contains(txnType)) {
+            return Category.TRANSFER;
+        }
+        return null;
+    }
+
+    /**
+     * Atomically check the account type's limits and take the usage. Returns null when the
+     * transaction type is not limited. Inside a transaction the usage is given back
+     * automatically on rollback; outside one the caller must {@link #release} it on failure.
+     * 原子校验并预占日限额
+     */
+    public Reservation reserve(long accountId, long accountTypeId, String txnType, LocalDate date, long amountMinor) {
+        Category category = categoryOf(txnType);
+        if (category == null) {
+            return null;
+        }
+        Limits limits = limitsOf(accountTypeId);
+        Stripe stripe = stripeOf(accountId);
+        synchronized (stripe) {
+            Usage usage = stripe.usage(accountId, date);
+            if (limits.maxTransactions > 0 && usage.count >= limits.maxTransactions) {
+                rejections.increment();
+                throw new BusinessException("Daily transaction count limit of " + limits.maxTransactions +
+                    " reached / 已达每日交易笔数上限");
+            }
+            if (category == Category.WITHDRAWAL) {
+                if (limits.withdrawal >= 0 && usage.withdrawn + amountMinor > limits.withdrawal) {
+                    rejections.increment();
+                    throw new BusinessException("Daily withdrawal limit exceeded, remaining " +
+                        fromMinor(limits.withdrawal - usage.withdrawn) + " / 超出每日取款限额");
+                }
+                usage.withdrawn += amountMinor;
+            } else {
+                if (limits.transfer >= 0 && usage.transferred + amountMinor > limits.transfer) {
+                    rejections.increment();
+                    throw new BusinessException("Daily transfer limit exceeded, remaining " +
+                        fromMinor(limits.transfer - usage.transferred) + " / 超出每日转账限额");
+                }
+                usage.transferred += amountMinor;
+            }
+            usage.count++;
+            usage.dirty = true;
+        }
+        Reservation reservation = new Reservation(accountId, date, category, amountMinor);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(reservation);
+                    }
+                }
+            });
+        }
+        return reservation;
+    }
+
+    /**
+     * Give back usage of a posting that was not committed.
+     * 归还未提交交易的限额占用
+     */
+    public void release(Reservation reservation) {
+        if (reservation == null) {
+            return;
+        }
+        Stripe stripe = stripeOf(reservation.accountId());
+        synchronized (stripe) {
+            Usage usage = stripe.usage.get(reservation.accountId());
+            if (usage == null || !usage.date.equals(reservation.date())) {
+                return;
+            }
+            if (reservation.category() == Category.WITHDRAWAL) {
+                usage.withdrawn -= reservation.amountMinor();
+            } else {
+                usage.transferred -= reservation.amountMinor();
+            }
+            usage.count--;
+            usage.dirty = true;
+        }
+    }
+
+    /**
+     * Write dirty totals to the checkpoint table and drop totals of past days.
+     * 将变更的计数写入检查点表并清理往日计数
+     */
+    @Scheduled(fixedDelayString = "${app.limits.checkpoint-ms:5000}")
+    public void checkpoint() {
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>();
+        boolean purged = false;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Usage> it = stripe.usage.values().iterator();
+                while (it.hasNext()) {
+                    Usage usage = it.next();
+                    if (usage.dirty) {
+                        rows.add(new Object[]{usage.accountId, usage.date, usage.withdrawn, usage.transferred, usage.count});
+                        usage.dirty = false;
+                    }
+                    if (usage.date.isBefore(today)) {
+                        it.remove();
+                        purged = true;
+                    }
+                }
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(SAVE_CHECKPOINT_SQL, rows);
+        }
+        if (purged) {
+            jdbcTemplate.update(PURGE_CHECKPOINT_SQL, today);
+        }
+    }
+
+    private void rebuild(LocalDate date) {
+        Map<Long, Usage> rebuilt = new HashMap<>();
+        jdbcTemplate.query(LOAD_CHECKPOINT_SQL, rs -> {
+            Usage usage = new Usage(rs.getLong("account_id"), date);
+            usage.withdrawn = rs.getLong("withdrawn_minor");
+            usage.transferred = rs.getLong("transferred_minor");
+            usage.count = rs.getInt("txn_count");
+            rebuilt.put(usage.accountId, usage);
+        }, date);
+        Set<String> limited = new HashSet<>(withdrawalTypes);
+        limited.addAll(transferTypes);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(JOURNAL_USAGE_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", withdrawalTypes.toArray()));
+            ps.setArray(2, con.createArrayOf("varchar", transferTypes.toArray()));
+            ps.setObject(3, date);
+            ps.setArray(4, con.createArrayOf("varchar", limited.toArray()));
+            return ps;
+        }, rs -> {
+            long accountId = rs.getLong("account_id");
+            Usage usage = rebuilt.computeIfAbsent(accountId, id -> new Usage(id, date));
+            usage.withdrawn = Math.max(usage.withdrawn, toMinor(rs.getBigDecimal("withdrawn")));
+            usage.transferred = Math.max(usage.transferred, toMinor(rs.getBigDecimal("transferred")));
+            usage.count = Math.max(usage.count, rs.getInt("txn_count"));
+        });
+        for (Usage usage : rebuilt.values()) {
+            Stripe stripe = stripeOf(usage.accountId);
+            synchronized (stripe) {
+                stripe.usage.put(usage.accountId, usage);
+            }
+        }
+        log.info("Rebuilt daily limit usage for {} accounts / 已重建日限额计数", rebuilt.size());
+    }
+
+    private Limits limitsOf(long accountTypeId) {
+        long version = referenceDataCache.getVersion(Kind.ACCOUNT_TYPE);
+        if (version != limitsVersion) {
+            // Account types were edited; a racing reader at worst recomputes an entry once more
+            limitsByType.clear();
+            limitsVersion = version;
+        }
+        return limitsByType.computeIfAbsent(accountTypeId, id -> referenceDataCache.getAccountType(id)
+            .map(Limits::of)
+            .orElse(Limits.NONE));
+    }
+
+    private Stripe stripeOf(long accountId) {
+        // Spread sequential ids across stripes
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (h >>> 32) & stripeMask];
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    private static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+
+    /** Account type limits in minor units; -1 / 0 mean unlimited. */
+    private record Limits(long withdrawal, long transfer, int maxTransactions) {
+
+        static final Limits NONE = new Limits(-1, -1, 0);
+
+        static Limits of(AccountType type) {
+            return new Limits(
+                type.getDailyWithdrawalLimit() != null ? toMinor(type.getDailyWithdrawalLimit()) : -1,
+                type.getDailyTransferLimit() != null ? toMinor(type.getDailyTransferLimit()) : -1,
+                type.getMaxTransactionsPerDay() != null ? type.getMaxTransactionsPerDay() : 0);
+        }
+    }
+
+    /** One lock stripe; its map and every {@link Usage} in it are guarded by the stripe's monitor. */
+    private static final class Stripe {
+        final Map<Long, Usage> usage = new HashMap<>();
+
+        Usage usage(long accountId, LocalDate date) {
+            Usage current = usage.get(accountId);
+            if (current == null || !current.date.equals(date)) {
+                // First posting of the day for this account starts from zero
+                current = new Usage(accountId, date);
+                usage.put(accountId, current);
+            }
+            return current;
+        }
+    }
+
+    private static final class Usage {
+        final long accountId;
+        final LocalDate date;
+        long withdrawn;
+        long transferred;
+        int count;
+        boolean dirty;
+
+        Usage(long accountId, LocalDate date) {
+            this.accountId = accountId;
+            this.date = date;
+        }
+    }
+}
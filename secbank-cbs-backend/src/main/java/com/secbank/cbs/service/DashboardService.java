@@ -1,57 +1,148 @@
 package com.secbank.cbs.service;
 
 import com.secbank.cbs.dto.DashboardStatsDTO;
-import com.secbank.cbs.repository.*;
+import com.secbank.cbs.event.AuditLoggedEvent;
+import com.secbank.cbs.event.StatusChangedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Dashboard Service / 仪表板服务
- * Provides dashboard statistics and metrics.
+ * Serves a cached dashboard snapshot. The snapshot is computed in a single SQL round trip
+ * on a schedule, and the active counters are kept current between refreshes from domain events.
+ * 提供缓存的仪表板快照：定时单次SQL计算，刷新间隔内由领域事件维护计数
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DashboardService {
 
-    private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
-    private final BranchRepository branchRepository;
-    private final PermissionRepository permissionRepository;
-    private final AuditLogRepository auditLogRepository;
+    /**
+     * All dashboard metrics in one statement. Very large tables use the planner's row
+     * estimate once it passes the configured threshold instead of a full count.
+     */
+    private static final String SNAPSHOT_SQL =
+        "SELECT " +
+        "  (SELECT COUNT(*) FROM users) AS total_users, " +
+        "  (SELECT COUNT(*) FROM users WHERE status = 'ACTIVE') AS active_users, " +
+        "  (SELECT COUNT(*) FROM roles) AS total_roles, " +
+        "  (SELECT COUNT(*) FROM branches) AS total_branches, " +
+        "  (SELECT COUNT(*) FROM branches WHERE status = 'ACTIVE') AS active_branches, " +
+        "  (SELECT COUNT(*) FROM permissions) AS total_permissions, " +
+        "  (SELECT COUNT(*) FROM audit_logs WHERE created_at >= ? AND created_at < ?) AS today_audit_logs, " +
+        "  (SELECT CASE WHEN c.reltuples >= ? THEN CAST(c.reltuples AS BIGINT) " +
+        "               ELSE (SELECT COUNT(*) FROM audit_logs) END " +
+        "     FROM pg_class c WHERE c.oid = 'audit_logs'::regclass) AS total_audit_logs";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.dashboard.approximate-count-threshold:1000000}")
+    private long approximateCountThreshold;
+
+    private final AtomicLong totalUsers = new AtomicLong();
+    private final AtomicLong activeUsers = new AtomicLong();
+    private final AtomicLong totalRoles = new AtomicLong();
+    private final AtomicLong totalBranches = new AtomicLong();
+    private final AtomicLong activeBranches = new AtomicLong();
+    private final AtomicLong totalPermissions = new AtomicLong();
+    private final AtomicLong todayAuditLogs = new AtomicLong();
+    private final AtomicLong totalAuditLogs = new AtomicLong();
+
+    private volatile LocalDate snapshotDate;
+    private volatile LocalDateTime refreshedAt;
 
     /**
      * Get dashboard statistics / 获取仪表板统计
      */
     public DashboardStatsDTO getStats() {
-        log.debug("Fetching dashboard statistics... / 获取仪表板统计...");
-        
-        long totalUsers = userRepository.count();
-        long activeUsers = userRepository.countByStatus("ACTIVE");
-        long totalRoles = roleRepository.count();
-        long totalBranches = branchRepository.count();
-        long activeBranches = branchRepository.countByStatus("ACTIVE");
-        long totalPermissions = permissionRepository.count();
-        
-        // Get today's audit logs
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-        long todayAuditLogs = auditLogRepository.countByCreatedAtBetween(startOfDay, endOfDay);
-        long totalAuditLogs = auditLogRepository.count();
-        
+        if (refreshedAt == null || !LocalDate.now().equals(snapshotDate)) {
+            refresh();
+        }
+
         return DashboardStatsDTO.builder()
-            .totalUsers(totalUsers)
-            .activeUsers(activeUsers)
-            .totalRoles(totalRoles)
-            .totalBranches(totalBranches)
-            .activeBranches(activeBranches)
-            .totalPermissions(totalPermissions)
-            .todayAuditLogs(todayAuditLogs)
-            .totalAuditLogs(totalAuditLogs)
+            .totalUsers(totalUsers.get())
+            .activeUsers(activeUsers.get())
+            .totalRoles(totalRoles.get())
+            .totalBranches(totalBranches.get())
+            .activeBranches(activeBranches.get())
+            .totalPermissions(totalPermissions.get())
+            .todayAuditLogs(todayAuditLogs.get())
+            .totalAuditLogs(totalAuditLogs.get())
+            .refreshedAt(refreshedAt)
             .build();
     }
+
+    /**
+     * Recompute the snapshot in one round trip.
+     * 单次往返重新计算快照
+     */
+    @Scheduled(fixedDelayString = "${app.dashboard.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        log.debug("Refreshing dashboard snapshot... / 刷新仪表板快照...");
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime startOfDay = today.atStartOfDay();
+        jdbcTemplate.query(SNAPSHOT_SQL, rs -> {
+            totalUsers.set(rs.getLong("total_users"));
+            activeUsers.set(rs.getLong("active_users"));
+            totalRoles.set(rs.getLong("total_roles"));
+            totalBranches.set(rs.getLong("total_branches"));
+            activeBranches.set(rs.getLong("active_branches"));
+            totalPermissions.set(rs.getLong("total_permissions"));
+            todayAuditLogs.set(rs.getLong("today_audit_logs"));
+            totalAuditLogs.set(rs.getLong("total_audit_logs"));
+        }, Timestamp.valueOf(startOfDay), Timestamp.valueOf(startOfDay.plusDays(1)), approximateCountThreshold);
+
+        snapshotDate = today;
+        refreshedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Keep user and branch counters current between refreshes.
+     * 在刷新间隔内维护用户和分行计数
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(StatusChangedEvent event) {
+        switch (event.getEntityType()) {
+            case "User" -> applyStatusChange(event, totalUsers, activeUsers);
+            case "Branch" -> applyStatusChange(event, totalBranches, activeBranches);
+            default -> { }
+        }
+    }
+
+    /**
+     * Count audit rows as they are written.
+     * 审计日志写入时计数
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuditLogged(AuditLoggedEvent event) {
+        totalAuditLogs.incrementAndGet();
+        if (event.getCreatedAt() != null && event.getCreatedAt().toLocalDate().equals(snapshotDate)) {
+            todayAuditLogs.incrementAndGet();
+        }
+    }
+
+    private void applyStatusChange(StatusChangedEvent event, AtomicLong total, AtomicLong active) {
+        if (event.isCreated()) {
+            total.incrementAndGet();
+        } else if (event.isDeleted()) {
+            total.decrementAndGet();
+        }
+        if ("ACTIVE".equals(event.getOldStatus())) {
+            active.decrementAndGet();
+        }
+        if ("ACTIVE".equals(event.getNewStatus())) {
+            active.incrementAndGet();
+        }
+    }
 }
@@ -0,0 +1,374 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.DepositCubeRowDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deposit Cube Service / 存款立方体服务
+ * In-memory OLAP cube of account counts and balances over
+ * branch × account type × status × currency × open month.
+ * Built from one grouped scan, then maintained from account change events. Events delivered
+ * while a rebuild scans are buffered and replayed onto the new cube before it is swapped in,
+ * except those the scan's snapshot already contains.
+ * Cell count depends on the number of distinct dimension combinations, not on the
+ * number of accounts, so a 10M-account book stays in a few hundred thousand cells.
+ * 内存OLAP立方体：一次分组扫描构建，之后由账户变更事件增量维护
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DepositCubeService {
+
+    private static final String BUILD_SQL =
+        "SELECT branch_id, account_type_id, status, currency, " +
+        "       EXTRACT(YEAR FROM open_date) AS open_year, EXTRACT(MONTH FROM open_date) AS open_month, " +
+        "       COUNT(*) AS account_count, COALESCE(SUM(current_balance), 0) AS total_balance " +
+        "FROM accounts " +
+        "GROUP BY branch_id, account_type_id, status, currency, " +
+        "         EXTRACT(YEAR FROM open_date), EXTRACT(MONTH FROM open_date)";
+
+    /** Transactions visible to the scan: "xmin:xmax:in-progress,..." */
+    private static final String SNAPSHOT_SQL = "SELECT pg_current_snapshot()::text";
+
+    private static final String CURRENT_XID_SQL = "SELECT pg_current_xact_id()::text::bigint";
+
+    /** How long a rebuild waits for unstamped account changes to finish committing. */
+    private static final long DRAIN_TIMEOUT_MS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile Map<CellKey, Cell> cells = new ConcurrentHashMap<>();
+
+    private final Object rebuildLock = new Object();
+    /** Events delivered since the current rebuild's scan started; null when no rebuild runs. Guarded by rebuildLock. */
+    private List<Pending> pending;
+    /** Whether committing account changes record their transaction id. Guarded by rebuildLock. */
+    private boolean stamping;
+    /** Transaction ids of committing account changes, until their transaction completes. Guarded by rebuildLock. */
+    private final Map<AccountChangedEvent, Long> xids = new IdentityHashMap<>();
+    /** Committing account changes without a transaction id, until their transaction completes. Guarded by rebuildLock. */
+    private final Set<AccountChangedEvent> unstamped = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** Snapshot the current cube was scanned at; null before the first rebuild. Guarded by rebuildLock. */
+    private Snapshot watermark;
+
+    /**
+     * Cube dimensions / 立方体维度
+     */
+    public enum Dimension {
+        BRANCH, ACCOUNT_TYPE, STATUS, CURRENCY, OPEN_MONTH
+    }
+
+    /**
+     * Build the cube on startup.
+     * 启动时构建立方体
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild from a grouped scan and swap the new cube in. Runs nightly to absorb any
+     * change that reached the table without passing through the event path.
+     * <p>
+     * Before the scan, committing account changes start recording their transaction id and
+     * the rebuild waits for the ones that committed without it. Events delivered from then on
+     * are buffered; after the scan they are replayed onto the new cube unless their transaction
+     * is visible in the scan's snapshot, and the cube is swapped under the lock. The snapshot
+     * stays as the watermark, so a stamped event delivered after the swap is not counted twice
+     * either. Events without a transaction (the posting engine's) are always replayed; the
+     * balances the engine has not flushed yet are reconciled by the next rebuild.
+     * 从分组扫描重建并替换；扫描期间的事件按事务号与扫描快照比对，仅重放快照之外的变更，既不丢失也不重复计数；每晚运行以吸收未经过事件的变更
+     */
+    @Scheduled(cron = "${app.cube.rebuild-cron:0 45 1 * * *}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        if (!startBuffering()) {
+            return;
+        }
+        Map<CellKey, Cell> fresh = new ConcurrentHashMap<>();
+        Snapshot snapshot;
+        try {
+            TransactionTemplate scanTransaction = new TransactionTemplate(transactionManager);
+            scanTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            scanTransaction.setReadOnly(true);
+            // Repeatable read: the snapshot query and the scan see the same transactions
+            snapshot = scanTransaction.execute(status -> {
+                Snapshot taken = Snapshot.parse(jdbcTemplate.queryForObject(SNAPSHOT_SQL, String.class));
+                scan(fresh);
+                return taken;
+            });
+        } catch (RuntimeException e) {
+            synchronized (rebuildLock) {
+                pending = null;
+                stamping = false;
+            }
+            throw e;
+        }
+        int replayed = 0;
+        synchronized (rebuildLock) {
+            for (Pending event : pending) {
+                if (event.xid() == null || !snapshot.sees(event.xid())) {
+                    applyEvent(fresh, event.event());
+                    replayed++;
+                }
+            }
+            pending = null;
+            stamping = false;
+            watermark = snapshot;
+            cells = fresh;
+        }
+        log.info("Deposit cube built: {} cells, {} events replayed in {} ms / 存款立方体构建完成",
+            fresh.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Turn on stamping, wait until every account change that committed without a stamp has been
+     * delivered, then start buffering. False when they do not drain in time.
+     */
+    private boolean startBuffering() {
+        synchronized (rebuildLock) {
+            stamping = true;
+            long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+            try {
+                while (!unstamped.isEmpty()) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        stamping = false;
+                        log.warn("Deposit cube rebuild skipped: {} account changes still committing / 存款立方体重建跳过",
+                            unstamped.size());
+                        return false;
+                    }
+                    rebuildLock.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stamping = false;
+                return false;
+            }
+            pending = new ArrayList<>();
+            return true;
+        }
+    }
+
+    private void scan(Map<CellKey, Cell> fresh) {
+        jdbcTemplate.query(BUILD_SQL, rs -> {
+            CellKey key = new CellKey(
+                rs.getLong("branch_id"),
+                rs.getLong("account_type_id"),
+                AccountStatus.valueOf(rs.getString("status")),
+                rs.getString("currency"),
+                YearMonth.of(rs.getInt("open_year"), rs.getInt("open_month")));
+            Cell cell = fresh.computeIfAbsent(key, k -> new Cell());
+            cell.count.add(rs.getLong("account_count"));
+            cell.balanceMinor.add(toMinor(rs.getBigDecimal("total_balance")));
+        });
+    }
+
+    /**
+     * Apply committed account changes to the cube.
+     * 将已提交的账户变更应用到立方体
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        Map<CellKey, Cell> target;
+        synchronized (rebuildLock) {
+            Long xid = xids.get(event);
+            if (pending != null) {
+                pending.add(new Pending(event, xid));
+            }
+            if (xid != null && watermark != null && watermark.sees(xid)) {
+                // Committed before the current cube's scan and delivered only now
+                return;
+            }
+            target = cells;
+        }
+        // Outside the lock: if a swap happens meanwhile, the buffered copy reaches the new cube
+        applyEvent(target, event);
+    }
+
+    /**
+     * Record the transaction id of an account change while a rebuild needs it; otherwise only
+     * note that the change is committing without one.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void stampAccountChange(AccountChangedEvent event) {
+        synchronized (rebuildLock) {
+            if (!stamping) {
+                unstamped.add(event);
+                return;
+            }
+        }
+        Long xid = jdbcTemplate.queryForObject(CURRENT_XID_SQL, Long.class);
+        synchronized (rebuildLock) {
+            xids.put(event, xid);
+        }
+    }
+
+    /**
+     * Forget an account change once its transaction has completed; ordered after delivery.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void forgetAccountChange(AccountChangedEvent event) {
+        synchronized (rebuildLock) {
+            xids.remove(event);
+            if (unstamped.remove(event)) {
+                rebuildLock.notifyAll();
+            }
+        }
+    }
+
+    private void applyEvent(Map<CellKey, Cell> target, AccountChangedEvent event) {
+        for (AccountChangedEvent.Change change : event.getChanges()) {
+            if (change.getBefore() != null) {
+                apply(target, change.getBefore(), -1);
+            }
+            if (change.getAfter() != null) {
+                apply(target, change.getAfter(), 1);
+            }
+        }
+    }
+
+    /**
+     * Slice the cube by the given filters and roll it up to the requested dimensions.
+     * An empty {@code groupBy} rolls everything up into one total row.
+     * 按过滤条件切片并汇总到指定维度
+     */
+    public List<DepositCubeRowDTO> query(Set<Dimension> groupBy, Long branchId, Long accountTypeId,
+                                         AccountStatus status, String currency,
+                                         YearMonth fromMonth, YearMonth toMonth) {
+        if (fromMonth != null && toMonth != null && fromMonth.isAfter(toMonth)) {
+            throw new BusinessException("fromMonth must not be after toMonth / 起始月份不能晚于结束月份");
+        }
+
+        Map<CellKey, long[]> rollup = new HashMap<>();
+        for (Map.Entry<CellKey, Cell> entry : cells.entrySet()) {
+            CellKey key = entry.getKey();
+            if ((branchId != null && !branchId.equals(key.branchId()))
+                || (accountTypeId != null && !accountTypeId.equals(key.accountTypeId()))
+                || (status != null && status != key.status())
+                || (currency != null && !currency.equals(key.currency()))
+                || (fromMonth != null && key.openMonth().isBefore(fromMonth))
+                || (toMonth != null && key.openMonth().isAfter(toMonth))) {
+                continue;
+            }
+
+            long count = entry.getValue().count.sum();
+            long balance = entry.getValue().balanceMinor.sum();
+            if (count == 0 && balance == 0) {
+                continue;
+            }
+            long[] totals = rollup.computeIfAbsent(project(key, groupBy), k -> new long[2]);
+            totals[0] += count;
+            totals[1] += balance;
+        }
+
+        List<DepositCubeRowDTO> rows = new ArrayList<>(rollup.size());
+        rollup.forEach((key, totals) -> rows.add(DepositCubeRowDTO.builder()
+            .branchId(key.branchId())
+            .accountTypeId(key.accountTypeId())
+            .status(key.status())
+            .currency(key.currency())
+            .openMonth(key.openMonth() != null ? key.openMonth().toString() : null)
+            .accountCount(totals[0])
+            .totalBalance(BigDecimal.valueOf(totals[1], 2))
+            .build()));
+        rows.sort(ROW_ORDER);
+        return rows;
+    }
+
+    public int getCellCount() {
+        return cells.size();
+    }
+
+    private void apply(Map<CellKey, Cell> target, AccountSnapshot snapshot, int sign) {
+        if (snapshot.getOpenDate() == null) {
+            return;
+        }
+        CellKey key = new CellKey(snapshot.getBranchId(), snapshot.getAccountTypeId(), snapshot.getStatus(),
+            snapshot.getCurrency(), YearMonth.from(snapshot.getOpenDate()));
+        Cell cell = target.computeIfAbsent(key, k -> new Cell());
+        cell.count.add(sign);
+        cell.balanceMinor.add(sign * toMinor(snapshot.getCurrentBalance()));
+    }
+
+    private CellKey project(CellKey key, Set<Dimension> groupBy) {
+        return new CellKey(
+            groupBy.contains(Dimension.BRANCH) ? key.branchId() : null,
+            groupBy.contains(Dimension.ACCOUNT_TYPE) ? key.accountTypeId() : null,
+            groupBy.contains(Dimension.STATUS) ? key.status() : null,
+            groupBy.contains(Dimension.CURRENCY) ? key.currency() : null,
+            groupBy.contains(Dimension.OPEN_MONTH) ? key.openMonth() : null);
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        return amount == null ? 0L : amount.setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static final Comparator<DepositCubeRowDTO> ROW_ORDER = Comparator
+        .comparing(DepositCubeRowDTO::getBranchId, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(DepositCubeRowDTO::getAccountTypeId, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(DepositCubeRowDTO::getStatus, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(DepositCubeRowDTO::getCurrency, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(DepositCubeRowDTO::getOpenMonth, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private record CellKey(Long branchId, Long accountTypeId, AccountStatus status, String currency,
+                           YearMonth openMonth) {
+    }
+
+    private record Pending(AccountChangedEvent event, Long xid) {
+    }
+
+    /**
+     * A PostgreSQL snapshot: transactions below xmin are visible, those from xmax on are not,
+     * and in between all but the listed in-progress ones are.
+     */
+    record Snapshot(long xmin, long xmax, Set<Long> inProgress) {
+
+        static Snapshot parse(String text) {
+            String[] parts = text.split(":", -1);
+            Set<Long> inProgress = new HashSet<>();
+            if (parts.length > 2 && !parts[2].isEmpty()) {
+                for (String xid : parts[2].split(",")) {
+                    inProgress.add(Long.parseLong(xid));
+                }
+            }
+            return new Snapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+        }
+
+        boolean sees(long xid) {
+            return xid < xmin || (xid < xmax && !inProgress.contains(xid));
+        }
+    }
+
+    private static final class Cell {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder balanceMinor = new LongAdder();
+    }
+}
@@ -0,0 +1,261 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.event.AuditLoggedEvent;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dormancy Sweep Service / 休眠账户批处理服务
+ * Nightly job that moves ACTIVE accounts without customer activity since the cutoff to
+ * DORMANT. Branches are swept in parallel; within a branch each chunk is one set-based UPDATE
+ * over the {@code (branch_id, status, last_transaction_date)} index that returns the flagged
+ * rows, followed in the same transaction by one ledger batch charging the account type's
+ * dormancy fee and one INSERT of all the chunk's audit rows. Flagged accounts are no longer
+ * ACTIVE, so a re-run after a failure simply continues with what is left.
+ * 按分行并行、分块集合式更新将长期未交易账户转为休眠；同事务内批量收取休眠费并一次性写入审计记录
+ */
+@Service
+@Slf4j
+public class DormancySweepService {
+
+    public static final String JOB_NAME = "DORMANCY_SWEEP";
+
+    private static final DateTimeFormatter REFERENCE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String BRANCH_IDS_SQL = "SELECT id FROM branches ORDER BY id";
+
+    /**
+     * Accounts never transacted on count from their open date. SKIP LOCKED passes over
+     * accounts being posted to right now; they are not inactive anyway.
+     */
+    private static final String FLAG_SQL =
+        "WITH due AS (" +
+        "  SELECT a.id FROM accounts a JOIN account_types t ON t.id = a.account_type_id " +
+        "  WHERE a.branch_id = ? AND a.status = 'ACTIVE' AND COALESCE(a.last_transaction_date, a.open_date) < ? " +
+        "    AND t.category <> 'TIME_DEPOSIT' " +
+        "  ORDER BY a.id LIMIT ? FOR UPDATE OF a SKIP LOCKED), " +
+        "flagged AS (" +
+        "  UPDATE accounts a SET status = 'DORMANT', dormant_date = ?, status_reason = ?, updated_at = now() " +
+        "  FROM due WHERE a.id = due.id " +
+        "  RETURNING a.id, a.account_number, a.status, a.branch_id, a.account_type_id, a.currency, " +
+        "    a.current_balance, a.available_balance, a.open_date) " +
+        "SELECT f.*, t.currency AS fee_currency, COALESCE(t.dormancy_fee, 0) AS dormancy_fee " +
+        "FROM flagged f JOIN account_types t ON t.id = f.account_type_id ORDER BY f.id";
+
+    private static final String INSERT_AUDIT_SQL =
+        "INSERT INTO audit_logs (username, action, module, entity_type, entity_id, old_value, new_value, description, created_at) " +
+        "SELECT 'SYSTEM', 'DORMANT', 'CASA_ACCOUNT', 'Account', t.id, '{\"status\":\"ACTIVE\"}', " +
+        "  json_build_object('status', 'DORMANT', 'dormancyFee', t.fee)::text, ?, ? " +
+        "FROM unnest(?::bigint[], ?::numeric[]) AS t(id, fee)";
+
+    private final LedgerService ledgerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final int partitions;
+    private final int chunkSize;
+    private final int inactiveDays;
+    private final String feeGlCode;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DormancySweepService(LedgerService ledgerService,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.batch.partitions:8}") int partitions,
+                                @Value("${app.dormancy.chunk-size:2000}") int chunkSize,
+                                @Value("${app.dormancy.inactive-days:730}") int inactiveDays,
+                                @Value("${app.dormancy.fee-gl-code:FEE-DORMANCY}") String feeGlCode) {
+        this.ledgerService = ledgerService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.inactiveDays = inactiveDays;
+        this.feeGlCode = feeGlCode;
+    }
+
+    @Scheduled(cron = "${app.dormancy.cron:-}")
+    public void scheduledSweep() {
+        sweep(LocalDate.now());
+    }
+
+    /**
+     * Flag every account inactive for longer than the dormancy period as of the business date.
+     * 将截至营业日超过休眠期未交易的账户转为休眠
+     */
+    public BatchRunSummaryDTO sweep(LocalDate businessDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("Batch job " + JOB_NAME + " is already running / 批处理正在运行");
+        }
+        long start = System.nanoTime();
+        try {
+            LocalDate cutoff = businessDate.minusDays(inactiveDays);
+            List<Long> branchIds = jdbcTemplate.queryForList(BRANCH_IDS_SQL, Long.class);
+            AtomicLong flagged = new AtomicLong();
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(partitions, branchIds.size())),
+                    Thread.ofPlatform().name(JOB_NAME.toLowerCase() + "-", 0).factory())) {
+                for (Long branchId : branchIds) {
+                    executor.execute(() -> {
+                        try {
+                            flagged.addAndGet(sweepBranch(branchId, businessDate, cutoff));
+                        } catch (RuntimeException e) {
+                            log.error("Dormancy sweep of branch {} failed: {}", branchId, e.getMessage(), e);
+                            failures.add(e);
+                        }
+                    });
+                }
+            }
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Timer.builder("batch.run").tag("job", JOB_NAME).register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+            if (!failures.isEmpty()) {
+                throw new BusinessException("Batch " + JOB_NAME + " failed in " + failures.size() +
+                    " branch(es), rerun to continue / 批处理部分分行失败，重新运行将继续处理", failures.get(0));
+            }
+            log.info("Dormancy sweep for {} flagged {} accounts inactive since {} in {} ms / 休眠批处理完成",
+                businessDate, flagged.get(), cutoff, durationMs);
+            return BatchRunSummaryDTO.builder()
+                .jobName(JOB_NAME)
+                .businessDate(businessDate)
+                .partitions(branchIds.size())
+                .processed(flagged.get())
+                .durationMs(durationMs)
+                .build();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long sweepBranch(Long branchId, LocalDate businessDate, LocalDate cutoff) {
+        long total = 0;
+        int flagged;
+        do {
+            flagged = transactionTemplate.execute(status -> flagChunk(branchId, businessDate, cutoff));
+            total += flagged;
+        } while (flagged == chunkSize);
+        return total;
+    }
+
+    private int flagChunk(Long branchId, LocalDate businessDate, LocalDate cutoff) {
+        String reason = "No customer activity since " + cutoff + " / 长期未交易";
+        List<FlaggedAccount> accounts = jdbcTemplate.query(FLAG_SQL, (rs, rowNum) -> {
+            Date openDate = rs.getDate("open_date");
+            AccountSnapshot after = AccountSnapshot.builder()
+                .accountId(rs.getLong("id"))
+                .accountNumber(rs.getString("account_number"))
+                .status(AccountStatus.valueOf(rs.getString("status")))
+                .branchId(rs.getLong("branch_id"))
+                .accountTypeId(rs.getLong("account_type_id"))
+                .currency(rs.getString("currency"))
+                .currentBalance(rs.getBigDecimal("current_balance"))
+                .openDate(openDate != null ? openDate.toLocalDate() : null)
+                .build();
+            return new FlaggedAccount(after, fee(rs.getBigDecimal("dormancy_fee"), rs.getString("fee_currency"),
+                after.getCurrency(), rs.getBigDecimal("available_balance")));
+        }, branchId, Timestamp.valueOf(cutoff.atStartOfDay()), chunkSize, businessDate, reason);
+        if (accounts.isEmpty()) {
+            return 0;
+        }
+
+        eventPublisher.publishEvent(new AccountChangedEvent(accounts.stream()
+            .map(a -> new AccountChangedEvent.Change(a.snapshot.withStatus(AccountStatus.ACTIVE), a.snapshot))
+            .toList()));
+        chargeFees(accounts, businessDate);
+        writeAudit(accounts, reason);
+        return accounts.size();
+    }
+
+    /**
+     * Dormancy fee to charge: the type's fee in its own currency, capped at the available
+     * balance so the charge never overdraws the account.
+     */
+    private static BigDecimal fee(BigDecimal typeFee, String feeCurrency, String accountCurrency, BigDecimal available) {
+        if (typeFee.signum() <= 0 || !feeCurrency.equals(accountCurrency) || available == null || available.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return typeFee.min(available);
+    }
+
+    private void chargeFees(List<FlaggedAccount> accounts, LocalDate businessDate) {
+        List<PostingRequest> postings = new ArrayList<>();
+        for (FlaggedAccount account : accounts) {
+            if (account.fee.signum() > 0) {
+                postings.add(PostingRequest.builder()
+                    .reference("DORM-" + account.snapshot.getAccountId() + "-" + businessDate.format(REFERENCE_DATE))
+                    .txnType("DORMANCY_FEE")
+                    .description("Dormancy fee / 休眠账户管理费")
+                    .currency(account.snapshot.getCurrency())
+                    .legs(List.of(
+                        Leg.builder().accountId(account.snapshot.getAccountId()).direction(Direction.DEBIT)
+                            .amount(account.fee).build(),
+                        Leg.builder().glCode(feeGlCode).direction(Direction.CREDIT).amount(account.fee).build()))
+                    .build());
+            }
+        }
+        if (!postings.isEmpty()) {
+            ledgerService.postBatch(postings, null, PostingPolicy.SYSTEM, businessDate);
+        }
+    }
+
+    private void writeAudit(List<FlaggedAccount> accounts, String reason) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        Long[] ids = new Long[accounts.size()];
+        BigDecimal[] fees = new BigDecimal[accounts.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = accounts.get(i).snapshot.getAccountId();
+            fees[i] = accounts.get(i).fee;
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_AUDIT_SQL);
+            ps.setString(1, reason);
+            ps.setTimestamp(2, Timestamp.valueOf(createdAt));
+            ps.setArray(3, con.createArrayOf("bigint", ids));
+            ps.setArray(4, con.createArrayOf("numeric", fees));
+            return ps;
+        });
+        for (int i = 0; i < ids.length; i++) {
+            eventPublisher.publishEvent(new AuditLoggedEvent("CASA_ACCOUNT", "DORMANT", createdAt));
+        }
+    }
+
+    private record FlaggedAccount(AccountSnapshot snapshot, BigDecimal fee) {
+    }
+}
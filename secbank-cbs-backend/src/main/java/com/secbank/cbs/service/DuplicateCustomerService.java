@@ -0,0 +1,484 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.DuplicateCandidateDTO;
+import com.secbank.cbs.entity.Customer;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import com.secbank.cbs.service.CustomerMatcher.Match;
+import com.secbank.cbs.service.CustomerMatcher.Profile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Duplicate Customer Service / 重复客户识别服务
+ * Finds customers onboarded more than once under slightly different spellings without comparing
+ * every pair. Each customer's blocking keys ({@link CustomerMatcher}) are kept in
+ * {@code customer_blocking_keys}; only customers sharing a key are scored, and pairs at or above
+ * the threshold are recorded in {@code customer_duplicate_candidates} for review.
+ * <p>
+ * The batch first re-indexes the whole book in parallel id ranges, then compares in parallel
+ * partitions of the key space, each streaming its blocks in key order from a cursor. Blocks
+ * larger than {@code max-block-size} (a shared default mobile number, a very common surname on
+ * one day) carry no signal and are skipped. Creating or updating a customer indexes it and
+ * scores it against its blocks in the same transaction, so new duplicates are flagged at once.
+ * 基于分块键避免全量两两比较：批处理按ID区间并行重建分块键，再按键空间分区并行游标流式比较；
+ * 新建或更新客户时同事务内增量建键并比对，疑似重复记录待审核
+ */
+@Service
+@Slf4j
+public class DuplicateCustomerService {
+
+    public static final String JOB_NAME = "CUSTOMER_DEDUPE";
+
+    /**
+     * Review status of a candidate pair / 疑似重复对审核状态
+     */
+    public enum CandidateStatus {
+        OPEN, CONFIRMED, DISMISSED
+    }
+
+    private static final String ID_BOUNDS_SQL = "SELECT COALESCE(MIN(id), 0), COALESCE(MAX(id), 0) FROM customers";
+
+    private static final String PROFILES_SQL =
+        "SELECT " + CustomerMatcher.PROFILE_COLUMNS + " FROM customers c WHERE c.id > ? AND c.id <= ? ORDER BY c.id LIMIT ?";
+
+    private static final String DELETE_KEYS_SQL = "DELETE FROM customer_blocking_keys WHERE customer_id = ANY(?)";
+
+    private static final String INSERT_KEYS_SQL =
+        "INSERT INTO customer_blocking_keys (block_key, customer_id) " +
+        "SELECT * FROM unnest(?::varchar[], ?::bigint[]) ON CONFLICT DO NOTHING";
+
+    private static final String DELETE_ORPHAN_KEYS_SQL =
+        "DELETE FROM customer_blocking_keys k WHERE NOT EXISTS (SELECT 1 FROM customers c WHERE c.id = k.customer_id)";
+
+    /** hashtext spreads keys evenly over the partitions; the sign bit is masked off. */
+    private static final String BLOCKS_SQL =
+        "SELECT k.block_key, " + CustomerMatcher.PROFILE_COLUMNS + " FROM customer_blocking_keys k " +
+        "JOIN customers c ON c.id = k.customer_id " +
+        "WHERE (hashtext(k.block_key) & 2147483647) % ? = ? ORDER BY k.block_key";
+
+    /** Members of the given blocks, ignoring blocks too large to compare. */
+    private static final String BLOCK_MEMBERS_SQL =
+        "SELECT " + CustomerMatcher.PROFILE_COLUMNS + ", c.customer_number, " +
+        "COALESCE(c.company_name, concat_ws(' ', c.first_name, c.last_name)) AS display_name " +
+        "FROM customers c WHERE c.id <> ? AND c.id IN (" +
+        "  SELECT k.customer_id FROM customer_blocking_keys k WHERE k.block_key IN (" +
+        "    SELECT b.block_key FROM customer_blocking_keys b WHERE b.block_key = ANY(?) " +
+        "    GROUP BY b.block_key HAVING COUNT(*) <= ?))";
+
+    /** A dismissed or confirmed pair keeps its review; only open pairs are refreshed. */
+    private static final String UPSERT_CANDIDATE_SQL =
+        "INSERT INTO customer_duplicate_candidates (customer_id, duplicate_of_id, score, matched_on, status, detected_at) " +
+        "VALUES (?, ?, ?, ?, 'OPEN', now()) " +
+        "ON CONFLICT (customer_id, duplicate_of_id) DO UPDATE SET score = EXCLUDED.score, " +
+        "matched_on = EXCLUDED.matched_on, detected_at = EXCLUDED.detected_at " +
+        "WHERE customer_duplicate_candidates.status = 'OPEN'";
+
+    private static final String CANDIDATES_SQL =
+        "SELECT d.customer_id, c.customer_number, COALESCE(c.company_name, concat_ws(' ', c.first_name, c.last_name)) AS customer_name, " +
+        "d.duplicate_of_id, o.customer_number AS duplicate_of_number, " +
+        "COALESCE(o.company_name, concat_ws(' ', o.first_name, o.last_name)) AS duplicate_of_name, " +
+        "d.score, d.matched_on, d.status, d.detected_at " +
+        "FROM customer_duplicate_candidates d JOIN customers c ON c.id = d.customer_id " +
+        "JOIN customers o ON o.id = d.duplicate_of_id ";
+
+    private static final String CUSTOMER_CANDIDATES_SQL =
+        CANDIDATES_SQL + "WHERE d.customer_id = ? OR d.duplicate_of_id = ? ORDER BY d.score DESC, d.customer_id";
+
+    private static final String STATUS_CANDIDATES_SQL =
+        CANDIDATES_SQL + "WHERE d.status = ? AND d.score >= ? ORDER BY d.score DESC, d.customer_id LIMIT ?";
+
+    private static final String REVIEW_SQL =
+        "UPDATE customer_duplicate_candidates SET status = ?, reviewed_by = ?, reviewed_at = now() " +
+        "WHERE customer_id = ? AND duplicate_of_id = ?";
+
+    private static final RowMapper<DuplicateCandidateDTO> CANDIDATE_MAPPER = (rs, rowNum) -> {
+        Timestamp detectedAt = rs.getTimestamp("detected_at");
+        return DuplicateCandidateDTO.builder()
+            .customerId(rs.getLong("customer_id"))
+            .customerNumber(rs.getString("customer_number"))
+            .customerName(rs.getString("customer_name"))
+            .duplicateOfId(rs.getLong("duplicate_of_id"))
+            .duplicateOfNumber(rs.getString("duplicate_of_number"))
+            .duplicateOfName(rs.getString("duplicate_of_name"))
+            .score(rs.getBigDecimal("score"))
+            .matchedOn(rs.getString("matched_on"))
+            .status(rs.getString("status"))
+            .detectedAt(detectedAt != null ? detectedAt.toLocalDateTime() : null)
+            .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final Counter flagged;
+    private final int partitions;
+    private final int chunkSize;
+    private final int maxBlockSize;
+    private final double threshold;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DuplicateCustomerService(JdbcTemplate jdbcTemplate,
+                                    DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.batch.partitions:8}") int partitions,
+                                    @Value("${app.dedupe.chunk-size:5000}") int chunkSize,
+                                    @Value("${app.dedupe.fetch-size:10000}") int fetchSize,
+                                    @Value("${app.dedupe.max-block-size:200}") int maxBlockSize,
+                                    @Value("${app.dedupe.threshold:0.85}") double threshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.flagged = Counter.builder("customer.duplicates.flagged")
+            .description("Possible duplicates flagged when customers are created or updated")
+            .register(meterRegistry);
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.maxBlockSize = maxBlockSize;
+        this.threshold = threshold;
+    }
+
+    @Scheduled(cron = "${app.dedupe.cron:-}")
+    public void scheduledDetect() {
+        detect();
+    }
+
+    /**
+     * Re-index every customer and score all pairs sharing a blocking key.
+     * 全量重建分块键并比较同块客户
+     */
+    public BatchRunSummaryDTO detect() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("Batch job " + JOB_NAME + " is already running / 批处理正在运行");
+        }
+        long start = System.nanoTime();
+        try {
+            long indexed = index();
+            AtomicLong candidates = new AtomicLong();
+            AtomicLong oversized = new AtomicLong();
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, partitions),
+                    Thread.ofPlatform().name(JOB_NAME.toLowerCase() + "-compare-", 0).factory())) {
+                for (int p = 0; p < partitions; p++) {
+                    int partition = p;
+                    executor.execute(() -> {
+                        try {
+                            candidates.addAndGet(comparePartition(partition, oversized));
+                        } catch (RuntimeException e) {
+                            log.error("Duplicate comparison of partition {} failed: {}", partition, e.getMessage(), e);
+                            failures.add(e);
+                        }
+                    });
+                }
+            }
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Timer.builder("batch.run").tag("job", JOB_NAME).register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+            if (!failures.isEmpty()) {
+                throw new BusinessException("Batch " + JOB_NAME + " failed in " + failures.size() +
+                    " partition(s), rerun to retry / 批处理部分分区失败，请重新运行", failures.get(0));
+            }
+            log.info("Duplicate detection indexed {} customers, found {} candidate pairs, skipped {} oversized blocks " +
+                "in {} ms / 重复客户识别完成", indexed, candidates.get(), oversized.get(), durationMs);
+            return BatchRunSummaryDTO.builder()
+                .jobName(JOB_NAME)
+                .businessDate(LocalDate.now())
+                .partitions(partitions)
+                .processed(candidates.get())
+                .durationMs(durationMs)
+                .build();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Index a customer being created or updated and record the existing customers it resembles.
+     * Runs in the caller's transaction, after the customer has been saved.
+     * 新建或更新客户时增量建键并记录疑似重复（在调用方事务内、保存之后调用）
+     */
+    public List<DuplicateCandidateDTO> screen(Customer customer) {
+        Profile profile = CustomerMatcher.profile(customer);
+        List<String> keys = CustomerMatcher.blockingKeys(profile);
+        replaceKeys(List.of(profile.id()), keys, Collections.nCopies(keys.size(), profile.id()));
+        List<Match> matches = new ArrayList<>();
+        List<DuplicateCandidateDTO> found = match(profile, keys, matches);
+        if (!found.isEmpty()) {
+            saveCandidates(matches);
+            flagged.increment(found.size());
+            log.warn("Customer {} resembles {} existing customer(s) / 疑似重复客户: {}", customer.getCustomerNumber(),
+                found.size(), found.stream().map(DuplicateCandidateDTO::getDuplicateOfNumber).toList());
+        }
+        return found;
+    }
+
+    /**
+     * Existing customers an application resembles, without recording anything; for checking
+     * before the customer is created.
+     * 开户前预检疑似重复客户（不落库）
+     */
+    public List<DuplicateCandidateDTO> findPossibleDuplicates(Customer application) {
+        Profile profile = CustomerMatcher.profile(application);
+        return match(profile, CustomerMatcher.blockingKeys(profile), new ArrayList<>());
+    }
+
+    /**
+     * Recorded candidate pairs involving a customer, best first.
+     * 查询涉及某客户的疑似重复对
+     */
+    public List<DuplicateCandidateDTO> getCandidates(Long customerId) {
+        return jdbcTemplate.query(CUSTOMER_CANDIDATES_SQL, CANDIDATE_MAPPER, customerId, customerId);
+    }
+
+    /**
+     * Candidate pairs in a review status scoring at least {@code minScore}, best first.
+     * 按状态与最低分查询疑似重复对
+     */
+    public List<DuplicateCandidateDTO> getCandidates(CandidateStatus status, BigDecimal minScore, int limit) {
+        return jdbcTemplate.query(STATUS_CANDIDATES_SQL, CANDIDATE_MAPPER, status.name(), minScore, limit);
+    }
+
+    /**
+     * Record the review outcome of a candidate pair.
+     * 记录疑似重复对的审核结果
+     */
+    public void review(Long customerId, Long duplicateOfId, CandidateStatus status, Long reviewedBy) {
+        int updated = jdbcTemplate.update(REVIEW_SQL, status.name(), reviewedBy, customerId, duplicateOfId);
+        if (updated == 0) {
+            throw new ResourceNotFoundException("Duplicate candidate", "customerId/duplicateOfId",
+                customerId + "/" + duplicateOfId);
+        }
+    }
+
+    /**
+     * Score a profile against the members of its blocks. The scored pairs are also added to
+     * {@code matches} as returned by the matcher, i.e. with the newer customer as customerId.
+     */
+    private List<DuplicateCandidateDTO> match(Profile profile, List<String> keys, List<Match> matches) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        List<DuplicateCandidateDTO> found = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(BLOCK_MEMBERS_SQL);
+            ps.setLong(1, profile.id());
+            ps.setArray(2, con.createArrayOf("varchar", keys.toArray()));
+            ps.setInt(3, maxBlockSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            Match match = CustomerMatcher.score(profile, CustomerMatcher.profile(rs), threshold);
+            if (match != null) {
+                matches.add(match);
+                found.add(DuplicateCandidateDTO.builder()
+                    .customerId(profile.id() != 0 ? profile.id() : null)
+                    .duplicateOfId(rs.getLong("id"))
+                    .duplicateOfNumber(rs.getString("customer_number"))
+                    .duplicateOfName(rs.getString("display_name"))
+                    .score(score(match.score()))
+                    .matchedOn(match.matchedOn())
+                    .status(CandidateStatus.OPEN.name())
+                    .build());
+            }
+        });
+        found.sort(Comparator.comparing(DuplicateCandidateDTO::getScore).reversed());
+        return found;
+    }
+
+    /**
+     * Recompute the keys of every customer, in parallel id ranges of chunked transactions. Each
+     * chunk swaps its customers' keys atomically, so concurrent screening never sees them missing.
+     */
+    private long index() {
+        long[] bounds = jdbcTemplate.queryForObject(ID_BOUNDS_SQL, (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        long minId = bounds[0];
+        long maxId = bounds[1];
+        if (maxId == 0) {
+            return 0;
+        }
+        long span = Math.max(1, (maxId - minId + partitions) / partitions);
+        AtomicLong indexed = new AtomicLong();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, partitions),
+                Thread.ofPlatform().name(JOB_NAME.toLowerCase() + "-index-", 0).factory())) {
+            for (long from = minId - 1; from < maxId; from += span) {
+                long rangeStart = from;
+                long rangeEnd = Math.min(maxId, from + span);
+                executor.execute(() -> {
+                    try {
+                        indexed.addAndGet(indexRange(rangeStart, rangeEnd));
+                    } catch (RuntimeException e) {
+                        log.error("Indexing customers ({}, {}] failed: {}", rangeStart, rangeEnd, e.getMessage(), e);
+                        failures.add(e);
+                    }
+                });
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new BusinessException("Batch " + JOB_NAME + " failed to index customers, rerun to retry / " +
+                "客户分块键重建失败，请重新运行", failures.get(0));
+        }
+        int orphans = jdbcTemplate.update(DELETE_ORPHAN_KEYS_SQL);
+        log.debug("Removed {} blocking keys of deleted customers", orphans);
+        return indexed.get();
+    }
+
+    private long indexRange(long afterId, long rangeEnd) {
+        long total = 0;
+        long lastId = afterId;
+        while (true) {
+            List<Profile> profiles = jdbcTemplate.query(PROFILES_SQL, (rs, rowNum) -> CustomerMatcher.profile(rs),
+                lastId, rangeEnd, chunkSize);
+            if (profiles.isEmpty()) {
+                return total;
+            }
+            List<Long> ids = new ArrayList<>(profiles.size());
+            List<String> keys = new ArrayList<>(profiles.size() * 4);
+            List<Long> owners = new ArrayList<>(profiles.size() * 4);
+            for (Profile profile : profiles) {
+                ids.add(profile.id());
+                for (String key : CustomerMatcher.blockingKeys(profile)) {
+                    keys.add(key);
+                    owners.add(profile.id());
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> replaceKeys(ids, keys, owners));
+            total += profiles.size();
+            lastId = profiles.get(profiles.size() - 1).id();
+            if (profiles.size() < chunkSize) {
+                return total;
+            }
+        }
+    }
+
+    private void replaceKeys(List<Long> customerIds, List<String> keys, List<Long> owners) {
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_KEYS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", customerIds.toArray()));
+            return ps;
+        });
+        if (keys.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_KEYS_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", keys.toArray()));
+            ps.setArray(2, con.createArrayOf("bigint", owners.toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Stream one partition of the key space in key order and score the pairs of each block.
+     * Matches are held until the cursor closes because the read-only transaction cannot write;
+     * a pair found through several keys is kept once.
+     */
+    private long comparePartition(int partition, AtomicLong oversized) {
+        Map<Long, Map<Long, Match>> matches = new HashMap<>();
+        BlockComparer comparer = new BlockComparer(matches, oversized);
+        readOnlyTransaction.executeWithoutResult(status ->
+            cursorTemplate.query(BLOCKS_SQL, comparer, partitions, partition));
+        comparer.finishBlock();
+        List<Match> found = new ArrayList<>();
+        matches.values().forEach(byDuplicate -> found.addAll(byDuplicate.values()));
+        for (int from = 0; from < found.size(); from += chunkSize) {
+            List<Match> chunk = found.subList(from, Math.min(found.size(), from + chunkSize));
+            transactionTemplate.executeWithoutResult(status -> saveCandidates(chunk));
+        }
+        return found.size();
+    }
+
+    private void saveCandidates(List<Match> matches) {
+        jdbcTemplate.batchUpdate(UPSERT_CANDIDATE_SQL, matches, matches.size(), (ps, match) -> {
+            ps.setLong(1, match.customerId());
+            ps.setLong(2, match.duplicateOfId());
+            ps.setBigDecimal(3, score(match.score()));
+            ps.setString(4, match.matchedOn());
+        });
+    }
+
+    private static BigDecimal score(double score) {
+        return BigDecimal.valueOf(score).setScale(4, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Collects consecutive rows of one block key and compares all pairs when the key changes.
+     */
+    private final class BlockComparer implements RowCallbackHandler {
+
+        private final Map<Long, Map<Long, Match>> matches;
+        private final AtomicLong oversized;
+        private final List<Profile> members = new ArrayList<>();
+        private String blockKey;
+        private boolean tooLarge;
+
+        BlockComparer(Map<Long, Map<Long, Match>> matches, AtomicLong oversized) {
+            this.matches = matches;
+            this.oversized = oversized;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            String key = rs.getString("block_key");
+            if (!key.equals(blockKey)) {
+                finishBlock();
+                blockKey = key;
+            }
+            if (tooLarge) {
+                return;
+            }
+            if (members.size() == maxBlockSize) {
+                tooLarge = true;
+                members.clear();
+                oversized.incrementAndGet();
+                return;
+            }
+            members.add(CustomerMatcher.profile(rs));
+        }
+
+        void finishBlock() {
+            for (int i = 0; i < members.size(); i++) {
+                for (int j = i + 1; j < members.size(); j++) {
+                    Match match = CustomerMatcher.score(members.get(i), members.get(j), threshold);
+                    if (match != null) {
+                        matches.computeIfAbsent(match.customerId(), id -> new HashMap<>())
+                            .merge(match.duplicateOfId(), match, (a, b) -> a.score() >= b.score() ? a : b);
+                    }
+                }
+            }
+            members.clear();
+            tooLarge = false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.EodRunDTO;
+import com.secbank.cbs.entity.EodRun;
+import com.secbank.cbs.entity.EodStepRun;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import com.secbank.cbs.repository.EodRunRepository;
+import com.secbank.cbs.repository.EodStepRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * EOD Service / 日终批处理服务
+ * Runs the declared {@link EodStep}s for the current business date in dependency order. Each
+ * step is itself partitioned and parallel (see {@link PartitionedBatchRunner}); the
+ * orchestrator records every step's outcome in {@code eod_step_runs}, so a failed run resumed
+ * for the same business date skips completed steps and the failed step resumes from its own
+ * checkpoints. When all steps are done the run is completed and the business date rolls over
+ * to the next day. A scheduled trigger catches up every business date up to today.
+ * 按依赖顺序执行日终步骤；步骤结果持久化，失败后续跑跳过已完成步骤；全部完成后营业日滚动
+ */
+@Service
+@Slf4j
+public class EodService {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    private final List<EodStep> steps;
+    private final EodRunRepository runRepository;
+    private final EodStepRunRepository stepRunRepository;
+    private final MeterRegistry meterRegistry;
+    private final String startDate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public EodService(List<EodStep> steps,
+                      EodRunRepository runRepository,
+                      EodStepRunRepository stepRunRepository,
+                      MeterRegistry meterRegistry,
+                      @Value("${app.eod.start-date:}") String startDate) {
+        this.steps = order(steps);
+        this.runRepository = runRepository;
+        this.stepRunRepository = stepRunRepository;
+        this.meterRegistry = meterRegistry;
+        this.startDate = startDate;
+        log.info("EOD steps in order: {} / 日终步骤顺序", this.steps.stream().map(EodStep::name).toList());
+    }
+
+    /**
+     * Run every business date up to today that has not completed yet.
+     * 补跑截至今日所有未完成的营业日
+     */
+    @Scheduled(cron = "${app.eod.cron:0 30 23 * * *}")
+    public void scheduledRun() {
+        LocalDate today = LocalDate.now();
+        try {
+            while (!getBusinessDate().isAfter(today)) {
+                run();
+            }
+        } catch (RuntimeException e) {
+            log.error("EOD stopped: {} / 日终批处理中止", e.getMessage());
+        }
+    }
+
+    /**
+     * Business date the next EOD run is for: the date after the last completed run, the date
+     * of an unfinished run, or the configured start date (today if none) before any run.
+     * 当前营业日
+     */
+    public LocalDate getBusinessDate() {
+        return runRepository.findTopByOrderByBusinessDateDesc()
+            .map(run -> STATUS_COMPLETED.equals(run.getStatus()) ? run.getBusinessDate().plusDays(1) : run.getBusinessDate())
+            .orElseGet(() -> startDate.isBlank() ? LocalDate.now() : LocalDate.parse(startDate));
+    }
+
+    /**
+     * Run (or resume) EOD for the current business date and roll the date over.
+     * 运行（或续跑）当前营业日的日终批处理并滚动营业日
+     */
+    public EodRunDTO run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("EOD is already running / 日终批处理正在运行");
+        }
+        try {
+            LocalDate businessDate = getBusinessDate();
+            EodRun run = runRepository.findById(businessDate).orElseGet(() -> EodRun.builder()
+                .businessDate(businessDate)
+                .attempts(0)
+                .build());
+            run.setStatus(STATUS_RUNNING);
+            run.setStartedAt(LocalDateTime.now());
+            run.setFinishedAt(null);
+            run.setAttempts(run.getAttempts() + 1);
+            run = runRepository.save(run);
+            log.info("EOD for {} started (attempt {}) / 日终批处理开始", businessDate, run.getAttempts());
+
+            for (int i = 0; i < steps.size(); i++) {
+                try {
+                    runStep(steps.get(i), i, businessDate);
+                } catch (RuntimeException e) {
+                    run.setStatus(STATUS_FAILED);
+                    run.setFinishedAt(LocalDateTime.now());
+                    runRepository.save(run);
+                    throw new BusinessException("EOD for " + businessDate + " failed at step " + steps.get(i).name() +
+                        ", rerun to resume / 日终批处理失败，重新运行将从失败步骤继续", e);
+                }
+            }
+
+            run.setStatus(STATUS_COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+            runRepository.save(run);
+            log.info("EOD for {} completed, business date is now {} / 日终批处理完成，营业日已滚动",
+                businessDate, businessDate.plusDays(1));
+            return getRun(businessDate);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Run with its step outcomes.
+     * 查询日终运行及各步骤结果
+     */
+    public EodRunDTO getRun(LocalDate businessDate) {
+        EodRun run = runRepository.findById(businessDate)
+            .orElseThrow(() -> new ResourceNotFoundException("EodRun", "businessDate", businessDate));
+        return EodRunDTO.fromEntity(run, stepRunRepository.findByBusinessDateOrderByStepOrder(businessDate));
+    }
+
+    private void runStep(EodStep step, int order, LocalDate businessDate) {
+        EodStepRun stepRun = stepRunRepository.findByBusinessDateAndStepName(businessDate, step.name())
+            .orElseGet(() -> EodStepRun.builder()
+                .businessDate(businessDate)
+                .stepName(step.name())
+                .processed(0L)
+                .build());
+        if (STATUS_COMPLETED.equals(stepRun.getStatus()) || STATUS_SKIPPED.equals(stepRun.getStatus())) {
+            return;
+        }
+        stepRun.setStepOrder(order);
+        stepRun.setErrorMessage(null);
+        stepRun.setStartedAt(LocalDateTime.now());
+        if (!step.runsOn().test(businessDate)) {
+            stepRun.setStatus(STATUS_SKIPPED);
+            stepRun.setFinishedAt(stepRun.getStartedAt());
+            stepRunRepository.save(stepRun);
+            return;
+        }
+        stepRun.setStatus(STATUS_RUNNING);
+        stepRun = stepRunRepository.save(stepRun);
+
+        long start = System.nanoTime();
+        try {
+            BatchRunSummaryDTO summary = step.action().apply(businessDate);
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            long processed = summary != null ? summary.getProcessed() : 0;
+            stepRun.setStatus(STATUS_COMPLETED);
+            stepRun.setProcessed(processed);
+            stepRun.setDurationMs(durationMs);
+            stepRun.setFinishedAt(LocalDateTime.now());
+            stepRunRepository.save(stepRun);
+
+            Timer.builder("eod.step.duration").tag("step", step.name()).register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+            Counter.builder("eod.step.rows").tag("step", step.name()).register(meterRegistry).increment(processed);
+            log.info("EOD step {} for {} processed {} rows in {} ms / 日终步骤完成", step.name(), businessDate, processed, durationMs);
+        } catch (RuntimeException e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+            stepRun.setStatus(STATUS_FAILED);
+            stepRun.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            stepRun.setFinishedAt(LocalDateTime.now());
+            stepRun.setErrorMessage(message.length() > 500 ? message.substring(0, 500) : message);
+            stepRunRepository.save(stepRun);
+            log.error("EOD step {} for {} failed: {} / 日终步骤失败", step.name(), businessDate, message, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Order steps so each runs after its dependencies; among ready steps the declaration order
+     * is kept. Unknown dependencies and cycles fail at startup.
+     */
+    private static List<EodStep> order(List<EodStep> declared) {
+        Map<String, EodStep> byName = new LinkedHashMap<>();
+        for (EodStep step : declared) {
+            if (byName.put(step.name(), step) != null) {
+                throw new IllegalStateException("Duplicate EOD step " + step.name());
+            }
+        }
+        for (EodStep step : declared) {
+            for (String dependency : step.dependsOn()) {
+                if (!byName.containsKey(dependency)) {
+                    throw new IllegalStateException("EOD step " + step.name() + " depends on unknown step " + dependency);
+                }
+            }
+        }
+        List<EodStep> ordered = new ArrayList<>(declared.size());
+        Set<String> done = new HashSet<>();
+        while (ordered.size() < declared.size()) {
+            EodStep next = byName.values().stream()
+                .filter(step -> !done.contains(step.name()) && done.containsAll(step.dependsOn()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("EOD step dependencies form a cycle"));
+            ordered.add(next);
+            done.add(next.name());
+        }
+        return List.copyOf(ordered);
+    }
+}
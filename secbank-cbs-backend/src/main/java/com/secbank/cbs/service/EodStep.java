@@ -0,0 +1,39 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * EOD Step / 日终步骤
+ * One step of the end-of-day batch: the job to run for a business date, the steps that must
+ * complete before it, and the business dates it runs on. Steps are declared as beans and
+ * ordered by {@link EodService}.
+ * 日终批处理步骤：执行动作、前置依赖及运行日期规则
+ */
+public record EodStep(String name,
+                      List<String> dependsOn,
+                      Predicate<LocalDate> runsOn,
+                      Function<LocalDate, BatchRunSummaryDTO> action) {
+
+    /**
+     * Step run on every business date.
+     * 每个营业日运行的步骤
+     */
+    public static EodStep daily(String name, Function<LocalDate, BatchRunSummaryDTO> action, String... dependsOn) {
+        return new EodStep(name, List.of(dependsOn), date -> true, action);
+    }
+
+    /**
+     * Step run on the last calendar day of the month only.
+     * 仅在月末运行的步骤
+     */
+    public static EodStep monthEnd(String name, Function<LocalDate, BatchRunSummaryDTO> action, String... dependsOn) {
+        return new EodStep(name, List.of(dependsOn),
+            date -> date.equals(date.with(TemporalAdjusters.lastDayOfMonth())), action);
+    }
+}
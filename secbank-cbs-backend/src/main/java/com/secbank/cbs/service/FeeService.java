@@ -0,0 +1,419 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.FeeRunSummaryDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.entity.AccountType;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fee Service / 账户费用服务
+ * Month-end monthly maintenance and below-minimum-balance fees. Runs on the
+ * {@link PartitionedBatchRunner}. Per chunk the basis balance (average daily balance of the
+ * month, or the ending balance) is derived from the current balance and one aggregate over
+ * the month's journal lines; the accounts are then grouped by account type so each product's
+ * rule is applied to its accounts as one loop over primitive arrays. Fees are capped at the
+ * available balance, the shortfall being recorded as waived. Charges are claimed in
+ * {@code fee_charges} (one row per account and month, so re-runs never charge twice) and
+ * posted as one ledger batch per chunk; the run summary is read back from that table.
+ * The same computation backs a dry run that streams the projected fees as CSV without
+ * writing anything.
+ * 月末收取账户管理费及低于最低余额费：按产品分组批量计算，经账务批量过账；fee_charges保证每账户每月只收一次；支持只输出预测费用文件的试运行
+ */
+@Service
+@Slf4j
+public class FeeService {
+
+    public static final String JOB_NAME = "MONTHLY_FEES";
+
+    private static final DateTimeFormatter REFERENCE_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    public enum BalanceBasis {
+        /** Average daily balance over the month / 月日均余额 */
+        AVERAGE,
+        /** Balance at the end of the business date / 营业日终余额 */
+        ENDING
+    }
+
+    private static final String CHUNK_SQL =
+        "SELECT a.id, a.account_number, a.account_type_id, a.currency, a.open_date, " +
+        "       (a.current_balance * 100)::bigint AS balance_minor, " +
+        "       (a.available_balance * 100)::bigint AS available_minor " +
+        "FROM accounts a JOIN account_types t ON t.id = a.account_type_id " +
+        "WHERE a.id > ? AND a.id <= ? AND a.status = 'ACTIVE' AND a.open_date <= ? " +
+        "  AND (COALESCE(t.monthly_fee, 0) > 0 OR COALESCE(t.below_minimum_fee, 0) > 0) " +
+        "  AND NOT EXISTS (SELECT 1 FROM fee_charges f WHERE f.account_id = a.id AND f.period_start = ?) " +
+        "ORDER BY a.id LIMIT ?";
+
+    /**
+     * Per account, from the lines after the day before its first counted day: the movements
+     * weighted by the number of counted days whose end-of-day balance they are not yet part of
+     * (which turns the current balance into the sum of daily balances), and the movements
+     * after the period.
+     */
+    private static final String MOVEMENTS_SQL =
+        "SELECT l.account_id, " +
+        "       (SUM(CASE WHEN l.direction = 'C' THEN l.amount ELSE -l.amount END " +
+        "            * (LEAST(l.entry_date - 1, ?::date) - t.start_date)) * 100)::bigint AS weighted_minor, " +
+        "       (SUM(CASE WHEN l.entry_date > ? THEN CASE WHEN l.direction = 'C' THEN l.amount ELSE -l.amount END " +
+        "            ELSE 0 END) * 100)::bigint AS after_minor " +
+        "FROM journal_lines l JOIN unnest(?::bigint[], ?::date[]) AS t(account_id, start_date) " +
+        "  ON l.account_id = t.account_id " +
+        "WHERE l.entry_date > ? AND l.entry_date > t.start_date " +
+        "GROUP BY l.account_id";
+
+    private static final String CLAIM_SQL =
+        "INSERT INTO fee_charges (account_id, period_start, account_type_id, basis_balance, monthly_fee, " +
+        "below_minimum_fee, waived, charged_at) " +
+        "SELECT t.account_id, ?, t.type_id, t.basis / 100.0, t.monthly / 100.0, t.below / 100.0, t.waived / 100.0, now() " +
+        "FROM unnest(?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[], ?::bigint[]) " +
+        "  AS t(account_id, type_id, basis, monthly, below, waived) " +
+        "ON CONFLICT (account_id, period_start) DO NOTHING RETURNING account_id";
+
+    private static final String SUMMARY_SQL =
+        "SELECT account_type_id, COUNT(*) FILTER (WHERE monthly_fee + below_minimum_fee > 0) AS accounts, " +
+        "       SUM(monthly_fee) AS monthly_fee, SUM(below_minimum_fee) AS below_minimum_fee, SUM(waived) AS waived " +
+        "FROM fee_charges WHERE period_start = ? GROUP BY account_type_id ORDER BY account_type_id";
+
+    private static final String PROJECTION_HEADER =
+        "account_id,account_number,type_code,currency,basis_balance,minimum_balance,monthly_fee,below_minimum_fee,waived,total\n";
+
+    private final PartitionedBatchRunner batchRunner;
+    private final LedgerService ledgerService;
+    private final ReferenceDataCache referenceDataCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private final BalanceBasis balanceBasis;
+    private final String maintenanceGlCode;
+    private final String belowMinimumGlCode;
+
+    public FeeService(PartitionedBatchRunner batchRunner,
+                      LedgerService ledgerService,
+                      ReferenceDataCache referenceDataCache,
+                      JdbcTemplate jdbcTemplate,
+                      @Value("${app.fees.chunk-size:2000}") int chunkSize,
+                      @Value("${app.fees.balance-basis:AVERAGE}") BalanceBasis balanceBasis,
+                      @Value("${app.fees.maintenance-gl-code:FEE-MAINTENANCE}") String maintenanceGlCode,
+                      @Value("${app.fees.below-minimum-gl-code:FEE-BELOW-MIN}") String belowMinimumGlCode) {
+        this.batchRunner = batchRunner;
+        this.ledgerService = ledgerService;
+        this.referenceDataCache = referenceDataCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.balanceBasis = balanceBasis;
+        this.maintenanceGlCode = maintenanceGlCode;
+        this.belowMinimumGlCode = belowMinimumGlCode;
+    }
+
+    @Scheduled(cron = "${app.fees.cron:-}")
+    public void scheduledCharge() {
+        charge(LocalDate.now());
+    }
+
+    /**
+     * Charge the fees of the business date's month to every account not charged yet.
+     * 对本月尚未收费的账户收取费用
+     */
+    public FeeRunSummaryDTO charge(LocalDate businessDate) {
+        Map<Long, FeeRule> rules = new ConcurrentHashMap<>();
+        BatchRunSummaryDTO run = batchRunner.run(JOB_NAME, businessDate, (afterId, rangeEnd) -> {
+            FeeChunk chunk = compute(businessDate, afterId, rangeEnd, rules);
+            return chunk == null ? null : new PartitionedBatchRunner.Chunk(chunk.ids[chunk.size - 1], post(chunk, businessDate));
+        });
+        FeeRunSummaryDTO summary = getSummary(businessDate);
+        summary.setRun(run);
+        log.info("Fees for {} charged to {} accounts: maintenance {}, below minimum {}, waived {} / 月度费用已收取",
+            businessDate.withDayOfMonth(1).format(REFERENCE_MONTH), summary.getAccountsCharged(), summary.getMonthlyFeeTotal(),
+            summary.getBelowMinimumFeeTotal(), summary.getWaivedTotal());
+        return summary;
+    }
+
+    /**
+     * Totals charged for the business date's month, per account type.
+     * 查询本月已收费用汇总
+     */
+    public FeeRunSummaryDTO getSummary(LocalDate businessDate) {
+        LocalDate periodStart = businessDate.withDayOfMonth(1);
+        List<FeeRunSummaryDTO.ProductTotal> products = jdbcTemplate.query(SUMMARY_SQL, (rs, rowNum) -> {
+            long typeId = rs.getLong("account_type_id");
+            return FeeRunSummaryDTO.ProductTotal.builder()
+                .accountTypeId(typeId)
+                .typeCode(referenceDataCache.getAccountType(typeId).map(AccountType::getTypeCode).orElse(null))
+                .accounts(rs.getLong("accounts"))
+                .monthlyFee(rs.getBigDecimal("monthly_fee"))
+                .belowMinimumFee(rs.getBigDecimal("below_minimum_fee"))
+                .waived(rs.getBigDecimal("waived"))
+                .build();
+        }, periodStart);
+        return FeeRunSummaryDTO.builder()
+            .periodStart(periodStart)
+            .businessDate(businessDate)
+            .balanceBasis(balanceBasis.name())
+            .accountsCharged(products.stream().mapToLong(FeeRunSummaryDTO.ProductTotal::getAccounts).sum())
+            .monthlyFeeTotal(sum(products, FeeRunSummaryDTO.ProductTotal::getMonthlyFee))
+            .belowMinimumFeeTotal(sum(products, FeeRunSummaryDTO.ProductTotal::getBelowMinimumFee))
+            .waivedTotal(sum(products, FeeRunSummaryDTO.ProductTotal::getWaived))
+            .products(products)
+            .build();
+    }
+
+    /**
+     * Dry run: write the fees a charge run would take now as CSV, without touching balances.
+     * 试运行：以CSV输出预测费用，不改动余额
+     */
+    public void writeProjection(LocalDate businessDate, Writer writer) {
+        Map<Long, FeeRule> rules = new HashMap<>();
+        try {
+            writer.write(PROJECTION_HEADER);
+            long afterId = 0;
+            FeeChunk chunk;
+            while ((chunk = compute(businessDate, afterId, Long.MAX_VALUE, rules)) != null) {
+                StringBuilder lines = new StringBuilder(chunk.size * 96);
+                for (int i = 0; i < chunk.size; i++) {
+                    FeeRule rule = rules.get(chunk.typeIds[i]);
+                    lines.append(chunk.ids[i]).append(',')
+                        .append(chunk.accountNumbers[i]).append(',')
+                        .append(rule != null ? rule.typeCode : "").append(',')
+                        .append(chunk.currencies[i]).append(',')
+                        .append(MoneyMath.fromMinor(chunk.basis[i])).append(',')
+                        .append(MoneyMath.fromMinor(rule != null ? rule.minimumMinor : 0)).append(',')
+                        .append(MoneyMath.fromMinor(chunk.monthly[i])).append(',')
+                        .append(MoneyMath.fromMinor(chunk.below[i])).append(',')
+                        .append(MoneyMath.fromMinor(chunk.waived[i])).append(',')
+                        .append(MoneyMath.fromMinor(chunk.monthly[i] + chunk.below[i])).append('\n');
+                }
+                writer.write(lines.toString());
+                writer.flush();
+                afterId = chunk.ids[chunk.size - 1];
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Load one chunk, derive the basis balances and apply each product's rule.
+     */
+    private FeeChunk compute(LocalDate businessDate, long afterId, long rangeEnd, Map<Long, FeeRule> rules) {
+        LocalDate periodStart = businessDate.withDayOfMonth(1);
+        FeeChunk chunk = new FeeChunk(chunkSize);
+        jdbcTemplate.query(CHUNK_SQL, rs -> {
+            int i = chunk.size++;
+            chunk.ids[i] = rs.getLong("id");
+            chunk.accountNumbers[i] = rs.getString("account_number");
+            chunk.typeIds[i] = rs.getLong("account_type_id");
+            chunk.currencies[i] = rs.getString("currency");
+            chunk.balances[i] = rs.getLong("balance_minor");
+            chunk.available[i] = rs.getLong("available_minor");
+            LocalDate openDate = rs.getObject("open_date", LocalDate.class);
+            // The day before the first counted day: the opening day, or the first of the month
+            chunk.starts[i] = (openDate.isAfter(periodStart) ? openDate : periodStart).minusDays(1);
+        }, afterId, rangeEnd, businessDate, periodStart, chunkSize);
+        if (chunk.size == 0) {
+            return null;
+        }
+        applyBasis(chunk, periodStart, businessDate);
+
+        Map<Long, List<Integer>> byProduct = new HashMap<>();
+        for (int i = 0; i < chunk.size; i++) {
+            byProduct.computeIfAbsent(chunk.typeIds[i], k -> new ArrayList<>()).add(i);
+        }
+        byProduct.forEach((typeId, members) -> applyRule(
+            rules.computeIfAbsent(typeId, id -> FeeRule.of(referenceDataCache.getAccountType(id).orElse(null))),
+            chunk, members));
+        return chunk;
+    }
+
+    /**
+     * Turn the current balances into the basis balances of the period. The period runs to the
+     * business date; an account opened during the month starts from its opening day.
+     */
+    private void applyBasis(FeeChunk chunk, LocalDate periodStart, LocalDate businessDate) {
+        java.sql.Date[] starts = new java.sql.Date[chunk.size];
+        Long[] ids = new Long[chunk.size];
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < chunk.size; i++) {
+            ids[i] = chunk.ids[i];
+            starts[i] = java.sql.Date.valueOf(chunk.starts[i]);
+            positions.put(chunk.ids[i], i);
+        }
+        long[] weighted = new long[chunk.size];
+        long[] after = new long[chunk.size];
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(MOVEMENTS_SQL);
+            ps.setObject(1, businessDate);
+            ps.setObject(2, businessDate);
+            ps.setArray(3, con.createArrayOf("bigint", ids));
+            ps.setArray(4, con.createArrayOf("date", starts));
+            ps.setObject(5, periodStart.minusDays(1));
+            return ps;
+        }, rs -> {
+            int i = positions.get(rs.getLong("account_id"));
+            weighted[i] = rs.getLong("weighted_minor");
+            after[i] = rs.getLong("after_minor");
+        });
+        for (int i = 0; i < chunk.size; i++) {
+            if (balanceBasis == BalanceBasis.ENDING) {
+                chunk.basis[i] = chunk.balances[i] - after[i];
+            } else {
+                long days = ChronoUnit.DAYS.between(chunk.starts[i], businessDate);
+                chunk.basis[i] = days > 0
+                    ? MoneyMath.divideHalfEven(chunk.balances[i] * days - weighted[i], days)
+                    : chunk.balances[i] - after[i];
+            }
+        }
+    }
+
+    /**
+     * One product's rule over its accounts in the chunk. The charge is capped at the
+     * available balance; the maintenance fee is taken before the below-minimum fee.
+     */
+    private static void applyRule(FeeRule rule, FeeChunk chunk, List<Integer> members) {
+        for (int i : members) {
+            if (rule == null || !rule.currency.equals(chunk.currencies[i])) {
+                continue;
+            }
+            long due = rule.monthlyMinor + (chunk.basis[i] < rule.minimumMinor ? rule.belowMinimumMinor : 0);
+            long payable = Math.max(0, Math.min(due, chunk.available[i]));
+            chunk.monthly[i] = Math.min(rule.monthlyMinor, payable);
+            chunk.below[i] = payable - chunk.monthly[i];
+            chunk.waived[i] = due - payable;
+        }
+    }
+
+    /**
+     * Claim the month for the chunk's accounts and post the fees of the newly claimed ones.
+     * Returns the number of accounts charged.
+     */
+    private int post(FeeChunk chunk, LocalDate businessDate) {
+        LocalDate periodStart = businessDate.withDayOfMonth(1);
+        List<Integer> due = new ArrayList<>();
+        for (int i = 0; i < chunk.size; i++) {
+            if (chunk.monthly[i] + chunk.below[i] + chunk.waived[i] > 0) {
+                due.add(i);
+            }
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+        Set<Long> claimed = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CLAIM_SQL);
+            ps.setObject(1, periodStart);
+            ps.setArray(2, con.createArrayOf("bigint", due.stream().map(i -> chunk.ids[i]).toArray()));
+            ps.setArray(3, con.createArrayOf("bigint", due.stream().map(i -> chunk.typeIds[i]).toArray()));
+            ps.setArray(4, con.createArrayOf("bigint", due.stream().map(i -> chunk.basis[i]).toArray()));
+            ps.setArray(5, con.createArrayOf("bigint", due.stream().map(i -> chunk.monthly[i]).toArray()));
+            ps.setArray(6, con.createArrayOf("bigint", due.stream().map(i -> chunk.below[i]).toArray()));
+            ps.setArray(7, con.createArrayOf("bigint", due.stream().map(i -> chunk.waived[i]).toArray()));
+            return ps;
+        }, rs -> {
+            claimed.add(rs.getLong("account_id"));
+        });
+
+        String reference = periodStart.format(REFERENCE_MONTH);
+        List<PostingRequest> postings = new ArrayList<>();
+        for (int i : due) {
+            long total = chunk.monthly[i] + chunk.below[i];
+            if (total == 0 || !claimed.contains(chunk.ids[i])) {
+                continue;
+            }
+            List<Leg> legs = new ArrayList<>(3);
+            legs.add(Leg.builder().accountId(chunk.ids[i]).direction(Direction.DEBIT)
+                .amount(MoneyMath.fromMinor(total)).build());
+            if (chunk.monthly[i] > 0) {
+                legs.add(Leg.builder().glCode(maintenanceGlCode).direction(Direction.CREDIT)
+                    .amount(MoneyMath.fromMinor(chunk.monthly[i])).build());
+            }
+            if (chunk.below[i] > 0) {
+                legs.add(Leg.builder().glCode(belowMinimumGlCode).direction(Direction.CREDIT)
+                    .amount(MoneyMath.fromMinor(chunk.below[i])).build());
+            }
+            postings.add(PostingRequest.builder()
+                .reference("FEE-" + chunk.ids[i] + "-" + reference)
+                .txnType("ACCOUNT_FEE")
+                .description("Monthly account fees " + reference + " / 月度账户费用")
+                .currency(chunk.currencies[i])
+                .legs(legs)
+                .build());
+        }
+        if (!postings.isEmpty()) {
+            ledgerService.postBatch(postings, null, PostingPolicy.SYSTEM, businessDate);
+        }
+        return postings.size();
+    }
+
+    private static BigDecimal sum(List<FeeRunSummaryDTO.ProductTotal> products,
+                                  java.util.function.Function<FeeRunSummaryDTO.ProductTotal, BigDecimal> field) {
+        return products.stream().map(field).filter(Objects::nonNull).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /**
+     * Fee rule of one account type in minor units.
+     */
+    private record FeeRule(String typeCode, String currency, long monthlyMinor, long belowMinimumMinor,
+                           long minimumMinor) {
+
+        static FeeRule of(AccountType type) {
+            if (type == null) {
+                return null;
+            }
+            return new FeeRule(type.getTypeCode(), type.getCurrency(), minor(type.getMonthlyFee()),
+                minor(type.getBelowMinimumFee()), minor(type.getMinimumBalance()));
+        }
+
+        private static long minor(BigDecimal amount) {
+            return amount != null ? MoneyMath.toMinor(amount) : 0L;
+        }
+    }
+
+    /**
+     * One chunk of accounts as parallel arrays.
+     */
+    private static final class FeeChunk {
+        final long[] ids;
+        final String[] accountNumbers;
+        final long[] typeIds;
+        final String[] currencies;
+        final LocalDate[] starts;
+        final long[] balances;
+        final long[] available;
+        final long[] basis;
+        final long[] monthly;
+        final long[] below;
+        final long[] waived;
+        int size;
+
+        FeeChunk(int capacity) {
+            ids = new long[capacity];
+            accountNumbers = new String[capacity];
+            typeIds = new long[capacity];
+            currencies = new String[capacity];
+            starts = new LocalDate[capacity];
+            balances = new long[capacity];
+            available = new long[capacity];
+            basis = new long[capacity];
+            monthly = new long[capacity];
+            below = new long[capacity];
+            waived = new long[capacity];
+        }
+    }
+}
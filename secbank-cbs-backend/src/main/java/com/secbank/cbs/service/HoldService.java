@@ -0,0 +1,278 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.AccountHoldDTO;
+import com.secbank.cbs.dto.PlaceHoldRequest;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.entity.AccountHold.HoldStatus;
+import com.secbank.cbs.entity.AccountHold.HoldType;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import com.secbank.cbs.repository.AccountHoldRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hold Service / 冻结服务
+ * Places and releases individual holds. Each operation is one SQL statement that changes the
+ * hold row and adjusts {@code hold_balance}/{@code available_balance} relative to their current
+ * values, with the funds check in the UPDATE's WHERE clause, so concurrent authorizations on
+ * the same account serialize on the row lock without a read-modify-write round trip.
+ * Expired holds are released by a scheduled sweep in set-based batches.
+ * 冻结的设置与解除均为单条条件SQL，余额按增量调整；定时任务按批次集合式释放到期冻结
+ */
+@Service
+@Slf4j
+public class HoldService {
+
+    static final String SNAPSHOT_COLUMNS =
+        "a.id, a.account_number, a.status, a.branch_id, a.account_type_id, a.currency, a.current_balance, a.open_date";
+
+    /**
+     * Reduce the available balance and insert the hold in one statement. LIEN holds skip the
+     * funds check because legal liens apply regardless of the balance.
+     */
+    private static final String PLACE_SQL =
+        "WITH acct AS (" +
+        "  UPDATE accounts a SET hold_balance = COALESCE(a.hold_balance, 0) + ?, " +
+        "    available_balance = a.available_balance - ?, updated_at = now() " +
+        "  WHERE a.id = ? AND a.status = 'ACTIVE' " +
+        "    AND (? OR a.available_balance + COALESCE(a.overdraft_limit, 0) + ? >= ?) " +
+        "  RETURNING " + SNAPSHOT_COLUMNS + "), " +
+        "hold AS (" +
+        "  INSERT INTO account_holds (account_id, amount, hold_type, reason, reference, status, expires_at, created_at, created_by) " +
+        "  SELECT id, ?, ?, ?, ?, 'ACTIVE', ?, now(), ? FROM acct RETURNING id) " +
+        "SELECT hold.id AS hold_id, acct.* FROM hold, acct";
+
+    private static final String RELEASE_SQL =
+        "WITH hold AS (" +
+        "  UPDATE account_holds SET status = 'RELEASED', released_at = now(), released_by = ? " +
+        "  WHERE id = ? AND status = 'ACTIVE' RETURNING account_id, amount) " +
+        "UPDATE accounts a SET hold_balance = a.hold_balance - hold.amount, " +
+        "  available_balance = a.available_balance + hold.amount, updated_at = now() " +
+        "FROM hold WHERE a.id = hold.account_id " +
+        "RETURNING " + SNAPSHOT_COLUMNS;
+
+    /** Claim one batch of due holds; SKIP LOCKED leaves holds being released by users alone. */
+    private static final String EXPIRE_HOLDS_SQL =
+        "WITH due AS (" +
+        "  SELECT id FROM account_holds WHERE status = 'ACTIVE' AND expires_at <= now() " +
+        "  ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED), " +
+        "expired AS (" +
+        "  UPDATE account_holds h SET status = 'EXPIRED', released_at = now() " +
+        "  FROM due WHERE h.id = due.id RETURNING h.account_id, h.amount) " +
+        "SELECT account_id, SUM(amount) AS amount, COUNT(*) AS holds FROM expired GROUP BY account_id ORDER BY account_id";
+
+    /** Lock in id order first, like the ledger, so the sweep cannot deadlock with postings. */
+    private static final String LOCK_ACCOUNTS_SQL =
+        "SELECT id FROM accounts WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+
+    private static final String RELEASE_TOTALS_SQL =
+        "UPDATE accounts a SET hold_balance = a.hold_balance - t.amount, " +
+        "  available_balance = a.available_balance + t.amount, updated_at = now() " +
+        "FROM unnest(?::bigint[], ?::numeric[]) AS t(account_id, amount) WHERE a.id = t.account_id " +
+        "RETURNING " + SNAPSHOT_COLUMNS;
+
+    private static final String ACCOUNT_STATE_SQL =
+        "SELECT status, available_balance, COALESCE(overdraft_limit, 0) AS overdraft_limit FROM accounts WHERE id = ?";
+
+    static final RowMapper<AccountSnapshot> SNAPSHOT_MAPPER = (rs, rowNum) -> {
+        Date openDate = rs.getDate("open_date");
+        return AccountSnapshot.builder()
+            .accountId(rs.getLong("id"))
+            .accountNumber(rs.getString("account_number"))
+            .status(AccountStatus.valueOf(rs.getString("status")))
+            .branchId(rs.getLong("branch_id"))
+            .accountTypeId(rs.getLong("account_type_id"))
+            .currency(rs.getString("currency"))
+            .currentBalance(rs.getBigDecimal("current_balance"))
+            .openDate(openDate != null ? openDate.toLocalDate() : null)
+            .build();
+    };
+
+    private final AccountHoldRepository accountHoldRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<PostingEngine> postingEngine;
+    private final int expiryBatchSize;
+
+    private final Counter placed;
+    private final Counter released;
+    private final Counter expired;
+
+    public HoldService(AccountHoldRepository accountHoldRepository,
+                       JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       ApplicationEventPublisher eventPublisher,
+                       ObjectProvider<PostingEngine> postingEngine,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.holds.expiry-batch-size:1000}") int expiryBatchSize) {
+        this.accountHoldRepository = accountHoldRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.postingEngine = postingEngine;
+        this.expiryBatchSize = expiryBatchSize;
+        this.placed = Counter.builder("holds.placed").register(meterRegistry);
+        this.released = Counter.builder("holds.released").register(meterRegistry);
+        this.expired = Counter.builder("holds.expired").register(meterRegistry);
+    }
+
+    /**
+     * Place a hold on an account.
+     * 设置冻结
+     */
+    @Transactional
+    public AccountHoldDTO placeHold(Long accountId, PlaceHoldRequest request, Long userId) {
+        BigDecimal amount = request.getAmount();
+        boolean lien = request.getHoldType() == HoldType.LIEN;
+        Timestamp expiresAt = request.getExpiresAt() != null ? Timestamp.valueOf(request.getExpiresAt()) : null;
+        List<Map.Entry<Long, AccountSnapshot>> rows;
+        try {
+            rows = jdbcTemplate.query(PLACE_SQL,
+                (rs, rowNum) -> Map.entry(rs.getLong("hold_id"), SNAPSHOT_MAPPER.mapRow(rs, rowNum)),
+                amount, amount, accountId, lien, engineDebits(accountId), amount,
+                amount, request.getHoldType().name(), request.getReason(), request.getReference(), expiresAt, userId);
+        } catch (DuplicateKeyException e) {
+            throw new BusinessException("Hold reference already exists on this account / 该账户已存在相同参考号的冻结");
+        }
+        if (rows.isEmpty()) {
+            throw rejection(accountId, amount);
+        }
+        placed.increment();
+        AccountSnapshot snapshot = rows.get(0).getValue();
+        eventPublisher.publishEvent(AccountChangedEvent.updated(snapshot, snapshot));
+        return getHold(rows.get(0).getKey());
+    }
+
+    /**
+     * Release an active hold.
+     * 解除冻结
+     */
+    @Transactional
+    public AccountHoldDTO releaseHold(Long holdId, Long userId) {
+        List<AccountSnapshot> rows = jdbcTemplate.query(RELEASE_SQL, SNAPSHOT_MAPPER, userId, holdId);
+        if (rows.isEmpty()) {
+            accountHoldRepository.findById(holdId)
+                .orElseThrow(() -> new ResourceNotFoundException("Hold", "id", holdId));
+            throw new BusinessException("Hold is not active / 冻结已失效");
+        }
+        released.increment();
+        eventPublisher.publishEvent(AccountChangedEvent.updated(rows.get(0), rows.get(0)));
+        return getHold(holdId);
+    }
+
+    public AccountHoldDTO getHold(Long holdId) {
+        return accountHoldRepository.findById(holdId)
+            .map(AccountHoldDTO::fromEntity)
+            .orElseThrow(() -> new ResourceNotFoundException("Hold", "id", holdId));
+    }
+
+    public List<AccountHoldDTO> getHolds(Long accountId, boolean activeOnly) {
+        return (activeOnly
+                ? accountHoldRepository.findByAccountIdAndStatusOrderByCreatedAtDesc(accountId, HoldStatus.ACTIVE)
+                : accountHoldRepository.findByAccountIdOrderByCreatedAtDesc(accountId))
+            .stream()
+            .map(AccountHoldDTO::fromEntity)
+            .toList();
+    }
+
+    /**
+     * Release expired holds, one batch per transaction until none are due.
+     * 按批次释放到期冻结
+     */
+    @Scheduled(fixedDelayString = "${app.holds.expiry-sweep-ms:30000}")
+    public void expireHolds() {
+        int total = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(status -> expireBatch());
+            total += batch;
+        } while (batch == expiryBatchSize);
+        if (total > 0) {
+            log.info("Expired {} holds / 已释放到期冻结", total);
+        }
+    }
+
+    private int expireBatch() {
+        List<Long> accountIds = new ArrayList<>();
+        List<BigDecimal> amounts = new ArrayList<>();
+        int[] holds = {0};
+        jdbcTemplate.query(EXPIRE_HOLDS_SQL, rs -> {
+            accountIds.add(rs.getLong("account_id"));
+            amounts.add(rs.getBigDecimal("amount"));
+            holds[0] += rs.getInt("holds");
+        }, expiryBatchSize);
+        if (accountIds.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_ACCOUNTS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            return ps;
+        }, rs -> {
+        });
+        List<AccountSnapshot> snapshots = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RELEASE_TOTALS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            ps.setArray(2, con.createArrayOf("numeric", amounts.toArray()));
+            return ps;
+        }, SNAPSHOT_MAPPER);
+        expired.increment(holds[0]);
+        eventPublisher.publishEvent(new AccountChangedEvent(snapshots.stream()
+            .map(s -> new AccountChangedEvent.Change(s, s))
+            .toList()));
+        return holds[0];
+    }
+
+    /**
+     * Explain why the conditional placement matched no row.
+     */
+    private RuntimeException rejection(Long accountId, BigDecimal amount) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(ACCOUNT_STATE_SQL, accountId);
+        if (rows.isEmpty()) {
+            return new ResourceNotFoundException("Account", "id", accountId);
+        }
+        Map<String, Object> row = rows.get(0);
+        if (!AccountStatus.ACTIVE.name().equals(row.get("status"))) {
+            return new BusinessException("Account is not active / 账户状态非正常");
+        }
+        BigDecimal available = ((BigDecimal) row.get("available_balance")).add((BigDecimal) row.get("overdraft_limit"))
+            .add(engineDebits(accountId));
+        return new BusinessException("Insufficient available balance for hold of " + amount
+            + " (available " + available + ") / 可用余额不足");
+    }
+
+    /**
+     * Debits the posting engine has journalled but not yet written to the account row.
+     */
+    private BigDecimal engineDebits(Long accountId) {
+        PostingEngine engine = postingEngine.getIfAvailable();
+        if (engine == null) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(Math.min(0L, engine.unflushedDelta(accountId)), 2);
+    }
+}
@@ -0,0 +1,200 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interest Accrual Service / 利息计提服务
+ * End-of-day accrual of interest into {@code accrued_interest}. Runs on the
+ * {@link PartitionedBatchRunner}: account-id partitions in parallel, keyset chunks within
+ * each, one batched UPDATE per chunk. {@code last_interest_date} records the date interest is
+ * accrued through, so the selection skips accounts already done for the business date and
+ * missed days are caught up on the next run. Each chunk is computed as primitive arrays by
+ * {@link MoneyMath}, and its accounts are published as an {@link AccountChangedEvent} so
+ * cached copies are dropped once the chunk commits.
+ * 日终利息计提：按账户ID分区并行、分区内键集分块、每块一次批量更新；last_interest_date记录已计提日期
+ */
+@Service
+@Slf4j
+public class InterestAccrualService {
+
+    public static final String JOB_NAME = "INTEREST_ACCRUAL";
+
+    /** Amounts and rates come back as exact minor units and rate units, so no BigDecimal is created per row. */
+    private static final String CHUNK_SQL =
+        "SELECT a.id, (a.current_balance * 100)::bigint AS balance_minor, a.last_interest_date, a.open_date, " +
+        "       (COALESCE(a.interest_rate_override, a.interest_rate, t.interest_rate) * 10000)::bigint AS rate_units, " +
+        "       t.interest_calculation = 'MINIMUM_BALANCE' AS minimum_basis, " +
+        "       (COALESCE(t.minimum_balance, 0) * 100)::bigint AS minimum_minor " +
+        "FROM accounts a JOIN account_types t ON t.id = a.account_type_id " +
+        "WHERE a.id > ? AND a.id <= ? AND a.status IN ('ACTIVE', 'DORMANT') " +
+        "  AND COALESCE(a.interest_rate_override, a.interest_rate, t.interest_rate, 0) > 0 " +
+        "  AND (a.last_interest_date IS NULL OR a.last_interest_date < ?) " +
+        "ORDER BY a.id LIMIT ?";
+
+    /** Lowest balance of the day: the lower of the opening balance and every intraday balance. */
+    private static final String DAY_MOVEMENT_SQL =
+        "SELECT account_id, (MIN(balance_after) * 100)::bigint AS low_minor, " +
+        "       (SUM(CASE WHEN direction = 'C' THEN amount ELSE -amount END) * 100)::bigint AS net_minor " +
+        "FROM journal_lines WHERE entry_date = ? AND account_id = ANY(?) GROUP BY account_id";
+
+    /** Re-checks the date so a concurrent or repeated run cannot accrue the same day twice. */
+    private static final String ACCRUE_SQL =
+        "UPDATE accounts SET accrued_interest = COALESCE(accrued_interest, 0) + ? / 100.0, last_interest_date = ? " +
+        "WHERE id = ? AND (last_interest_date IS NULL OR last_interest_date < ?)";
+
+    private static final String ACCRUED_SQL =
+        "SELECT " + HoldService.SNAPSHOT_COLUMNS + " FROM accounts a WHERE a.id = ANY(?)";
+
+    private final PartitionedBatchRunner batchRunner;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int dayCountBasis;
+
+    public InterestAccrualService(PartitionedBatchRunner batchRunner,
+                                  JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${app.interest.chunk-size:2000}") int chunkSize,
+                                  @Value("${app.interest.day-count-basis:365}") int dayCountBasis) {
+        this.batchRunner = batchRunner;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.dayCountBasis = dayCountBasis;
+    }
+
+    @Scheduled(cron = "${app.interest.accrual-cron:-}")
+    public void scheduledAccrual() {
+        accrue(LocalDate.now());
+    }
+
+    /**
+     * Accrue interest for every interest-bearing account through the business date.
+     * 计提截至营业日的利息
+     */
+    public BatchRunSummaryDTO accrue(LocalDate businessDate) {
+        return batchRunner.run(JOB_NAME, businessDate, (afterId, rangeEnd) -> accrueChunk(businessDate, afterId, rangeEnd));
+    }
+
+    private PartitionedBatchRunner.Chunk accrueChunk(LocalDate businessDate, long afterId, long rangeEnd) {
+        AccrualChunk chunk = new AccrualChunk(chunkSize);
+        jdbcTemplate.query(CHUNK_SQL, rs -> {
+            int i = chunk.size++;
+            chunk.ids[i] = rs.getLong("id");
+            chunk.balances[i] = rs.getLong("balance_minor");
+            chunk.rates[i] = rs.getLong("rate_units");
+            chunk.minimums[i] = rs.getLong("minimum_minor");
+            chunk.minimumBasis[i] = rs.getBoolean("minimum_basis");
+            LocalDate lastInterestDate = rs.getObject("last_interest_date", LocalDate.class);
+            LocalDate accruedThrough = lastInterestDate != null
+                ? lastInterestDate : rs.getObject("open_date", LocalDate.class).minusDays(1);
+            chunk.days[i] = (int) Math.max(1, ChronoUnit.DAYS.between(accruedThrough, businessDate));
+        }, afterId, rangeEnd, businessDate, chunkSize);
+        if (chunk.size == 0) {
+            return null;
+        }
+        applyDayLows(chunk, businessDate);
+        for (int i = 0; i < chunk.size; i++) {
+            // Below the product minimum (or overdrawn) earns nothing but still advances the date
+            if (chunk.balances[i] <= 0 || chunk.balances[i] < chunk.minimums[i]) {
+                chunk.rates[i] = 0;
+            }
+        }
+        MoneyMath.accrual(chunk.balances, chunk.rates, chunk.days, dayCountBasis, chunk.accruals, chunk.size);
+
+        List<Object[]> updates = new ArrayList<>(chunk.size);
+        for (int i = 0; i < chunk.size; i++) {
+            updates.add(new Object[]{chunk.accruals[i], businessDate, chunk.ids[i], businessDate});
+        }
+        jdbcTemplate.batchUpdate(ACCRUE_SQL, updates);
+        publishAccrued(chunk);
+        return new PartitionedBatchRunner.Chunk(chunk.ids[chunk.size - 1], chunk.size);
+    }
+
+    /**
+     * Accrual changes neither status nor balance; the event carries the same snapshot on both
+     * sides so only cached copies of the accounts are dropped after commit.
+     * 计提后发布账户变更事件，使缓存在提交后失效
+     */
+    private void publishAccrued(AccrualChunk chunk) {
+        Long[] ids = new Long[chunk.size];
+        for (int i = 0; i < chunk.size; i++) {
+            ids[i] = chunk.ids[i];
+        }
+        List<AccountSnapshot> snapshots = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(ACCRUED_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, HoldService.SNAPSHOT_MAPPER);
+        eventPublisher.publishEvent(new AccountChangedEvent(snapshots.stream()
+            .map(s -> new AccountChangedEvent.Change(s, s))
+            .toList()));
+    }
+
+    /**
+     * Replace the balance of MINIMUM_BALANCE accounts that moved on the business date with
+     * the day's lowest balance.
+     */
+    private void applyDayLows(AccrualChunk chunk, LocalDate businessDate) {
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < chunk.size; i++) {
+            if (chunk.minimumBasis[i]) {
+                positions.put(chunk.ids[i], i);
+            }
+        }
+        if (positions.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DAY_MOVEMENT_SQL);
+            ps.setObject(1, businessDate);
+            ps.setArray(2, con.createArrayOf("bigint", positions.keySet().toArray()));
+            return ps;
+        }, rs -> {
+            int i = positions.get(rs.getLong("account_id"));
+            long opening = chunk.balances[i] - rs.getLong("net_minor");
+            long low = rs.getObject("low_minor") != null ? Math.min(opening, rs.getLong("low_minor")) : opening;
+            chunk.balances[i] = Math.min(low, chunk.balances[i]);
+        });
+    }
+
+    /**
+     * One chunk of accounts as parallel primitive arrays for {@link MoneyMath}.
+     */
+    private static final class AccrualChunk {
+        final long[] ids;
+        final long[] balances;
+        final long[] rates;
+        final long[] minimums;
+        final boolean[] minimumBasis;
+        final int[] days;
+        final long[] accruals;
+        int size;
+
+        AccrualChunk(int capacity) {
+            ids = new long[capacity];
+            balances = new long[capacity];
+            rates = new long[capacity];
+            minimums = new long[capacity];
+            minimumBasis = new boolean[capacity];
+            days = new int[capacity];
+            accruals = new long[capacity];
+        }
+    }
+}
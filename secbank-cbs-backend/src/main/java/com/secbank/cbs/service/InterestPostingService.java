@@ -0,0 +1,305 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.entity.AccountType;
+import com.secbank.cbs.entity.AccountType.PostingFrequency;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Interest Posting Service / 利息入账服务
+ * Capitalizes accrued interest on each account's posting date. Accounts due are found through
+ * the indexed {@code next_interest_posting_date}, which is set from the account type's
+ * {@link PostingFrequency} (period ends; maturity date for AT_MATURITY) and advanced after each
+ * posting. Per chunk, the interest is posted through the ledger as one batch (interest expense
+ * GL to the account, net of withholding tax to the tax payable GL). A row in
+ * {@code interest_postings} per account and period, inserted in the same transaction, makes
+ * re-runs skip what was already posted.
+ * 按计息周期将已计提利息入账：按next_interest_posting_date索引选取到期账户，经账务批量过账并代扣利息税；interest_postings保证每账户每期只入账一次
+ */
+@Service
+@Slf4j
+public class InterestPostingService {
+
+    public static final String JOB_NAME = "INTEREST_POSTING";
+
+    private static final DateTimeFormatter REFERENCE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String BACKFILL_PERIOD_END_SQL =
+        "UPDATE accounts SET next_interest_posting_date = ? " +
+        "WHERE account_type_id = ? AND next_interest_posting_date IS NULL AND status <> 'CLOSED'";
+
+    private static final String BACKFILL_MATURITY_SQL =
+        "UPDATE accounts SET next_interest_posting_date = maturity_date " +
+        "WHERE account_type_id = ? AND next_interest_posting_date IS NULL AND maturity_date IS NOT NULL " +
+        "AND status <> 'CLOSED' AND NOT EXISTS (SELECT 1 FROM interest_postings p " +
+        "WHERE p.account_id = accounts.id AND p.period_end = accounts.maturity_date)";
+
+    private static final String CHUNK_SQL =
+        "SELECT a.id, a.currency, (COALESCE(a.accrued_interest, 0) * 100)::bigint AS accrued_minor, " +
+        "       a.next_interest_posting_date, t.interest_posting_frequency " +
+        "FROM accounts a JOIN account_types t ON t.id = a.account_type_id " +
+        "WHERE a.id > ? AND a.id <= ? AND a.next_interest_posting_date <= ? " +
+        "  AND a.status IN ('ACTIVE', 'DORMANT', 'FROZEN', 'BLOCKED') " +
+        "ORDER BY a.id LIMIT ?";
+
+    /** Time deposits at maturity: the period ends on the maturity date whatever the posting frequency. */
+    private static final String MATURED_SQL =
+        "SELECT id, currency, (COALESCE(accrued_interest, 0) * 100)::bigint AS accrued_minor, maturity_date " +
+        "FROM accounts WHERE id = ANY(?) AND accrued_interest > 0 ORDER BY id";
+
+    private static final String CLAIM_PERIODS_SQL =
+        "INSERT INTO interest_postings (account_id, period_end, gross_amount, tax_amount, reference, posted_at) " +
+        "SELECT t.account_id, t.period_end, t.gross / 100.0, t.tax / 100.0, t.reference, now() " +
+        "FROM unnest(?::bigint[], ?::date[], ?::bigint[], ?::bigint[], ?::varchar[]) " +
+        "  AS t(account_id, period_end, gross, tax, reference) " +
+        "ON CONFLICT (account_id, period_end) DO NOTHING RETURNING account_id";
+
+    private static final String ADVANCE_SQL =
+        "UPDATE accounts SET accrued_interest = accrued_interest - ? / 100.0, next_interest_posting_date = ? " +
+        "WHERE id = ?";
+
+    private final PartitionedBatchRunner batchRunner;
+    private final LedgerService ledgerService;
+    private final ReferenceDataCache referenceDataCache;
+    private final AccountLookupCache accountLookupCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private final long withholdingTaxRate;
+    private final String expenseGlCode;
+    private final String withholdingTaxGlCode;
+
+    public InterestPostingService(PartitionedBatchRunner batchRunner,
+                                  LedgerService ledgerService,
+                                  ReferenceDataCache referenceDataCache,
+                                  AccountLookupCache accountLookupCache,
+                                  JdbcTemplate jdbcTemplate,
+                                  @Value("${app.interest.chunk-size:2000}") int chunkSize,
+                                  @Value("${app.interest.withholding-tax-rate:0.2000}") BigDecimal withholdingTaxRate,
+                                  @Value("${app.interest.expense-gl-code:INT-EXPENSE}") String expenseGlCode,
+                                  @Value("${app.interest.withholding-tax-gl-code:WHT-PAYABLE}") String withholdingTaxGlCode) {
+        this.batchRunner = batchRunner;
+        this.ledgerService = ledgerService;
+        this.referenceDataCache = referenceDataCache;
+        this.accountLookupCache = accountLookupCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.withholdingTaxRate = MoneyMath.toRateUnits(withholdingTaxRate);
+        this.expenseGlCode = expenseGlCode;
+        this.withholdingTaxGlCode = withholdingTaxGlCode;
+    }
+
+    @Scheduled(cron = "${app.interest.posting-cron:-}")
+    public void scheduledPosting() {
+        post(LocalDate.now());
+    }
+
+    /**
+     * Capitalize interest of every account whose posting date is on or before the business date.
+     * 将入账日不晚于营业日的账户利息入账
+     */
+    public BatchRunSummaryDTO post(LocalDate businessDate) {
+        backfillPostingDates(businessDate);
+        return batchRunner.run(JOB_NAME, businessDate, (afterId, rangeEnd) -> postChunk(businessDate, afterId, rangeEnd));
+    }
+
+    /**
+     * First period end after {@code date} (inclusive) for a posting frequency.
+     * 计算不早于指定日期的计息期末
+     */
+    public static LocalDate periodEnd(LocalDate date, PostingFrequency frequency) {
+        return switch (frequency) {
+            case DAILY -> date;
+            case MONTHLY -> date.with(TemporalAdjusters.lastDayOfMonth());
+            case QUARTERLY -> date.withMonth(date.getMonth().firstMonthOfQuarter().getValue() + 2)
+                .with(TemporalAdjusters.lastDayOfMonth());
+            case SEMI_ANNUALLY -> date.getMonthValue() <= 6
+                ? LocalDate.of(date.getYear(), Month.JUNE, 30)
+                : LocalDate.of(date.getYear(), Month.DECEMBER, 31);
+            case ANNUALLY -> LocalDate.of(date.getYear(), Month.DECEMBER, 31);
+            case AT_MATURITY -> null;
+        };
+    }
+
+    /**
+     * Give accounts without a posting date (new accounts, new products) their first one.
+     * One set-based UPDATE per account type; AT_MATURITY accounts already posted at maturity
+     * are left without one. The updates bypass the event path, so the lookup cache is cleared
+     * when any row changed.
+     */
+    private void backfillPostingDates(LocalDate businessDate) {
+        int updated = 0;
+        for (AccountType type : referenceDataCache.getActiveAccountTypes()) {
+            PostingFrequency frequency = type.getInterestPostingFrequency();
+            if (frequency == null) {
+                continue;
+            }
+            updated += frequency == PostingFrequency.AT_MATURITY
+                ? jdbcTemplate.update(BACKFILL_MATURITY_SQL, type.getId())
+                : jdbcTemplate.update(BACKFILL_PERIOD_END_SQL, periodEnd(businessDate, frequency), type.getId());
+        }
+        if (updated > 0) {
+            log.info("Assigned first interest posting date to {} accounts / 已设置首个利息入账日", updated);
+            accountLookupCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Capitalize the interest accrued up to maturity of the given time deposits, inside the
+     * caller's transaction, booked on the business date. Returns the number of accounts posted.
+     * 定期存款到期时将已计提利息入账（在调用方事务内）
+     */
+    public int postAtMaturity(List<Long> accountIds, LocalDate businessDate) {
+        if (accountIds.isEmpty()) {
+            return 0;
+        }
+        List<DueAccount> due = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(MATURED_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> new DueAccount(
+            rs.getLong("id"),
+            rs.getString("currency"),
+            rs.getLong("accrued_minor"),
+            rs.getObject("maturity_date", LocalDate.class),
+            null));
+        return due.isEmpty() ? 0 : capitalize(due, businessDate);
+    }
+
+    private PartitionedBatchRunner.Chunk postChunk(LocalDate businessDate, long afterId, long rangeEnd) {
+        List<DueAccount> due = jdbcTemplate.query(CHUNK_SQL, (rs, rowNum) -> {
+                String frequency = rs.getString("interest_posting_frequency");
+                return new DueAccount(
+                    rs.getLong("id"),
+                    rs.getString("currency"),
+                    rs.getLong("accrued_minor"),
+                    rs.getObject("next_interest_posting_date", LocalDate.class),
+                    nextPostingDate(frequency != null ? PostingFrequency.valueOf(frequency) : null, businessDate));
+            },
+            afterId, rangeEnd, businessDate, chunkSize);
+        if (due.isEmpty()) {
+            return null;
+        }
+        return new PartitionedBatchRunner.Chunk(due.get(due.size() - 1).id, capitalize(due, businessDate));
+    }
+
+    /**
+     * Post the accrued interest of the accounts on the business date and move each to its next
+     * posting date.
+     */
+    private int capitalize(List<DueAccount> due, LocalDate businessDate) {
+        int n = due.size();
+        long[] gross = new long[n];
+        long[] tax = new long[n];
+        for (int i = 0; i < n; i++) {
+            gross[i] = Math.max(0, due.get(i).accruedMinor);
+        }
+        MoneyMath.applyRate(gross, withholdingTaxRate, tax, n);
+
+        Set<Long> claimed = claimPeriods(due, gross, tax);
+        List<PostingRequest> postings = new ArrayList<>();
+        List<Object[]> advances = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            DueAccount account = due.get(i);
+            boolean post = gross[i] > 0 && claimed.contains(account.id);
+            if (post) {
+                postings.add(toPosting(account, gross[i], tax[i]));
+            }
+            advances.add(new Object[]{post ? gross[i] : 0L, account.nextPostingDate, account.id});
+        }
+        if (!postings.isEmpty()) {
+            ledgerService.postBatch(postings, null, PostingPolicy.SYSTEM, businessDate);
+        }
+        jdbcTemplate.batchUpdate(ADVANCE_SQL, advances);
+        return postings.size();
+    }
+
+    /**
+     * Record the periods being posted; returns the accounts whose period was not posted before.
+     */
+    private Set<Long> claimPeriods(List<DueAccount> due, long[] gross, long[] tax) {
+        List<Long> accountIds = new ArrayList<>();
+        List<java.sql.Date> periodEnds = new ArrayList<>();
+        List<Long> grossAmounts = new ArrayList<>();
+        List<Long> taxAmounts = new ArrayList<>();
+        List<String> references = new ArrayList<>();
+        for (int i = 0; i < due.size(); i++) {
+            if (gross[i] > 0) {
+                DueAccount account = due.get(i);
+                accountIds.add(account.id);
+                periodEnds.add(java.sql.Date.valueOf(account.periodEnd));
+                grossAmounts.add(gross[i]);
+                taxAmounts.add(tax[i]);
+                references.add(reference(account));
+            }
+        }
+        Set<Long> claimed = new HashSet<>();
+        if (accountIds.isEmpty()) {
+            return claimed;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CLAIM_PERIODS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            ps.setArray(2, con.createArrayOf("date", periodEnds.toArray()));
+            ps.setArray(3, con.createArrayOf("bigint", grossAmounts.toArray()));
+            ps.setArray(4, con.createArrayOf("bigint", taxAmounts.toArray()));
+            ps.setArray(5, con.createArrayOf("varchar", references.toArray()));
+            return ps;
+        }, rs -> {
+            claimed.add(rs.getLong("account_id"));
+        });
+        return claimed;
+    }
+
+    private PostingRequest toPosting(DueAccount account, long grossMinor, long taxMinor) {
+        List<Leg> legs = new ArrayList<>(3);
+        legs.add(Leg.builder().glCode(expenseGlCode).direction(Direction.DEBIT)
+            .amount(MoneyMath.fromMinor(grossMinor)).build());
+        legs.add(Leg.builder().accountId(account.id).direction(Direction.CREDIT)
+            .amount(MoneyMath.fromMinor(grossMinor - taxMinor)).build());
+        if (taxMinor > 0) {
+            legs.add(Leg.builder().glCode(withholdingTaxGlCode).direction(Direction.CREDIT)
+                .amount(MoneyMath.fromMinor(taxMinor)).build());
+        }
+        return PostingRequest.builder()
+            .reference(reference(account))
+            .txnType("INTEREST_POSTING")
+            .description("Interest for period ending " + account.periodEnd + " / 利息入账")
+            .currency(account.currency)
+            .legs(legs)
+            .build();
+    }
+
+    /**
+     * Next posting date strictly after the business date; null for AT_MATURITY (posted once).
+     */
+    private static LocalDate nextPostingDate(PostingFrequency frequency, LocalDate businessDate) {
+        if (frequency == null || frequency == PostingFrequency.AT_MATURITY) {
+            return null;
+        }
+        return periodEnd(businessDate.plusDays(1), frequency);
+    }
+
+    private static String reference(DueAccount account) {
+        return "INT-" + account.id + "-" + account.periodEnd.format(REFERENCE_DATE);
+    }
+
+    private record DueAccount(long id, String currency, long accruedMinor, LocalDate periodEnd,
+                              LocalDate nextPostingDate) {
+    }
+}
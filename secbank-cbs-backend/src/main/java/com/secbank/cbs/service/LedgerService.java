@@ -0,0 +1,500 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.config.LedgerSchemaInitializer;
+import com.secbank.cbs.dto.JournalLineDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.dto.PostingResultDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ledger Service / 账务服务
+ * Double-entry posting into the partitioned journal. A batch of entries is posted in one
+ * transaction: the touched accounts are locked once in id order, balances are computed in
+ * memory, then journal rows and balance updates go out as JDBC batches. Three round trips
+ * per batch regardless of its size, and a consistent lock order means no deadlocks between
+ * concurrent batches.
+ * 复式记账：一个事务内按ID顺序一次锁定账户，内存计算余额，再以JDBC批量写入日志与余额
+ */
+@Service
+@Slf4j
+public class LedgerService {
+
+    private static final String LOCK_ACCOUNTS_SQL =
+        "SELECT id, account_number, status, currency, current_balance, available_balance, hold_balance, " +
+        "       overdraft_limit, allow_debit, allow_credit, branch_id, account_type_id, open_date " +
+        "FROM accounts WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+
+    private static final String EXISTING_REFERENCES_SQL =
+        "SELECT reference FROM journal_entries WHERE entry_date = ? AND reference = ANY(?)";
+
+    private static final String NEXT_IDS_SQL =
+        "SELECT nextval('journal_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_ENTRY_SQL =
+        "INSERT INTO journal_entries (id, entry_date, reference, txn_type, description, currency, " +
+        "total_amount, posted_at, posted_by) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LINE_SQL =
+        "INSERT INTO journal_lines (id, entry_id, entry_date, line_no, account_id, gl_code, direction, " +
+        "amount, balance_after) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_BALANCE_SQL =
+        "UPDATE accounts SET current_balance = ?, available_balance = ?, last_transaction_date = ?, " +
+        "updated_at = ? WHERE id = ?";
+
+    /** Bank-initiated postings are not customer activity, so they leave last_transaction_date (dormancy) alone. */
+    private static final String UPDATE_SYSTEM_BALANCE_SQL =
+        "UPDATE accounts SET current_balance = ?, available_balance = ?, updated_at = ? WHERE id = ?";
+
+    private static final String ACCOUNT_LINES_SQL =
+        "SELECT l.id, l.entry_id, l.entry_date, e.reference, e.txn_type, e.description, l.account_id, " +
+        "       l.gl_code, l.direction, l.amount, l.balance_after, e.posted_at " +
+        "FROM journal_lines l " +
+        "JOIN journal_entries e ON e.id = l.entry_id AND e.entry_date = l.entry_date " +
+        "WHERE l.account_id = ? AND l.entry_date BETWEEN ? AND ? " +
+        "ORDER BY l.entry_date, l.id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<PostingEngine> postingEngine;
+    private final DailyLimitService dailyLimitService;
+    private final Timer batchTimer;
+    private final Counter postedEntries;
+
+    public LedgerService(JdbcTemplate jdbcTemplate,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         ObjectProvider<PostingEngine> postingEngine,
+                         DailyLimitService dailyLimitService,
+                         LedgerSchemaInitializer schemaInitializer) {
+        // schemaInitializer is only injected so the journal tables exist before the first posting
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.postingEngine = postingEngine;
+        this.dailyLimitService = dailyLimitService;
+        this.batchTimer = Timer.builder("ledger.post.batch")
+            .description("Time to post one batch of journal entries")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.postedEntries = Counter.builder("ledger.entries.posted")
+            .description("Journal entries posted")
+            .register(meterRegistry);
+    }
+
+    /**
+     * How strictly account legs are checked / 账户分录校验级别
+     */
+    public enum PostingPolicy {
+        /** Customer-initiated: status, debit/credit flags, available balance plus overdraft and daily limits. */
+        ENFORCE_LIMITS,
+        /** Bank-initiated (fees, interest, maturity): only closed accounts and currency are checked. */
+        SYSTEM
+    }
+
+    /**
+     * Post a single balanced entry.
+     * 过账单笔平衡分录
+     */
+    @Transactional
+    public PostingResultDTO post(PostingRequest request, Long postedBy) {
+        return postBatch(List.of(request), postedBy, PostingPolicy.ENFORCE_LIMITS).get(0);
+    }
+
+    /**
+     * Post a batch of balanced entries atomically with customer limits enforced.
+     * 原子性过账一批平衡分录（校验客户限制）
+     */
+    @Transactional
+    public List<PostingResultDTO> postBatch(List<PostingRequest> requests, Long postedBy) {
+        return postBatch(requests, postedBy, PostingPolicy.ENFORCE_LIMITS);
+    }
+
+    /**
+     * Post a batch of balanced entries atomically, booked today.
+     * 原子性过账一批平衡分录（记账日期为当日）
+     */
+    @Transactional
+    public List<PostingResultDTO> postBatch(List<PostingRequest> requests, Long postedBy, PostingPolicy policy) {
+        return postBatch(requests, postedBy, policy, LocalDate.now());
+    }
+
+    /**
+     * Post a batch of balanced entries atomically under the given entry date. End-of-day jobs
+     * pass their business date, so a run after midnight or a rerun for an earlier day books its
+     * interest, fees and maturities on the day they belong to.
+     * 按指定记账日期原子性过账一批平衡分录（日终批处理传入营业日）
+     */
+    @Transactional
+    public List<PostingResultDTO> postBatch(List<PostingRequest> requests, Long postedBy, PostingPolicy policy,
+                                            LocalDate entryDate) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        LocalDateTime postedAt = LocalDateTime.now();
+
+        int lineCount = 0;
+        for (PostingRequest request : requests) {
+            validateBalanced(request);
+            lineCount += request.getLegs().size();
+        }
+        checkReferences(requests, entryDate);
+
+        Map<Long, LockedAccount> accounts = lockAccounts(requests);
+        Iterator<Long> ids = nextIds(requests.size() + lineCount).iterator();
+
+        List<Object[]> entryRows = new ArrayList<>(requests.size());
+        List<Object[]> lineRows = new ArrayList<>(lineCount);
+        List<PostingResultDTO> results = new ArrayList<>(requests.size());
+
+        for (PostingRequest request : requests) {
+            long entryId = ids.next();
+            String reference = request.getReference() != null ? request.getReference() : "JE" + entryId;
+            BigDecimal total = BigDecimal.ZERO;
+            Set<Long> touched = new LinkedHashSet<>();
+            short lineNo = 0;
+
+            if (policy == PostingPolicy.ENFORCE_LIMITS) {
+                reserveDailyLimits(request, accounts, entryDate);
+            }
+            for (Leg leg : request.getLegs()) {
+                BigDecimal balanceAfter = null;
+                if (leg.getAccountId() != null) {
+                    LockedAccount account = accounts.get(leg.getAccountId());
+                    checkLeg(account, leg, request.getCurrency(), policy);
+                    account.apply(leg.getDirection(), leg.getAmount());
+                    balanceAfter = account.currentBalance;
+                    touched.add(account.id);
+                }
+                if (leg.getDirection() == Direction.DEBIT) {
+                    total = total.add(leg.getAmount());
+                }
+                lineRows.add(new Object[]{ids.next(), entryId, entryDate, ++lineNo, leg.getAccountId(),
+                    leg.getGlCode(), leg.getDirection().code(), leg.getAmount(), balanceAfter});
+            }
+
+            entryRows.add(new Object[]{entryId, entryDate, reference, request.getTxnType(), request.getDescription(),
+                request.getCurrency(), total, Timestamp.valueOf(postedAt), postedBy});
+            results.add(PostingResultDTO.builder()
+                .entryId(entryId)
+                .reference(reference)
+                .entryDate(entryDate)
+                .totalAmount(total)
+                .balances(touched.stream()
+                    .map(id -> PostingResultDTO.AccountBalance.builder()
+                        .accountId(id)
+                        .currentBalance(accounts.get(id).currentBalance)
+                        .availableBalance(accounts.get(id).availableBalance)
+                        .build())
+                    .toList())
+                .build());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entryRows);
+        jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lineRows);
+        writeBalances(accounts.values(), postedAt, policy);
+
+        List<AccountChangedEvent.Change> changes = accounts.values().stream()
+            .filter(LockedAccount::isChanged)
+            .map(a -> new AccountChangedEvent.Change(a.before, a.snapshot()))
+            .toList();
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new AccountChangedEvent(changes));
+        }
+
+        postedEntries.increment(requests.size());
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.debug("Posted {} journal entries ({} lines) / 已过账{}笔分录", requests.size(), lineCount, requests.size());
+        return results;
+    }
+
+    /**
+     * Journal lines of one account within a date range (partition-pruned by entry_date).
+     * 查询账户在日期范围内的日志分录（按entry_date分区裁剪）
+     */
+    @Transactional(readOnly = true)
+    public List<JournalLineDTO> getAccountLines(Long accountId, LocalDate from, LocalDate to, int limit) {
+        return jdbcTemplate.query(ACCOUNT_LINES_SQL, (rs, rowNum) -> JournalLineDTO.builder()
+                .lineId(rs.getLong("id"))
+                .entryId(rs.getLong("entry_id"))
+                .entryDate(rs.getObject("entry_date", LocalDate.class))
+                .reference(rs.getString("reference"))
+                .txnType(rs.getString("txn_type"))
+                .description(rs.getString("description"))
+                .accountId(rs.getLong("account_id"))
+                .glCode(rs.getString("gl_code"))
+                .direction(rs.getString("direction"))
+                .amount(rs.getBigDecimal("amount"))
+                .balanceAfter(rs.getBigDecimal("balance_after"))
+                .postedAt(rs.getObject("posted_at", LocalDateTime.class))
+                .build(),
+            accountId, from, to, limit);
+    }
+
+    static void validateBalanced(PostingRequest request) {
+        // Internal callers bypass bean validation, so the essentials are checked here as well
+        if (request.getTxnType() == null || request.getCurrency() == null
+                || request.getLegs() == null || request.getLegs().size() < 2) {
+            throw new BusinessException("Entry needs a type, a currency and at least two legs / 分录须有类型、币种及至少两条分录");
+        }
+        BigDecimal debits = BigDecimal.ZERO;
+        BigDecimal credits = BigDecimal.ZERO;
+        for (Leg leg : request.getLegs()) {
+            if ((leg.getAccountId() == null) == (leg.getGlCode() == null)) {
+                throw new BusinessException("Each leg needs exactly one of accountId or glCode / 每条分录须且仅须指定账户或总账科目");
+            }
+            if (leg.getDirection() == null || leg.getAmount() == null || leg.getAmount().signum() <= 0) {
+                throw new BusinessException("Leg needs a direction and a positive amount / 分录须有借贷方向及正数金额");
+            }
+            if (leg.getAmount().stripTrailingZeros().scale() > 2) {
+                throw new BusinessException("Leg amount " + leg.getAmount() + " has more than 2 decimals / 分录金额超过两位小数");
+            }
+            if (leg.getDirection() == Direction.DEBIT) {
+                debits = debits.add(leg.getAmount());
+            } else {
+                credits = credits.add(leg.getAmount());
+            }
+        }
+        if (debits.compareTo(credits) != 0) {
+            throw new BusinessException("Entry is not balanced: debits " + debits + " != credits " + credits +
+                " / 分录借贷不平衡");
+        }
+    }
+
+    private void checkReferences(List<PostingRequest> requests, LocalDate entryDate) {
+        Set<String> references = new HashSet<>();
+        for (PostingRequest request : requests) {
+            if (request.getReference() != null && !references.add(request.getReference())) {
+                throw new BusinessException("Duplicate reference in batch: " + request.getReference() +
+                    " / 批次内参考号重复");
+            }
+        }
+        if (references.isEmpty()) {
+            return;
+        }
+        List<String> existing = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXISTING_REFERENCES_SQL);
+            ps.setObject(1, entryDate);
+            ps.setArray(2, con.createArrayOf("varchar", references.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1));
+        if (!existing.isEmpty()) {
+            throw new BusinessException("Reference already posted: " + existing.get(0) + " / 参考号已过账");
+        }
+    }
+
+    private Map<Long, LockedAccount> lockAccounts(List<PostingRequest> requests) {
+        SortedSet<Long> ids = new TreeSet<>();
+        for (PostingRequest request : requests) {
+            for (Leg leg : request.getLegs()) {
+                if (leg.getAccountId() != null) {
+                    ids.add(leg.getAccountId());
+                }
+            }
+        }
+        Map<Long, LockedAccount> accounts = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return accounts;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_ACCOUNTS_SQL);
+            Array array = con.createArrayOf("bigint", ids.toArray());
+            ps.setArray(1, array);
+            return ps;
+        }, rs -> {
+            LockedAccount account = new LockedAccount(
+                rs.getLong("id"),
+                rs.getString("account_number"),
+                AccountStatus.valueOf(rs.getString("status")),
+                rs.getString("currency"),
+                rs.getBigDecimal("current_balance"),
+                rs.getBigDecimal("hold_balance"),
+                rs.getBigDecimal("overdraft_limit"),
+                rs.getObject("allow_debit", Boolean.class),
+                rs.getObject("allow_credit", Boolean.class),
+                rs.getLong("branch_id"),
+                rs.getLong("account_type_id"),
+                rs.getObject("open_date", LocalDate.class));
+            accounts.put(account.id, account);
+        });
+        for (Long id : ids) {
+            if (!accounts.containsKey(id)) {
+                throw new ResourceNotFoundException("Account", "id", id);
+            }
+        }
+        return accounts;
+    }
+
+    private void checkLeg(LockedAccount account, Leg leg, String currency, PostingPolicy policy) {
+        if (!account.currency.equals(currency)) {
+            throw new BusinessException("Currency mismatch on account " + account.accountNumber + " / 账户币种不符");
+        }
+        if (account.status == AccountStatus.CLOSED) {
+            throw new BusinessException("Account " + account.accountNumber + " is closed / 账户已关闭");
+        }
+        if (policy == PostingPolicy.SYSTEM) {
+            return;
+        }
+        if (leg.getDirection() == Direction.DEBIT) {
+            if (account.status != AccountStatus.ACTIVE) {
+                throw new BusinessException("Account " + account.accountNumber + " is " + account.status +
+                    " and cannot be debited / 账户状态不允许借记");
+            }
+            if (!account.allowDebit) {
+                throw new BusinessException("Debits are not allowed on account " + account.accountNumber + " / 账户不允许借记");
+            }
+            // Checked against the running balance so several legs in one batch cannot overdraw together
+            if (account.availableBalance.add(account.overdraftLimit).add(engineDebits(account.id))
+                    .compareTo(leg.getAmount()) < 0) {
+                throw new BusinessException("Insufficient funds on account " + account.accountNumber + " / 账户余额不足");
+            }
+        } else {
+            if (account.status == AccountStatus.PENDING || account.status == AccountStatus.BLOCKED) {
+                throw new BusinessException("Account " + account.accountNumber + " is " + account.status +
+                    " and cannot be credited / 账户状态不允许贷记");
+            }
+            if (!account.allowCredit) {
+                throw new BusinessException("Credits are not allowed on account " + account.accountNumber + " / 账户不允许贷记");
+            }
+        }
+    }
+
+    /**
+     * Take daily limit usage for each debited account of the entry. Released by the
+     * limit service itself if the posting transaction rolls back.
+     */
+    private void reserveDailyLimits(PostingRequest request, Map<Long, LockedAccount> accounts, LocalDate entryDate) {
+        if (dailyLimitService.categoryOf(request.getTxnType()) == null) {
+            return;
+        }
+        Map<Long, BigDecimal> debits = new LinkedHashMap<>();
+        for (Leg leg : request.getLegs()) {
+            if (leg.getAccountId() != null && leg.getDirection() == Direction.DEBIT) {
+                debits.merge(leg.getAccountId(), leg.getAmount(), BigDecimal::add);
+            }
+        }
+        debits.forEach((accountId, amount) -> dailyLimitService.reserve(accountId,
+            accounts.get(accountId).before.getAccountTypeId(), request.getTxnType(), entryDate,
+            amount.movePointRight(2).longValueExact()));
+    }
+
+    /**
+     * Debits the posting engine has journalled but not yet written to the account row. Only
+     * debits are counted: a flush racing with this read can then only make the check stricter.
+     */
+    private BigDecimal engineDebits(long accountId) {
+        PostingEngine engine = postingEngine.getIfAvailable();
+        if (engine == null) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(Math.min(0L, engine.unflushedDelta(accountId)), 2);
+    }
+
+    private List<Long> nextIds(int count) {
+        return jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, count);
+    }
+
+    private void writeBalances(Collection<LockedAccount> accounts, LocalDateTime postedAt, PostingPolicy policy) {
+        Timestamp ts = Timestamp.valueOf(postedAt);
+        boolean system = policy == PostingPolicy.SYSTEM;
+        List<Object[]> rows = new ArrayList<>(accounts.size());
+        for (LockedAccount account : accounts) {
+            if (account.isChanged()) {
+                rows.add(system
+                    ? new Object[]{account.currentBalance, account.availableBalance, ts, account.id}
+                    : new Object[]{account.currentBalance, account.availableBalance, ts, ts, account.id});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(system ? UPDATE_SYSTEM_BALANCE_SQL : UPDATE_BALANCE_SQL, rows);
+        }
+    }
+
+    /**
+     * Account row held under FOR UPDATE for the duration of the batch.
+     */
+    private static final class LockedAccount {
+        final long id;
+        final String accountNumber;
+        final AccountStatus status;
+        final String currency;
+        final BigDecimal holdBalance;
+        final BigDecimal overdraftLimit;
+        final boolean allowDebit;
+        final boolean allowCredit;
+        final AccountSnapshot before;
+        BigDecimal currentBalance;
+        BigDecimal availableBalance;
+
+        LockedAccount(long id, String accountNumber, AccountStatus status, String currency,
+                      BigDecimal currentBalance, BigDecimal holdBalance, BigDecimal overdraftLimit,
+                      Boolean allowDebit, Boolean allowCredit, long branchId, long accountTypeId, LocalDate openDate) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.status = status;
+            this.currency = currency;
+            this.currentBalance = currentBalance;
+            this.holdBalance = holdBalance != null ? holdBalance : BigDecimal.ZERO;
+            this.overdraftLimit = overdraftLimit != null ? overdraftLimit : BigDecimal.ZERO;
+            this.availableBalance = currentBalance.subtract(this.holdBalance);
+            this.allowDebit = !Boolean.FALSE.equals(allowDebit);
+            this.allowCredit = !Boolean.FALSE.equals(allowCredit);
+            this.before = AccountSnapshot.builder()
+                .accountId(id)
+                .accountNumber(accountNumber)
+                .status(status)
+                .branchId(branchId)
+                .accountTypeId(accountTypeId)
+                .currency(currency)
+                .currentBalance(currentBalance)
+                .openDate(openDate)
+                .build();
+        }
+
+        void apply(Direction direction, BigDecimal amount) {
+            currentBalance = direction == Direction.CREDIT ? currentBalance.add(amount) : currentBalance.subtract(amount);
+            availableBalance = currentBalance.subtract(holdBalance);
+        }
+
+        boolean isChanged() {
+            return currentBalance.compareTo(before.getCurrentBalance()) != 0;
+        }
+
+        AccountSnapshot snapshot() {
+            return AccountSnapshot.builder()
+                .accountId(id)
+                .accountNumber(accountNumber)
+                .status(status)
+                .branchId(before.getBranchId())
+                .accountTypeId(before.getAccountTypeId())
+                .currency(currency)
+                .currentBalance(currentBalance)
+                .openDate(before.getOpenDate())
+                .build();
+        }
+    }
+}
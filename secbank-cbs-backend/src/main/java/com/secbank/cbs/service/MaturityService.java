@@ -0,0 +1,228 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maturity Service / 定期存款到期处理服务
+ * Processes time deposits whose {@code maturity_date} is on or before the business date, so
+ * deposits maturing over a weekend or holiday are picked up by the next run. Runs on the
+ * {@link PartitionedBatchRunner} (parallel id-range partitions, restartable checkpoints) with
+ * the selection served by the {@code maturity_date} index. Per chunk: interest accrued up to
+ * maturity is capitalized, then the maturity instruction is applied in batches:
+ * <ul>
+ *   <li>AUTO_RENEW (and any other instruction): renew the balance as the new principal for
+ *       the account type's current {@code termDays} at its current rate.</li>
+ *   <li>CREDIT_TO_ACCOUNT: pay the balance out to the settlement account in one ledger batch
+ *       and close the deposit. Deposits under hold, or whose settlement account is missing,
+ *       closed or in another currency, are renewed instead.</li>
+ * </ul>
+ * Renewed deposits move to a maturity date after the business date and closed ones leave the
+ * ACTIVE status, so a processed deposit is never selected again.
+ * 处理到期日不晚于营业日的定期存款：先将利息入账，再按到期指示自动续存或转入结算账户并销户
+ */
+@Service
+@Slf4j
+public class MaturityService {
+
+    public static final String JOB_NAME = "TD_MATURITY";
+
+    public static final String AUTO_RENEW = "AUTO_RENEW";
+    public static final String CREDIT_TO_ACCOUNT = "CREDIT_TO_ACCOUNT";
+
+    private static final DateTimeFormatter REFERENCE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String CHUNK_SQL =
+        "SELECT a.id, a.maturity_date, a.maturity_instruction, COALESCE(a.hold_balance, 0) > 0 AS under_hold, " +
+        "       t.term_days, t.interest_rate AS type_rate, " +
+        "       s.id IS NOT NULL AND s.currency = a.currency AND s.status IN ('ACTIVE', 'DORMANT') AS settlement_ok " +
+        "FROM accounts a JOIN account_types t ON t.id = a.account_type_id " +
+        "LEFT JOIN accounts s ON s.id = a.maturity_credit_account_id " +
+        "WHERE a.id > ? AND a.id <= ? AND a.maturity_date <= ? AND a.status = 'ACTIVE' " +
+        "  AND t.category = 'TIME_DEPOSIT' " +
+        "ORDER BY a.id LIMIT ?";
+
+    /** Principal is taken after interest capitalization, so renewal compounds the interest. */
+    private static final String RENEW_SQL =
+        "UPDATE accounts SET principal_amount = current_balance, maturity_date = ?, interest_rate = ?, " +
+        "interest_rate_override = NULL, next_interest_posting_date = NULL, updated_at = now() WHERE id = ?";
+
+    private static final String RENEWED_SQL =
+        "SELECT " + HoldService.SNAPSHOT_COLUMNS + " FROM accounts a WHERE a.id = ANY(?)";
+
+    private static final String PAYOUT_SQL =
+        "SELECT id, currency, current_balance, maturity_date, maturity_credit_account_id " +
+        "FROM accounts WHERE id = ANY(?) ORDER BY id";
+
+    private static final String CLOSE_SQL =
+        "UPDATE accounts a SET status = 'CLOSED', close_date = ?, status_reason = ?, updated_at = now() " +
+        "WHERE a.id = ANY(?) RETURNING " + HoldService.SNAPSHOT_COLUMNS;
+
+    private final PartitionedBatchRunner batchRunner;
+    private final InterestPostingService interestPostingService;
+    private final LedgerService ledgerService;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public MaturityService(PartitionedBatchRunner batchRunner,
+                           InterestPostingService interestPostingService,
+                           LedgerService ledgerService,
+                           JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${app.maturity.chunk-size:1000}") int chunkSize) {
+        this.batchRunner = batchRunner;
+        this.interestPostingService = interestPostingService;
+        this.ledgerService = ledgerService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${app.maturity.cron:-}")
+    public void scheduledMaturity() {
+        process(LocalDate.now());
+    }
+
+    /**
+     * Process every time deposit matured on or before the business date.
+     * 处理截至营业日到期的定期存款
+     */
+    public BatchRunSummaryDTO process(LocalDate businessDate) {
+        return batchRunner.run(JOB_NAME, businessDate, (afterId, rangeEnd) -> processChunk(businessDate, afterId, rangeEnd));
+    }
+
+    private PartitionedBatchRunner.Chunk processChunk(LocalDate businessDate, long afterId, long rangeEnd) {
+        List<MaturedDeposit> matured = jdbcTemplate.query(CHUNK_SQL, (rs, rowNum) -> new MaturedDeposit(
+                rs.getLong("id"),
+                rs.getObject("maturity_date", LocalDate.class),
+                rs.getString("maturity_instruction"),
+                rs.getBoolean("under_hold"),
+                rs.getObject("term_days", Integer.class),
+                rs.getBigDecimal("type_rate"),
+                rs.getBoolean("settlement_ok")),
+            afterId, rangeEnd, businessDate, chunkSize);
+        if (matured.isEmpty()) {
+            return null;
+        }
+
+        interestPostingService.postAtMaturity(matured.stream().map(MaturedDeposit::id).toList(), businessDate);
+
+        List<Long> payouts = new ArrayList<>();
+        List<Object[]> renewals = new ArrayList<>();
+        List<Long> renewed = new ArrayList<>();
+        for (MaturedDeposit deposit : matured) {
+            if (CREDIT_TO_ACCOUNT.equals(deposit.instruction) && !deposit.underHold && deposit.settlementOk) {
+                payouts.add(deposit.id);
+            } else if (deposit.termDays != null && deposit.termDays > 0) {
+                renewals.add(new Object[]{renewedMaturity(deposit, businessDate), deposit.typeRate, deposit.id});
+                renewed.add(deposit.id);
+            } else {
+                log.warn("Time deposit {} matured on {} but its account type has no term; left for manual handling / 定期存款无期限，需人工处理",
+                    deposit.id, deposit.maturityDate);
+            }
+        }
+        if (!renewals.isEmpty()) {
+            jdbcTemplate.batchUpdate(RENEW_SQL, renewals);
+            publishRenewed(renewed);
+        }
+        if (!payouts.isEmpty()) {
+            payOut(payouts, businessDate);
+        }
+        return new PartitionedBatchRunner.Chunk(matured.get(matured.size() - 1).id, renewals.size() + payouts.size());
+    }
+
+    /**
+     * Renewal changes the principal, rate and maturity date but not the status or balance; the
+     * event carries the same snapshot on both sides so the account caches drop the renewed
+     * deposits after commit while the aggregates see no delta.
+     * 续存后发布账户变更事件，使缓存在提交后失效
+     */
+    private void publishRenewed(List<Long> accountIds) {
+        List<AccountSnapshot> snapshots = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RENEWED_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            return ps;
+        }, HoldService.SNAPSHOT_MAPPER);
+        eventPublisher.publishEvent(new AccountChangedEvent(snapshots.stream()
+            .map(s -> new AccountChangedEvent.Change(s, s))
+            .toList()));
+    }
+
+    /**
+     * Move the balances to the settlement accounts as one ledger batch and close the deposits.
+     */
+    private void payOut(List<Long> accountIds, LocalDate businessDate) {
+        List<PostingRequest> postings = new ArrayList<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(PAYOUT_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", accountIds.toArray()));
+            return ps;
+        }, rs -> {
+            BigDecimal balance = rs.getBigDecimal("current_balance");
+            if (balance.signum() <= 0) {
+                return;
+            }
+            long id = rs.getLong("id");
+            postings.add(PostingRequest.builder()
+                .reference("MAT-" + id + "-" + rs.getObject("maturity_date", LocalDate.class).format(REFERENCE_DATE))
+                .txnType("TD_MATURITY")
+                .description("Time deposit maturity proceeds / 定期存款到期转账")
+                .currency(rs.getString("currency"))
+                .legs(List.of(
+                    Leg.builder().accountId(id).direction(Direction.DEBIT).amount(balance).build(),
+                    Leg.builder().accountId(rs.getLong("maturity_credit_account_id")).direction(Direction.CREDIT)
+                        .amount(balance).build()))
+                .build());
+        });
+        if (!postings.isEmpty()) {
+            ledgerService.postBatch(postings, null, PostingPolicy.SYSTEM, businessDate);
+        }
+
+        List<AccountSnapshot> closed = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CLOSE_SQL);
+            ps.setObject(1, businessDate);
+            ps.setString(2, "Matured, proceeds credited to settlement account / 到期转入结算账户");
+            ps.setArray(3, con.createArrayOf("bigint", accountIds.toArray()));
+            return ps;
+        }, HoldService.SNAPSHOT_MAPPER);
+        eventPublisher.publishEvent(new AccountChangedEvent(closed.stream()
+            .map(s -> new AccountChangedEvent.Change(s.withStatus(AccountStatus.ACTIVE), s))
+            .toList()));
+    }
+
+    /**
+     * Next maturity one term after the previous one, skipping whole terms that have already
+     * passed so the renewed deposit always matures after the business date.
+     */
+    private static LocalDate renewedMaturity(MaturedDeposit deposit, LocalDate businessDate) {
+        LocalDate maturity = deposit.maturityDate.plusDays(deposit.termDays);
+        while (!maturity.isAfter(businessDate)) {
+            maturity = maturity.plusDays(deposit.termDays);
+        }
+        return maturity;
+    }
+
+    private record MaturedDeposit(long id, LocalDate maturityDate, String instruction, boolean underHold,
+                                  Integer termDays, BigDecimal typeRate, boolean settlementOk) {
+    }
+}
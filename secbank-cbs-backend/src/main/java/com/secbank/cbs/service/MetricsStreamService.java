@@ -0,0 +1,339 @@
+package com.secbank.cbs.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secbank.cbs.dto.AccountStatsDTO;
+import com.secbank.cbs.dto.DashboardStatsDTO;
+import com.secbank.cbs.dto.MetricsFrameDTO;
+import com.secbank.cbs.entity.Customer.CustomerStatus;
+import com.secbank.cbs.entity.Customer.CustomerType;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AuditLoggedEvent;
+import com.secbank.cbs.event.CustomersImportedEvent;
+import com.secbank.cbs.event.StatusChangedEvent;
+import com.secbank.cbs.repository.CustomerRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Metrics Stream Service / 指标推送服务
+ * Single producer of dashboard and account metrics for Server-Sent Events subscribers.
+ * The producer computes one snapshot per change and serialises it once; each subscriber
+ * is a parked virtual thread that wakes on a new frame and writes the pre-rendered JSON,
+ * so the aggregate query cost does not grow with the number of open dashboards.
+ * Customer counts are kept from status events between reconciles, so a customer change does
+ * not rescan the customers table; the grouped count runs only every {@code full-refresh-ms}.
+ * 单一生产者计算指标快照并只序列化一次，每个订阅者由虚拟线程推送；客户计数由状态事件增量维护，仅定期全量校准
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MetricsStreamService {
+
+    private final DashboardService dashboardService;
+    private final AccountStatsService accountStatsService;
+    private final CustomerRepository customerRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.metrics-stream.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.metrics-stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${app.metrics-stream.full-refresh-ms:60000}")
+    private long fullRefreshMs;
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final ReentrantLock frameLock = new ReentrantLock();
+    private final Condition frameAvailable = frameLock.newCondition();
+
+    /** Pre-filled with every constant and never restructured, so concurrent reads are safe. */
+    private final Map<CustomerStatus, AtomicLong> customersByStatus = counters(CustomerStatus.class);
+    private final Map<CustomerType, AtomicLong> customersByType = counters(CustomerType.class);
+    private volatile boolean customerCountsLoaded;
+
+    private volatile Frame currentFrame;
+    private volatile long lastComputedAt;
+
+    /**
+     * Register a new subscriber. It receives the latest full snapshot first, then deltas.
+     * 注册订阅者：先推送完整快照，之后推送增量
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), emitter);
+        subscribers.put(subscriber.id, subscriber);
+
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        Thread.ofVirtual().name("metrics-sse-" + subscriber.id).start(subscriber);
+        log.debug("Metrics stream subscriber {} connected, {} active / 指标订阅者已连接", subscriber.id, subscribers.size());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(StatusChangedEvent event) {
+        if ("Customer".equals(event.getEntityType())) {
+            applyCustomerChange(event);
+        }
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomersImported(CustomersImportedEvent event) {
+        if (customerCountsLoaded) {
+            event.getImportedByType().forEach((type, count) -> {
+                customersByStatus.get(CustomerStatus.ACTIVE).addAndGet(count);
+                customersByType.get(type).addAndGet(count);
+            });
+        }
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAuditLogged(AuditLoggedEvent event) {
+        dirty.set(true);
+    }
+
+    /**
+     * Producer tick. Recomputes only when something changed (or periodically, to pick up
+     * changes made outside the application) and only while someone is listening.
+     * 生产者：仅在有变更且有订阅者时重新计算
+     */
+    @Scheduled(fixedDelayString = "${app.metrics-stream.interval-ms:1000}")
+    public void produce() {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        boolean due = System.currentTimeMillis() - lastComputedAt >= fullRefreshMs;
+        if (!dirty.getAndSet(false) && !due && currentFrame != null) {
+            return;
+        }
+
+        Map<String, Object> metrics = computeMetrics(due);
+        lastComputedAt = System.currentTimeMillis();
+
+        Frame previous = currentFrame;
+        Map<String, Object> delta = new LinkedHashMap<>();
+        metrics.forEach((key, value) -> {
+            if (previous == null || !Objects.equals(previous.metrics.get(key), value)) {
+                delta.put(key, value);
+            }
+        });
+        if (previous != null && delta.isEmpty()) {
+            return;
+        }
+
+        long version = previous != null ? previous.version + 1 : 1;
+        LocalDateTime now = LocalDateTime.now();
+        Frame frame = new Frame(version, metrics,
+            render(new MetricsFrameDTO(version, "SNAPSHOT", metrics, now)),
+            render(new MetricsFrameDTO(version, "DELTA", delta, now)));
+
+        frameLock.lock();
+        try {
+            currentFrame = frame;
+            frameAvailable.signalAll();
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(s -> s.emitter.complete());
+        subscribers.clear();
+    }
+
+    private Map<String, Object> computeMetrics(boolean reconcile) {
+        DashboardStatsDTO dashboard = dashboardService.getStats();
+        AccountStatsDTO accounts = accountStatsService.getAccountStats();
+        if (reconcile || !customerCountsLoaded) {
+            reloadCustomerCounts();
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("users.total", dashboard.getTotalUsers());
+        metrics.put("users.active", dashboard.getActiveUsers());
+        metrics.put("roles.total", dashboard.getTotalRoles());
+        metrics.put("branches.total", dashboard.getTotalBranches());
+        metrics.put("branches.active", dashboard.getActiveBranches());
+        metrics.put("permissions.total", dashboard.getTotalPermissions());
+        metrics.put("auditLogs.today", dashboard.getTodayAuditLogs());
+        metrics.put("auditLogs.total", dashboard.getTotalAuditLogs());
+        metrics.put("accounts.active", accounts.getTotalActive());
+        metrics.put("accounts.dormant", accounts.getTotalDormant());
+        metrics.put("accounts.frozen", accounts.getTotalFrozen());
+        metrics.put("accounts.closed", accounts.getTotalClosed());
+        metrics.put("accounts.activeBalance", accounts.getTotalActiveBalance());
+        metrics.put("customers.active", customersByStatus.get(CustomerStatus.ACTIVE).get());
+        metrics.put("customers.inactive", customersByStatus.get(CustomerStatus.INACTIVE).get());
+        metrics.put("customers.blocked", customersByStatus.get(CustomerStatus.BLOCKED).get());
+        metrics.put("customers.individual", customersByType.get(CustomerType.INDIVIDUAL).get());
+        metrics.put("customers.corporate", customersByType.get(CustomerType.CORPORATE).get());
+        return metrics;
+    }
+
+    /**
+     * Reconcile the customer counters with one grouped count.
+     * 以一次分组统计校准客户计数
+     */
+    private void reloadCustomerCounts() {
+        Map<CustomerStatus, Long> byStatus = new EnumMap<>(CustomerStatus.class);
+        Map<CustomerType, Long> byType = new EnumMap<>(CustomerType.class);
+        for (CustomerRepository.StatusTypeCount row : customerRepository.countGroupedByStatusAndType()) {
+            byStatus.merge(row.getStatus(), row.getTotal(), Long::sum);
+            byType.merge(row.getCustomerType(), row.getTotal(), Long::sum);
+        }
+        customersByStatus.forEach((status, counter) -> counter.set(byStatus.getOrDefault(status, 0L)));
+        customersByType.forEach((type, counter) -> counter.set(byType.getOrDefault(type, 0L)));
+        customerCountsLoaded = true;
+    }
+
+    /**
+     * Move one customer between the counters. A creation or deletion without the customer
+     * type cannot be attributed, so it forces a reconcile on the next tick instead.
+     */
+    private void applyCustomerChange(StatusChangedEvent event) {
+        if (!customerCountsLoaded) {
+            return;
+        }
+        if (event.getOldStatus() != null) {
+            customersByStatus.get(CustomerStatus.valueOf(event.getOldStatus())).decrementAndGet();
+        }
+        if (event.getNewStatus() != null) {
+            customersByStatus.get(CustomerStatus.valueOf(event.getNewStatus())).incrementAndGet();
+        }
+        if (event.isCreated() || event.isDeleted()) {
+            if (event.getCategory() == null) {
+                customerCountsLoaded = false;
+                return;
+            }
+            AtomicLong byType = customersByType.get(CustomerType.valueOf(event.getCategory()));
+            if (event.isCreated()) {
+                byType.incrementAndGet();
+            } else {
+                byType.decrementAndGet();
+            }
+        }
+    }
+
+    private static <E extends Enum<E>> Map<E, AtomicLong> counters(Class<E> type) {
+        Map<E, AtomicLong> counters = new EnumMap<>(type);
+        for (E constant : type.getEnumConstants()) {
+            counters.put(constant, new AtomicLong());
+        }
+        return counters;
+    }
+
+    private String render(MetricsFrameDTO frame) {
+        try {
+            return objectMapper.writeValueAsString(frame);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize metrics frame", e);
+        }
+    }
+
+    private Frame awaitFrameAfter(long version) throws InterruptedException {
+        frameLock.lock();
+        try {
+            Frame frame = currentFrame;
+            if (frame == null || frame.version <= version) {
+                frameAvailable.await(heartbeatMs, TimeUnit.MILLISECONDS);
+                frame = currentFrame;
+            }
+            return frame;
+        } finally {
+            frameLock.unlock();
+        }
+    }
+
+    private record Frame(long version, Map<String, Object> metrics, String snapshotJson, String deltaJson) {
+    }
+
+    /**
+     * One connected dashboard. Runs on its own virtual thread and sends a delta when it is
+     * exactly one frame behind, or the full snapshot when it has fallen further behind.
+     */
+    private final class Subscriber implements Runnable {
+
+        private final long id;
+        private final SseEmitter emitter;
+        private volatile boolean open = true;
+
+        private Subscriber(long id, SseEmitter emitter) {
+            this.id = id;
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void run() {
+            long sent = 0;
+            try {
+                while (open) {
+                    Frame frame = awaitFrameAfter(sent);
+                    if (!open) {
+                        break;
+                    }
+                    if (frame == null || frame.version <= sent) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                        continue;
+                    }
+                    boolean consecutive = sent > 0 && frame.version == sent + 1;
+                    emitter.send(SseEmitter.event()
+                        .id(String.valueOf(frame.version))
+                        .name(consecutive ? "delta" : "snapshot")
+                        .data(consecutive ? frame.deltaJson : frame.snapshotJson, MediaType.APPLICATION_JSON));
+                    sent = frame.version;
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Metrics stream subscriber {} disconnected: {}", id, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            if (open) {
+                open = false;
+                subscribers.remove(id);
+            }
+        }
+    }
+}
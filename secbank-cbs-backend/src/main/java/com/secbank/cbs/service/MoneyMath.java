@@ -0,0 +1,125 @@
+package com.secbank.cbs.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Money Math / 定点金额运算
+ * Allocation-free arithmetic for batch jobs. Amounts are {@code long} minor units (centavos,
+ * scale 2) and rates are {@code long} units of 1/10000 (scale 4, the scale of every rate
+ * column), so {@code 0.0250} is {@code 250}. Every operation forms the exact product first and
+ * rounds once, half-even, at the end: the result is identical to computing the same formula
+ * in {@link BigDecimal} and calling {@code setScale(2, RoundingMode.HALF_EVEN)}. Products that
+ * would overflow a long fall back to {@link BigInteger}, so the guarantee has no range limit.
+ * <p>
+ * The array kernels take a chunk of accounts as parallel primitive arrays and write results
+ * into a caller-owned output array, so a chunk is computed without creating any objects.
+ * 批处理定点运算：金额以分（long）表示、利率以万分之一（long）表示；先求精确积再一次性银行家舍入，结果与BigDecimal一致
+ */
+public final class MoneyMath {
+
+    public static final int AMOUNT_SCALE = 2;
+    public static final int RATE_SCALE = 4;
+    /** A rate of 1.0 in rate units / 利率1.0对应的单位数 */
+    public static final long RATE_ONE = 10_000L;
+
+    private MoneyMath() {
+    }
+
+    /**
+     * Amount to minor units; the amount must have at most two decimals.
+     * 金额转为最小货币单位
+     */
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, AMOUNT_SCALE);
+    }
+
+    /**
+     * Rate to rate units; the rate must have at most four decimals.
+     * 利率转为万分之一单位
+     */
+    public static long toRateUnits(BigDecimal rate) {
+        return rate.setScale(RATE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * {@code numerator / divisor} rounded half-even; {@code divisor} must be positive.
+     * 银行家舍入除法
+     */
+    public static long divideHalfEven(long numerator, long divisor) {
+        long quotient = numerator / divisor;
+        long remainder = numerator % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        // |remainder| < divisor, so comparing against the half without doubling cannot overflow
+        long abs = Math.abs(remainder);
+        long rest = divisor - abs;
+        if (abs > rest || (abs == rest && (quotient & 1) != 0)) {
+            quotient += numerator < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * {@code amount * rate}, e.g. a withholding tax, in minor units.
+     * 金额乘以利率（如代扣税）
+     */
+    public static long applyRate(long amountMinor, long rateUnits) {
+        long product = amountMinor * rateUnits;
+        if (Math.multiplyHigh(amountMinor, rateUnits) != (product >> 63)) {
+            return exact(BigInteger.valueOf(amountMinor).multiply(BigInteger.valueOf(rateUnits)), RATE_ONE);
+        }
+        return divideHalfEven(product, RATE_ONE);
+    }
+
+    /**
+     * Simple interest {@code balance * rate * days / basis} in minor units.
+     * 单利计息：余额 × 年利率 × 天数 / 计息基数
+     */
+    public static long accrual(long balanceMinor, long rateUnits, int days, int basis) {
+        long divisor = basis * RATE_ONE;
+        long partial = balanceMinor * rateUnits;
+        if (Math.multiplyHigh(balanceMinor, rateUnits) == (partial >> 63)) {
+            long product = partial * days;
+            if (Math.multiplyHigh(partial, days) == (product >> 63)) {
+                return divideHalfEven(product, divisor);
+            }
+        }
+        return exact(BigInteger.valueOf(balanceMinor)
+            .multiply(BigInteger.valueOf(rateUnits))
+            .multiply(BigInteger.valueOf(days)), divisor);
+    }
+
+    /**
+     * Accrual for a chunk: {@code out[i] = accrual(balances[i], rates[i], days[i], basis)} for
+     * {@code i < count}.
+     * 批量计息
+     */
+    public static void accrual(long[] balances, long[] rates, int[] days, int basis, long[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = accrual(balances[i], rates[i], days[i], basis);
+        }
+    }
+
+    /**
+     * One rate over a chunk: {@code out[i] = applyRate(amounts[i], rateUnits)} for {@code i < count}.
+     * 批量按同一利率计算
+     */
+    public static void applyRate(long[] amounts, long rateUnits, long[] out, int count) {
+        for (int i = 0; i < count; i++) {
+            out[i] = applyRate(amounts[i], rateUnits);
+        }
+    }
+
+    private static long exact(BigInteger numerator, long divisor) {
+        return new BigDecimal(numerator)
+            .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_EVEN)
+            .longValueExact();
+    }
+}
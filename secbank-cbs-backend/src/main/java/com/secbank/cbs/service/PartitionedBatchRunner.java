@@ -0,0 +1,206 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.entity.BatchCheckpoint;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.repository.BatchCheckpointRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Partitioned Batch Runner / 分区批处理执行器
+ * Runs an account batch job as parallel partitions over contiguous account-id ranges. Each
+ * partition walks its range in keyset chunks; every chunk and its checkpoint advance commit
+ * in one transaction, so a failed or killed run restarted for the same business date picks
+ * up after the last committed chunk and never processes a row twice. The partition layout of
+ * a run is fixed by its first start and reused on restart.
+ * 按账户ID区间并行分区执行批处理；每个数据块与检查点同事务提交，重启后从断点继续且不重复处理
+ */
+@Service
+@Slf4j
+public class PartitionedBatchRunner {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    private static final String ACCOUNT_ID_RANGE_SQL =
+        "SELECT COALESCE(MIN(id), 0) AS min_id, COALESCE(MAX(id), 0) AS max_id FROM accounts";
+
+    private static final String INSERT_CHECKPOINT_SQL =
+        "INSERT INTO batch_checkpoints (job_name, business_date, partition_no, range_start, range_end, last_id, " +
+        "processed, status, updated_at) VALUES (?, ?, ?, ?, ?, ?, 0, 'RUNNING', now()) " +
+        "ON CONFLICT (job_name, business_date, partition_no) DO NOTHING";
+
+    private static final String ADVANCE_CHECKPOINT_SQL =
+        "UPDATE batch_checkpoints SET last_id = ?, processed = processed + ?, updated_at = now() " +
+        "WHERE job_name = ? AND business_date = ? AND partition_no = ?";
+
+    private static final String COMPLETE_CHECKPOINT_SQL =
+        "UPDATE batch_checkpoints SET status = 'COMPLETED', updated_at = now() " +
+        "WHERE job_name = ? AND business_date = ? AND partition_no = ?";
+
+    /**
+     * Processes one chunk of a partition inside the chunk's transaction.
+     * 在数据块事务内处理一个数据块
+     */
+    @FunctionalInterface
+    public interface ChunkProcessor {
+        /**
+         * Process up to one chunk of rows with id in {@code (afterId, rangeEnd]}, in id order.
+         * Returns null when no rows remain in the range.
+         */
+        Chunk process(long afterId, long rangeEnd);
+    }
+
+    /**
+     * Result of one chunk: the last id it covered and how many rows it changed.
+     */
+    public record Chunk(long lastId, int processed) {
+    }
+
+    private final BatchCheckpointRepository checkpointRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int partitions;
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+
+    public PartitionedBatchRunner(BatchCheckpointRepository checkpointRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.batch.partitions:8}") int partitions) {
+        this.checkpointRepository = checkpointRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Run (or resume) a job over all accounts for a business date.
+     * 针对营业日运行（或续跑）账户批处理
+     */
+    public BatchRunSummaryDTO run(String jobName, LocalDate businessDate, ChunkProcessor processor) {
+        if (!runningJobs.add(jobName)) {
+            throw new BusinessException("Batch job " + jobName + " is already running / 批处理正在运行");
+        }
+        long start = System.nanoTime();
+        try {
+            List<BatchCheckpoint> checkpoints = preparePartitions(jobName, businessDate);
+            AtomicLong processed = new AtomicLong();
+            AtomicInteger resumed = new AtomicInteger();
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, checkpoints.size()),
+                    Thread.ofPlatform().name(jobName.toLowerCase() + "-", 0).factory())) {
+                for (BatchCheckpoint checkpoint : checkpoints) {
+                    if (STATUS_COMPLETED.equals(checkpoint.getStatus())) {
+                        continue;
+                    }
+                    if (checkpoint.getLastId() > checkpoint.getRangeStart()) {
+                        resumed.incrementAndGet();
+                    }
+                    executor.execute(() -> {
+                        try {
+                            processed.addAndGet(runPartition(checkpoint, processor));
+                        } catch (RuntimeException e) {
+                            log.error("Batch {} partition {} failed: {}", jobName, checkpoint.getPartitionNo(), e.getMessage(), e);
+                            failures.add(e);
+                        }
+                    });
+                }
+            }
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Timer.builder("batch.run").tag("job", jobName).register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+            if (!failures.isEmpty()) {
+                throw new BusinessException("Batch " + jobName + " failed in " + failures.size() +
+                    " partition(s), rerun to resume / 批处理部分分区失败，重新运行将从断点继续", failures.get(0));
+            }
+            log.info("Batch {} for {} processed {} rows in {} ms / 批处理完成", jobName, businessDate, processed.get(), durationMs);
+            return BatchRunSummaryDTO.builder()
+                .jobName(jobName)
+                .businessDate(businessDate)
+                .partitions(checkpoints.size())
+                .resumedPartitions(resumed.get())
+                .processed(processed.get())
+                .durationMs(durationMs)
+                .build();
+        } finally {
+            runningJobs.remove(jobName);
+        }
+    }
+
+    /**
+     * Checkpoints of a run, in partition order.
+     * 查询运行检查点
+     */
+    public List<BatchCheckpoint> getCheckpoints(String jobName, LocalDate businessDate) {
+        return checkpointRepository.findByJobNameAndBusinessDateOrderByPartitionNo(jobName, businessDate);
+    }
+
+    private List<BatchCheckpoint> preparePartitions(String jobName, LocalDate businessDate) {
+        List<BatchCheckpoint> existing = getCheckpoints(jobName, businessDate);
+        if (!existing.isEmpty()) {
+            return existing;
+        }
+        long[] range = jdbcTemplate.queryForObject(ACCOUNT_ID_RANGE_SQL,
+            (rs, rowNum) -> new long[]{rs.getLong("min_id"), rs.getLong("max_id")});
+        if (range == null || range[1] == 0) {
+            return List.of();
+        }
+        long span = range[1] - range[0] + 1;
+        int count = (int) Math.min(partitions, span);
+        long size = (span + count - 1) / count;
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long rangeStart = range[0] - 1 + i * size;
+            long rangeEnd = Math.min(range[1], rangeStart + size);
+            rows.add(new Object[]{jobName, businessDate, i, rangeStart, rangeEnd, rangeStart});
+        }
+        jdbcTemplate.batchUpdate(INSERT_CHECKPOINT_SQL, rows);
+        return getCheckpoints(jobName, businessDate);
+    }
+
+    private long runPartition(BatchCheckpoint checkpoint, ChunkProcessor processor) {
+        String jobName = checkpoint.getJobName();
+        LocalDate businessDate = checkpoint.getBusinessDate();
+        int partitionNo = checkpoint.getPartitionNo();
+        long afterId = checkpoint.getLastId();
+        long total = 0;
+        while (afterId < checkpoint.getRangeEnd()) {
+            long from = afterId;
+            Chunk chunk = transactionTemplate.execute(status -> {
+                Chunk result = processor.process(from, checkpoint.getRangeEnd());
+                if (result != null) {
+                    jdbcTemplate.update(ADVANCE_CHECKPOINT_SQL, result.lastId(), result.processed(),
+                        jobName, businessDate, partitionNo);
+                }
+                return result;
+            });
+            if (chunk == null) {
+                break;
+            }
+            afterId = chunk.lastId();
+            total += chunk.processed();
+        }
+        jdbcTemplate.update(COMPLETE_CHECKPOINT_SQL, jobName, businessDate, partitionNo);
+        return total;
+    }
+}
@@ -24,15 +24,14 @@ import java.util.stream.Collectors;
 public class PermissionService {
 
     private final PermissionRepository permissionRepository;
+    private final ReferenceDataCache referenceDataCache;
 
     /**
      * Get all permissions.
      * 获取所有权限
      */
     public List<PermissionDTO> getAllPermissions() {
-        return permissionRepository.findAll().stream()
-            .map(this::toDTO)
-            .collect(Collectors.toList());
+        return referenceDataCache.getPermissions();
     }
 
     /**
@@ -40,9 +39,7 @@ public class PermissionService {
      * 按模块分组获取权限
      */
     public Map<String, List<PermissionDTO>> getPermissionsByModule() {
-        return permissionRepository.findAll().stream()
-            .map(this::toDTO)
-            .collect(Collectors.groupingBy(PermissionDTO::getModule));
+        return referenceDataCache.getPermissionsByModule();
     }
 
     /**
@@ -78,14 +75,6 @@ public class PermissionService {
      * 将实体转换为DTO
      */
     private PermissionDTO toDTO(Permission permission) {
-        return PermissionDTO.builder()
-            .id(permission.getId())
-            .permissionCode(permission.getPermissionCode())
-            .permissionName(permission.getPermissionName())
-            .permissionNameCn(permission.getPermissionNameCn())
-            .module(permission.getModule())
-            .description(permission.getDescription())
-            .descriptionCn(permission.getDescriptionCn())
-            .build();
+        return PermissionDTO.fromEntity(permission);
     }
 }
@@ -0,0 +1,1116 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.config.LedgerSchemaInitializer;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.dto.PostingResultDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * Posting Engine / 内存记账引擎
+ * Optional single-writer posting path for high-volume channels (ATM, mobile).
+ * <p>
+ * Accounts are partitioned across shards by id; each shard is one thread that owns the
+ * balances of its accounts in memory, so postings need no row lock. Callers hand postings
+ * to a shard through a bounded lock-free ring buffer. The shard drains the ring in batches,
+ * validates and applies each posting in memory, then writes the batch's journal rows in
+ * one transaction (group commit) and acknowledges the callers.
+ * <p>
+ * Balances are written behind: the net delta per account is flushed to {@code accounts}
+ * every {@code balance-flush-ms} together with a per-shard checkpoint (the last engine
+ * sequence included). On startup, journal entries after each checkpoint are replayed onto
+ * {@code accounts}, so a crash between group commit and balance flush loses nothing.
+ * <p>
+ * Scope: a posting handled here touches exactly one customer account plus GL legs.
+ * Account-to-account transfers stay on the transactional ledger, which sees the engine's
+ * unflushed debits through {@link #unflushedDelta(Long)}. Only one node may run the engine;
+ * this is enforced with a PostgreSQL advisory lock.
+ * <p>
+ * With {@code app.posting-engine.wal.enabled}, each shard also appends its postings to a local
+ * memory-mapped {@link PostingWal} and acknowledges callers after one fsync per batch, before
+ * the database round trip. Only transient database failures are retried after that; an entry
+ * the database refuses outright is posted to the suspense GL code instead, so the acknowledged
+ * account movement is never lost. WAL records hold complete entries, and those not yet in the
+ * database journal are re-posted as they were on startup.
+ * <p>
+ * 可选的单写者记账引擎：账户按ID分片，每个分片一个线程在内存中持有余额；经无锁环形缓冲区提交，
+ * 批量组提交日志后确认；余额按检查点异步回写，启动时从日志重放
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.posting-engine", name = "enabled", havingValue = "true")
+@Slf4j
+public class PostingEngine implements SmartLifecycle {
+
+    private static final String LOAD_ACCOUNT_SQL =
+        "SELECT id, account_number, status, currency, current_balance, hold_balance, overdraft_limit, " +
+        "       allow_debit, allow_credit, branch_id, account_type_id, open_date " +
+        "FROM accounts WHERE id = ?";
+
+    private static final String EXISTING_REFERENCES_SQL =
+        "SELECT reference FROM journal_entries WHERE entry_date = ? AND reference = ANY(?)";
+
+    private static final String NEXT_IDS_SQL =
+        "SELECT nextval('journal_seq') FROM generate_series(1, ?)";
+
+    private static final String INSERT_ENTRY_SQL =
+        "INSERT INTO journal_entries (id, entry_date, reference, txn_type, description, currency, " +
+        "total_amount, posted_at, posted_by, engine_shard, engine_seq) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LINE_SQL =
+        "INSERT INTO journal_lines (id, entry_id, entry_date, line_no, account_id, gl_code, direction, " +
+        "amount, balance_after) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String APPLY_DELTA_SQL =
+        "UPDATE accounts SET current_balance = current_balance + ?, available_balance = available_balance + ?, " +
+        "last_transaction_date = ?, updated_at = ? WHERE id = ?";
+
+    private static final String INIT_CHECKPOINT_SQL =
+        "INSERT INTO posting_engine_checkpoints (shard, last_engine_seq, updated_at) VALUES (?, 0, now()) " +
+        "ON CONFLICT (shard) DO NOTHING";
+
+    private static final String SAVE_CHECKPOINT_SQL =
+        "UPDATE posting_engine_checkpoints SET last_engine_seq = ?, updated_at = now() WHERE shard = ?";
+
+    private static final String LOCK_CHECKPOINT_SQL =
+        "SELECT last_engine_seq FROM posting_engine_checkpoints WHERE shard = ? FOR UPDATE";
+
+    private static final String MAX_SEQ_SQL =
+        "SELECT COALESCE(MAX(engine_seq), 0) FROM journal_entries WHERE engine_shard = ?";
+
+    private static final String ACCOUNT_CURRENCIES_SQL =
+        "SELECT id, currency FROM accounts WHERE id = ANY(?)";
+
+    /** Transaction type of entries moved to the suspense GL code. */
+    private static final String SUSPENSE_TXN_TYPE = "WAL_SUSPENSE";
+
+    private static final String REPLAY_SQL =
+        "SELECT l.account_id, SUM(CASE WHEN l.direction = 'C' THEN l.amount ELSE -l.amount END) AS delta " +
+        "FROM journal_lines l " +
+        "JOIN journal_entries e ON e.id = l.entry_id AND e.entry_date = l.entry_date " +
+        "WHERE e.engine_shard = ? AND e.engine_seq > ? AND e.engine_seq <= ? AND l.account_id IS NOT NULL " +
+        "GROUP BY l.account_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DataSource dataSource;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DailyLimitService dailyLimitService;
+
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final int maxUnflushedAccounts;
+    private final long advisoryLockKey;
+    private final Path walDirectory;
+    private final int walRecordsPerSegment;
+    private final String walRecoveryGlCode;
+    private final Timer walFsyncTimer;
+
+    private final Shard[] shards;
+    private final Timer groupCommitTimer;
+    private final Counter postedEntries;
+    private final Counter rejectedPostings;
+    private final Counter listenerFailures;
+
+    private volatile boolean running;
+    private Connection advisoryLockConnection;
+
+    public PostingEngine(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         DataSource dataSource,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         LedgerSchemaInitializer schemaInitializer,
+                         DailyLimitService dailyLimitService,
+                         @Value("${app.posting-engine.shards:4}") int shardCount,
+                         @Value("${app.posting-engine.ring-size:8192}") int ringSize,
+                         @Value("${app.posting-engine.batch-size:512}") int batchSize,
+                         @Value("${app.posting-engine.balance-flush-ms:200}") long balanceFlushMs,
+                         @Value("${app.posting-engine.max-unflushed-accounts:10000}") int maxUnflushedAccounts,
+                         @Value("${app.posting-engine.advisory-lock-key:7301}") long advisoryLockKey,
+                         @Value("${app.posting-engine.wal.enabled:false}") boolean walEnabled,
+                         @Value("${app.posting-engine.wal.directory:./data/wal}") String walDirectory,
+                         @Value("${app.posting-engine.wal.records-per-segment:262144}") int walRecordsPerSegment,
+                         @Value("${app.posting-engine.wal.recovery-gl-code:WAL-SUSPENSE}") String walRecoveryGlCode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.dailyLimitService = dailyLimitService;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(balanceFlushMs);
+        this.maxUnflushedAccounts = maxUnflushedAccounts;
+        this.advisoryLockKey = advisoryLockKey;
+        this.walDirectory = walEnabled ? Path.of(walDirectory) : null;
+        this.walRecordsPerSegment = walRecordsPerSegment;
+        this.walRecoveryGlCode = walRecoveryGlCode;
+        this.walFsyncTimer = Timer.builder("posting_engine.wal.fsync")
+            .description("Time to force one batch of WAL records to disk")
+            .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+            .register(meterRegistry);
+
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, ringSize);
+            Shard shard = shards[i];
+            Gauge.builder("posting_engine.ring.depth", shard.ring, RingBuffer::size)
+                .tag("shard", String.valueOf(i))
+                .description("Postings waiting in the shard ring buffer")
+                .register(meterRegistry);
+            Gauge.builder("posting_engine.unflushed.accounts", shard.unflushed, Map::size)
+                .tag("shard", String.valueOf(i))
+                .description("Accounts with balance changes not yet written to the accounts table")
+                .register(meterRegistry);
+        }
+        this.groupCommitTimer = Timer.builder("posting_engine.group_commit")
+            .description("Time to write one batch of journal rows")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.postedEntries = Counter.builder("posting_engine.entries.posted")
+            .description("Journal entries posted by the engine")
+            .register(meterRegistry);
+        this.rejectedPostings = Counter.builder("posting_engine.entries.rejected")
+            .description("Postings rejected by validation or back-pressure")
+            .register(meterRegistry);
+        this.listenerFailures = Counter.builder("posting_engine.listener.failures")
+            .description("Account change events of committed batches whose listeners failed")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Submit a posting. The future completes once its journal rows are committed.
+     * 提交记账；日志提交后完成
+     */
+    public CompletableFuture<PostingResultDTO> submit(PostingRequest request, Long postedBy) {
+        if (!running) {
+            throw new BusinessException("Posting engine is not running / 记账引擎未运行");
+        }
+        LedgerService.validateBalanced(request);
+        Long accountId = singleAccountOf(request);
+        if (walDirectory != null) {
+            checkWalFits(request);
+        }
+        Post post = new Post(request, postedBy, accountId, new CompletableFuture<>());
+        if (!shardFor(accountId).offer(post)) {
+            rejectedPostings.increment();
+            throw new BusinessException("Posting engine is busy, please retry / 记账引擎繁忙，请稍后重试");
+        }
+        return post.result();
+    }
+
+    /**
+     * Net change of an account's balance (in minor units) that the engine has committed to
+     * the journal but not yet written to {@code accounts}.
+     * 已提交日志但尚未回写账户表的余额变动（最小货币单位）
+     */
+    public long unflushedDelta(Long accountId) {
+        return shardFor(accountId).unflushed.getOrDefault(accountId, 0L);
+    }
+
+    /**
+     * Mark accounts changed by other paths (status change, hold, ledger posting) as stale. The
+     * mark is set before the writing thread returns, and the owning shard drops its copy before
+     * the next batch, so any posting submitted afterwards sees the change.
+     * 其他路径变更账户后同步标记引擎内存副本失效，下一批次前重新加载
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountChanged(AccountChangedEvent event) {
+        if (!running || AccountChangedEvent.SOURCE_POSTING_ENGINE.equals(event.getSource())) {
+            return;
+        }
+        for (AccountChangedEvent.Change change : event.getChanges()) {
+            // Marked even when not resident: the shard may be loading the pre-change row right now
+            shardFor(change.getAccountId()).stale.add(change.getAccountId());
+        }
+    }
+
+    @Override
+    public void start() {
+        acquireAdvisoryLock();
+        for (Shard shard : shards) {
+            jdbcTemplate.update(INIT_CHECKPOINT_SQL, shard.id);
+        }
+        // Replay every shard that ever ran, including ones beyond a reduced shard count
+        List<Integer> known = jdbcTemplate.queryForList("SELECT shard FROM posting_engine_checkpoints", Integer.class);
+        for (Integer shardId : known) {
+            long lastSeq = replay(shardId);
+            PostingWal wal = walDirectory != null
+                ? new PostingWal(walDirectory, shardId, walRecordsPerSegment, walFsyncTimer) : null;
+            if (wal != null) {
+                lastSeq = recoverFromWal(shardId, wal, lastSeq);
+            }
+            if (shardId < shards.length) {
+                shards[shardId].nextSeq = lastSeq + 1;
+                shards[shardId].committedSeq = lastSeq;
+                shards[shardId].wal = wal;
+            } else if (wal != null) {
+                wal.close();
+            }
+        }
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread = new Thread(shard, "posting-engine-" + shard.id);
+            shard.thread.start();
+        }
+        log.info("Posting engine started with {} shards / 记账引擎已启动", shards.length);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        releaseAdvisoryLock();
+        log.info("Posting engine stopped / 记账引擎已停止");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private Shard shardFor(Long accountId) {
+        return shards[(int) Math.floorMod(Long.hashCode(accountId) * 0x9E3779B9L, (long) shards.length)];
+    }
+
+    private static Long singleAccountOf(PostingRequest request) {
+        Long accountId = null;
+        for (Leg leg : request.getLegs()) {
+            if (leg.getAccountId() == null) {
+                continue;
+            }
+            if (accountId != null && !accountId.equals(leg.getAccountId())) {
+                throw new BusinessException("Engine postings may touch one customer account only / 引擎记账只能涉及一个客户账户");
+            }
+            accountId = leg.getAccountId();
+        }
+        if (accountId == null) {
+            throw new BusinessException("Engine postings need a customer account leg / 引擎记账须包含客户账户分录");
+        }
+        return accountId;
+    }
+
+    /** Rejected before acknowledgement: what the WAL cannot hold could not be recovered. */
+    private static void checkWalFits(PostingRequest request) {
+        boolean fits = request.getLegs().size() <= PostingWal.MAX_LEGS
+            && PostingWal.fits(request.getReference(), PostingWal.REFERENCE_BYTES)
+            && PostingWal.fits(request.getTxnType(), PostingWal.TXN_TYPE_BYTES)
+            && request.getLegs().stream().allMatch(leg -> PostingWal.fits(leg.getGlCode(), PostingWal.GL_CODE_BYTES));
+        if (!fits) {
+            throw new BusinessException("Engine postings need at most " + PostingWal.MAX_LEGS +
+                " legs and ASCII reference, type and GL codes / 引擎记账最多" + PostingWal.MAX_LEGS + "条分录且须为ASCII字符");
+        }
+    }
+
+    /**
+     * Connection loss, serialization failure, deadlock or timeout: worth retrying. Anything
+     * else (constraint violation, bad data) fails the same way again.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof DataAccessResourceFailureException || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null
+                    && (sql.getSQLState().startsWith("08") || sql.getSQLState().equals("40001")
+                        || sql.getSQLState().equals("40P01"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bring {@code accounts} up to date with the shard's journal entries after its checkpoint.
+     * Returns the shard's last engine sequence.
+     */
+    private long replay(int shardId) {
+        Long lastSeq = transactionTemplate.execute(status -> {
+            Long checkpoint = jdbcTemplate.queryForObject(LOCK_CHECKPOINT_SQL, Long.class, shardId);
+            Long maxSeq = jdbcTemplate.queryForObject(MAX_SEQ_SQL, Long.class, shardId);
+            if (maxSeq == null || checkpoint == null || maxSeq <= checkpoint) {
+                return checkpoint != null ? checkpoint : 0L;
+            }
+            List<Object[]> deltas = jdbcTemplate.query(REPLAY_SQL, (rs, rowNum) -> {
+                BigDecimal delta = rs.getBigDecimal("delta");
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                return new Object[]{delta, delta, now, now, rs.getLong("account_id")};
+            }, shardId, checkpoint, maxSeq);
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, deltas);
+            jdbcTemplate.update(SAVE_CHECKPOINT_SQL, maxSeq, shardId);
+            log.info("Posting engine shard {} replayed entries {}..{} onto {} accounts / 分片日志已重放",
+                shardId, checkpoint + 1, maxSeq, deltas.size());
+            return maxSeq;
+        });
+        return lastSeq != null ? lastSeq : 0L;
+    }
+
+    /**
+     * Re-post WAL records that never reached the database journal, with their original legs.
+     * A record whose reference was taken by another posting keeps its account legs and
+     * moves its GL legs to the suspense GL code under a generated reference.
+     * Returns the shard's last engine sequence.
+     */
+    private long recoverFromWal(int shardId, PostingWal wal, long lastSeq) {
+        List<PostingWal.WalRecord> records = wal.recover(lastSeq);
+        if (records.isEmpty()) {
+            return lastSeq;
+        }
+        for (PostingWal.WalRecord r : records) {
+            if (r.currency() == null || r.txnType() == null || r.reference() == null) {
+                throw new IllegalStateException("WAL record " + r.seq() + " of shard " + shardId + " is incomplete");
+            }
+        }
+        int[] suspended = {0};
+        Long recovered = transactionTemplate.execute(status -> {
+            Map<LocalDate, List<String>> referencesByDate = new HashMap<>();
+            records.forEach(r -> referencesByDate.computeIfAbsent(r.entryDate(), d -> new ArrayList<>()).add(r.reference()));
+            Set<String> taken = new HashSet<>();
+            referencesByDate.forEach((date, references) -> jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(EXISTING_REFERENCES_SQL);
+                ps.setObject(1, date);
+                ps.setArray(2, con.createArrayOf("varchar", references.toArray()));
+                return ps;
+            }, rs -> {
+                taken.add(date + "|" + rs.getString(1));
+            }));
+            int lineCount = records.stream().mapToInt(r -> r.legs().size()).sum();
+            Iterator<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, records.size() + lineCount).iterator();
+            List<Object[]> entryRows = new ArrayList<>();
+            List<Object[]> lineRows = new ArrayList<>();
+            Map<Long, Long> deltas = new TreeMap<>();
+            for (PostingWal.WalRecord r : records) {
+                LocalDate entryDate = r.entryDate();
+                // Also catches a reference repeated within the WAL, which the live path only finds at write time
+                boolean suspense = !taken.add(entryDate + "|" + r.reference());
+                long total = 0;
+                for (PostingWal.WalLeg leg : r.legs()) {
+                    if (leg.direction() == 'D') {
+                        total += leg.amountMinor();
+                    }
+                }
+                long entryId = ids.next();
+                entryRows.add(new Object[]{entryId, entryDate,
+                    suspense ? suspenseReference(shardId, r.seq()) : r.reference(),
+                    suspense ? SUSPENSE_TXN_TYPE : r.txnType(),
+                    suspense ? suspenseDescription(r.reference(), "reference already posted")
+                        : "Recovered from posting engine WAL / 从记账引擎预写日志恢复",
+                    r.currency(), fromMinor(total), Timestamp.valueOf(postedAtOf(r)), r.postedBy(), shardId, r.seq()});
+                short lineNo = 0;
+                for (PostingWal.WalLeg leg : r.legs()) {
+                    boolean accountLeg = leg.glCode() == null;
+                    lineRows.add(new Object[]{ids.next(), entryId, entryDate, ++lineNo,
+                        accountLeg ? r.accountId() : null,
+                        accountLeg ? null : suspense ? walRecoveryGlCode : leg.glCode(),
+                        String.valueOf(leg.direction()), fromMinor(leg.amountMinor()), null});
+                    if (accountLeg) {
+                        deltas.merge(r.accountId(), leg.direction() == 'C' ? leg.amountMinor() : -leg.amountMinor(),
+                            Long::sum);
+                    }
+                }
+                if (suspense) {
+                    suspended[0]++;
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entryRows);
+            jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lineRows);
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> balanceRows = new ArrayList<>();
+            deltas.forEach((accountId, delta) ->
+                balanceRows.add(new Object[]{fromMinor(delta), fromMinor(delta), now, now, accountId}));
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, balanceRows);
+            long maxSeq = records.get(records.size() - 1).seq();
+            jdbcTemplate.update(SAVE_CHECKPOINT_SQL, maxSeq, shardId);
+            return maxSeq;
+        });
+        log.warn("Posting engine shard {} recovered {} postings from WAL, {} of them to suspense GL {} / 已从预写日志恢复记账",
+            shardId, records.size(), suspended[0], walRecoveryGlCode);
+        return recovered != null ? recovered : lastSeq;
+    }
+
+    private static LocalDateTime postedAtOf(PostingWal.WalRecord r) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(r.timestampMillis()), ZoneId.systemDefault());
+    }
+
+    private static String suspenseReference(int shardId, long seq) {
+        return "WS" + shardId + "-" + seq;
+    }
+
+    private static String suspenseDescription(String reference, String reason) {
+        String description = "Suspense for " + reference + ": " + reason;
+        return description.length() > 255 ? description.substring(0, 255) : description;
+    }
+
+    private void acquireAdvisoryLock() {
+        try {
+            advisoryLockConnection = dataSource.getConnection();
+            try (PreparedStatement ps = advisoryLockConnection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                ps.setLong(1, advisoryLockKey);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || !rs.getBoolean(1)) {
+                        throw new IllegalStateException("Posting engine is already running on another node");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot acquire posting engine lock", e);
+        }
+    }
+
+    private void releaseAdvisoryLock() {
+        if (advisoryLockConnection == null) {
+            return;
+        }
+        try (Connection connection = advisoryLockConnection;
+             PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            ps.setLong(1, advisoryLockKey);
+            ps.execute();
+        } catch (SQLException e) {
+            log.warn("Could not release posting engine lock: {}", e.getMessage());
+        }
+        advisoryLockConnection = null;
+    }
+
+    private static long toMinor(BigDecimal amount) {
+        try {
+            return amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new BusinessException("Amount has more than two decimals / 金额小数位超过两位");
+        }
+    }
+
+    private static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, 2);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Shard
+    // ---------------------------------------------------------------------------------------
+
+    private record Post(PostingRequest request, Long postedBy, Long accountId,
+                        CompletableFuture<PostingResultDTO> result) {
+    }
+
+    /** A validated posting applied in memory, waiting for group commit. */
+    private record Applied(Post post, AccountState account, long seq, String reference,
+                           long balanceBefore, long balanceAfter, long delta, long total,
+                           DailyLimitService.Reservation limit) {
+    }
+
+    private final class Shard implements Runnable {
+
+        final int id;
+        final RingBuffer<Post> ring;
+        /** Resident accounts; owned by the shard thread. */
+        final Map<Long, AccountState> accounts = new HashMap<>();
+        /** Accounts changed outside the engine, dropped from {@link #accounts} before the next batch. */
+        final Set<Long> stale = ConcurrentHashMap.newKeySet();
+        /** Committed but not yet flushed balance deltas in minor units. */
+        final Map<Long, Long> unflushed = new ConcurrentHashMap<>();
+
+        volatile Thread thread;
+        volatile boolean parked;
+        PostingWal wal;
+        long nextSeq = 1;
+        long committedSeq;
+        long lastFlushNanos = System.nanoTime();
+
+        Shard(int id, int ringSize) {
+            this.id = id;
+            this.ring = new RingBuffer<>(ringSize);
+        }
+
+        boolean offer(Post post) {
+            if (!ring.offer(post)) {
+                return false;
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            List<Post> batch = new ArrayList<>(batchSize);
+            while (running || ring.size() > 0) {
+                Post post;
+                while (batch.size() < batchSize && (post = ring.poll()) != null) {
+                    batch.add(post);
+                }
+                // After polling: a change marked before a posting was submitted is always seen by it
+                evictStale();
+                if (batch.isEmpty()) {
+                    flushIfDue(false);
+                    parked = true;
+                    if (ring.size() == 0 && running) {
+                        LockSupport.parkNanos(this, flushIntervalNanos);
+                    }
+                    parked = false;
+                    continue;
+                }
+                try {
+                    process(batch);
+                } catch (RuntimeException e) {
+                    log.error("Posting engine shard {} failed a batch: {}", id, e.getMessage(), e);
+                    failBatch(batch, e);
+                }
+                batch.clear();
+                flushIfDue(false);
+            }
+            flushIfDue(true);
+            if (wal != null) {
+                wal.close();
+            }
+        }
+
+        private void evictStale() {
+            if (stale.isEmpty()) {
+                return;
+            }
+            for (Iterator<Long> it = stale.iterator(); it.hasNext(); ) {
+                accounts.remove(it.next());
+                it.remove();
+            }
+        }
+
+        /**
+         * Fail every posting of a batch that was not acknowledged yet, and drop the batch's
+         * accounts so their balances are reloaded from the database plus committed deltas.
+         */
+        private void failBatch(List<Post> batch, RuntimeException cause) {
+            BusinessException failure = new BusinessException("Posting failed, please retry / 记账失败，请重试", cause);
+            for (Post post : batch) {
+                if (post.result().completeExceptionally(failure)) {
+                    rejectedPostings.increment();
+                }
+                accounts.remove(post.accountId());
+            }
+        }
+
+        private void process(List<Post> batch) {
+            LocalDate entryDate = LocalDate.now();
+            Set<String> duplicates = existingReferences(batch, entryDate);
+            Set<String> seenReferences = new HashSet<>();
+            List<Applied> applied = new ArrayList<>(batch.size());
+
+            for (Post post : batch) {
+                String reference = post.request().getReference();
+                try {
+                    if (reference != null && (duplicates.contains(reference) || !seenReferences.add(reference))) {
+                        throw new BusinessException("Reference already posted: " + reference + " / 参考号已过账");
+                    }
+                    applied.add(apply(post, entryDate));
+                } catch (RuntimeException e) {
+                    rejectedPostings.increment();
+                    post.result().completeExceptionally(e);
+                }
+            }
+
+            if (!applied.isEmpty()) {
+                groupCommit(applied, entryDate);
+            }
+        }
+
+        private Applied apply(Post post, LocalDate entryDate) {
+            PostingRequest request = post.request();
+            AccountState account = resolve(post.accountId());
+            if (!account.currency.equals(request.getCurrency())) {
+                throw new BusinessException("Currency mismatch on account " + account.accountNumber + " / 账户币种不符");
+            }
+            long delta = 0;
+            long total = 0;
+            for (Leg leg : request.getLegs()) {
+                long amount = toMinor(leg.getAmount());
+                if (leg.getDirection() == Direction.DEBIT) {
+                    total += amount;
+                }
+                if (leg.getAccountId() != null) {
+                    delta += leg.getDirection() == Direction.CREDIT ? amount : -amount;
+                }
+            }
+            account.check(delta);
+            DailyLimitService.Reservation limit = delta < 0
+                ? dailyLimitService.reserve(account.id, account.accountTypeId, request.getTxnType(), entryDate, -delta)
+                : null;
+            long before = account.balance;
+            account.balance += delta;
+            long seq = nextSeq++;
+            String reference = request.getReference() != null ? request.getReference() : "EN" + id + "-" + seq;
+            return new Applied(post, account, seq, reference, before, account.balance, delta, total, limit);
+        }
+
+        private AccountState resolve(long accountId) {
+            AccountState state = accounts.get(accountId);
+            if (state != null) {
+                return state;
+            }
+            List<AccountState> loaded = jdbcTemplate.query(LOAD_ACCOUNT_SQL, (rs, rowNum) -> new AccountState(
+                rs.getLong("id"),
+                rs.getString("account_number"),
+                AccountStatus.valueOf(rs.getString("status")),
+                rs.getString("currency"),
+                toMinor(rs.getBigDecimal("current_balance")) + unflushed.getOrDefault(accountId, 0L),
+                rs.getBigDecimal("hold_balance") != null ? toMinor(rs.getBigDecimal("hold_balance")) : 0L,
+                rs.getBigDecimal("overdraft_limit") != null ? toMinor(rs.getBigDecimal("overdraft_limit")) : 0L,
+                !Boolean.FALSE.equals(rs.getObject("allow_debit", Boolean.class)),
+                !Boolean.FALSE.equals(rs.getObject("allow_credit", Boolean.class)),
+                rs.getLong("branch_id"),
+                rs.getLong("account_type_id"),
+                rs.getObject("open_date", LocalDate.class)), accountId);
+            if (loaded.isEmpty()) {
+                throw new ResourceNotFoundException("Account", "id", accountId);
+            }
+            state = loaded.get(0);
+            accounts.put(accountId, state);
+            return state;
+        }
+
+        private Set<String> existingReferences(List<Post> batch, LocalDate entryDate) {
+            List<String> references = new ArrayList<>();
+            for (Post post : batch) {
+                if (post.request().getReference() != null) {
+                    references.add(post.request().getReference());
+                }
+            }
+            if (references.isEmpty()) {
+                return Set.of();
+            }
+            return new HashSet<>(jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(EXISTING_REFERENCES_SQL);
+                ps.setObject(1, entryDate);
+                ps.setArray(2, con.createArrayOf("varchar", references.toArray()));
+                return ps;
+            }, (rs, rowNum) -> rs.getString(1)));
+        }
+
+        private void groupCommit(List<Applied> applied, LocalDate entryDate) {
+            if (wal != null) {
+                walCommit(applied, entryDate);
+                return;
+            }
+            directCommit(applied, entryDate);
+        }
+
+        private void directCommit(List<Applied> applied, LocalDate entryDate) {
+            try {
+                writeJournal(applied, entryDate, null);
+            } catch (RuntimeException e) {
+                rollback(applied, e);
+                log.error("Posting engine shard {} group commit failed: {}", id, e.getMessage());
+                return;
+            }
+            committed(applied, entryDate);
+        }
+
+        /** Undo in reverse so each account returns to its pre-batch balance, then fail the callers. */
+        private void rollback(List<Applied> applied, RuntimeException cause) {
+            for (int i = applied.size() - 1; i >= 0; i--) {
+                applied.get(i).account().balance -= applied.get(i).delta();
+                dailyLimitService.release(applied.get(i).limit());
+            }
+            BusinessException failure = new BusinessException("Posting failed, please retry / 记账失败，请重试", cause);
+            applied.forEach(a -> a.post().result().completeExceptionally(failure));
+        }
+
+        /**
+         * WAL mode: the batch is durable after one fsync, so callers are acknowledged before the
+         * database write. Transient database failures are retried; an entry the database refuses
+         * outright goes to the suspense GL code. If the engine stops during retries, startup
+         * recovery re-posts the batch from the WAL.
+         */
+        private void walCommit(List<Applied> applied, LocalDate entryDate) {
+            long now = System.currentTimeMillis();
+            try {
+                for (Applied a : applied) {
+                    wal.append(toWalRecord(a, now, entryDate));
+                }
+                wal.sync();
+            } catch (RuntimeException e) {
+                // Nothing acknowledged yet: commit synchronously instead
+                log.error("Posting engine shard {} WAL append failed, committing batch directly: {}", id, e.getMessage());
+                directCommit(applied, entryDate);
+                return;
+            }
+            applied.forEach(a -> a.post().result().complete(toResult(a, entryDate)));
+
+            boolean written;
+            try {
+                written = retryTransient(() -> writeJournal(applied, entryDate, null));
+            } catch (RuntimeException e) {
+                log.error("Posting engine shard {} journal write refused, writing entries one by one: {}",
+                    id, e.getMessage());
+                written = writeEach(applied, entryDate);
+            }
+            if (!written) {
+                log.error("Posting engine shard {} stopping with {} postings only in the WAL", id, applied.size());
+                return;
+            }
+            committed(applied, entryDate);
+            wal.truncate(committedSeq);
+        }
+
+        /**
+         * Write acknowledged entries one at a time so one bad entry cannot hold back the others.
+         * Entries are written in sequence order, so stopping midway leaves a prefix in the journal
+         * and the rest in the WAL.
+         */
+        private boolean writeEach(List<Applied> applied, LocalDate entryDate) {
+            for (Applied a : applied) {
+                List<Applied> one = List.of(a);
+                try {
+                    if (!retryTransient(() -> writeJournal(one, entryDate, null))) {
+                        return false;
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Posting engine shard {} entry {} refused, posting to suspense GL {}: {}",
+                        id, a.reference(), walRecoveryGlCode, e.getMessage());
+                    String reason = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                    // Generated reference and GL code: only an outage can fail this, so it is retried until it succeeds
+                    if (!retry(() -> writeJournal(one, entryDate, reason), error -> true)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Run {@code write}, retrying transient failures; false if the engine stopped first. */
+        private boolean retryTransient(Runnable write) {
+            return retry(write, PostingEngine::isTransient);
+        }
+
+        private boolean retry(Runnable write, Predicate<RuntimeException> retryable) {
+            long backoffMs = 10;
+            while (true) {
+                try {
+                    write.run();
+                    return true;
+                } catch (RuntimeException e) {
+                    if (!retryable.test(e)) {
+                        throw e;
+                    }
+                    if (!running) {
+                        return false;
+                    }
+                    log.warn("Posting engine shard {} journal write failed, retrying: {}", id, e.getMessage());
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                    backoffMs = Math.min(backoffMs * 2, 5000);
+                }
+            }
+        }
+
+        private PostingWal.WalRecord toWalRecord(Applied a, long timestampMillis, LocalDate entryDate) {
+            PostingRequest request = a.post().request();
+            List<PostingWal.WalLeg> legs = new ArrayList<>(request.getLegs().size());
+            for (Leg leg : request.getLegs()) {
+                legs.add(new PostingWal.WalLeg(leg.getAccountId() != null ? null : leg.getGlCode(),
+                    leg.getDirection().code().charAt(0), toMinor(leg.getAmount())));
+            }
+            return new PostingWal.WalRecord(a.seq(), id, a.account().id, a.post().postedBy(), timestampMillis,
+                entryDate, a.reference(), request.getCurrency(), request.getTxnType(), legs);
+        }
+
+        /**
+         * Insert the batch's journal rows in one transaction. With a {@code suspenseReason} the
+         * entries keep their account legs and amounts but book their GL legs to the suspense GL
+         * code under a generated reference, for operations to reclassify.
+         */
+        private void writeJournal(List<Applied> applied, LocalDate entryDate, String suspenseReason) {
+            boolean suspense = suspenseReason != null;
+            long start = System.nanoTime();
+            Timestamp postedAt = Timestamp.valueOf(LocalDateTime.now());
+            transactionTemplate.executeWithoutResult(status -> {
+                int lineCount = applied.stream().mapToInt(a -> a.post().request().getLegs().size()).sum();
+                Iterator<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class,
+                    applied.size() + lineCount).iterator();
+                List<Object[]> entryRows = new ArrayList<>(applied.size());
+                List<Object[]> lineRows = new ArrayList<>(lineCount);
+                for (Applied a : applied) {
+                    PostingRequest request = a.post().request();
+                    long entryId = ids.next();
+                    entryRows.add(new Object[]{entryId, entryDate,
+                        suspense ? suspenseReference(id, a.seq()) : a.reference(),
+                        suspense ? SUSPENSE_TXN_TYPE : request.getTxnType(),
+                        suspense ? suspenseDescription(a.reference(), suspenseReason) : request.getDescription(),
+                        request.getCurrency(), fromMinor(a.total()), postedAt, a.post().postedBy(), id, a.seq()});
+                    short lineNo = 0;
+                    for (Leg leg : request.getLegs()) {
+                        String glCode = leg.getAccountId() == null && suspense ? walRecoveryGlCode : leg.getGlCode();
+                        lineRows.add(new Object[]{ids.next(), entryId, entryDate, ++lineNo, leg.getAccountId(),
+                            glCode, leg.getDirection().code(), leg.getAmount(),
+                            leg.getAccountId() != null ? fromMinor(a.balanceAfter()) : null});
+                    }
+                }
+                jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entryRows);
+                jdbcTemplate.batchUpdate(INSERT_LINE_SQL, lineRows);
+            });
+            groupCommitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        private void committed(List<Applied> applied, LocalDate entryDate) {
+            committedSeq = applied.get(applied.size() - 1).seq();
+            postedEntries.increment(applied.size());
+
+            Map<Long, AccountChangedEvent.Change> changes = new LinkedHashMap<>();
+            for (Applied a : applied) {
+                unflushed.merge(a.account().id, a.delta(), Long::sum);
+                AccountChangedEvent.Change previous = changes.get(a.account().id);
+                AccountSnapshot before = previous != null ? previous.getBefore() : a.account().snapshot(a.balanceBefore());
+                changes.put(a.account().id, new AccountChangedEvent.Change(before, a.account().snapshot(a.balanceAfter())));
+                // No-op when already acknowledged from the WAL
+                a.post().result().complete(toResult(a, entryDate));
+            }
+            publishCommitted(new AccountChangedEvent(new ArrayList<>(changes.values()),
+                AccountChangedEvent.SOURCE_POSTING_ENGINE));
+        }
+
+        /**
+         * Listeners run on the shard thread after the journal transaction has committed. A
+         * failing listener (e.g. the statistics upsert) cannot undo the batch, so it is logged
+         * and counted here rather than sending the durable batch through {@link #failBatch}.
+         * 日志已提交后监听器失败不影响批次结果，仅记录并计数
+         */
+        private void publishCommitted(AccountChangedEvent event) {
+            try {
+                eventPublisher.publishEvent(event);
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
+                log.error("Posting engine shard {} account change listener failed after commit ({} accounts): {}",
+                    id, event.getChanges().size(), e.getMessage(), e);
+            }
+        }
+
+        private PostingResultDTO toResult(Applied a, LocalDate entryDate) {
+            return PostingResultDTO.builder()
+                .reference(a.reference())
+                .entryDate(entryDate)
+                .totalAmount(fromMinor(a.total()))
+                .balances(List.of(PostingResultDTO.AccountBalance.builder()
+                    .accountId(a.account().id)
+                    .currentBalance(fromMinor(a.balanceAfter()))
+                    .availableBalance(fromMinor(a.balanceAfter() - a.account().hold))
+                    .build()))
+                .build();
+        }
+
+        private void flushIfDue(boolean force) {
+            if (unflushed.isEmpty()) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (!force && now - lastFlushNanos < flushIntervalNanos && unflushed.size() < maxUnflushedAccounts) {
+                return;
+            }
+            Map<Long, Long> flushing = new HashMap<>(unflushed);
+            long checkpoint = committedSeq;
+            Timestamp ts = Timestamp.valueOf(LocalDateTime.now());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<Object[]> rows = new ArrayList<>(flushing.size());
+                    // Ascending id order keeps row locks ordered the same way as the ledger
+                    new TreeMap<>(flushing).forEach((accountId, delta) -> {
+                        BigDecimal amount = fromMinor(delta);
+                        rows.add(new Object[]{amount, amount, ts, ts, accountId});
+                    });
+                    jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, rows);
+                    jdbcTemplate.update(SAVE_CHECKPOINT_SQL, checkpoint, id);
+                });
+            } catch (RuntimeException e) {
+                // Deltas stay pending; the next flush (or startup replay) applies them
+                log.warn("Posting engine shard {} balance flush failed: {}", id, e.getMessage());
+                lastFlushNanos = now;
+                return;
+            }
+            flushing.forEach((accountId, delta) ->
+                unflushed.computeIfPresent(accountId, (k, v) -> v - delta == 0 ? null : v - delta));
+            lastFlushNanos = now;
+        }
+    }
+
+    /**
+     * In-memory account state owned by one shard. Amounts are in minor units.
+     */
+    private static final class AccountState {
+        final long id;
+        final String accountNumber;
+        final AccountStatus status;
+        final String currency;
+        final long hold;
+        final long overdraft;
+        final boolean allowDebit;
+        final boolean allowCredit;
+        final long branchId;
+        final long accountTypeId;
+        final LocalDate openDate;
+        long balance;
+
+        AccountState(long id, String accountNumber, AccountStatus status, String currency, long balance,
+                     long hold, long overdraft, boolean allowDebit, boolean allowCredit,
+                     long branchId, long accountTypeId, LocalDate openDate) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.status = status;
+            this.currency = currency;
+            this.balance = balance;
+            this.hold = hold;
+            this.overdraft = overdraft;
+            this.allowDebit = allowDebit;
+            this.allowCredit = allowCredit;
+            this.branchId = branchId;
+            this.accountTypeId = accountTypeId;
+            this.openDate = openDate;
+        }
+
+        /** Same customer limits as the ledger's ENFORCE_LIMITS policy, applied to the net delta. */
+        void check(long delta) {
+            if (status == AccountStatus.CLOSED) {
+                throw new BusinessException("Account " + accountNumber + " is closed / 账户已关闭");
+            }
+            if (delta < 0) {
+                if (status != AccountStatus.ACTIVE || !allowDebit) {
+                    throw new BusinessException("Account " + accountNumber + " cannot be debited / 账户不允许借记");
+                }
+                if (balance - hold + overdraft + delta < 0) {
+                    throw new BusinessException("Insufficient funds on account " + accountNumber + " / 账户余额不足");
+                }
+            } else if (delta > 0) {
+                if (status == AccountStatus.PENDING || status == AccountStatus.BLOCKED || !allowCredit) {
+                    throw new BusinessException("Account " + accountNumber + " cannot be credited / 账户不允许贷记");
+                }
+            }
+        }
+
+        AccountSnapshot snapshot(long balanceMinor) {
+            return AccountSnapshot.builder()
+                .accountId(id)
+                .accountNumber(accountNumber)
+                .status(status)
+                .branchId(branchId)
+                .accountTypeId(accountTypeId)
+                .currency(currency)
+                .currentBalance(fromMinor(balanceMinor))
+                .openDate(openDate)
+                .build();
+        }
+    }
+
+    /**
+     * Bounded multi-producer single-consumer ring buffer. Producers claim a slot with a CAS on
+     * the tail and publish it through the slot's sequence; the single consumer never CASes.
+     */
+    static final class RingBuffer<E> {
+
+        private final Object[] slots;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        RingBuffer(int requestedCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+            this.slots = new Object[capacity];
+            this.sequences = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(E element) {
+            long position;
+            while (true) {
+                position = tail.get();
+                long sequence = sequences.get((int) position & mask);
+                long difference = sequence - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        break;
+                    }
+                } else if (difference < 0) {
+                    return false;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+            int index = (int) position & mask;
+            slots[index] = element;
+            sequences.lazySet(index, position + 1);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        E poll() {
+            long position = head;
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                return null;
+            }
+            E element = (E) slots[index];
+            slots[index] = null;
+            sequences.lazySet(index, position + slots.length);
+            head = position + 1;
+            return element;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+    }
+}
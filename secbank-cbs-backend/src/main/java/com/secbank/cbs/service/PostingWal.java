@@ -0,0 +1,317 @@
+package com.secbank.cbs.service;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Posting Write-Ahead Log / 记账预写日志
+ * Append-only journal of one posting engine shard, stored as fixed-size memory-mapped segment
+ * files. Every record is exactly {@value #RECORD_SIZE} bytes, so a record's offset is its
+ * index times the record size and no framing is needed. A record holds the whole journal
+ * entry, so recovery can re-post it exactly as it was acknowledged:
+ * <pre>
+ *   0  seq        long   shard-local engine sequence
+ *   8  shard      short
+ *  10  legCount   short  1..{@value #MAX_LEGS}
+ *  12  accountId  long   the customer account of every account leg
+ *  20  postedBy   long   0 when unknown
+ *  28  timestamp  long   epoch millis
+ *  36  reference  40 bytes ASCII, zero padded
+ *  76  currency   3 bytes ASCII
+ *  80  txnType    30 bytes ASCII, zero padded
+ * 110  legs       {@value #MAX_LEGS} x 29 bytes: glCode 20 bytes ASCII (all zero for an
+ *                 account leg), direction 1 byte ('D' or 'C'), amount long in minor units
+ * 226  entryDate  int    epoch day the entry was booked under
+ * 252  crc        int    CRC32C of bytes 0..251
+ * </pre>
+ * Appends only write into the mapped buffer; {@link #sync()} forces the dirty range to disk
+ * once for a whole batch (group commit). A torn or never-written record fails its CRC, which
+ * marks the end of the log on recovery.
+ * Not thread-safe: each instance is used by its shard thread only.
+ * 单分片的只追加日志：固定256字节记录含完整分录（币种、交易类型、各分录行），写入内存映射段文件；
+ * 一批记录一次fsync（组提交）；CRC校验识别尾部断裂
+ */
+@Slf4j
+public final class PostingWal implements Closeable {
+
+    public static final int RECORD_SIZE = 256;
+    public static final int MAX_LEGS = 4;
+    public static final int REFERENCE_BYTES = 40;
+    public static final int TXN_TYPE_BYTES = 30;
+    public static final int GL_CODE_BYTES = 20;
+
+    private static final int REFERENCE_OFFSET = 36;
+    private static final int CURRENCY_OFFSET = 76;
+    private static final int CURRENCY_BYTES = 3;
+    private static final int TXN_TYPE_OFFSET = 80;
+    private static final int LEGS_OFFSET = 110;
+    private static final int LEG_BYTES = GL_CODE_BYTES + 1 + 8;
+    private static final int ENTRY_DATE_OFFSET = 226;
+    private static final int CRC_OFFSET = 252;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    /**
+     * One WAL record: a complete journal entry / 日志记录（完整分录）
+     */
+    public record WalRecord(long seq, int shard, long accountId, Long postedBy, long timestampMillis,
+                            LocalDate entryDate, String reference, String currency, String txnType,
+                            List<WalLeg> legs) {
+    }
+
+    /**
+     * One entry line; {@code glCode} is null for a leg on the record's account / 分录行（账户行glCode为空）
+     */
+    public record WalLeg(String glCode, char direction, long amountMinor) {
+    }
+
+    /**
+     * Whether a value can be stored in a field of {@code bytes} ASCII bytes. Callers check
+     * before acknowledging, since {@link #append} rejects what does not fit.
+     */
+    public static boolean fits(String value, int bytes) {
+        return value == null || (value.length() <= bytes && StandardCharsets.US_ASCII.newEncoder().canEncode(value));
+    }
+
+    private final Path directory;
+    private final int shard;
+    private final int recordsPerSegment;
+    private final Timer fsyncTimer;
+
+    /** First sequence of each segment on disk, in order. */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int written;
+    private int synced;
+
+    public PostingWal(Path directory, int shard, int recordsPerSegment, Timer fsyncTimer) {
+        this.directory = directory.resolve("shard-" + shard);
+        this.shard = shard;
+        this.recordsPerSegment = recordsPerSegment;
+        this.fsyncTimer = fsyncTimer;
+        try {
+            Files.createDirectories(this.directory);
+            try (Stream<Path> files = Files.list(this.directory)) {
+                files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(p -> segments.put(firstSeqOf(p), p));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open WAL directory " + this.directory, e);
+        }
+    }
+
+    /**
+     * Read every valid record with a sequence above {@code afterSeq}, oldest first.
+     * Appending afterwards always starts a fresh segment, so a torn tail is never extended.
+     * 读取序号大于afterSeq的所有有效记录
+     */
+    public List<WalRecord> recover(long afterSeq) {
+        List<WalRecord> records = new ArrayList<>();
+        for (Path segment : segments.values()) {
+            try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                ByteBuffer data = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                for (int offset = 0; offset + RECORD_SIZE <= data.capacity(); offset += RECORD_SIZE) {
+                    WalRecord record = read(data, offset);
+                    if (record == null) {
+                        break;
+                    }
+                    if (record.seq() > afterSeq) {
+                        records.add(record);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read WAL segment " + segment, e);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Write a record into the mapped segment. Not durable until {@link #sync()}.
+     * 写入记录（调用sync后才持久）
+     */
+    public void append(WalRecord record) {
+        List<WalLeg> legs = record.legs();
+        if (legs.isEmpty() || legs.size() > MAX_LEGS || record.currency() == null
+                || record.currency().length() != CURRENCY_BYTES || !fits(record.currency(), CURRENCY_BYTES)
+                || !fits(record.reference(), REFERENCE_BYTES) || !fits(record.txnType(), TXN_TYPE_BYTES)
+                || legs.stream().anyMatch(leg -> !fits(leg.glCode(), GL_CODE_BYTES))) {
+            throw new IllegalArgumentException("Entry " + record.reference() + " does not fit a WAL record");
+        }
+        if (buffer == null || written == recordsPerSegment) {
+            roll(record.seq());
+        }
+        int offset = written * RECORD_SIZE;
+        buffer.putLong(offset, record.seq());
+        buffer.putShort(offset + 8, (short) record.shard());
+        buffer.putShort(offset + 10, (short) legs.size());
+        buffer.putLong(offset + 12, record.accountId());
+        buffer.putLong(offset + 20, record.postedBy() != null ? record.postedBy() : 0L);
+        buffer.putLong(offset + 28, record.timestampMillis());
+        buffer.putInt(offset + ENTRY_DATE_OFFSET, (int) record.entryDate().toEpochDay());
+        putAscii(buffer, offset + REFERENCE_OFFSET, REFERENCE_BYTES, record.reference());
+        putAscii(buffer, offset + CURRENCY_OFFSET, CURRENCY_BYTES, record.currency());
+        putAscii(buffer, offset + TXN_TYPE_OFFSET, TXN_TYPE_BYTES, record.txnType());
+        for (int i = 0; i < MAX_LEGS; i++) {
+            int legOffset = offset + LEGS_OFFSET + i * LEG_BYTES;
+            WalLeg leg = i < legs.size() ? legs.get(i) : null;
+            putAscii(buffer, legOffset, GL_CODE_BYTES, leg != null ? leg.glCode() : null);
+            buffer.put(legOffset + GL_CODE_BYTES, leg != null ? (byte) leg.direction() : 0);
+            buffer.putLong(legOffset + GL_CODE_BYTES + 1, leg != null ? leg.amountMinor() : 0L);
+        }
+        buffer.putInt(offset + CRC_OFFSET, crc(buffer, offset));
+        written++;
+    }
+
+    /**
+     * Force everything appended since the last sync to disk with one fsync.
+     * 一次fsync落盘自上次同步以来的全部记录
+     */
+    public void sync() {
+        if (written == synced) {
+            return;
+        }
+        long start = System.nanoTime();
+        buffer.force(synced * RECORD_SIZE, (written - synced) * RECORD_SIZE);
+        fsyncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        synced = written;
+    }
+
+    /**
+     * Delete segments whose records are all at or below {@code committedSeq} (already in the
+     * database journal). The segment being written is never deleted.
+     * 删除记录均已入库的段文件
+     */
+    public void truncate(long committedSeq) {
+        Iterator<Map.Entry<Long, Path>> it = segments.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Path> entry = it.next();
+            Long nextFirst = segments.higherKey(entry.getKey());
+            if (nextFirst == null || nextFirst - 1 > committedSeq) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(entry.getValue());
+                it.remove();
+            } catch (IOException e) {
+                log.warn("Could not delete WAL segment {}: {}", entry.getValue(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            sync();
+        }
+        closeChannel();
+    }
+
+    /**
+     * Start a new segment. A leftover file with the same first sequence can only hold records
+     * that failed their CRC (valid ones were recovered and advanced the sequence), so it is replaced.
+     */
+    private void roll(long firstSeq) {
+        if (buffer != null) {
+            sync();
+            closeChannel();
+        }
+        Path segment = directory.resolve(String.format("%020d%s", firstSeq, SEGMENT_SUFFIX));
+        try {
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create WAL segment " + segment, e);
+        }
+        segments.put(firstSeq, segment);
+        written = 0;
+        synced = 0;
+        log.debug("WAL shard {} rolled to segment {}", shard, segment.getFileName());
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Could not close WAL segment: {}", e.getMessage());
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    private static WalRecord read(ByteBuffer data, int offset) {
+        long seq = data.getLong(offset);
+        if (seq <= 0 || data.getInt(offset + CRC_OFFSET) != crc(data, offset)) {
+            return null;
+        }
+        int legCount = data.getShort(offset + 10);
+        if (legCount < 1 || legCount > MAX_LEGS) {
+            return null;
+        }
+        List<WalLeg> legs = new ArrayList<>(legCount);
+        for (int i = 0; i < legCount; i++) {
+            int legOffset = offset + LEGS_OFFSET + i * LEG_BYTES;
+            legs.add(new WalLeg(getAscii(data, legOffset, GL_CODE_BYTES), (char) data.get(legOffset + GL_CODE_BYTES),
+                data.getLong(legOffset + GL_CODE_BYTES + 1)));
+        }
+        long postedBy = data.getLong(offset + 20);
+        return new WalRecord(seq, data.getShort(offset + 8), data.getLong(offset + 12),
+            postedBy != 0 ? postedBy : null, data.getLong(offset + 28),
+            LocalDate.ofEpochDay(data.getInt(offset + ENTRY_DATE_OFFSET)),
+            getAscii(data, offset + REFERENCE_OFFSET, REFERENCE_BYTES),
+            getAscii(data, offset + CURRENCY_OFFSET, CURRENCY_BYTES),
+            getAscii(data, offset + TXN_TYPE_OFFSET, TXN_TYPE_BYTES), List.copyOf(legs));
+    }
+
+    private static void putAscii(ByteBuffer data, int offset, int bytes, String value) {
+        byte[] encoded = value != null ? value.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        for (int i = 0; i < bytes; i++) {
+            data.put(offset + i, i < encoded.length ? encoded[i] : 0);
+        }
+    }
+
+    /** Zero-padded ASCII field; null when empty. */
+    private static String getAscii(ByteBuffer data, int offset, int bytes) {
+        byte[] value = new byte[bytes];
+        int length = 0;
+        for (int i = 0; i < bytes; i++) {
+            value[i] = data.get(offset + i);
+            if (value[i] != 0) {
+                length = i + 1;
+            }
+        }
+        return length > 0 ? new String(value, 0, length, StandardCharsets.US_ASCII) : null;
+    }
+
+    private static int crc(ByteBuffer data, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
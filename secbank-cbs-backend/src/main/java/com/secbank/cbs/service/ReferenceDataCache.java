@@ -0,0 +1,312 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.PermissionDTO;
+import com.secbank.cbs.entity.AccountType;
+import com.secbank.cbs.entity.Branch;
+import com.secbank.cbs.entity.Permission;
+import com.secbank.cbs.entity.Role;
+import com.secbank.cbs.event.ReferenceDataChangedEvent;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
+import com.secbank.cbs.repository.AccountTypeRepository;
+import com.secbank.cbs.repository.BranchRepository;
+import com.secbank.cbs.repository.PermissionRepository;
+import com.secbank.cbs.repository.RoleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reference Data Cache / 参考数据缓存
+ * Immutable snapshot of account types, branches, roles and permissions.
+ * Readers never lock and never touch the database in steady state. Writers rebuild the
+ * affected part after commit and publish a new snapshot (copy-on-write). Each part carries a
+ * digest of its rows, which controllers expose as an ETag, and a version that only moves when
+ * the digest does, so a periodic refresh that finds nothing new keeps both, and every node
+ * serving the same rows serves the same ETag.
+ * 参考数据的不可变快照：读无锁无数据库访问；管理端更新提交后写时复制替换；以内容摘要作ETag，内容不变则版本与ETag不变，各节点一致
+ */
+@Service
+@Slf4j
+public class ReferenceDataCache {
+
+    private final AccountTypeRepository accountTypeRepository;
+    private final BranchRepository branchRepository;
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Map<Kind, Counter> hits = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counter> misses = new EnumMap<>(Kind.class);
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    public ReferenceDataCache(AccountTypeRepository accountTypeRepository,
+                              BranchRepository branchRepository,
+                              RoleRepository roleRepository,
+                              PermissionRepository permissionRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.accountTypeRepository = accountTypeRepository;
+        this.branchRepository = branchRepository;
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        for (Kind kind : Kind.values()) {
+            String tag = kind.name().toLowerCase(Locale.ROOT);
+            hits.put(kind, Counter.builder("reference_data.lookups").tag("kind", tag).tag("result", "hit")
+                .description("Reference data cache lookups").register(meterRegistry));
+            misses.put(kind, Counter.builder("reference_data.lookups").tag("kind", tag).tag("result", "miss")
+                .description("Reference data cache lookups").register(meterRegistry));
+        }
+    }
+
+    /**
+     * Load everything once the application (and DataInitializer) is up.
+     * 应用启动完成后加载全部参考数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refreshAll();
+    }
+
+    /**
+     * Periodic refresh so that changes made by other nodes are picked up.
+     * 定期刷新以获取其他节点的变更
+     */
+    @Scheduled(fixedDelayString = "${app.reference-cache.refresh-interval-ms:300000}",
+               initialDelayString = "${app.reference-cache.refresh-interval-ms:300000}")
+    public void refreshAll() {
+        for (Kind kind : Kind.values()) {
+            refresh(kind);
+        }
+        log.debug("Reference data cache refreshed / 参考数据缓存已刷新");
+    }
+
+    /**
+     * Rebuild one part after the admin transaction commits.
+     * 管理端事务提交后重建对应部分
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        refresh(event.getKind());
+        log.info("Reference data {} refreshed to version {} / 参考数据已刷新", event.getKind(), getVersion(event.getKind()));
+    }
+
+    public Optional<AccountType> getAccountType(Long id) {
+        return lookup(Kind.ACCOUNT_TYPE, snapshot.get().getAccountTypes().get(id),
+            () -> accountTypeRepository.findById(id));
+    }
+
+    public List<AccountType> getActiveAccountTypes() {
+        hits.get(Kind.ACCOUNT_TYPE).increment();
+        return snapshot.get().getActiveAccountTypes();
+    }
+
+    public Optional<Branch> getBranch(Long id) {
+        return lookup(Kind.BRANCH, snapshot.get().getBranches().get(id), () -> branchRepository.findById(id));
+    }
+
+    public List<Branch> getActiveBranches() {
+        hits.get(Kind.BRANCH).increment();
+        return snapshot.get().getActiveBranches();
+    }
+
+    public List<Role> getActiveRoles() {
+        hits.get(Kind.ROLE).increment();
+        return snapshot.get().getActiveRoles();
+    }
+
+    public List<PermissionDTO> getPermissions() {
+        hits.get(Kind.PERMISSION).increment();
+        return snapshot.get().getPermissions();
+    }
+
+    public Map<String, List<PermissionDTO>> getPermissionsByModule() {
+        hits.get(Kind.PERMISSION).increment();
+        return snapshot.get().getPermissionsByModule();
+    }
+
+    public long getVersion(Kind kind) {
+        return snapshot.get().getVersions().getOrDefault(kind, 0L);
+    }
+
+    /**
+     * Strong ETag for the current content of one part of the reference data.
+     * 当前内容的强ETag
+     */
+    public String getETag(Kind kind) {
+        return "\"" + kind.name().toLowerCase(Locale.ROOT) + "-" + snapshot.get().getDigests().getOrDefault(kind, "0") + "\"";
+    }
+
+    private <T> Optional<T> lookup(Kind kind, T cached, Supplier<Optional<T>> loader) {
+        if (cached != null) {
+            hits.get(kind).increment();
+            return Optional.of(cached);
+        }
+        // Not in the snapshot: created on another node, or does not exist
+        misses.get(kind).increment();
+        Optional<T> loaded = readOnlyTransaction.execute(status -> loader.get());
+        if (loaded != null && loaded.isPresent()) {
+            refresh(kind);
+        }
+        return loaded != null ? loaded : Optional.empty();
+    }
+
+    private synchronized void refresh(Kind kind) {
+        Snapshot current = snapshot.get();
+        Snapshot next = readOnlyTransaction.execute(status -> switch (kind) {
+            case ACCOUNT_TYPE -> current.withAccountTypes(accountTypeRepository.findAll());
+            case BRANCH -> current.withBranches(branchRepository.findAll());
+            case ROLE -> current.withRoles(roleRepository.findAllWithPermissions());
+            case PERMISSION -> current.withPermissions(permissionRepository.findAll().stream()
+                .map(PermissionDTO::fromEntity)
+                .collect(Collectors.toList()));
+        });
+        if (next != current) {
+            snapshot.set(next);
+        }
+    }
+
+    /**
+     * Immutable cache contents. Every {@code with*} call returns a new snapshot that shares
+     * the untouched parts with this one, or this snapshot when the rows are unchanged.
+     */
+    @Getter
+    private static final class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), Map.of(), List.of(), List.of(),
+            List.of(), Map.of(), Map.of(), Map.of());
+
+        private final Map<Long, AccountType> accountTypes;
+        private final List<AccountType> activeAccountTypes;
+        private final Map<Long, Branch> branches;
+        private final List<Branch> activeBranches;
+        private final List<Role> activeRoles;
+        private final List<PermissionDTO> permissions;
+        private final Map<String, List<PermissionDTO>> permissionsByModule;
+        private final Map<Kind, Long> versions;
+        private final Map<Kind, String> digests;
+
+        private Snapshot(Map<Long, AccountType> accountTypes, List<AccountType> activeAccountTypes,
+                         Map<Long, Branch> branches, List<Branch> activeBranches, List<Role> activeRoles,
+                         List<PermissionDTO> permissions, Map<String, List<PermissionDTO>> permissionsByModule,
+                         Map<Kind, Long> versions, Map<Kind, String> digests) {
+            this.accountTypes = accountTypes;
+            this.activeAccountTypes = activeAccountTypes;
+            this.branches = branches;
+            this.activeBranches = activeBranches;
+            this.activeRoles = activeRoles;
+            this.permissions = permissions;
+            this.permissionsByModule = permissionsByModule;
+            this.versions = versions;
+            this.digests = digests;
+        }
+
+        private Snapshot withAccountTypes(List<AccountType> all) {
+            String digest = digest(all.stream().sorted(Comparator.comparing(AccountType::getId)).map(AccountType::toString));
+            if (digest.equals(digests.get(Kind.ACCOUNT_TYPE))) {
+                return this;
+            }
+            return new Snapshot(index(all, AccountType::getId),
+                all.stream().filter(t -> t.getStatus() == AccountType.Status.ACTIVE)
+                    .sorted(Comparator.comparing(AccountType::getId)).toList(),
+                branches, activeBranches, activeRoles, permissions, permissionsByModule,
+                bump(versions, Kind.ACCOUNT_TYPE), put(digests, Kind.ACCOUNT_TYPE, digest));
+        }
+
+        private Snapshot withBranches(List<Branch> all) {
+            String digest = digest(all.stream().sorted(Comparator.comparing(Branch::getId)).map(Branch::toString));
+            if (digest.equals(digests.get(Kind.BRANCH))) {
+                return this;
+            }
+            return new Snapshot(accountTypes, activeAccountTypes, index(all, Branch::getId),
+                all.stream().filter(b -> "ACTIVE".equals(b.getStatus()))
+                    .sorted(Comparator.comparing(Branch::getId)).toList(),
+                activeRoles, permissions, permissionsByModule,
+                bump(versions, Kind.BRANCH), put(digests, Kind.BRANCH, digest));
+        }
+
+        private Snapshot withRoles(List<Role> all) {
+            // Role.toString() leaves out the permissions, so their codes are added explicitly
+            String digest = digest(all.stream().sorted(Comparator.comparing(Role::getId))
+                .map(r -> r + r.getPermissions().stream().map(Permission::getPermissionCode).sorted().toList().toString()));
+            if (digest.equals(digests.get(Kind.ROLE))) {
+                return this;
+            }
+            return new Snapshot(accountTypes, activeAccountTypes, branches, activeBranches,
+                all.stream().filter(r -> "ACTIVE".equals(r.getStatus()))
+                    .sorted(Comparator.comparing(Role::getId)).toList(),
+                permissions, permissionsByModule,
+                bump(versions, Kind.ROLE), put(digests, Kind.ROLE, digest));
+        }
+
+        private Snapshot withPermissions(List<PermissionDTO> all) {
+            String digest = digest(all.stream().sorted(Comparator.comparing(PermissionDTO::getId)).map(PermissionDTO::toString));
+            if (digest.equals(digests.get(Kind.PERMISSION))) {
+                return this;
+            }
+            Map<String, List<PermissionDTO>> grouped = all.stream()
+                .collect(Collectors.groupingBy(PermissionDTO::getModule, TreeMap::new,
+                    Collectors.collectingAndThen(Collectors.toList(), List::copyOf)));
+            return new Snapshot(accountTypes, activeAccountTypes, branches, activeBranches, activeRoles,
+                List.copyOf(all), Collections.unmodifiableMap(grouped),
+                bump(versions, Kind.PERMISSION), put(digests, Kind.PERMISSION, digest));
+        }
+
+        private static Map<Kind, Long> bump(Map<Kind, Long> versions, Kind kind) {
+            Map<Kind, Long> next = new EnumMap<>(Kind.class);
+            next.putAll(versions);
+            next.merge(kind, 1L, Long::sum);
+            return Collections.unmodifiableMap(next);
+        }
+
+        private static Map<Kind, String> put(Map<Kind, String> digests, Kind kind, String digest) {
+            Map<Kind, String> next = new EnumMap<>(Kind.class);
+            next.putAll(digests);
+            next.put(kind, digest);
+            return Collections.unmodifiableMap(next);
+        }
+
+        /**
+         * SHA-256 over the rows' field values (Lombok toString: enums by name, no identity
+         * hashes), so the same rows give the same digest on every node and after restarts.
+         */
+        private static String digest(Stream<String> rows) {
+            MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            rows.forEach(row -> {
+                sha256.update(row.getBytes(StandardCharsets.UTF_8));
+                sha256.update((byte) '\n');
+            });
+            return HexFormat.of().formatHex(sha256.digest(), 0, 12);
+        }
+
+        private static <T> Map<Long, T> index(List<T> items, Function<T, Long> id) {
+            return items.stream().collect(Collectors.toUnmodifiableMap(id, Function.identity()));
+        }
+    }
+}
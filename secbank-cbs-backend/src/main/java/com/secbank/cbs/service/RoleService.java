@@ -3,12 +3,14 @@ package com.secbank.cbs.service;
 import com.secbank.cbs.dto.*;
 import com.secbank.cbs.entity.Permission;
 import com.secbank.cbs.entity.Role;
+import com.secbank.cbs.event.ReferenceDataChangedEvent;
 import com.secbank.cbs.exception.BusinessException;
 import com.secbank.cbs.exception.ResourceNotFoundException;
 import com.secbank.cbs.repository.PermissionRepository;
 import com.secbank.cbs.repository.RoleRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -31,6 +33,8 @@ public class RoleService {
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
     private final AuditLogService auditLogService;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Get all roles with pagination.
@@ -47,7 +51,7 @@ public class RoleService {
      */
     @Transactional(readOnly = true)
     public List<RoleDTO> getActiveRoles() {
-        return roleRepository.findByStatus("ACTIVE").stream()
+        return referenceDataCache.getActiveRoles().stream()
             .map(this::toDTO)
             .collect(Collectors.toList());
     }
@@ -100,6 +104,7 @@ public class RoleService {
             .build();
 
         role = roleRepository.save(role);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ROLE));
 
         // Log audit
         auditLogService.logAction(currentUserId, "CREATE", "ADMINISTRATION",
@@ -146,6 +151,7 @@ public class RoleService {
 
         role.setUpdatedBy(currentUserId);
         role = roleRepository.save(role);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ROLE));
 
         // Log audit
         auditLogService.logAction(currentUserId, "UPDATE", "ADMINISTRATION",
@@ -173,6 +179,7 @@ public class RoleService {
             "Role", role.getId(), role, null, "Deleted role: " + role.getRoleCode());
 
         roleRepository.delete(role);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ROLE));
         log.info("Role deleted: {} by user {}", role.getRoleCode(), currentUserId);
     }
 
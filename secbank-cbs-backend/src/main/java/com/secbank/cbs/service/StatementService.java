@@ -0,0 +1,463 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statement Service / 对账单服务
+ * Renders account statements as CSV or fixed-width text with bounded memory. The month-end run
+ * writes one file per branch, branches in parallel; within a branch accounts are streamed in
+ * keyset chunks over the {@code (branch_id, id)} index, and each chunk's journal lines are read
+ * in one query that is a single {@code (account_id, entry_date)} index range scan per account,
+ * ordered so lines are merged with the accounts as they arrive. Only the lines of the account
+ * being rendered are held; output goes through a fixed-size buffer to a {@link FileChannel},
+ * written to a temporary file and moved into place when the branch completes.
+ * 以有限内存生成对账单（CSV或定长）：各分行并行输出一个文件；分行内按键集分块读取账户，每块一次查询按账户区间扫描日志行并边读边渲染；经固定缓冲区写入文件通道
+ */
+@Service
+@Slf4j
+public class StatementService {
+
+    public static final String JOB_NAME = "STATEMENTS";
+
+    /**
+     * Output format / 输出格式
+     */
+    public enum Format {
+        CSV("csv"), FIXED_WIDTH("txt");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final DateTimeFormatter PERIOD_DIRECTORY = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter FIXED_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private static final String BRANCH_IDS_SQL = "SELECT id FROM branches ORDER BY id";
+
+    private static final String ACCOUNT_COLUMNS =
+        "a.id, a.account_number, a.account_name, a.currency, (a.current_balance * 100)::bigint AS balance_minor ";
+
+    /** Accounts open at some point of the period. */
+    private static final String BRANCH_ACCOUNTS_SQL =
+        "SELECT " + ACCOUNT_COLUMNS + "FROM accounts a " +
+        "WHERE a.branch_id = ? AND a.id > ? AND a.open_date <= ? AND (a.status <> 'CLOSED' OR a.close_date >= ?) " +
+        "ORDER BY a.id LIMIT ?";
+
+    private static final String ACCOUNT_SQL = "SELECT " + ACCOUNT_COLUMNS + "FROM accounts a WHERE a.id = ?";
+
+    /** Lines from the period start on; lines after the period end only roll the closing balance back. */
+    private static final String LINES_SQL =
+        "SELECT l.account_id, l.entry_date, e.reference, e.txn_type, e.description, l.direction, " +
+        "       (l.amount * 100)::bigint AS amount_minor " +
+        "FROM journal_lines l JOIN journal_entries e ON e.id = l.entry_id AND e.entry_date = l.entry_date " +
+        "WHERE l.account_id = ANY(?) AND l.entry_date >= ? " +
+        "ORDER BY l.account_id, l.entry_date, l.id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Path directory;
+    private final int partitions;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StatementService(JdbcTemplate jdbcTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.statements.directory:./data/statements}") String directory,
+                            @Value("${app.batch.partitions:8}") int partitions,
+                            @Value("${app.statements.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.directory = Path.of(directory);
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Write the statements of every account for the business date's month up to the business
+     * date, one file per branch under {@code <directory>/<yyyy-MM>/}. A rerun rewrites the files.
+     * 生成营业日所在月（截至营业日）所有账户的对账单，每分行一个文件；重跑将覆盖文件
+     */
+    public BatchRunSummaryDTO generate(LocalDate businessDate, Format format) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("Batch job " + JOB_NAME + " is already running / 批处理正在运行");
+        }
+        long start = System.nanoTime();
+        try {
+            LocalDate from = businessDate.withDayOfMonth(1);
+            Path periodDirectory = directory.resolve(businessDate.format(PERIOD_DIRECTORY));
+            Files.createDirectories(periodDirectory);
+            List<Long> branchIds = jdbcTemplate.queryForList(BRANCH_IDS_SQL, Long.class);
+            AtomicLong statements = new AtomicLong();
+            List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+            try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(partitions, branchIds.size())),
+                    Thread.ofPlatform().name(JOB_NAME.toLowerCase() + "-", 0).factory())) {
+                for (Long branchId : branchIds) {
+                    executor.execute(() -> {
+                        try {
+                            Path file = periodDirectory.resolve("branch-" + branchId + "." + format.getExtension());
+                            statements.addAndGet(writeBranch(branchId, from, businessDate, format, file));
+                        } catch (RuntimeException e) {
+                            log.error("Statements of branch {} failed: {}", branchId, e.getMessage(), e);
+                            failures.add(e);
+                        }
+                    });
+                }
+            }
+
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Timer.builder("batch.run").tag("job", JOB_NAME).register(meterRegistry)
+                .record(durationMs, TimeUnit.MILLISECONDS);
+            Counter.builder("statements.generated").register(meterRegistry).increment(statements.get());
+            if (!failures.isEmpty()) {
+                throw new BusinessException("Batch " + JOB_NAME + " failed in " + failures.size() +
+                    " branch(es), rerun to regenerate / 批处理部分分行失败，请重新运行", failures.get(0));
+            }
+            log.info("Statements for {} to {}: {} accounts in {} ms ({} per second) / 对账单生成完成",
+                from, businessDate, statements.get(), durationMs, statements.get() * 1000 / Math.max(1, durationMs));
+            return BatchRunSummaryDTO.builder()
+                .jobName(JOB_NAME)
+                .businessDate(businessDate)
+                .partitions(branchIds.size())
+                .processed(statements.get())
+                .durationMs(durationMs)
+                .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create statement directory under " + directory, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Write one account's statement for a period to a channel, e.g. an HTTP response.
+     * 将单个账户指定期间的对账单写入通道
+     */
+    public void writeStatement(Long accountId, LocalDate from, LocalDate to, Format format, WritableByteChannel channel) {
+        if (from.isAfter(to)) {
+            throw new BusinessException("From date must not be after to date / 起始日期不能晚于结束日期");
+        }
+        Accounts accounts = new Accounts(1);
+        jdbcTemplate.query(ACCOUNT_SQL, accounts::add, accountId);
+        if (accounts.size == 0) {
+            throw new ResourceNotFoundException("Account", "id", accountId);
+        }
+        Sink sink = new Sink(channel);
+        renderChunk(accounts, from, to, format, sink);
+        sink.flush();
+    }
+
+    private long writeBranch(Long branchId, LocalDate from, LocalDate to, Format format, Path file) {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Sink sink = new Sink(channel);
+            long afterId = 0;
+            while (true) {
+                Accounts accounts = new Accounts(chunkSize);
+                jdbcTemplate.query(BRANCH_ACCOUNTS_SQL, accounts::add, branchId, afterId, to, from, chunkSize);
+                if (accounts.size == 0) {
+                    break;
+                }
+                renderChunk(accounts, from, to, format, sink);
+                written += accounts.size;
+                afterId = accounts.ids[accounts.size - 1];
+            }
+            sink.flush();
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write statements to " + temporary, e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot move statements to " + file, e);
+        }
+        return written;
+    }
+
+    /**
+     * Stream the chunk's journal lines and render each account as soon as its lines are read.
+     */
+    private void renderChunk(Accounts accounts, LocalDate from, LocalDate to, Format format, Sink sink) {
+        Long[] ids = Arrays.stream(accounts.ids, 0, accounts.size).boxed().toArray(Long[]::new);
+        StatementMerger merger = new StatementMerger(accounts, from, to, format, sink);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LINES_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setObject(2, from);
+            return ps;
+        }, merger);
+        merger.finish();
+    }
+
+    /**
+     * Walks the accounts of a chunk in step with their id-ordered journal lines.
+     */
+    private static final class StatementMerger implements RowCallbackHandler {
+
+        private final Accounts accounts;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Format format;
+        private final Sink sink;
+        private final List<Line> lines = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder(512);
+        private int current;
+        private long periodNetMinor;
+        private long afterMinor;
+
+        StatementMerger(Accounts accounts, LocalDate from, LocalDate to, Format format, Sink sink) {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.format = format;
+            this.sink = sink;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long accountId = rs.getLong("account_id");
+            while (accounts.ids[current] != accountId) {
+                render();
+            }
+            LocalDate date = rs.getObject("entry_date", LocalDate.class);
+            long signed = "C".equals(rs.getString("direction")) ? rs.getLong("amount_minor") : -rs.getLong("amount_minor");
+            if (date.isAfter(to)) {
+                afterMinor += signed;
+                return;
+            }
+            periodNetMinor += signed;
+            lines.add(new Line(date, rs.getString("reference"), rs.getString("txn_type"), rs.getString("description"), signed));
+        }
+
+        void finish() {
+            while (current < accounts.size) {
+                render();
+            }
+        }
+
+        /** Render the current account from the lines gathered for it and move to the next one. */
+        private void render() {
+            int i = current;
+            long closing = accounts.balances[i] - afterMinor;
+            long balance = closing - periodNetMinor;
+            long debits = 0;
+            long credits = 0;
+            text.setLength(0);
+            header(i, balance);
+            for (Line line : lines) {
+                balance += line.signedMinor;
+                if (line.signedMinor < 0) {
+                    debits -= line.signedMinor;
+                } else {
+                    credits += line.signedMinor;
+                }
+                line(line, balance);
+            }
+            footer(i, debits, credits, closing);
+            sink.write(text);
+
+            lines.clear();
+            periodNetMinor = 0;
+            afterMinor = 0;
+            current++;
+        }
+
+        private void header(int i, long opening) {
+            if (format == Format.CSV) {
+                text.append("H,").append(accounts.numbers[i]).append(',');
+                csv(accounts.names[i]);
+                text.append(',').append(accounts.currencies[i]).append(',').append(from).append(',').append(to)
+                    .append(',').append(MoneyMath.fromMinor(opening)).append('\n');
+            } else {
+                text.append('H');
+                left(accounts.numbers[i], 20);
+                left(accounts.names[i], 40);
+                left(accounts.currencies[i], 3);
+                left(from.format(FIXED_DATE), 8);
+                left(to.format(FIXED_DATE), 8);
+                amount(opening);
+                text.append('\n');
+            }
+        }
+
+        private void line(Line line, long balance) {
+            long amount = Math.abs(line.signedMinor);
+            if (format == Format.CSV) {
+                text.append("T,").append(line.date).append(',');
+                csv(line.reference);
+                text.append(',').append(line.txnType).append(',');
+                csv(line.description);
+                text.append(',').append(line.signedMinor < 0 ? MoneyMath.fromMinor(amount) : "")
+                    .append(',').append(line.signedMinor < 0 ? "" : MoneyMath.fromMinor(amount))
+                    .append(',').append(MoneyMath.fromMinor(balance)).append('\n');
+            } else {
+                text.append('T');
+                left(line.date.format(FIXED_DATE), 8);
+                left(line.reference, 40);
+                left(line.txnType, 30);
+                left(line.description, 60);
+                text.append(line.signedMinor < 0 ? 'D' : 'C');
+                amount(amount);
+                amount(balance);
+                text.append('\n');
+            }
+        }
+
+        private void footer(int i, long debits, long credits, long closing) {
+            if (format == Format.CSV) {
+                text.append("F,").append(accounts.numbers[i]).append(',').append(MoneyMath.fromMinor(debits))
+                    .append(',').append(MoneyMath.fromMinor(credits)).append(',').append(MoneyMath.fromMinor(closing))
+                    .append(',').append(lines.size()).append('\n');
+            } else {
+                text.append('F');
+                left(accounts.numbers[i], 20);
+                amount(debits);
+                amount(credits);
+                amount(closing);
+                String count = Integer.toString(lines.size());
+                text.repeat('0', Math.max(0, 9 - count.length())).append(count).append('\n');
+            }
+        }
+
+        private void csv(String value) {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                text.append(value);
+            } else {
+                text.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+
+        /** Left-aligned, space-padded and truncated to the field width. */
+        private void left(String value, int width) {
+            String v = value == null ? "" : value.replace('\n', ' ');
+            if (v.length() >= width) {
+                text.append(v, 0, width);
+            } else {
+                text.append(v).repeat(' ', width - v.length());
+            }
+        }
+
+        /** Right-aligned signed amount in an 18-character field. */
+        private void amount(long minor) {
+            String v = MoneyMath.fromMinor(minor).toPlainString();
+            text.repeat(' ', Math.max(0, 18 - v.length())).append(v);
+        }
+    }
+
+    /**
+     * Fixed-size output buffer in front of a channel; full buffers are written as they fill.
+     */
+    private static final class Sink {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        Sink(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(CharSequence text) {
+            byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write statement output", e);
+            }
+            buffer.clear();
+        }
+    }
+
+    /** One keyset chunk of accounts as parallel arrays. */
+    private static final class Accounts {
+        final long[] ids;
+        final String[] numbers;
+        final String[] names;
+        final String[] currencies;
+        final long[] balances;
+        int size;
+
+        Accounts(int capacity) {
+            ids = new long[capacity];
+            numbers = new String[capacity];
+            names = new String[capacity];
+            currencies = new String[capacity];
+            balances = new long[capacity];
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            ids[size] = rs.getLong("id");
+            numbers[size] = rs.getString("account_number");
+            names[size] = rs.getString("account_name");
+            currencies[size] = rs.getString("currency");
+            balances[size] = rs.getLong("balance_minor");
+            size++;
+        }
+    }
+
+    private record Line(LocalDate date, String reference, String txnType, String description, long signedMinor) {
+    }
+}
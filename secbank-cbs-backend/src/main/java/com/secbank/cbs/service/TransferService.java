@@ -0,0 +1,144 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.AccountDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.dto.PostingResultDTO;
+import com.secbank.cbs.dto.TransferRequest;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Transfer Service / 转账服务
+ * Internal fund transfers between two accounts, posted as one journal entry through the
+ * ledger (which locks both rows in id order, so opposite-direction transfers cannot deadlock).
+ * Each attempt runs with a short lock timeout; lock timeouts, deadlocks and serialization
+ * failures are retried with exponential backoff and full jitter so that callers contending
+ * on a hot account spread out instead of retrying in lockstep.
+ * 内部转账：经账务按ID顺序加锁；锁超时、死锁及序列化失败以带抖动的指数退避重试
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+    private final LedgerService ledgerService;
+    private final AccountLookupCache accountLookupCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long lockTimeoutMs;
+
+    private final Timer transferTimer;
+    private final Counter retries;
+    private final Counter exhausted;
+
+    public TransferService(LedgerService ledgerService,
+                           AccountLookupCache accountLookupCache,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.transfer.max-attempts:5}") int maxAttempts,
+                           @Value("${app.transfer.base-backoff-ms:5}") long baseBackoffMs,
+                           @Value("${app.transfer.max-backoff-ms:200}") long maxBackoffMs,
+                           @Value("${app.transfer.lock-timeout-ms:2000}") long lockTimeoutMs) {
+        this.ledgerService = ledgerService;
+        this.accountLookupCache = accountLookupCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.transferTimer = Timer.builder("transfer.duration")
+            .description("End-to-end transfer time including retries")
+            .publishPercentiles(0.5, 0.99)
+            .register(meterRegistry);
+        this.retries = Counter.builder("transfer.retries")
+            .description("Transfer attempts retried after a concurrency failure")
+            .register(meterRegistry);
+        this.exhausted = Counter.builder("transfer.retries.exhausted")
+            .description("Transfers that failed after all attempts")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Transfer funds between two accounts.
+     * 两个账户之间转账
+     */
+    public PostingResultDTO transfer(TransferRequest request, Long userId) {
+        if (request.getFromAccountId().equals(request.getToAccountId())) {
+            throw new BusinessException("Source and destination accounts must differ / 转出与转入账户不能相同");
+        }
+        PostingRequest posting = toPosting(request);
+        return transferTimer.record(() -> postWithRetry(posting, userId));
+    }
+
+    private PostingResultDTO postWithRetry(PostingRequest posting, Long userId) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'");
+                    return ledgerService.post(posting, userId);
+                });
+            } catch (DuplicateKeyException e) {
+                // Lost a race with an identical reference that passed the pre-check
+                throw new BusinessException("Reference already posted: " + posting.getReference() + " / 参考号已过账");
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    log.warn("Transfer gave up after {} attempts: {}", attempt, e.getMessage());
+                    throw new BusinessException("Accounts are busy, please retry / 账户繁忙，请稍后重试", e);
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        long sleepMs = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Transfer interrupted / 转账被中断", e);
+        }
+    }
+
+    private PostingRequest toPosting(TransferRequest request) {
+        String currency = request.getCurrency();
+        if (currency == null) {
+            currency = accountLookupCache.findById(request.getFromAccountId())
+                .map(AccountDTO::getCurrency)
+                .orElseThrow(() -> new ResourceNotFoundException("Account", "id", request.getFromAccountId()));
+        }
+        return PostingRequest.builder()
+            .reference(request.getReference())
+            .txnType("TRANSFER")
+            .description(request.getDescription())
+            .currency(currency)
+            .legs(List.of(
+                Leg.builder().accountId(request.getFromAccountId()).direction(Direction.DEBIT).amount(request.getAmount()).build(),
+                Leg.builder().accountId(request.getToAccountId()).direction(Direction.CREDIT).amount(request.getAmount()).build()))
+            .build();
+    }
+}
@@ -4,6 +4,7 @@ import com.secbank.cbs.dto.*;
 import com.secbank.cbs.entity.Branch;
 import com.secbank.cbs.entity.Role;
 import com.secbank.cbs.entity.User;
+import com.secbank.cbs.event.StatusChangedEvent;
 import com.secbank.cbs.exception.BusinessException;
 import com.secbank.cbs.exception.ResourceNotFoundException;
 import com.secbank.cbs.repository.BranchRepository;
@@ -11,6 +12,7 @@ import com.secbank.cbs.repository.RoleRepository;
 import com.secbank.cbs.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,6 +20,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -36,6 +39,7 @@ public class UserService {
     private final BranchRepository branchRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuditLogService auditLogService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Get all users with pagination.
@@ -112,6 +116,7 @@ public class UserService {
             .build();
 
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new StatusChangedEvent("User", user.getId(), null, user.getStatus()));
 
         // Log audit
         auditLogService.logAction(currentUserId, "CREATE", "ADMINISTRATION",
@@ -161,12 +166,16 @@ public class UserService {
             Set<Role> roles = roleRepository.findByIdIn(request.getRoleIds());
             user.setRoles(roles);
         }
+        String oldStatus = user.getStatus();
         if (request.getStatus() != null) {
             user.setStatus(request.getStatus());
         }
 
         user.setUpdatedBy(currentUserId);
         user = userRepository.save(user);
+        if (!Objects.equals(oldStatus, user.getStatus())) {
+            eventPublisher.publishEvent(new StatusChangedEvent("User", user.getId(), oldStatus, user.getStatus()));
+        }
 
         // Log audit
         auditLogService.logAction(currentUserId, "UPDATE", "ADMINISTRATION",
@@ -194,6 +203,7 @@ public class UserService {
             "User", user.getId(), user, null, "Deleted user: " + user.getUsername());
 
         userRepository.delete(user);
+        eventPublisher.publishEvent(new StatusChangedEvent("User", user.getId(), user.getStatus(), null));
         log.info("User deleted: {} by user {}", user.getUsername(), currentUserId);
     }
 
@@ -0,0 +1,74 @@
+-- Customer schema / 客户辅助表结构
+-- Tables the customer services manage with plain SQL next to the JPA-mapped customers table.
+-- Hibernate does not manage these tables; this script is idempotent and runs on every start.
+-- 客户服务以SQL直接维护的辅助表；本脚本幂等，每次启动执行
+
+-- Bulk customer import staging: validated rows are COPYed here, then merged into customers in
+-- one set-based statement. UNLOGGED because an import's rows are deleted when it finishes.
+-- 客户批量导入暂存表：校验通过的行COPY至此后集合式合并入客户表；导入结束即删除，故不记WAL
+CREATE SEQUENCE IF NOT EXISTS customer_import_seq;
+
+CREATE UNLOGGED TABLE IF NOT EXISTS customer_import_staging (
+    import_id              BIGINT       NOT NULL,
+    row_no                 BIGINT       NOT NULL,
+    customer_type          VARCHAR(20)  NOT NULL,
+    first_name             VARCHAR(100),
+    middle_name            VARCHAR(100),
+    last_name              VARCHAR(100),
+    first_name_cn          VARCHAR(100),
+    last_name_cn           VARCHAR(100),
+    date_of_birth          DATE,
+    gender                 VARCHAR(10),
+    nationality            VARCHAR(50),
+    company_name           VARCHAR(200),
+    company_name_cn        VARCHAR(200),
+    registration_number    VARCHAR(50),
+    date_of_incorporation  DATE,
+    industry               VARCHAR(100),
+    email                  VARCHAR(100),
+    mobile_phone           VARCHAR(20),
+    home_phone             VARCHAR(20),
+    work_phone             VARCHAR(20),
+    address_line1          VARCHAR(200),
+    address_line2          VARCHAR(200),
+    city                   VARCHAR(100),
+    province               VARCHAR(100),
+    postal_code            VARCHAR(20),
+    country                VARCHAR(50),
+    id_type                VARCHAR(30)  NOT NULL,
+    id_number              VARCHAR(50)  NOT NULL,
+    id_expiry_date         DATE,
+    tax_id                 VARCHAR(50),
+    risk_rating            VARCHAR(20),
+    branch_id              BIGINT       NOT NULL,
+    relationship_manager   BIGINT,
+    remarks                TEXT,
+    PRIMARY KEY (import_id, row_no)
+);
+CREATE INDEX IF NOT EXISTS idx_customer_import_staging_id ON customer_import_staging (import_id, id_type, id_number);
+
+-- Duplicate-customer detection: blocking keys (surname + birth date, phonetic codes, ID-number tail,
+-- mobile number) so only customers sharing a key are compared, and the scored candidate pairs
+-- awaiting review. customer_id is the newer customer of a pair.
+-- 重复客户识别：分块键表（仅同键客户参与比较）与待审核的疑似重复对
+CREATE TABLE IF NOT EXISTS customer_blocking_keys (
+    block_key    VARCHAR(100) NOT NULL,
+    customer_id  BIGINT       NOT NULL,
+    PRIMARY KEY (block_key, customer_id)
+);
+CREATE INDEX IF NOT EXISTS idx_customer_blocking_keys_customer ON customer_blocking_keys (customer_id);
+
+CREATE TABLE IF NOT EXISTS customer_duplicate_candidates (
+    customer_id      BIGINT        NOT NULL,
+    duplicate_of_id  BIGINT        NOT NULL,
+    score            NUMERIC(5,4)  NOT NULL,
+    matched_on       VARCHAR(100)  NOT NULL,
+    status           VARCHAR(20)   NOT NULL DEFAULT 'OPEN',
+    detected_at      TIMESTAMP     NOT NULL DEFAULT now(),
+    reviewed_by      BIGINT,
+    reviewed_at      TIMESTAMP,
+    PRIMARY KEY (customer_id, duplicate_of_id),
+    CHECK (customer_id > duplicate_of_id)
+);
+CREATE INDEX IF NOT EXISTS idx_customer_duplicate_candidates_of ON customer_duplicate_candidates (duplicate_of_id);
+CREATE INDEX IF NOT EXISTS idx_customer_duplicate_candidates_status ON customer_duplicate_candidates (status, score DESC);
@@ -0,0 +1,127 @@
+-- Ledger schema / 账务日志表结构
+-- Journal tables are range-partitioned by entry_date (one partition per month, created ahead
+-- of time by LedgerSchemaInitializer) with a default partition as a safety net.
+-- Hibernate does not manage these tables; this script is idempotent and runs on every start.
+-- 日志表按entry_date按月分区，另有默认分区兜底；本脚本幂等，每次启动执行
+
+CREATE SEQUENCE IF NOT EXISTS journal_seq CACHE 1000;
+
+CREATE TABLE IF NOT EXISTS journal_entries (
+    id            BIGINT        NOT NULL,
+    entry_date    DATE          NOT NULL,
+    reference     VARCHAR(40)   NOT NULL,
+    txn_type      VARCHAR(30)   NOT NULL,
+    description   VARCHAR(255),
+    currency      VARCHAR(3)    NOT NULL,
+    total_amount  NUMERIC(18,2) NOT NULL,
+    posted_at     TIMESTAMP     NOT NULL,
+    posted_by     BIGINT,
+    PRIMARY KEY (id, entry_date)
+) PARTITION BY RANGE (entry_date);
+
+CREATE TABLE IF NOT EXISTS journal_lines (
+    id             BIGINT        NOT NULL,
+    entry_id       BIGINT        NOT NULL,
+    entry_date     DATE          NOT NULL,
+    line_no        SMALLINT      NOT NULL,
+    account_id     BIGINT,
+    gl_code        VARCHAR(20),
+    direction      CHAR(1)       NOT NULL CHECK (direction IN ('D', 'C')),
+    amount         NUMERIC(18,2) NOT NULL CHECK (amount > 0),
+    balance_after  NUMERIC(18,2),
+    PRIMARY KEY (id, entry_date),
+    CHECK (account_id IS NOT NULL OR gl_code IS NOT NULL)
+) PARTITION BY RANGE (entry_date);
+
+-- Set only for entries posted by the in-memory posting engine: owning shard and its local sequence
+-- 仅内存记账引擎写入：所属分片及分片内序号
+ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS engine_shard SMALLINT;
+ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS engine_seq BIGINT;
+
+CREATE TABLE IF NOT EXISTS journal_entries_default PARTITION OF journal_entries DEFAULT;
+CREATE TABLE IF NOT EXISTS journal_lines_default PARTITION OF journal_lines DEFAULT;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_journal_entries_reference ON journal_entries (reference, entry_date);
+CREATE INDEX IF NOT EXISTS idx_journal_lines_account ON journal_lines (account_id, entry_date) WHERE account_id IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_journal_lines_entry ON journal_lines (entry_id, entry_date);
+CREATE INDEX IF NOT EXISTS idx_journal_entries_engine ON journal_entries (engine_shard, engine_seq) WHERE engine_shard IS NOT NULL;
+
+-- Per-shard write-behind checkpoint: engine entries up to last_engine_seq are reflected in accounts
+-- 分片回写检查点：last_engine_seq之前的引擎分录已计入账户余额
+CREATE TABLE IF NOT EXISTS posting_engine_checkpoints (
+    shard            SMALLINT  PRIMARY KEY,
+    last_engine_seq  BIGINT    NOT NULL,
+    updated_at       TIMESTAMP NOT NULL
+);
+
+-- Daily limit usage checkpoint, rebuilt into memory by DailyLimitService (amounts in minor units)
+-- 日限额用量检查点（金额以最小货币单位计）
+CREATE TABLE IF NOT EXISTS daily_limit_usage (
+    account_id         BIGINT    NOT NULL,
+    usage_date         DATE      NOT NULL,
+    withdrawn_minor    BIGINT    NOT NULL,
+    transferred_minor  BIGINT    NOT NULL,
+    txn_count          INT       NOT NULL,
+    updated_at         TIMESTAMP NOT NULL,
+    PRIMARY KEY (account_id, usage_date)
+);
+
+-- One row per account and interest period capitalized, so re-runs never post twice
+-- 每账户每计息期一行，重跑不会重复入账
+CREATE TABLE IF NOT EXISTS interest_postings (
+    account_id      BIGINT        NOT NULL,
+    period_end      DATE          NOT NULL,
+    gross_amount    NUMERIC(18,2) NOT NULL,
+    tax_amount      NUMERIC(18,2) NOT NULL,
+    reference       VARCHAR(40),
+    posted_at       TIMESTAMP     NOT NULL,
+    PRIMARY KEY (account_id, period_end)
+);
+
+-- One row per account and fee month charged, so re-runs never charge twice; also feeds the run summary
+-- 每账户每月一行，重跑不会重复收费，亦用于运行汇总
+CREATE TABLE IF NOT EXISTS fee_charges (
+    account_id         BIGINT        NOT NULL,
+    period_start       DATE          NOT NULL,
+    account_type_id    BIGINT        NOT NULL,
+    basis_balance      NUMERIC(18,2) NOT NULL,
+    monthly_fee        NUMERIC(18,2) NOT NULL,
+    below_minimum_fee  NUMERIC(18,2) NOT NULL,
+    waived             NUMERIC(18,2) NOT NULL,
+    charged_at         TIMESTAMP     NOT NULL,
+    PRIMARY KEY (account_id, period_start)
+);
+CREATE INDEX IF NOT EXISTS idx_fee_charges_period ON fee_charges (period_start, account_type_id);
+
+-- Daily balance snapshots, one compact row per account and day, range-partitioned by month like
+-- the journal. Amounts are minor units; mtd_sum_minor/mtd_days carry the month-to-date sum of
+-- daily balances so the average daily balance is one division.
+-- 每日余额快照（按月分区）；以分存储，携带月初至今余额累计及天数，日均余额一次除法可得
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    account_id     BIGINT   NOT NULL,
+    snapshot_date  DATE     NOT NULL,
+    balance_minor  BIGINT   NOT NULL,
+    mtd_sum_minor  BIGINT   NOT NULL,
+    mtd_days       SMALLINT NOT NULL,
+    PRIMARY KEY (account_id, snapshot_date)
+) PARTITION BY RANGE (snapshot_date);
+
+CREATE TABLE IF NOT EXISTS balance_snapshots_default PARTITION OF balance_snapshots DEFAULT;
+
+-- Append-only: postings are corrected by reversal entries, never by editing history
+-- 只追加：通过冲正分录更正，不修改历史
+CREATE OR REPLACE FUNCTION journal_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'Journal tables are append-only (% on %)', TG_OP, TG_TABLE_NAME;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_journal_entries_append_only ON journal_entries;
+CREATE TRIGGER trg_journal_entries_append_only
+    BEFORE UPDATE OR DELETE ON journal_entries
+    FOR EACH ROW EXECUTE FUNCTION journal_append_only();
+
+DROP TRIGGER IF EXISTS trg_journal_lines_append_only ON journal_lines;
+CREATE TRIGGER trg_journal_lines_append_only
+    BEFORE UPDATE OR DELETE ON journal_lines
+    FOR EACH ROW EXECUTE FUNCTION journal_append_only();
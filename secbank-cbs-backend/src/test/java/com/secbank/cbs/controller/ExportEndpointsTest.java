@@ -0,0 +1,58 @@
+package com.secbank.cbs.controller;
+
+import com.secbank.cbs.security.UserPrincipal;
+import com.secbank.cbs.service.AccountLookupCache;
+import com.secbank.cbs.service.AccountService;
+import com.secbank.cbs.service.AccountStatsService;
+import com.secbank.cbs.service.AuditLogService;
+import com.secbank.cbs.service.BalanceSnapshotService;
+import com.secbank.cbs.service.CustomerImportService;
+import com.secbank.cbs.service.CustomerService;
+import com.secbank.cbs.service.DepositCubeService;
+import com.secbank.cbs.service.DuplicateCustomerService;
+import com.secbank.cbs.service.ExportService;
+import com.secbank.cbs.service.StatementService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Export endpoints rejected for lack of a slot are not audited / 导出名额不足时不记审计
+ */
+class ExportEndpointsTest {
+
+    private final ExportService exportService = mock(ExportService.class);
+    private final AuditLogService auditLogService = mock(AuditLogService.class);
+    private final UserPrincipal user = UserPrincipal.builder().id(7L).username("teller").build();
+
+    @Test
+    void rejectedAccountExportIsNotAudited() {
+        when(exportService.acquireSlot()).thenThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS));
+        AccountController controller = new AccountController(mock(AccountService.class), mock(AccountStatsService.class),
+            mock(DepositCubeService.class), mock(AccountLookupCache.class), mock(BalanceSnapshotService.class),
+            mock(StatementService.class), exportService, auditLogService);
+
+        assertThatThrownBy(() -> controller.exportAccounts(null, null, ExportService.Format.CSV, user))
+            .isInstanceOf(ResponseStatusException.class);
+        verify(auditLogService, never()).logAction(any(), anyString(), anyString(), anyString(), any(), any(), any(), anyString());
+    }
+
+    @Test
+    void rejectedCustomerExportIsNotAudited() {
+        when(exportService.acquireSlot()).thenThrow(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS));
+        CustomerController controller = new CustomerController(mock(CustomerService.class), exportService,
+            mock(CustomerImportService.class), mock(DuplicateCustomerService.class), auditLogService);
+
+        assertThatThrownBy(() -> controller.exportCustomers(null, null, ExportService.Format.CSV, user))
+            .isInstanceOf(ResponseStatusException.class);
+        verify(auditLogService, never()).logAction(any(), anyString(), anyString(), anyString(), any(), any(), any(), anyString());
+    }
+}
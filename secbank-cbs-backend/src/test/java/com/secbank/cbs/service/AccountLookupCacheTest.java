@@ -0,0 +1,131 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.AccountDTO;
+import com.secbank.cbs.entity.Account;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.repository.AccountRepository;
+import com.secbank.cbs.repository.AccountRepository.BalanceView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Account lookup cache / 账户查询缓存测试
+ */
+class AccountLookupCacheTest {
+
+    private static final String NUMBER = "001000000042";
+
+    private AccountRepository accountRepository;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(accountRepository.findDetailedByAccountNumber(NUMBER)).thenReturn(Optional.of(account("100.00")));
+        when(accountRepository.findAccountNumberById(42L)).thenReturn(Optional.of(NUMBER));
+    }
+
+    @Test
+    void repeatedLookupsByNumberAndIdLoadOnce() {
+        AccountLookupCache cache = newCache(Duration.ofMinutes(1));
+
+        assertThat(cache.findByAccountNumber(NUMBER)).map(AccountDTO::getId).contains(42L);
+        assertThat(cache.findById(42L)).map(AccountDTO::getAccountNumber).contains(NUMBER);
+        assertThat(cache.findByAccountNumber(NUMBER)).isPresent();
+
+        verify(accountRepository, times(1)).findDetailedByAccountNumber(NUMBER);
+        // The id index was filled by the load, so the id lookup needed no query of its own
+        verify(accountRepository, never()).findAccountNumberById(anyLong());
+    }
+
+    @Test
+    void committedChangeDropsTheEntry() {
+        AccountLookupCache cache = newCache(Duration.ofMinutes(1));
+        cache.findByAccountNumber(NUMBER);
+        when(accountRepository.findDetailedByAccountNumber(NUMBER)).thenReturn(Optional.of(account("80.00")));
+
+        AccountSnapshot snapshot = AccountSnapshot.builder().accountId(42L).accountNumber(NUMBER)
+            .status(AccountStatus.ACTIVE).currentBalance(new BigDecimal("80.00")).build();
+        cache.onAccountChanged(new AccountChangedEvent(List.of(new AccountChangedEvent.Change(snapshot, snapshot))));
+
+        assertThat(cache.findByAccountNumber(NUMBER)).map(AccountDTO::getCurrentBalance).contains(new BigDecimal("80.00"));
+        verify(accountRepository, times(2)).findDetailedByAccountNumber(NUMBER);
+        assertThat(meterRegistry.get("account.lookup.invalidations").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void staleBalancesAreReReadWithoutAFullReload() {
+        AccountLookupCache cache = newCache(Duration.ZERO);
+        BalanceView balances = mock(BalanceView.class);
+        when(balances.getCurrentBalance()).thenReturn(new BigDecimal("55.00"));
+        when(balances.getAvailableBalance()).thenReturn(new BigDecimal("50.00"));
+        when(balances.getHoldBalance()).thenReturn(new BigDecimal("5.00"));
+        when(accountRepository.findBalanceViewById(42L)).thenReturn(Optional.of(balances));
+
+        AccountDTO account = cache.findByAccountNumber(NUMBER).orElseThrow();
+
+        assertThat(account.getCurrentBalance()).isEqualByComparingTo("55.00");
+        assertThat(account.getHoldBalance()).isEqualByComparingTo("5.00");
+        assertThat(account.getAccountName()).isEqualTo("Juan Dela Cruz");
+        verify(accountRepository, times(1)).findDetailedByAccountNumber(NUMBER);
+        assertThat(meterRegistry.get("account.lookup.balance.refreshes").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void unknownAccountsAreNotCached() {
+        AccountLookupCache cache = newCache(Duration.ofMinutes(1));
+        when(accountRepository.findDetailedByAccountNumber("missing")).thenReturn(Optional.empty());
+
+        assertThat(cache.findByAccountNumber("missing")).isEmpty();
+        assertThat(cache.findByAccountNumber("missing")).isEmpty();
+        assertThat(cache.findById(7L)).isEmpty();
+
+        verify(accountRepository, times(2)).findDetailedByAccountNumber("missing");
+    }
+
+    @Test
+    void invalidateAllForcesReload() {
+        AccountLookupCache cache = newCache(Duration.ofMinutes(1));
+        cache.findByAccountNumber(NUMBER);
+
+        cache.invalidateAll();
+        cache.findByAccountNumber(NUMBER);
+
+        verify(accountRepository, times(2)).findDetailedByAccountNumber(NUMBER);
+    }
+
+    private AccountLookupCache newCache(Duration balanceMaxStaleness) {
+        return new AccountLookupCache(accountRepository, mock(PlatformTransactionManager.class), meterRegistry,
+            1_000, Duration.ofMinutes(10), balanceMaxStaleness);
+    }
+
+    private static Account account(String balance) {
+        Account account = new Account();
+        account.setId(42L);
+        account.setAccountNumber(NUMBER);
+        account.setAccountName("Juan Dela Cruz");
+        account.setCurrency("PHP");
+        account.setStatus(AccountStatus.ACTIVE);
+        account.setCurrentBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        return account;
+    }
+}
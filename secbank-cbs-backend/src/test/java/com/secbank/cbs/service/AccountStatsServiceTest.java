@@ -0,0 +1,125 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.AccountStatsDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountChangedEvent.Change;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.repository.AccountStatisticRepository;
+import com.secbank.cbs.repository.AccountStatisticRepository.StatusTotals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Incremental account statistics / 账户统计增量维护测试
+ */
+class AccountStatsServiceTest {
+
+    private static final int SLOTS = 8;
+
+    private AccountStatisticRepository repository;
+    private AccountStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(AccountStatisticRepository.class);
+        service = new AccountStatsService(repository);
+        ReflectionTestUtils.setField(service, "slots", SLOTS);
+    }
+
+    @Test
+    void statusChangeMovesCountAndBalanceBetweenStatuses() {
+        AccountSnapshot active = account(11L, AccountStatus.ACTIVE, "250.00");
+
+        service.onAccountChanged(new AccountChangedEvent(List.of(new Change(active, active.withStatus(AccountStatus.DORMANT)))));
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).applyDelta(eq("ACTIVE"), eq(1L), eq(2L), eq("PHP"), eq(3), eq(-1L), amount("-250.00"));
+        order.verify(repository).applyDelta(eq("DORMANT"), eq(1L), eq(2L), eq("PHP"), eq(3), eq(1L), amount("250.00"));
+    }
+
+    @Test
+    void balanceChangeAppliesOnlyTheBalanceDelta() {
+        service.onAccountChanged(new AccountChangedEvent(List.of(
+            new Change(account(5L, AccountStatus.ACTIVE, "100.00"), account(5L, AccountStatus.ACTIVE, "75.50")))));
+
+        verify(repository).applyDelta(eq("ACTIVE"), eq(1L), eq(2L), eq("PHP"), eq(5), eq(0L), amount("-24.50"));
+    }
+
+    @Test
+    void unchangedSnapshotWritesNothing() {
+        AccountSnapshot snapshot = account(5L, AccountStatus.ACTIVE, "100.00");
+
+        service.onAccountChanged(new AccountChangedEvent(List.of(new Change(snapshot, snapshot))));
+
+        verify(repository, never()).applyDelta(anyString(), anyLong(), anyLong(), anyString(), anyInt(), anyLong(), any());
+    }
+
+    @Test
+    void openingsInOneEventAreSummedPerSlot() {
+        // Ids 1 and 9 share slot 1, id 2 lands in slot 2
+        service.onAccountChanged(new AccountChangedEvent(List.of(
+            new Change(null, account(1L, AccountStatus.ACTIVE, "10.00")),
+            new Change(null, account(9L, AccountStatus.ACTIVE, "20.00")),
+            new Change(null, account(2L, AccountStatus.ACTIVE, "5.00")))));
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).applyDelta(eq("ACTIVE"), eq(1L), eq(2L), eq("PHP"), eq(1), eq(2L), amount("30.00"));
+        order.verify(repository).applyDelta(eq("ACTIVE"), eq(1L), eq(2L), eq("PHP"), eq(2), eq(1L), amount("5.00"));
+    }
+
+    @Test
+    void statsFillMissingStatusesWithZero() {
+        List<StatusTotals> rows = List.of(totals(AccountStatus.ACTIVE, 3L, "900.00"), totals(AccountStatus.CLOSED, 1L, "0.00"));
+        when(repository.sumByStatus()).thenReturn(rows);
+
+        AccountStatsDTO stats = service.getAccountStats();
+
+        assertThat(stats.getTotalActive()).isEqualTo(3L);
+        assertThat(stats.getTotalClosed()).isEqualTo(1L);
+        assertThat(stats.getTotalDormant()).isZero();
+        assertThat(stats.getTotalFrozen()).isZero();
+        assertThat(stats.getTotalActiveBalance()).isEqualByComparingTo("900.00");
+    }
+
+    private static AccountSnapshot account(Long id, AccountStatus status, String balance) {
+        return AccountSnapshot.builder()
+            .accountId(id)
+            .status(status)
+            .branchId(1L)
+            .accountTypeId(2L)
+            .currency("PHP")
+            .currentBalance(new BigDecimal(balance))
+            .build();
+    }
+
+    private static BigDecimal amount(String value) {
+        return argThat(actual -> actual.compareTo(new BigDecimal(value)) == 0);
+    }
+
+    private static StatusTotals totals(AccountStatus status, Long count, String balance) {
+        StatusTotals totals = mock(StatusTotals.class);
+        when(totals.getStatus()).thenReturn(status);
+        when(totals.getAccountCount()).thenReturn(count);
+        when(totals.getTotalBalance()).thenReturn(new BigDecimal(balance));
+        return totals;
+    }
+}
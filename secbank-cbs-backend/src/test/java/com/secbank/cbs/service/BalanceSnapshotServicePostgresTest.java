@@ -0,0 +1,97 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BalanceSnapshotDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Daily balance snapshots against PostgreSQL / 基于PostgreSQL的每日余额快照测试
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {"app.eod.cron=-", "app.snapshots.chunk-size=1"})
+@Testcontainers(disabledWithoutDocker = true)
+class BalanceSnapshotServicePostgresTest {
+
+    private static final LocalDate DAY_30 = LocalDate.of(2026, 1, 30);
+    private static final LocalDate MONTH_END = LocalDate.of(2026, 1, 31);
+    private static final LocalDate NEXT_MONTH = LocalDate.of(2026, 2, 1);
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void runningSumsGiveTheAverageAndRestartEachMonth() {
+        long[] ids = BenchmarkData.seedAccounts(jdbcTemplate, "SNP", 1, 2, new BigDecimal("100.00"),
+            LocalDate.of(2025, 12, 1));
+        long account = ids[0];
+        // The second account opens on the month end, so it has no earlier snapshot
+        jdbcTemplate.update("UPDATE accounts SET open_date = ? WHERE id = ?", MONTH_END, ids[1]);
+        deposit(account, "50.00", MONTH_END);
+
+        // A catch-up run for the 30th leaves out the later deposit
+        assertThat(balanceSnapshotService.snapshot(DAY_30).getProcessed()).isEqualTo(1L);
+        assertThat(balanceSnapshotService.snapshot(MONTH_END).getProcessed()).isEqualTo(2L);
+        balanceSnapshotService.snapshot(NEXT_MONTH);
+
+        assertThat(balanceSnapshotService.getHistory(account, DAY_30, NEXT_MONTH))
+            .extracting(BalanceSnapshotDTO::getDate, BalanceSnapshotDTO::getBalance,
+                BalanceSnapshotDTO::getAverageDailyBalance, BalanceSnapshotDTO::getMonthToDateDays)
+            .containsExactly(
+                tuple(DAY_30, new BigDecimal("100.00"), new BigDecimal("100.00"), 1),
+                tuple(MONTH_END, new BigDecimal("150.00"), new BigDecimal("125.00"), 2),
+                tuple(NEXT_MONTH, new BigDecimal("150.00"), new BigDecimal("150.00"), 1));
+        assertThat(balanceSnapshotService.getAverageDailyBalance(ids[1], MONTH_END).getMonthToDateDays()).isEqualTo(1);
+        // Later in the month without a snapshot of its own, the latest one of the month answers
+        assertThat(balanceSnapshotService.getAverageDailyBalance(account, LocalDate.of(2026, 2, 15)).getDate())
+            .isEqualTo(NEXT_MONTH);
+    }
+
+    @Test
+    void historyRangeIsValidated() {
+        assertThatThrownBy(() -> balanceSnapshotService.getHistory(1L, MONTH_END, DAY_30))
+            .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> balanceSnapshotService.getHistory(1L, DAY_30, DAY_30.plusDays(366)))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("366 days");
+    }
+
+    private void deposit(long accountId, String amount, LocalDate businessDate) {
+        ledgerService.postBatch(List.of(PostingRequest.builder()
+            .reference("SNP-" + accountId + "-" + businessDate)
+            .txnType("CASH_DEPOSIT")
+            .currency("PHP")
+            .legs(List.of(
+                Leg.builder().glCode("CASH-VAULT").direction(Direction.DEBIT).amount(new BigDecimal(amount)).build(),
+                Leg.builder().accountId(accountId).direction(Direction.CREDIT).amount(new BigDecimal(amount)).build()))
+            .build()), null, PostingPolicy.SYSTEM, businessDate);
+    }
+}
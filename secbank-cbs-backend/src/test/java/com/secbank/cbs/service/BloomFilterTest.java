@@ -0,0 +1,66 @@
+package com.secbank.cbs.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bloom filter / 布隆过滤器测试
+ */
+class BloomFilterTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void everyKeyPutIsFoundAndAbsentKeysStayNearTheFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++) {
+            filter.put("customer-" + i + "@example.com");
+        }
+
+        for (int i = 0; i < KEYS; i++) {
+            assertThat(filter.mightContain("customer-" + i + "@example.com")).isTrue();
+        }
+        long falsePositives = IntStream.range(0, KEYS)
+            .filter(i -> filter.mightContain("absent-" + i + "@example.com"))
+            .count();
+        assertThat(falsePositives).isLessThan(KEYS / 50);
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws Exception {
+        BloomFilter filter = BloomFilter.create(KEYS, 0.01);
+        List<Runnable> writers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            writers.add(() -> {
+                for (int i = thread; i < KEYS; i += 8) {
+                    filter.put("ID-" + i);
+                }
+            });
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            writers.forEach(executor::execute);
+        }
+
+        assertThat(IntStream.range(0, KEYS).allMatch(i -> filter.mightContain("ID-" + i))).isTrue();
+    }
+
+    @Test
+    void tinyCapacityStillWorks() {
+        BloomFilter filter = BloomFilter.create(0, 0.01);
+        filter.put("");
+        filter.put("only");
+
+        assertThat(filter.bitSize()).isEqualTo(64);
+        assertThat(filter.mightContain("")).isTrue();
+        assertThat(filter.mightContain("only")).isTrue();
+    }
+}
@@ -0,0 +1,98 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.CustomerImportResultDTO;
+import com.secbank.cbs.dto.CustomerImportResultDTO.RowError;
+import com.secbank.cbs.entity.Customer.CustomerType;
+import com.secbank.cbs.event.CustomersImportedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Bulk customer import against PostgreSQL / 基于PostgreSQL的客户批量导入测试
+ * A block size of two spreads the file over several validation blocks. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {"app.eod.cron=-", "app.customer-import.block-size=2"})
+@Testcontainers(disabledWithoutDocker = true)
+@RecordApplicationEvents
+class CustomerImportServicePostgresTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private CustomerImportService customerImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @Test
+    void validRowsAreMergedAndEveryRejectedRowIsReported() {
+        long branch = jdbcTemplate.queryForObject("SELECT id FROM branches WHERE branch_code = 'HQ001'", Long.class);
+        // Byte order mark, mixed-case header, quoted commas, quotes and line breaks, a blank line
+        String csv = "\uFEFFCustomer_Type,first_name,last_name,company_name,email,id_type,id_number,branch_id,remarks\n" +
+            "individual,Ana,\"Reyes, Jr.\",,ana@example.com,PASSPORT,IMP-P-1," + branch + ",\"Migrated\r\n\"\"VIP\"\"\"\r\n" +
+            "CORPORATE,,,Acme Trading,,COMPANY_ID,IMP-C-1," + branch + ",\n" +
+            "INDIVIDUAL,Ben,Cruz,,not-an-email,PASSPORT,IMP-P-2," + branch + ",\n" +
+            "\n" +
+            "INDIVIDUAL,Ana,Again,,,PASSPORT,IMP-P-1," + branch + ",\n" +
+            "ALIEN,Zed,Unknown,,,PASSPORT,IMP-P-3," + branch + ",\n" +
+            "INDIVIDUAL,No,Branch,,,PASSPORT,IMP-P-4,999999,\n";
+
+        CustomerImportResultDTO result = customerImportService.importCsv(stream(csv), 1L);
+
+        assertThat(result.getTotalRows()).isEqualTo(6L);
+        assertThat(result.getImported()).isEqualTo(2L);
+        assertThat(result.getRejected()).isEqualTo(4L);
+        assertThat(result.getErrors()).extracting(RowError::getRow).containsExactly(4L, 6L, 7L, 8L);
+        assertThat(result.getErrors()).extracting(RowError::getMessage).satisfiesExactly(
+            m -> assertThat(m).contains("email"),
+            m -> assertThat(m).contains("earlier row"),
+            m -> assertThat(m).contains("customer_type"),
+            m -> assertThat(m).contains("Branch not found"));
+
+        Map<String, Object> ana = jdbcTemplate.queryForMap(
+            "SELECT customer_number, last_name, remarks, status FROM customers WHERE id_number = 'IMP-P-1'");
+        String year = String.valueOf(LocalDate.now().getYear()).substring(2);
+        assertThat((String) ana.get("customer_number")).matches("CIF" + year + "I\\d{6}");
+        assertThat(ana.get("last_name")).isEqualTo("Reyes, Jr.");
+        assertThat(ana.get("remarks")).isEqualTo("Migrated\r\n\"VIP\"");
+        assertThat(ana.get("status")).isEqualTo("ACTIVE");
+        assertThat(jdbcTemplate.queryForObject("SELECT customer_number FROM customers WHERE id_number = 'IMP-C-1'",
+            String.class)).matches("CIF" + year + "C\\d{6}");
+        assertThat(events.stream(CustomersImportedEvent.class)).singleElement()
+            .satisfies(event -> assertThat(event.getImportedByType())
+                .containsExactlyInAnyOrderEntriesOf(Map.of(CustomerType.INDIVIDUAL, 1L, CustomerType.CORPORATE, 1L)));
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM customer_import_staging", Integer.class)).isZero();
+
+        // Re-importing the file adds nothing: the merged rows are now existing customers
+        CustomerImportResultDTO again = customerImportService.importCsv(stream(csv), 1L);
+
+        assertThat(again.getImported()).isZero();
+        assertThat(again.getErrors()).extracting(RowError::getRow).containsExactly(2L, 3L, 4L, 6L, 7L, 8L);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM customers WHERE id_number LIKE 'IMP-%'",
+            Integer.class)).isEqualTo(2);
+    }
+
+    private static ByteArrayInputStream stream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+}
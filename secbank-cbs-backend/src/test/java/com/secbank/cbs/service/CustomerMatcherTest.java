@@ -0,0 +1,132 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.entity.Customer;
+import com.secbank.cbs.entity.Customer.CustomerType;
+import com.secbank.cbs.service.CustomerMatcher.Match;
+import com.secbank.cbs.service.CustomerMatcher.Profile;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Duplicate-customer blocking and scoring / 重复客户分块与评分测试
+ */
+class CustomerMatcherTest {
+
+    private static final double THRESHOLD = 0.85;
+    private static final LocalDate DOB = LocalDate.of(1985, 3, 14);
+
+    @Test
+    void blockingKeysOfAnIndividual() {
+        Profile juan = CustomerMatcher.profile(individual(1L, "Juan", "Dela Cruz", DOB, "+63 917 123 4567", "P-0012345678"));
+
+        assertThat(CustomerMatcher.blockingKeys(juan)).containsExactly(
+            "N|delacruz|1985-03-14", "P|D426J500|1985", "I|345678", "M|9171234567");
+    }
+
+    @Test
+    void blockingKeysOfACompanyIgnoreTheLegalForm() {
+        Profile acme = CustomerMatcher.profile(company(1L, "ACME Trading Corp.", "sec-12345"));
+        Profile same = CustomerMatcher.profile(company(2L, "Acme Trading, Inc", "SEC 12345"));
+
+        assertThat(CustomerMatcher.blockingKeys(acme))
+            .containsExactly("C|acmetrading", "CP|A253|2001", "R|SEC12345")
+            .isEqualTo(CustomerMatcher.blockingKeys(same));
+    }
+
+    @Test
+    void swappedNamesWithTheSameBirthDateAndMobileMatch() {
+        Profile older = CustomerMatcher.profile(individual(3L, "Juan", "Dela Cruz", DOB, "+63 917 123 4567", null));
+        Profile newer = CustomerMatcher.profile(individual(8L, "Dela Cruz", "Juan", DOB, "0917-123-4567", null));
+
+        // The two still share a block through the mobile number
+        assertThat(CustomerMatcher.blockingKeys(newer)).contains("M|9171234567");
+        Match match = CustomerMatcher.score(older, newer, THRESHOLD);
+        assertThat(match).isEqualTo(new Match(8L, 3L, 1.0, "NAME,DOB,MOBILE"));
+        assertThat(CustomerMatcher.score(newer, older, THRESHOLD)).isEqualTo(match);
+    }
+
+    @Test
+    void aTypoNeedsCorroboratingEvidence() {
+        Customer jonathan = individual(1L, "Jonathan", "Smith", DOB, null, null);
+        Customer typo = individual(2L, "Jonathon", "Smith", DOB, null, null);
+
+        assertThat(CustomerMatcher.score(CustomerMatcher.profile(jonathan), CustomerMatcher.profile(typo), THRESHOLD))
+            .isNull();
+
+        jonathan.setEmail("J.Smith@Example.com");
+        typo.setEmail(" j.smith@example.com ");
+        Match match = CustomerMatcher.score(CustomerMatcher.profile(jonathan), CustomerMatcher.profile(typo), THRESHOLD);
+        assertThat(match).isNotNull();
+        assertThat(match.score()).isBetween(THRESHOLD, 1.0);
+        assertThat(match.matchedOn()).isEqualTo("NAME,DOB,EMAIL");
+    }
+
+    @Test
+    void aDifferentBirthDateOrCustomerTypeRulesThePairOut() {
+        Profile a = CustomerMatcher.profile(individual(1L, "Maria", "Santos", DOB, "09171234567", null));
+        Profile b = CustomerMatcher.profile(individual(2L, "Maria", "Santos", DOB.plusYears(30), "09171234567", null));
+
+        // 0.6 name - 0.25 birth date + 0.15 mobile
+        assertThat(CustomerMatcher.score(a, b, 0.0).score()).isCloseTo(0.5, within(1e-9));
+        assertThat(CustomerMatcher.score(a, b, THRESHOLD)).isNull();
+        assertThat(CustomerMatcher.score(a, CustomerMatcher.profile(company(3L, "Maria Santos", null)), 0.0)).isNull();
+        assertThat(CustomerMatcher.score(a, a, 0.0)).isNull();
+    }
+
+    @Test
+    void chineseNamesAreCompared() {
+        Customer a = individual(1L, null, null, DOB, null, "G1234567");
+        a.setLastNameCn("王");
+        a.setFirstNameCn("小明");
+        Customer b = individual(2L, null, null, DOB, null, "G1234567");
+        b.setLastNameCn("王");
+        b.setFirstNameCn("小明");
+
+        assertThat(CustomerMatcher.blockingKeys(CustomerMatcher.profile(a))).contains("N|王小明|1985-03-14");
+        assertThat(CustomerMatcher.score(CustomerMatcher.profile(a), CustomerMatcher.profile(b), THRESHOLD).matchedOn())
+            .isEqualTo("NAME,DOB,ID");
+    }
+
+    @Test
+    void soundexJaroWinklerAndNormalization() {
+        assertThat(CustomerMatcher.soundex("robert")).isEqualTo("R163");
+        assertThat(CustomerMatcher.soundex("rupert")).isEqualTo("R163");
+        assertThat(CustomerMatcher.soundex("ashcraft")).isEqualTo("A261");
+        assertThat(CustomerMatcher.soundex("pfister")).isEqualTo("P236");
+        assertThat(CustomerMatcher.soundex("王")).isNull();
+
+        assertThat(CustomerMatcher.jaroWinkler("martha", "marhta")).isCloseTo(0.9611, within(1e-4));
+        assertThat(CustomerMatcher.jaroWinkler("dwayne", "duane")).isCloseTo(0.84, within(1e-4));
+        assertThat(CustomerMatcher.jaroWinkler("abc", "xyz")).isZero();
+
+        assertThat(CustomerMatcher.normalize("  José Ñúñez-Ortiz ")).isEqualTo("josenunezortiz");
+        assertThat(CustomerMatcher.normalize(" - ")).isNull();
+    }
+
+    private static Customer individual(Long id, String firstName, String lastName, LocalDate dob, String mobile,
+                                       String idNumber) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setCustomerType(CustomerType.INDIVIDUAL);
+        customer.setFirstName(firstName);
+        customer.setLastName(lastName);
+        customer.setDateOfBirth(dob);
+        customer.setMobilePhone(mobile);
+        customer.setIdNumber(idNumber);
+        return customer;
+    }
+
+    private static Customer company(Long id, String name, String registration) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setCustomerType(CustomerType.CORPORATE);
+        customer.setCompanyName(name);
+        customer.setRegistrationNumber(registration);
+        customer.setDateOfIncorporation(LocalDate.of(2001, 6, 1));
+        return customer;
+    }
+}
@@ -0,0 +1,127 @@
+package com.secbank.cbs.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Customer uniqueness filter / 客户唯一性过滤器测试
+ * The customer scan reads {@link #rows}; {@link #duringScan} runs while it is open, as a
+ * concurrent writer would.
+ */
+class CustomerUniquenessFilterTest {
+
+    private final List<String[]> rows = new ArrayList<>();
+    private final List<String> queried = new ArrayList<>();
+    private Runnable duringScan = () -> { };
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerUniquenessFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenAnswer(invocation ->
+            invocation.<String>getArgument(0).contains("pg_class") ? estimate() : scan());
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new CustomerUniquenessFilter(dataSource, mock(PlatformTransactionManager.class), meterRegistry,
+            1000, 1000, 0.01);
+        rows.add(new String[]{"ana@example.com", "P-1", "TIN-1"});
+    }
+
+    @Test
+    void beforeTheFirstBuildEveryCheckQueriesTheDatabase() {
+        assertThat(filter.emailExists("ana@example.com", this::query)).isFalse();
+        assertThat(filter.emailExists("ben@example.com", this::query)).isFalse();
+
+        assertThat(queried).containsExactly("ana@example.com", "ben@example.com");
+    }
+
+    @Test
+    void negativeAnswersSkipTheDatabaseAndHitsAreConfirmed() {
+        filter.rebuild();
+
+        assertThat(filter.idNumberExists("P-1", value -> true)).isTrue();
+        assertThat(filter.taxIdExists("TIN-2", this::query)).isFalse();
+        // Fields have separate filters
+        assertThat(filter.emailExists("P-1", this::query)).isFalse();
+        assertThat(filter.emailExists(null, this::query)).isFalse();
+
+        assertThat(queried).isEmpty();
+        assertThat(meterRegistry.get("customer.uniqueness.filter.skipped").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void valuesAddedAroundARebuildAreNeverMissed() {
+        filter.rebuild();
+        // Added before the rebuild, committed after its scan started: only the replaced filter has it
+        filter.add("early@example.com", "P-2", null);
+        // Added while the scan runs: recorded in the filter being built as well
+        duringScan = () -> filter.add("late@example.com", "P-3", null);
+
+        filter.rebuild();
+
+        assertThat(filter.emailExists("early@example.com", value -> true)).isTrue();
+        assertThat(filter.emailExists("late@example.com", value -> true)).isTrue();
+        assertThat(filter.idNumberExists("P-2", value -> true)).isTrue();
+        assertThat(filter.idNumberExists("P-3", value -> true)).isTrue();
+
+        // One more rebuild later the early value is gone unless the scan finds it, and a probable
+        // hit the database does not confirm counts as a false positive
+        duringScan = () -> { };
+        filter.rebuild();
+        assertThat(filter.emailExists("early@example.com", this::query)).isFalse();
+        assertThat(filter.emailExists("late@example.com", this::query)).isFalse();
+        assertThat(queried).containsExactly("late@example.com");
+        assertThat(meterRegistry.get("customer.uniqueness.filter.false.positives").counter().count()).isEqualTo(1.0);
+    }
+
+    private boolean query(String value) {
+        queried.add(value);
+        return false;
+    }
+
+    private ResultSet estimate() throws Exception {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(1);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getLong(1)).thenReturn((long) rows.size());
+        return rs;
+    }
+
+    private ResultSet scan() throws Exception {
+        List<String[]> snapshot = List.copyOf(rows);
+        int[] position = {-1};
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenAnswer(invocation -> {
+            if (position[0] == -1) {
+                duringScan.run();
+            }
+            return ++position[0] < snapshot.size();
+        });
+        when(rs.getString("email")).thenAnswer(invocation -> snapshot.get(position[0])[0]);
+        when(rs.getString("id_number")).thenAnswer(invocation -> snapshot.get(position[0])[1]);
+        when(rs.getString("tax_id")).thenAnswer(invocation -> snapshot.get(position[0])[2]);
+        return rs;
+    }
+}
@@ -0,0 +1,178 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.config.LedgerSchemaInitializer;
+import com.secbank.cbs.entity.AccountType;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.service.DailyLimitService.Reservation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Daily limits / 日限额测试
+ * Account type 1 allows 1,000.00 of withdrawals, 5,000.00 of transfers and five postings a day.
+ */
+class DailyLimitServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final long ACCOUNT = 42L;
+    private static final long TYPE = 1L;
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private DailyLimitService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ReferenceDataCache referenceDataCache = mock(ReferenceDataCache.class);
+        AccountType savings = new AccountType();
+        savings.setId(TYPE);
+        savings.setDailyWithdrawalLimit(new BigDecimal("1000.00"));
+        savings.setDailyTransferLimit(new BigDecimal("5000.00"));
+        savings.setMaxTransactionsPerDay(5);
+        when(referenceDataCache.getVersion(Kind.ACCOUNT_TYPE)).thenReturn(1L);
+        when(referenceDataCache.getAccountType(TYPE)).thenReturn(Optional.of(savings));
+        service = new DailyLimitService(jdbcTemplate, referenceDataCache, meterRegistry,
+            mock(LedgerSchemaInitializer.class), List.of("CASH_WITHDRAWAL"), List.of("TRANSFER"), 4);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void withdrawalsStopAtTheDailyLimit() {
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 60_000);
+
+        assertThatThrownBy(() -> service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 40_001))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("remaining 400.00");
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 40_000);
+        // Transfers have their own limit
+        service.reserve(ACCOUNT, TYPE, "TRANSFER", TODAY, 100_000);
+
+        assertThat(meterRegistry.get("limits.rejections").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void rollbackReleasesTheReservation() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 100_000);
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // The whole limit is available again, and the rolled-back posting does not count
+        TransactionSynchronizationManager.initSynchronization();
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 100_000);
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThatThrownBy(() -> service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 1))
+            .isInstanceOf(BusinessException.class);
+    }
+
+    @Test
+    void explicitReleaseOutsideATransaction() {
+        Reservation reservation = service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 100_000);
+        service.release(reservation);
+
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 100_000);
+    }
+
+    @Test
+    void transactionCountLimitAppliesAcrossCategories() {
+        for (int i = 0; i < 5; i++) {
+            service.reserve(ACCOUNT, TYPE, i % 2 == 0 ? "TRANSFER" : "CASH_WITHDRAWAL", TODAY, 100);
+        }
+
+        assertThatThrownBy(() -> service.reserve(ACCOUNT, TYPE, "TRANSFER", TODAY, 100))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("count limit of 5");
+    }
+
+    @Test
+    void unlimitedTypesAndNewDaysStartClear() {
+        assertThat(service.reserve(ACCOUNT, TYPE, "CASH_DEPOSIT", TODAY, 10_000_000)).isNull();
+
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY.minusDays(1), 100_000);
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 100_000);
+    }
+
+    @Test
+    void rebuildTakesTheLargerOfCheckpointAndJournal() throws Exception {
+        ResultSet checkpoint = mock(ResultSet.class);
+        when(checkpoint.getLong("account_id")).thenReturn(ACCOUNT);
+        when(checkpoint.getLong("withdrawn_minor")).thenReturn(30_000L);
+        when(checkpoint.getLong("transferred_minor")).thenReturn(200_000L);
+        when(checkpoint.getInt("txn_count")).thenReturn(1);
+        ResultSet journal = mock(ResultSet.class);
+        when(journal.getLong("account_id")).thenReturn(ACCOUNT);
+        when(journal.getBigDecimal("withdrawn")).thenReturn(new BigDecimal("500.00"));
+        when(journal.getBigDecimal("transferred")).thenReturn(BigDecimal.ZERO);
+        when(journal.getInt("txn_count")).thenReturn(2);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(checkpoint);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(TODAY));
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(journal);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        service.afterPropertiesSet();
+
+        // Journal shows 500.00 withdrawn, checkpoint 2,000.00 transferred
+        assertThatThrownBy(() -> service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 50_001))
+            .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> service.reserve(ACCOUNT, TYPE, "TRANSFER", TODAY, 300_001))
+            .isInstanceOf(BusinessException.class);
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 50_000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void checkpointWritesDirtyUsageOnce() {
+        service.reserve(ACCOUNT, TYPE, "CASH_WITHDRAWAL", TODAY, 12_345);
+
+        service.checkpoint();
+        service.checkpoint();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+        assertThat(rows.getValue()).singleElement()
+            .satisfies(row -> assertThat(row).containsExactly(ACCOUNT, TODAY, 12_345L, 0L, 1));
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+}
@@ -0,0 +1,94 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.DashboardStatsDTO;
+import com.secbank.cbs.event.AuditLoggedEvent;
+import com.secbank.cbs.event.StatusChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cached dashboard snapshot / 仪表板缓存快照测试
+ */
+class DashboardServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DashboardService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("total_users")).thenReturn(10L);
+        when(rs.getLong("active_users")).thenReturn(8L);
+        when(rs.getLong("total_roles")).thenReturn(4L);
+        when(rs.getLong("total_branches")).thenReturn(3L);
+        when(rs.getLong("active_branches")).thenReturn(2L);
+        when(rs.getLong("total_permissions")).thenReturn(40L);
+        when(rs.getLong("today_audit_logs")).thenReturn(5L);
+        when(rs.getLong("total_audit_logs")).thenReturn(500L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any(), any());
+        service = new DashboardService(jdbcTemplate);
+        ReflectionTestUtils.setField(service, "approximateCountThreshold", 1_000_000L);
+    }
+
+    @Test
+    void snapshotIsLoadedOnceAndServedFromMemory() {
+        DashboardStatsDTO first = service.getStats();
+        DashboardStatsDTO second = service.getStats();
+
+        assertThat(first.getTotalUsers()).isEqualTo(10L);
+        assertThat(first.getActiveBranches()).isEqualTo(2L);
+        assertThat(first.getTotalAuditLogs()).isEqualTo(500L);
+        assertThat(first.getRefreshedAt()).isNotNull();
+        assertThat(second.getRefreshedAt()).isEqualTo(first.getRefreshedAt());
+        verify(jdbcTemplate, times(1)).query(anyString(), any(RowCallbackHandler.class), any(), any(), any());
+    }
+
+    @Test
+    void statusEventsKeepCountersCurrentBetweenRefreshes() {
+        service.getStats();
+
+        service.onStatusChanged(new StatusChangedEvent("User", 11L, null, "ACTIVE"));
+        service.onStatusChanged(new StatusChangedEvent("User", 3L, "ACTIVE", "LOCKED"));
+        service.onStatusChanged(new StatusChangedEvent("Branch", 4L, null, "INACTIVE"));
+        service.onStatusChanged(new StatusChangedEvent("Branch", 2L, "ACTIVE", null));
+        service.onStatusChanged(new StatusChangedEvent("Customer", 7L, null, "ACTIVE"));
+
+        DashboardStatsDTO stats = service.getStats();
+        assertThat(stats.getTotalUsers()).isEqualTo(11L);
+        assertThat(stats.getActiveUsers()).isEqualTo(8L);
+        assertThat(stats.getTotalBranches()).isEqualTo(3L);
+        assertThat(stats.getActiveBranches()).isEqualTo(1L);
+    }
+
+    @Test
+    void auditRowsCountTowardTodayOnlyWhenWrittenToday() {
+        service.getStats();
+
+        service.onAuditLogged(new AuditLoggedEvent("CASA", "CREATE", LocalDateTime.now()));
+        service.onAuditLogged(new AuditLoggedEvent("CASA", "CREATE", LocalDateTime.now().minusDays(1)));
+
+        DashboardStatsDTO stats = service.getStats();
+        assertThat(stats.getTodayAuditLogs()).isEqualTo(6L);
+        assertThat(stats.getTotalAuditLogs()).isEqualTo(502L);
+    }
+}
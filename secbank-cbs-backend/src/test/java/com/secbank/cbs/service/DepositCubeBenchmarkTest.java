@@ -0,0 +1,100 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.DepositCubeRowDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.service.DepositCubeService.Dimension;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Deposit cube benchmark / 存款立方体基准测试
+ * Loads a synthetic 500-branch book (10M accounts by default) through the event path and times
+ * the roll-ups regional reports use. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=DepositCubeBenchmarkTest [-Dbenchmark.accounts=N]}.
+ * 通过事件路径加载500分行、默认1000万账户的合成数据，测量常用汇总查询耗时
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class DepositCubeBenchmarkTest {
+
+    private static final int BRANCHES = 500;
+    private static final int ACCOUNT_TYPES = 8;
+    private static final int OPEN_MONTHS = 120;
+    private static final AccountStatus[] STATUSES = {AccountStatus.ACTIVE, AccountStatus.DORMANT, AccountStatus.CLOSED};
+    private static final String[] CURRENCIES = {"PHP", "USD"};
+    private static final int EVENT_SIZE = 1000;
+    private static final int QUERY_ROUNDS = 20;
+
+    @Test
+    void tenMillionAccountBook() {
+        long accounts = Long.getLong("benchmark.accounts", 10_000_000L);
+        DepositCubeService cube = new DepositCubeService(null, null);
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate firstMonth = LocalDate.of(2016, 1, 1);
+
+        long start = System.nanoTime();
+        List<AccountChangedEvent.Change> changes = new ArrayList<>(EVENT_SIZE);
+        for (long id = 1; id <= accounts; id++) {
+            AccountSnapshot opened = AccountSnapshot.builder()
+                .accountId(id)
+                .status(STATUSES[random.nextInt(STATUSES.length)])
+                .branchId((long) random.nextInt(BRANCHES) + 1)
+                .accountTypeId((long) random.nextInt(ACCOUNT_TYPES) + 1)
+                .currency(CURRENCIES[random.nextInt(CURRENCIES.length)])
+                .currentBalance(BigDecimal.valueOf(random.nextLong(10_000_000L), 2))
+                .openDate(firstMonth.plusMonths(random.nextInt(OPEN_MONTHS)))
+                .build();
+            changes.add(new AccountChangedEvent.Change(null, opened));
+            if (changes.size() == EVENT_SIZE) {
+                cube.onAccountChanged(new AccountChangedEvent(changes));
+                changes.clear();
+            }
+        }
+        if (!changes.isEmpty()) {
+            cube.onAccountChanged(new AccountChangedEvent(changes));
+        }
+        long loadMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Loaded {} accounts into {} cells in {} ms ({} events/s)", accounts,
+            cube.getCellCount(), loadMs, accounts * 1000 / Math.max(1, loadMs));
+
+        List<DepositCubeRowDTO> total = cube.query(Set.of(), null, null, null, null, null, null);
+        assertThat(total).hasSize(1);
+        assertThat(total.get(0).getAccountCount()).isEqualTo(accounts);
+
+        time("total", () -> cube.query(Set.of(), null, null, null, null, null, null));
+        time("by branch", () -> cube.query(EnumSet.of(Dimension.BRANCH), null, null, null, null, null, null));
+        time("by branch x type", () -> cube.query(EnumSet.of(Dimension.BRANCH, Dimension.ACCOUNT_TYPE),
+            null, null, null, null, null, null));
+        time("one branch by month", () -> cube.query(EnumSet.of(Dimension.OPEN_MONTH), 250L, null,
+            AccountStatus.ACTIVE, null, null, null));
+    }
+
+    private static void time(String name, Supplier<List<DepositCubeRowDTO>> query) {
+        query.get();
+        long[] nanos = new long[QUERY_ROUNDS];
+        int rows = 0;
+        for (int i = 0; i < QUERY_ROUNDS; i++) {
+            long start = System.nanoTime();
+            rows = query.get().size();
+            nanos[i] = System.nanoTime() - start;
+        }
+        java.util.Arrays.sort(nanos);
+        log.info("{}: {} rows, p50 {} ms, max {} ms", name, rows,
+            String.format("%.2f", nanos[QUERY_ROUNDS / 2] / 1e6), String.format("%.2f", nanos[QUERY_ROUNDS - 1] / 1e6));
+    }
+}
@@ -0,0 +1,174 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.DepositCubeRowDTO;
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import com.secbank.cbs.service.DepositCubeService.Dimension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deposit cube rebuild and event maintenance / 存款立方体重建与事件维护测试
+ */
+class DepositCubeServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private DepositCubeService cube;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        cube = new DepositCubeService(jdbcTemplate, mock(PlatformTransactionManager.class));
+        // The scan sees every transaction below 100 and 100..104 except 102, which is still running
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class))).thenReturn("100:105:102");
+    }
+
+    @Test
+    void eventDeliveredDuringScanReachesTheNewCube() throws Exception {
+        AccountSnapshot opened = account(2L, 2L, "50.00");
+        scanReturnsBranchOneAnd(() -> cube.onAccountChanged(AccountChangedEvent.opened(opened)));
+
+        cube.rebuild();
+
+        List<DepositCubeRowDTO> rows = byBranch();
+        assertThat(rows).extracting(DepositCubeRowDTO::getBranchId).containsExactly(1L, 2L);
+        assertThat(rows.get(1).getAccountCount()).isEqualTo(1);
+        assertThat(rows.get(1).getTotalBalance()).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void eventDeliveredDuringScanIsNotCountedTwiceAfterSwap() throws Exception {
+        AccountSnapshot before = account(1L, 1L, "100.00");
+        AccountSnapshot after = account(1L, 1L, "40.00");
+        scanReturnsBranchOneAnd(() -> cube.onAccountChanged(AccountChangedEvent.updated(before, after)));
+
+        cube.rebuild();
+        cube.onAccountChanged(AccountChangedEvent.updated(after, account(1L, 1L, "45.00")));
+
+        List<DepositCubeRowDTO> rows = byBranch();
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0).getAccountCount()).isEqualTo(1);
+        assertThat(rows.get(0).getTotalBalance()).isEqualByComparingTo("45.00");
+    }
+
+    @Test
+    void rebuildReplacesEventCounts() throws Exception {
+        cube.onAccountChanged(AccountChangedEvent.opened(account(9L, 9L, "10.00")));
+        scanReturnsBranchOneAnd(() -> { });
+
+        cube.rebuild();
+
+        assertThat(byBranch()).extracting(DepositCubeRowDTO::getBranchId).containsExactly(1L);
+    }
+
+    @Test
+    void eventAlreadyInTheScanSnapshotIsNotReplayed() throws Exception {
+        // Committed as transaction 99 before the snapshot, delivered only after the scan started
+        AccountChangedEvent committed = AccountChangedEvent.updated(account(1L, 1L, "60.00"), account(1L, 1L, "100.00"));
+        scanReturnsBranchOneAnd(() -> {
+            stamp(committed, 99L);
+            cube.onAccountChanged(committed);
+        });
+
+        cube.rebuild();
+
+        assertThat(byBranch().get(0).getTotalBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void eventOfATransactionRunningAtTheSnapshotIsReplayed() throws Exception {
+        AccountSnapshot before = account(1L, 1L, "100.00");
+        AccountSnapshot after = account(1L, 1L, "40.00");
+        AccountChangedEvent running = AccountChangedEvent.updated(before, after);
+        scanReturnsBranchOneAnd(() -> {
+            stamp(running, 102L);
+            cube.onAccountChanged(running);
+        });
+
+        cube.rebuild();
+
+        assertThat(byBranch().get(0).getTotalBalance()).isEqualByComparingTo("40.00");
+    }
+
+    @Test
+    void eventInTheSnapshotDeliveredAfterTheSwapIsSkipped() throws Exception {
+        AccountChangedEvent late = AccountChangedEvent.updated(account(1L, 1L, "60.00"), account(1L, 1L, "100.00"));
+        scanReturnsBranchOneAnd(() -> stamp(late, 101L));
+
+        cube.rebuild();
+        cube.onAccountChanged(late);
+        cube.forgetAccountChange(late);
+
+        assertThat(byBranch().get(0).getTotalBalance()).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void snapshotVisibility() {
+        DepositCubeService.Snapshot snapshot = DepositCubeService.Snapshot.parse("100:105:102,103");
+        assertThat(snapshot.sees(99)).isTrue();
+        assertThat(snapshot.sees(101)).isTrue();
+        assertThat(snapshot.sees(102)).isFalse();
+        assertThat(snapshot.sees(104)).isTrue();
+        assertThat(snapshot.sees(105)).isFalse();
+        assertThat(DepositCubeService.Snapshot.parse("7:7:").sees(6)).isTrue();
+    }
+
+    /** Run the before-commit stamp of an event as if its transaction had id {@code xid}. */
+    private void stamp(AccountChangedEvent event, long xid) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(xid);
+        cube.stampAccountChange(event);
+    }
+
+    /** The scan sees one account of 100.00 in branch 1, then runs {@code duringScan}. */
+    private void scanReturnsBranchOneAnd(Runnable duringScan) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("branch_id")).thenReturn(1L);
+        when(rs.getLong("account_type_id")).thenReturn(1L);
+        when(rs.getString("status")).thenReturn(AccountStatus.ACTIVE.name());
+        when(rs.getString("currency")).thenReturn("PHP");
+        when(rs.getInt("open_year")).thenReturn(2024);
+        when(rs.getInt("open_month")).thenReturn(1);
+        when(rs.getLong("account_count")).thenReturn(1L);
+        when(rs.getBigDecimal("total_balance")).thenReturn(new BigDecimal("100.00"));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(rs);
+            duringScan.run();
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private List<DepositCubeRowDTO> byBranch() {
+        return cube.query(EnumSet.of(Dimension.BRANCH), null, null, null, null, null, null);
+    }
+
+    private static AccountSnapshot account(Long id, Long branchId, String balance) {
+        return AccountSnapshot.builder()
+            .accountId(id)
+            .status(AccountStatus.ACTIVE)
+            .branchId(branchId)
+            .accountTypeId(1L)
+            .currency("PHP")
+            .currentBalance(new BigDecimal(balance))
+            .openDate(LocalDate.of(2024, 1, 15))
+            .build();
+    }
+}
@@ -0,0 +1,93 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dormancy sweep against PostgreSQL / 基于PostgreSQL的休眠批处理测试
+ * A chunk size of two makes each branch loop over several chunks. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+    "app.eod.cron=-",
+    "app.dormancy.chunk-size=2",
+    "app.dormancy.inactive-days=730"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class DormancySweepServicePostgresTest {
+
+    private static final LocalDate BUSINESS_DATE = LocalDate.now();
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private DormancySweepService dormancySweepService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void inactiveAccountsTurnDormantAndPayACappedFeeOnce() {
+        long[] ids = BenchmarkData.seedAccounts(jdbcTemplate, "DRM", 2, 6, new BigDecimal("100.00"),
+            BUSINESS_DATE.minusYears(3));
+        jdbcTemplate.update("UPDATE account_types SET dormancy_fee = 50.00 WHERE type_code = 'DRMSAV'");
+        // Recent activity keeps one account active; another was never used but opened recently
+        jdbcTemplate.update("UPDATE accounts SET last_transaction_date = ? WHERE id = ?",
+            BUSINESS_DATE.minusDays(10).atStartOfDay(), ids[0]);
+        jdbcTemplate.update("UPDATE accounts SET open_date = ? WHERE id = ?", BUSINESS_DATE.minusDays(700), ids[1]);
+        // The fee never overdraws, and an empty account is flagged without a charge
+        jdbcTemplate.update("UPDATE accounts SET current_balance = 20.00, available_balance = 20.00 WHERE id = ?", ids[2]);
+        jdbcTemplate.update("UPDATE accounts SET current_balance = 0, available_balance = 0 WHERE id = ?", ids[3]);
+
+        BatchRunSummaryDTO summary = dormancySweepService.sweep(BUSINESS_DATE);
+
+        assertThat(summary.getProcessed()).isEqualTo(4L);
+        assertThat(status(ids[0])).isEqualTo("ACTIVE");
+        assertThat(status(ids[1])).isEqualTo("ACTIVE");
+        for (int i = 2; i < ids.length; i++) {
+            assertThat(status(ids[i])).isEqualTo("DORMANT");
+            assertThat(jdbcTemplate.queryForObject("SELECT dormant_date FROM accounts WHERE id = ?",
+                LocalDate.class, ids[i])).isEqualTo(BUSINESS_DATE);
+        }
+        assertThat(balance(ids[2])).isEqualByComparingTo("0.00");
+        assertThat(balance(ids[3])).isEqualByComparingTo("0.00");
+        assertThat(balance(ids[4])).isEqualByComparingTo("50.00");
+        assertThat(balance(ids[5])).isEqualByComparingTo("50.00");
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM audit_logs WHERE action = 'DORMANT' AND entity_id = ANY (?::bigint[])",
+            Integer.class, idArray(ids))).isEqualTo(4);
+
+        // Flagged accounts are no longer ACTIVE, so a re-run finds nothing to do
+        assertThat(dormancySweepService.sweep(BUSINESS_DATE).getProcessed()).isZero();
+        assertThat(balance(ids[4])).isEqualByComparingTo("50.00");
+    }
+
+    private String status(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM accounts WHERE id = ?", String.class, accountId);
+    }
+
+    private BigDecimal balance(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT current_balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private static String idArray(long[] ids) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < ids.length; i++) {
+            sb.append(i > 0 ? "," : "").append(ids[i]);
+        }
+        return sb.append('}').toString();
+    }
+}
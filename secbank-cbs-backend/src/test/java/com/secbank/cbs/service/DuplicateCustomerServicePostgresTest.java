@@ -0,0 +1,119 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.DuplicateCandidateDTO;
+import com.secbank.cbs.entity.Customer;
+import com.secbank.cbs.entity.Customer.CustomerType;
+import com.secbank.cbs.service.DuplicateCustomerService.CandidateStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Duplicate-customer detection against PostgreSQL / 基于PostgreSQL的重复客户识别测试
+ * Blocks of more than three customers are skipped. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {"app.eod.cron=-", "app.dedupe.max-block-size=3", "app.batch.partitions=2"})
+@Testcontainers(disabledWithoutDocker = true)
+class DuplicateCustomerServicePostgresTest {
+
+    private static final LocalDate DOB = LocalDate.of(1985, 3, 14);
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private DuplicateCustomerService duplicateCustomerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchFlagsBlockedPairsSkipsOversizedBlocksAndKeepsReviews() {
+        long juan = insert("DUP000001", "Juan", "Dela Cruz", DOB, "+63 917 123 4567", null);
+        long swapped = insert("DUP000002", "Dela Cruz", "Juan", DOB, "0917-123-4567", null);
+        long unrelated = insert("DUP000003", "Pedro", "Reyes", DOB, "0918 765 4321", null);
+        // Four identical names on one shared mobile: the blocks are too large to carry a signal
+        long[] shared = new long[4];
+        for (int i = 0; i < shared.length; i++) {
+            shared[i] = insert("DUP00001" + i, "Ana", "Lim", null, "0999 000 0000", "ana@example.com");
+        }
+
+        duplicateCustomerService.detect();
+
+        assertThat(duplicateCustomerService.getCandidates(juan)).singleElement().satisfies(candidate -> {
+            assertThat(candidate.getCustomerId()).isEqualTo(swapped);
+            assertThat(candidate.getDuplicateOfId()).isEqualTo(juan);
+            assertThat(candidate.getScore()).isEqualByComparingTo("1.0");
+            assertThat(candidate.getMatchedOn()).isEqualTo("NAME,DOB,MOBILE");
+            assertThat(candidate.getStatus()).isEqualTo(CandidateStatus.OPEN.name());
+        });
+        assertThat(duplicateCustomerService.getCandidates(unrelated)).isEmpty();
+        assertThat(duplicateCustomerService.getCandidates(shared[0])).isEmpty();
+
+        // A dismissed pair stays dismissed when the batch finds it again
+        duplicateCustomerService.review(swapped, juan, CandidateStatus.DISMISSED, 1L);
+        duplicateCustomerService.detect();
+
+        assertThat(duplicateCustomerService.getCandidates(juan)).extracting(DuplicateCandidateDTO::getStatus)
+            .containsExactly(CandidateStatus.DISMISSED.name());
+        assertThat(duplicateCustomerService.getCandidates(CandidateStatus.OPEN, BigDecimal.ZERO, 100))
+            .noneMatch(c -> c.getDuplicateOfId() == juan);
+    }
+
+    @Test
+    void screeningANewCustomerRecordsItsDuplicatesAtOnce() {
+        long existing = insert("SCR000001", "Jonathan", "Smith", DOB, null, "j.smith@example.com");
+        Customer application = new Customer();
+        application.setCustomerType(CustomerType.INDIVIDUAL);
+        application.setFirstName("Jonathon");
+        application.setLastName("Smith");
+        application.setDateOfBirth(DOB);
+        application.setEmail("J.Smith@example.com");
+        duplicateCustomerService.screen(customer(existing));
+
+        // Checking an application before it is created records nothing
+        assertThat(duplicateCustomerService.findPossibleDuplicates(application))
+            .extracting(DuplicateCandidateDTO::getDuplicateOfId).containsExactly(existing);
+        assertThat(duplicateCustomerService.getCandidates(existing)).isEmpty();
+
+        long created = insert("SCR000002", "Jonathon", "Smith", DOB, null, "J.Smith@example.com");
+        assertThat(duplicateCustomerService.screen(customer(created)))
+            .extracting(DuplicateCandidateDTO::getDuplicateOfNumber).containsExactly("SCR000001");
+        assertThat(duplicateCustomerService.getCandidates(existing)).extracting(DuplicateCandidateDTO::getCustomerId)
+            .containsExactly(created);
+    }
+
+    private long insert(String number, String firstName, String lastName, LocalDate dob, String mobile, String email) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO customers (customer_number, customer_type, status, first_name, last_name, date_of_birth, " +
+            "mobile_phone, email) VALUES (?, 'INDIVIDUAL', 'ACTIVE', ?, ?, ?, ?, ?) RETURNING id",
+            Long.class, number, firstName, lastName, dob, mobile, email);
+    }
+
+    private Customer customer(long id) {
+        return jdbcTemplate.queryForObject(
+            "SELECT id, first_name, last_name, date_of_birth, mobile_phone, email FROM customers WHERE id = ?",
+            (rs, rowNum) -> {
+                Customer customer = new Customer();
+                customer.setId(rs.getLong("id"));
+                customer.setCustomerType(CustomerType.INDIVIDUAL);
+                customer.setFirstName(rs.getString("first_name"));
+                customer.setLastName(rs.getString("last_name"));
+                customer.setDateOfBirth(rs.getObject("date_of_birth", LocalDate.class));
+                customer.setMobilePhone(rs.getString("mobile_phone"));
+                customer.setEmail(rs.getString("email"));
+                return customer;
+            }, id);
+    }
+}
@@ -0,0 +1,131 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.EodRunDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-of-day run against PostgreSQL / 基于PostgreSQL的日终批处理测试
+ * One savings account at 3.65% opened on 2024-01-01 is taken through the month-end run of
+ * 2024-01-31 and the following day. Interest is 100,000.00 x 3.65% x 31 / 365 = 310.00 gross,
+ * 62.00 withholding tax, so the figures are exact. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+    "app.eod.start-date=2024-01-31",
+    "app.eod.cron=-",
+    "app.statements.directory=target/eod-test-statements"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class EodServicePostgresTest {
+
+    private static final LocalDate MONTH_END = LocalDate.of(2024, 1, 31);
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private EodService eodService;
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Seeded once; the context and container are shared by both ordered tests. */
+    private static Long accountId;
+
+    @BeforeEach
+    void seedAccount() {
+        if (accountId != null) {
+            return;
+        }
+        Long branchId = jdbcTemplate.queryForObject("SELECT id FROM branches WHERE branch_code = 'HQ001'", Long.class);
+        Long typeId = jdbcTemplate.queryForObject(
+            "INSERT INTO account_types (type_code, type_name, category, currency, status, interest_rate, " +
+            "interest_calculation, interest_posting_frequency) " +
+            "VALUES ('EODSAV', 'EOD Savings', 'SAVINGS', 'PHP', 'ACTIVE', 0.0365, 'DAILY_BALANCE', 'MONTHLY') " +
+            "RETURNING id", Long.class);
+        Long customerId = jdbcTemplate.queryForObject(
+            "INSERT INTO customers (customer_number, customer_type, status, first_name, last_name) " +
+            "VALUES ('EOD000001', 'INDIVIDUAL', 'ACTIVE', 'Eod', 'Tester') RETURNING id", Long.class);
+        accountId = jdbcTemplate.queryForObject(
+            "INSERT INTO accounts (account_number, account_name, customer_id, account_type_id, branch_id, currency, " +
+            "current_balance, available_balance, hold_balance, open_date, status) " +
+            "VALUES ('EOD0000000001', 'Eod Tester', ?, ?, ?, 'PHP', 100000.00, 100000.00, 0, DATE '2024-01-01', 'ACTIVE') " +
+            "RETURNING id", Long.class, customerId, typeId, branchId);
+        referenceDataCache.refreshAll();
+    }
+
+    @Test
+    @Order(1)
+    void monthEndRunPostsInterestOnTheBusinessDate() {
+        assertThat(eodService.getBusinessDate()).isEqualTo(MONTH_END);
+
+        EodRunDTO run = eodService.run();
+
+        assertThat(run.getStatus()).isEqualTo(EodService.STATUS_COMPLETED);
+        assertThat(run.getSteps()).allSatisfy(step ->
+            assertThat(step.getStatus()).isIn(EodService.STATUS_COMPLETED, EodService.STATUS_SKIPPED));
+        assertThat(eodService.getBusinessDate()).isEqualTo(MONTH_END.plusDays(1));
+
+        // Booked on the business date, not on the day the job happened to run
+        List<Map<String, Object>> entries = jdbcTemplate.queryForList(
+            "SELECT entry_date, reference, total_amount FROM journal_entries WHERE txn_type = 'INTEREST_POSTING'");
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).get("entry_date")).isEqualTo(java.sql.Date.valueOf(MONTH_END));
+        assertThat((BigDecimal) entries.get(0).get("total_amount")).isEqualByComparingTo("310.00");
+
+        Map<String, Object> account = account();
+        assertThat((BigDecimal) account.get("current_balance")).isEqualByComparingTo("100248.00");
+        assertThat((BigDecimal) account.get("accrued_interest")).isEqualByComparingTo("0.00");
+        assertThat(account.get("last_interest_date")).isEqualTo(java.sql.Date.valueOf(MONTH_END));
+        assertThat(account.get("next_interest_posting_date")).isEqualTo(java.sql.Date.valueOf(LocalDate.of(2024, 2, 29)));
+    }
+
+    @Test
+    @Order(2)
+    void nextDayAccruesOnceEvenWhenRerun() {
+        LocalDate nextDay = MONTH_END.plusDays(1);
+
+        EodRunDTO run = eodService.run();
+        assertThat(run.getBusinessDate()).isEqualTo(nextDay);
+        assertThat(run.getStatus()).isEqualTo(EodService.STATUS_COMPLETED);
+
+        // 100,248.00 x 3.65% / 365 = 10.0248
+        assertThat((BigDecimal) account().get("accrued_interest")).isEqualByComparingTo("10.02");
+
+        interestAccrualService.accrue(nextDay);
+        assertThat((BigDecimal) account().get("accrued_interest")).isEqualByComparingTo("10.02");
+        assertThat(jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM journal_entries WHERE entry_date <> ?", Long.class, MONTH_END)).isZero();
+    }
+
+    private Map<String, Object> account() {
+        return jdbcTemplate.queryForMap(
+            "SELECT current_balance, accrued_interest, last_interest_date, next_interest_posting_date " +
+            "FROM accounts WHERE id = ?", accountId);
+    }
+}
@@ -0,0 +1,156 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.EodRunDTO;
+import com.secbank.cbs.entity.EodRun;
+import com.secbank.cbs.entity.EodStepRun;
+import com.secbank.cbs.exception.BusinessException;
+import com.secbank.cbs.repository.EodRunRepository;
+import com.secbank.cbs.repository.EodStepRunRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * End-of-day orchestration / 日终批处理编排测试
+ * The repositories are backed by in-memory maps.
+ */
+class EodServiceTest {
+
+    private static final LocalDate MONTH_END = LocalDate.of(2026, 1, 31);
+
+    private final Map<LocalDate, EodRun> runs = new TreeMap<>();
+    private final List<EodStepRun> stepRuns = new ArrayList<>();
+    private final List<String> executed = new ArrayList<>();
+    private EodRunRepository runRepository;
+    private EodStepRunRepository stepRunRepository;
+
+    @BeforeEach
+    void setUp() {
+        runRepository = mock(EodRunRepository.class);
+        when(runRepository.findTopByOrderByBusinessDateDesc()).thenAnswer(invocation -> runs.values().stream()
+            .max(Comparator.comparing(EodRun::getBusinessDate)));
+        when(runRepository.findById(any())).thenAnswer(invocation -> Optional.ofNullable(runs.get(invocation.<LocalDate>getArgument(0))));
+        when(runRepository.save(any())).thenAnswer(invocation -> {
+            EodRun run = invocation.getArgument(0);
+            runs.put(run.getBusinessDate(), run);
+            return run;
+        });
+        stepRunRepository = mock(EodStepRunRepository.class);
+        when(stepRunRepository.findByBusinessDateAndStepName(any(), any())).thenAnswer(invocation -> stepRuns.stream()
+            .filter(s -> s.getBusinessDate().equals(invocation.getArgument(0)) && s.getStepName().equals(invocation.getArgument(1)))
+            .findFirst());
+        when(stepRunRepository.findByBusinessDateOrderByStepOrder(any())).thenAnswer(invocation -> stepRuns.stream()
+            .filter(s -> s.getBusinessDate().equals(invocation.getArgument(0)))
+            .sorted(Comparator.comparing(EodStepRun::getStepOrder))
+            .toList());
+        when(stepRunRepository.save(any())).thenAnswer(invocation -> {
+            EodStepRun stepRun = invocation.getArgument(0);
+            if (!stepRuns.contains(stepRun)) {
+                stepRuns.add(stepRun);
+            }
+            return stepRun;
+        });
+    }
+
+    @Test
+    void stepsRunAfterTheirDependenciesInDeclarationOrderOtherwise() {
+        EodService service = newService(
+            EodStep.daily("STATEMENTS", this::record, "POSTING", "SNAPSHOT"),
+            EodStep.daily("POSTING", this::record, "ACCRUAL"),
+            EodStep.daily("ACCRUAL", this::record),
+            EodStep.daily("DORMANCY", this::record),
+            EodStep.daily("SNAPSHOT", this::record, "ACCRUAL"));
+
+        EodRunDTO run = service.run();
+
+        assertThat(executed).containsExactly("ACCRUAL", "POSTING", "DORMANCY", "SNAPSHOT", "STATEMENTS");
+        assertThat(run.getStatus()).isEqualTo(EodService.STATUS_COMPLETED);
+        assertThat(run.getSteps()).extracting(EodRunDTO.Step::getName)
+            .containsExactly("ACCRUAL", "POSTING", "DORMANCY", "SNAPSHOT", "STATEMENTS");
+    }
+
+    @Test
+    void badDeclarationsFailAtStartup() {
+        assertThatThrownBy(() -> newService(EodStep.daily("A", this::record, "MISSING")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("unknown step MISSING");
+        assertThatThrownBy(() -> newService(EodStep.daily("A", this::record, "B"), EodStep.daily("B", this::record, "A")))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("cycle");
+        assertThatThrownBy(() -> newService(EodStep.daily("A", this::record), EodStep.daily("A", this::record)))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("Duplicate");
+    }
+
+    @Test
+    void failedRunResumesAtTheFailedStepAndThenRollsTheDateOver() {
+        boolean[] fail = {true};
+        EodService service = newService(
+            EodStep.daily("ACCRUAL", this::record),
+            EodStep.daily("POSTING", date -> {
+                if (fail[0]) {
+                    throw new IllegalStateException("ledger unavailable");
+                }
+                return record(date);
+            }, "ACCRUAL"),
+            EodStep.daily("SNAPSHOT", this::record, "POSTING"));
+
+        assertThatThrownBy(service::run)
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("failed at step POSTING");
+        assertThat(service.getBusinessDate()).isEqualTo(MONTH_END);
+        assertThat(service.getRun(MONTH_END).getSteps()).extracting(EodRunDTO.Step::getStatus)
+            .containsExactly(EodService.STATUS_COMPLETED, EodService.STATUS_FAILED);
+
+        fail[0] = false;
+        EodRunDTO run = service.run();
+
+        assertThat(executed).containsExactly("ACCRUAL", "POSTING", "SNAPSHOT");
+        assertThat(run.getAttempts()).isEqualTo(2);
+        assertThat(run.getSteps()).extracting(EodRunDTO.Step::getErrorMessage).containsOnlyNulls();
+        assertThat(service.getBusinessDate()).isEqualTo(MONTH_END.plusDays(1));
+    }
+
+    @Test
+    void monthEndStepsAreSkippedOnOtherDays() {
+        EodService service = newService(
+            EodStep.daily("ACCRUAL", this::record),
+            EodStep.monthEnd("POSTING", this::record, "ACCRUAL"));
+
+        service.run();
+        service.run();
+
+        assertThat(executed).containsExactly("ACCRUAL", "POSTING", "ACCRUAL");
+        assertThat(service.getRun(MONTH_END.plusDays(1)).getSteps()).extracting(EodRunDTO.Step::getStatus)
+            .containsExactly(EodService.STATUS_COMPLETED, EodService.STATUS_SKIPPED);
+    }
+
+    private EodService newService(EodStep... steps) {
+        return new EodService(List.of(steps), runRepository, stepRunRepository, new SimpleMeterRegistry(),
+            MONTH_END.toString());
+    }
+
+    /** Action of every step: remembers that it ran, under the name of the step being run */
+    private BatchRunSummaryDTO record(LocalDate businessDate) {
+        String step = stepRuns.stream()
+            .filter(s -> s.getBusinessDate().equals(businessDate) && EodService.STATUS_RUNNING.equals(s.getStatus()))
+            .findFirst().orElseThrow().getStepName();
+        executed.add(step);
+        return BatchRunSummaryDTO.builder().jobName(step).businessDate(businessDate).processed(1L).build();
+    }
+}
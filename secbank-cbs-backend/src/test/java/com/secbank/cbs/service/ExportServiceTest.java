@@ -0,0 +1,50 @@
+package com.secbank.cbs.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Export concurrency slots / 导出并发名额测试
+ */
+class ExportServiceTest {
+
+    private final ExportService exportService = new ExportService(mock(DataSource.class),
+        mock(PlatformTransactionManager.class), new ObjectMapper(), 100, 2);
+
+    @Test
+    void exportBeyondTheLimitIsRejectedWith429() {
+        ExportService.Slot first = exportService.acquireSlot();
+        ExportService.Slot second = exportService.acquireSlot();
+
+        assertThatThrownBy(exportService::acquireSlot)
+            .isInstanceOfSatisfying(ResponseStatusException.class,
+                e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void closingASlotTwiceReleasesItOnce() {
+        ExportService.Slot first = exportService.acquireSlot();
+        first.close();
+        first.close();
+
+        ExportService.Slot second = exportService.acquireSlot();
+        ExportService.Slot third = exportService.acquireSlot();
+        assertThatThrownBy(exportService::acquireSlot).isInstanceOf(ResponseStatusException.class);
+
+        second.close();
+        third.close();
+        exportService.acquireSlot().close();
+    }
+}
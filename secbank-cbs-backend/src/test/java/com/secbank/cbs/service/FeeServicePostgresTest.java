@@ -0,0 +1,105 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.FeeRunSummaryDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Monthly fees against PostgreSQL / 基于PostgreSQL的月度费用测试
+ * The product charges 10.00 a month plus 25.00 when the average daily balance is below 500.00.
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {"app.eod.cron=-", "app.fees.chunk-size=2"})
+@Testcontainers(disabledWithoutDocker = true)
+class FeeServicePostgresTest {
+
+    /** Twentieth counted day of the month, so the average is over 20 days */
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2026, 1, 20);
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private FeeService feeService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void feesFollowTheAverageBalanceAreCappedAndChargedOnce() {
+        long[] ids = BenchmarkData.seedAccounts(jdbcTemplate, "FEE", 2, 4, new BigDecimal("1000.00"),
+            LocalDate.of(2025, 12, 1));
+        jdbcTemplate.update("UPDATE account_types SET monthly_fee = 10.00, below_minimum_fee = 25.00, " +
+            "minimum_balance = 500.00 WHERE type_code = 'FEESAV'");
+        referenceDataCache.refreshAll();
+        setBalance(ids[1], "100.00");
+        setBalance(ids[2], "20.00");
+        // 1,000.00 arriving today leaves the month's average at 50.00
+        setBalance(ids[3], "0.00");
+        ledgerService.postBatch(List.of(PostingRequest.builder()
+            .reference("FEE-TEST-DEPOSIT")
+            .txnType("CASH_DEPOSIT")
+            .currency("PHP")
+            .legs(List.of(
+                Leg.builder().glCode("CASH-VAULT").direction(Direction.DEBIT).amount(new BigDecimal("1000.00")).build(),
+                Leg.builder().accountId(ids[3]).direction(Direction.CREDIT).amount(new BigDecimal("1000.00")).build()))
+            .build()), null, PostingPolicy.SYSTEM, BUSINESS_DATE);
+
+        // The dry run projects the same fees without touching balances
+        StringWriter projection = new StringWriter();
+        feeService.writeProjection(BUSINESS_DATE, projection);
+        assertThat(projection.toString().lines().skip(1)).hasSize(4)
+            .anySatisfy(line -> assertThat(line).startsWith(ids[3] + ",").endsWith(",50.00,500.00,10.00,25.00,0.00,35.00"));
+        assertThat(balance(ids[0])).isEqualByComparingTo("1000.00");
+
+        FeeRunSummaryDTO summary = feeService.charge(BUSINESS_DATE);
+
+        assertThat(balance(ids[0])).isEqualByComparingTo("990.00");
+        assertThat(balance(ids[1])).isEqualByComparingTo("65.00");
+        // Capped at the available balance: maintenance first, the rest of the below-minimum fee waived
+        assertThat(balance(ids[2])).isEqualByComparingTo("0.00");
+        assertThat(balance(ids[3])).isEqualByComparingTo("965.00");
+        assertThat(summary.getAccountsCharged()).isEqualTo(4L);
+        assertThat(summary.getMonthlyFeeTotal()).isEqualByComparingTo("40.00");
+        assertThat(summary.getBelowMinimumFeeTotal()).isEqualByComparingTo("60.00");
+        assertThat(summary.getWaivedTotal()).isEqualByComparingTo("15.00");
+
+        // The month is claimed, so neither a re-run nor a later day charges again
+        feeService.charge(BUSINESS_DATE.plusDays(1));
+        assertThat(balance(ids[0])).isEqualByComparingTo("990.00");
+        assertThat(feeService.getSummary(BUSINESS_DATE).getAccountsCharged()).isEqualTo(4L);
+    }
+
+    private void setBalance(long accountId, String balance) {
+        jdbcTemplate.update("UPDATE accounts SET current_balance = ?, available_balance = ? WHERE id = ?",
+            new BigDecimal(balance), new BigDecimal(balance), accountId);
+    }
+
+    private BigDecimal balance(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT current_balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+}
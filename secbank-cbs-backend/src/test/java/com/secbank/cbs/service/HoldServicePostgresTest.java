@@ -0,0 +1,122 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.AccountHoldDTO;
+import com.secbank.cbs.dto.PlaceHoldRequest;
+import com.secbank.cbs.entity.AccountHold.HoldStatus;
+import com.secbank.cbs.entity.AccountHold.HoldType;
+import com.secbank.cbs.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Holds against PostgreSQL / 基于PostgreSQL的冻结测试
+ * The scheduled sweep is pushed out of the way and driven by the test, with a batch size of two
+ * so one sweep has to loop over several batches. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+    "app.eod.cron=-",
+    "app.holds.expiry-batch-size=2",
+    "app.holds.expiry-sweep-ms=3600000"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class HoldServicePostgresTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static long[] accountIds;
+    private static int sequence;
+
+    @BeforeEach
+    void seedAccounts() {
+        if (accountIds == null) {
+            accountIds = BenchmarkData.seedAccounts(jdbcTemplate, "HLD", 1, 3, new BigDecimal("1000.00"),
+                LocalDate.now().minusMonths(1));
+        }
+    }
+
+    @Test
+    void sweepReleasesEveryExpiredHoldAndKeepsLiveOnes() {
+        long accountId = accountIds[0];
+        for (int i = 0; i < 5; i++) {
+            place(accountId, HoldType.CARD_AUTHORIZATION, "10.00", LocalDateTime.now().minusMinutes(1));
+        }
+        AccountHoldDTO live = place(accountId, HoldType.CHEQUE, "7.00", LocalDateTime.now().plusDays(1));
+        assertThat(available(accountId)).isEqualByComparingTo("943.00");
+
+        holdService.expireHolds();
+
+        assertThat(available(accountId)).isEqualByComparingTo("993.00");
+        assertThat(holdBalance(accountId)).isEqualByComparingTo("7.00");
+        List<AccountHoldDTO> holds = holdService.getHolds(accountId, false);
+        assertThat(holds).filteredOn(h -> HoldStatus.EXPIRED.name().equals(h.getStatus())).hasSize(5);
+        assertThat(holdService.getHold(live.getId()).getStatus()).isEqualTo(HoldStatus.ACTIVE.name());
+    }
+
+    @Test
+    void placementChecksAvailableFundsExceptForLiens() {
+        long accountId = accountIds[1];
+        place(accountId, HoldType.CARD_AUTHORIZATION, "600.00", null);
+
+        assertThatThrownBy(() -> place(accountId, HoldType.CARD_AUTHORIZATION, "600.00", null))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("Insufficient");
+        place(accountId, HoldType.LIEN, "600.00", null);
+
+        assertThat(available(accountId)).isEqualByComparingTo("-200.00");
+        assertThat(holdBalance(accountId)).isEqualByComparingTo("1200.00");
+    }
+
+    @Test
+    void releaseRestoresFundsOnce() {
+        long accountId = accountIds[2];
+        AccountHoldDTO hold = place(accountId, HoldType.CHEQUE, "250.00", null);
+
+        holdService.releaseHold(hold.getId(), null);
+
+        assertThat(available(accountId)).isEqualByComparingTo("1000.00");
+        assertThat(holdBalance(accountId)).isEqualByComparingTo("0.00");
+        assertThatThrownBy(() -> holdService.releaseHold(hold.getId(), null))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("not active");
+    }
+
+    private AccountHoldDTO place(long accountId, HoldType type, String amount, LocalDateTime expiresAt) {
+        return holdService.placeHold(accountId, PlaceHoldRequest.builder()
+            .amount(new BigDecimal(amount))
+            .holdType(type)
+            .reference("HLD-" + (++sequence))
+            .expiresAt(expiresAt)
+            .build(), null);
+    }
+
+    private BigDecimal available(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT available_balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private BigDecimal holdBalance(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT hold_balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+}
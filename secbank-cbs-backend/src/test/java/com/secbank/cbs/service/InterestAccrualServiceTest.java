@@ -0,0 +1,112 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * End-of-day interest accrual / 日终利息计提测试
+ */
+class InterestAccrualServiceTest {
+
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2026, 3, 2);
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private PartitionedBatchRunner.ChunkProcessor processor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        PartitionedBatchRunner batchRunner = mock(PartitionedBatchRunner.class);
+        when(batchRunner.run(eq(InterestAccrualService.JOB_NAME), eq(BUSINESS_DATE), any())).thenAnswer(invocation -> {
+            processor = invocation.getArgument(2);
+            return null;
+        });
+
+        // 100,000.00 at 3.65% accrued through yesterday, and 50.00 under a 100.00 product minimum
+        ResultSet funded = row(1L, 10_000_000L, 365L, 0L, BUSINESS_DATE.minusDays(1));
+        ResultSet belowMinimum = row(2L, 5_000L, 365L, 10_000L, BUSINESS_DATE.minusDays(3));
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(funded);
+            handler.processRow(belowMinimum);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(), any(), any(), any());
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+            .thenReturn(List.of(snapshot(1L), snapshot(2L)));
+
+        new InterestAccrualService(batchRunner, jdbcTemplate, eventPublisher, 100, 365).accrue(BUSINESS_DATE);
+    }
+
+    @Test
+    void accruesFundedAccountsAndAdvancesTheDateOfAccountsBelowTheMinimum() {
+        PartitionedBatchRunner.Chunk chunk = processor.process(0, 1000);
+
+        assertThat(chunk).isEqualTo(new PartitionedBatchRunner.Chunk(2L, 2));
+        ArgumentCaptor<List<Object[]>> updates = listCaptor();
+        verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+        assertThat(updates.getValue()).satisfiesExactly(
+            args -> assertThat(args).containsExactly(1_000L, BUSINESS_DATE, 1L, BUSINESS_DATE),
+            args -> assertThat(args).containsExactly(0L, BUSINESS_DATE, 2L, BUSINESS_DATE));
+    }
+
+    @Test
+    void accruedAccountsArePublishedSoCachedCopiesAreDropped() {
+        processor.process(0, 1000);
+
+        ArgumentCaptor<AccountChangedEvent> event = ArgumentCaptor.forClass(AccountChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getChanges())
+            .extracting(AccountChangedEvent.Change::getAccountId).containsExactly(1L, 2L);
+        assertThat(event.getValue().getChanges()).allSatisfy(change ->
+            assertThat(change.getBefore()).isEqualTo(change.getAfter()));
+    }
+
+    private static ResultSet row(long id, long balanceMinor, long rateUnits, long minimumMinor,
+                                 LocalDate lastInterestDate) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getLong("balance_minor")).thenReturn(balanceMinor);
+        when(rs.getLong("rate_units")).thenReturn(rateUnits);
+        when(rs.getLong("minimum_minor")).thenReturn(minimumMinor);
+        when(rs.getObject("last_interest_date", LocalDate.class)).thenReturn(lastInterestDate);
+        return rs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Object[]>> listCaptor() {
+        return ArgumentCaptor.forClass((Class<List<Object[]>>) (Class<?>) List.class);
+    }
+
+    private static AccountSnapshot snapshot(Long id) {
+        return AccountSnapshot.builder().accountId(id).accountNumber("SA" + id).status(AccountStatus.ACTIVE)
+            .branchId(1L).accountTypeId(1L).currency("PHP").currentBalance(BigDecimal.TEN)
+            .openDate(LocalDate.of(2025, 1, 1)).build();
+    }
+}
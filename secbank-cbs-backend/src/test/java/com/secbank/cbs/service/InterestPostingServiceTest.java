@@ -0,0 +1,158 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.entity.AccountType;
+import com.secbank.cbs.entity.AccountType.PostingFrequency;
+import com.secbank.cbs.service.LedgerService.PostingPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Interest posting periods and capitalization / 利息入账周期与入账测试
+ */
+class InterestPostingServiceTest {
+
+    /** Monday after a month end that fell on a Saturday */
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2026, 2, 2);
+
+    private JdbcTemplate jdbcTemplate;
+    private LedgerService ledgerService;
+    private ReferenceDataCache referenceDataCache;
+    private AccountLookupCache accountLookupCache;
+    private PartitionedBatchRunner.ChunkProcessor processor;
+    private InterestPostingService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        ledgerService = mock(LedgerService.class);
+        referenceDataCache = mock(ReferenceDataCache.class);
+        accountLookupCache = mock(AccountLookupCache.class);
+        PartitionedBatchRunner batchRunner = mock(PartitionedBatchRunner.class);
+        when(batchRunner.run(eq(InterestPostingService.JOB_NAME), eq(BUSINESS_DATE), any())).thenAnswer(invocation -> {
+            processor = invocation.getArgument(2);
+            return null;
+        });
+        service = new InterestPostingService(batchRunner, ledgerService, referenceDataCache, accountLookupCache,
+            jdbcTemplate, 100, new BigDecimal("0.2000"), "INT-EXPENSE", "WHT-PAYABLE");
+    }
+
+    @Test
+    void periodEndFollowsThePostingFrequency() {
+        LocalDate date = LocalDate.of(2026, 2, 10);
+
+        assertThat(InterestPostingService.periodEnd(date, PostingFrequency.DAILY)).isEqualTo(date);
+        assertThat(InterestPostingService.periodEnd(date, PostingFrequency.MONTHLY)).isEqualTo("2026-02-28");
+        assertThat(InterestPostingService.periodEnd(date, PostingFrequency.QUARTERLY)).isEqualTo("2026-03-31");
+        assertThat(InterestPostingService.periodEnd(date, PostingFrequency.SEMI_ANNUALLY)).isEqualTo("2026-06-30");
+        assertThat(InterestPostingService.periodEnd(date, PostingFrequency.ANNUALLY)).isEqualTo("2026-12-31");
+        assertThat(InterestPostingService.periodEnd(date, PostingFrequency.AT_MATURITY)).isNull();
+        assertThat(InterestPostingService.periodEnd(LocalDate.of(2026, 11, 15), PostingFrequency.QUARTERLY))
+            .isEqualTo("2026-12-31");
+        assertThat(InterestPostingService.periodEnd(LocalDate.of(2026, 7, 1), PostingFrequency.SEMI_ANNUALLY))
+            .isEqualTo("2026-12-31");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void duePeriodIsPostedNetOfTaxOnceAndEveryAccountAdvances() throws Exception {
+        // Account 1 is due for January; account 2's January was already posted by an earlier run
+        ResultSet first = dueRow(1L, 100_000L);
+        ResultSet second = dueRow(2L, 50_000L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any())).thenAnswer(invocation -> {
+            RowMapper<?> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(first, 0), mapper.mapRow(second, 1));
+        });
+        ResultSet claimed = mock(ResultSet.class);
+        when(claimed.getLong("account_id")).thenReturn(1L);
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(claimed);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        service.post(BUSINESS_DATE);
+
+        PartitionedBatchRunner.Chunk chunk = processor.process(0, 1000);
+
+        assertThat(chunk).isEqualTo(new PartitionedBatchRunner.Chunk(2L, 1));
+        ArgumentCaptor<List<PostingRequest>> postings = ArgumentCaptor.forClass(List.class);
+        verify(ledgerService).postBatch(postings.capture(), eq(null), eq(PostingPolicy.SYSTEM), eq(BUSINESS_DATE));
+        PostingRequest posting = postings.getValue().get(0);
+        assertThat(postings.getValue()).hasSize(1);
+        assertThat(posting.getReference()).isEqualTo("INT-1-20260131");
+        assertThat(posting.getLegs())
+            .extracting(Leg::getGlCode, Leg::getAccountId, Leg::getDirection, Leg::getAmount)
+            .containsExactly(
+                tuple("INT-EXPENSE", null, Direction.DEBIT, new BigDecimal("1000.00")),
+                tuple(null, 1L, Direction.CREDIT, new BigDecimal("800.00")),
+                tuple("WHT-PAYABLE", null, Direction.CREDIT, new BigDecimal("200.00")));
+
+        ArgumentCaptor<List<Object[]>> advances = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), advances.capture());
+        assertThat(advances.getValue()).satisfiesExactly(
+            args -> assertThat(args).containsExactly(100_000L, LocalDate.of(2026, 2, 28), 1L),
+            args -> assertThat(args).containsExactly(0L, LocalDate.of(2026, 2, 28), 2L));
+    }
+
+    @Test
+    void backfillClearsTheLookupCacheOnlyWhenRowsChanged() {
+        when(referenceDataCache.getActiveAccountTypes()).thenReturn(List.of(
+            type(1L, PostingFrequency.MONTHLY), type(2L, PostingFrequency.AT_MATURITY), type(3L, null)));
+        List<Object[]> updates = new ArrayList<>();
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenAnswer(invocation -> {
+            updates.add(invocation.getArguments());
+            return 0;
+        });
+
+        service.post(BUSINESS_DATE);
+
+        assertThat(updates).hasSize(2);
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2026, 2, 28)), eq(1L));
+        verify(jdbcTemplate).update(anyString(), eq(2L));
+        verify(accountLookupCache, never()).invalidateAll();
+
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(3);
+        service.post(BUSINESS_DATE);
+        verify(accountLookupCache).invalidateAll();
+    }
+
+    private static ResultSet dueRow(long id, long accruedMinor) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("currency")).thenReturn("PHP");
+        when(rs.getLong("accrued_minor")).thenReturn(accruedMinor);
+        when(rs.getObject("next_interest_posting_date", LocalDate.class)).thenReturn(LocalDate.of(2026, 1, 31));
+        when(rs.getString("interest_posting_frequency")).thenReturn("MONTHLY");
+        return rs;
+    }
+
+    private static AccountType type(Long id, PostingFrequency frequency) {
+        AccountType type = new AccountType();
+        type.setId(id);
+        type.setInterestPostingFrequency(frequency);
+        return type;
+    }
+}
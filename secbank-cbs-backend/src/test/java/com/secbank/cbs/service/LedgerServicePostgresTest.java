@@ -0,0 +1,138 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.dto.PostingResultDTO;
+import com.secbank.cbs.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Double-entry posting against PostgreSQL / 基于PostgreSQL的复式记账测试
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = "app.eod.cron=-")
+@Testcontainers(disabledWithoutDocker = true)
+class LedgerServicePostgresTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static long[] accountIds;
+    private static int sequence;
+
+    @BeforeEach
+    void seedAccounts() {
+        if (accountIds == null) {
+            accountIds = BenchmarkData.seedAccounts(jdbcTemplate, "LGT", 1, 2, new BigDecimal("500.00"),
+                LocalDate.now().minusMonths(1));
+        }
+    }
+
+    @Test
+    void batchPostsBothLegsWithRunningBalances() {
+        long from = accountIds[0];
+        long to = accountIds[1];
+        BigDecimal fromBefore = balance(from);
+        BigDecimal toBefore = balance(to);
+
+        List<PostingResultDTO> results = ledgerService.postBatch(List.of(
+            transfer(from, to, "120.00", reference()),
+            transfer(from, to, "30.50", reference())), null);
+
+        assertThat(results).hasSize(2);
+        assertThat(balance(from)).isEqualByComparingTo(fromBefore.subtract(new BigDecimal("150.50")));
+        assertThat(balance(to)).isEqualByComparingTo(toBefore.add(new BigDecimal("150.50")));
+        List<Map<String, Object>> lines = jdbcTemplate.queryForList(
+            "SELECT l.direction, l.amount, l.balance_after FROM journal_lines l " +
+            "JOIN journal_entries e ON e.id = l.entry_id AND e.entry_date = l.entry_date " +
+            "WHERE e.reference = ? ORDER BY l.line_no", results.get(1).getReference());
+        assertThat(lines).extracting(line -> line.get("direction").toString()).containsExactly("D", "C");
+        assertThat((BigDecimal) lines.get(0).get("balance_after")).isEqualByComparingTo(balance(from));
+        assertThat((BigDecimal) lines.get(1).get("balance_after")).isEqualByComparingTo(balance(to));
+    }
+
+    @Test
+    void failingEntryRollsBackTheWholeBatch() {
+        long from = accountIds[0];
+        long to = accountIds[1];
+        BigDecimal fromBefore = balance(from);
+        long entriesBefore = entryCount();
+
+        assertThatThrownBy(() -> ledgerService.postBatch(List.of(
+            transfer(from, to, "10.00", reference()),
+            transfer(from, to, fromBefore.add(BigDecimal.ONE).toPlainString(), reference())), null))
+            .isInstanceOf(BusinessException.class);
+
+        assertThat(balance(from)).isEqualByComparingTo(fromBefore);
+        assertThat(entryCount()).isEqualTo(entriesBefore);
+    }
+
+    @Test
+    void referenceIsPostedOnlyOncePerDay() {
+        String reference = reference();
+        ledgerService.post(transfer(accountIds[1], accountIds[0], "1.00", reference), null);
+
+        assertThatThrownBy(() -> ledgerService.post(transfer(accountIds[1], accountIds[0], "1.00", reference), null))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining(reference);
+    }
+
+    @Test
+    void unbalancedOrSubCentEntriesAreRejected() {
+        PostingRequest unbalanced = PostingRequest.builder().txnType("TRANSFER").currency("PHP").legs(List.of(
+            Leg.builder().accountId(accountIds[0]).direction(Direction.DEBIT).amount(new BigDecimal("5.00")).build(),
+            Leg.builder().accountId(accountIds[1]).direction(Direction.CREDIT).amount(new BigDecimal("4.99")).build()))
+            .build();
+
+        assertThatThrownBy(() -> ledgerService.post(unbalanced, null)).isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> ledgerService.post(transfer(accountIds[0], accountIds[1], "0.005", reference()), null))
+            .isInstanceOf(BusinessException.class);
+    }
+
+    private static PostingRequest transfer(long from, long to, String amount, String reference) {
+        return PostingRequest.builder()
+            .reference(reference)
+            .txnType("TRANSFER")
+            .currency("PHP")
+            .legs(List.of(
+                Leg.builder().accountId(from).direction(Direction.DEBIT).amount(new BigDecimal(amount)).build(),
+                Leg.builder().accountId(to).direction(Direction.CREDIT).amount(new BigDecimal(amount)).build()))
+            .build();
+    }
+
+    private static String reference() {
+        return "LGT-" + (++sequence);
+    }
+
+    private BigDecimal balance(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT current_balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    private long entryCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM journal_entries", Long.class);
+    }
+}
@@ -0,0 +1,123 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ledger throughput benchmark / 账务过账吞吐基准测试
+ * Posts two-leg entries (cash deposits and withdrawals against random accounts) through
+ * {@link LedgerService#postBatch} from several threads and reports entries and journal lines
+ * per second and the batch latency percentiles. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=LedgerThroughputBenchmarkTest [-Dbenchmark.entries=N]
+ * [-Dbenchmark.batch=N] [-Dbenchmark.threads=N] [-Dbenchmark.accounts=N]}.
+ * 多线程经批量过账接口写入两行分录，统计每秒分录数、日志行数及批次延迟分位数
+ */
+@SpringBootTest(properties = {
+    "app.eod.cron=-",
+    "spring.datasource.hikari.maximum-pool-size=32"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class LedgerThroughputBenchmarkTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void batchedPostings() throws Exception {
+        long entries = Long.getLong("benchmark.entries", 500_000L);
+        int batch = Integer.getInteger("benchmark.batch", 100);
+        int threads = Integer.getInteger("benchmark.threads", 8);
+        int accounts = Integer.getInteger("benchmark.accounts", 100_000);
+        long[] accountIds = BenchmarkData.seedAccounts(jdbcTemplate, "LDG", 10, accounts,
+            new BigDecimal("1000000.00"), LocalDate.now().minusYears(1));
+        long linesBefore = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM journal_lines", Long.class);
+
+        Timer batchTimer = Timer.builder("ledger.benchmark.batch")
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(new SimpleMeterRegistry());
+        AtomicLong remaining = new AtomicLong(entries);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                SplittableRandom random = new SplittableRandom(42 + t);
+                workers.add(executor.submit(() -> {
+                    long size;
+                    while ((size = Math.min(batch, remaining.getAndAdd(-batch))) > 0) {
+                        List<PostingRequest> requests = new ArrayList<>((int) size);
+                        for (int i = 0; i < size; i++) {
+                            requests.add(cashEntry(accountIds[random.nextInt(accountIds.length)],
+                                random.nextBoolean(), BigDecimal.valueOf(100 + random.nextInt(10_000), 2)));
+                        }
+                        batchTimer.record(() -> ledgerService.postBatch(requests, null));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        long lines = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM journal_lines", Long.class) - linesBefore;
+
+        log.info("Posted {} entries ({} lines) in batches of {} on {} threads in {} ms: {} entries/s, {} lines/s",
+            entries, lines, batch, threads, elapsedMs, entries * 1000 / elapsedMs, lines * 1000 / elapsedMs);
+        HistogramSnapshot snapshot = batchTimer.takeSnapshot();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            log.info("batch p{}: {} ms", percentile.percentile() * 100,
+                String.format("%.2f", percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        log.info("batch max: {} ms", String.format("%.2f", snapshot.max(TimeUnit.MILLISECONDS)));
+        assertThat(lines).isEqualTo(entries * 2);
+    }
+
+    private static PostingRequest cashEntry(long accountId, boolean deposit, BigDecimal amount) {
+        return PostingRequest.builder()
+            .txnType(deposit ? "CASH_DEPOSIT" : "CASH_WITHDRAWAL")
+            .description("Ledger benchmark")
+            .currency("PHP")
+            .legs(List.of(
+                Leg.builder().accountId(accountId).direction(deposit ? Direction.CREDIT : Direction.DEBIT)
+                    .amount(amount).build(),
+                Leg.builder().glCode("CASH-VAULT").direction(deposit ? Direction.DEBIT : Direction.CREDIT)
+                    .amount(amount).build()))
+            .build();
+    }
+}
@@ -0,0 +1,101 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.entity.Account.AccountStatus;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.AccountSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Time deposit renewal / 定期存款续存测试
+ */
+class MaturityServiceTest {
+
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2026, 3, 2);
+
+    private JdbcTemplate jdbcTemplate;
+    private InterestPostingService interestPostingService;
+    private ApplicationEventPublisher eventPublisher;
+    private PartitionedBatchRunner.ChunkProcessor processor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        interestPostingService = mock(InterestPostingService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        PartitionedBatchRunner batchRunner = mock(PartitionedBatchRunner.class);
+        when(batchRunner.run(eq(MaturityService.JOB_NAME), eq(BUSINESS_DATE), any())).thenAnswer(invocation -> {
+            processor = invocation.getArgument(2);
+            return null;
+        });
+
+        // One deposit that matured on Saturday, 90-day term at 3.5%
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("id")).thenReturn(42L);
+        when(row.getObject("maturity_date", LocalDate.class)).thenReturn(LocalDate.of(2026, 2, 28));
+        when(row.getString("maturity_instruction")).thenReturn(MaturityService.AUTO_RENEW);
+        when(row.getObject("term_days", Integer.class)).thenReturn(90);
+        when(row.getBigDecimal("type_rate")).thenReturn(new BigDecimal("0.0350"));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any())).thenAnswer(invocation ->
+            List.of(((RowMapper<?>) invocation.getArgument(1)).mapRow(row, 0)));
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+            .thenReturn(List.of(snapshot(42L)));
+
+        new MaturityService(batchRunner, interestPostingService, mock(LedgerService.class), jdbcTemplate,
+            eventPublisher, 100).process(BUSINESS_DATE);
+    }
+
+    @Test
+    void maturedDepositIsCapitalizedThenRenewedAfterTheBusinessDate() {
+        PartitionedBatchRunner.Chunk chunk = processor.process(0, 1000);
+
+        assertThat(chunk).isEqualTo(new PartitionedBatchRunner.Chunk(42L, 1));
+        verify(interestPostingService).postAtMaturity(List.of(42L), BUSINESS_DATE);
+        ArgumentCaptor<List<Object[]>> renewals = listCaptor();
+        verify(jdbcTemplate).batchUpdate(anyString(), renewals.capture());
+        assertThat(renewals.getValue()).singleElement().satisfies(args ->
+            assertThat(args).containsExactly(LocalDate.of(2026, 5, 29), new BigDecimal("0.0350"), 42L));
+    }
+
+    @Test
+    void renewedDepositsArePublishedSoCachedCopiesAreDropped() {
+        processor.process(0, 1000);
+
+        ArgumentCaptor<AccountChangedEvent> event = ArgumentCaptor.forClass(AccountChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getChanges()).singleElement().satisfies(change -> {
+            assertThat(change.getAccountId()).isEqualTo(42L);
+            assertThat(change.getBefore()).isEqualTo(change.getAfter());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<List<Object[]>> listCaptor() {
+        return ArgumentCaptor.forClass((Class<List<Object[]>>) (Class<?>) List.class);
+    }
+
+    private static AccountSnapshot snapshot(Long id) {
+        return AccountSnapshot.builder().accountId(id).accountNumber("TD" + id).status(AccountStatus.ACTIVE)
+            .branchId(1L).accountTypeId(5L).currency("PHP").currentBalance(new BigDecimal("100000.00"))
+            .openDate(LocalDate.of(2025, 12, 1)).build();
+    }
+}
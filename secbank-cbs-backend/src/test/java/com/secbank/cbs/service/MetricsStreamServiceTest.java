@@ -0,0 +1,151 @@
+package com.secbank.cbs.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secbank.cbs.dto.AccountStatsDTO;
+import com.secbank.cbs.dto.DashboardStatsDTO;
+import com.secbank.cbs.entity.Customer.CustomerStatus;
+import com.secbank.cbs.entity.Customer.CustomerType;
+import com.secbank.cbs.event.AccountChangedEvent;
+import com.secbank.cbs.event.CustomersImportedEvent;
+import com.secbank.cbs.event.StatusChangedEvent;
+import com.secbank.cbs.repository.CustomerRepository;
+import com.secbank.cbs.repository.CustomerRepository.StatusTypeCount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Metrics stream producer / 指标推送生产者测试
+ */
+class MetricsStreamServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private DashboardService dashboardService;
+    private AccountStatsService accountStatsService;
+    private CustomerRepository customerRepository;
+    private MetricsStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        dashboardService = mock(DashboardService.class);
+        accountStatsService = mock(AccountStatsService.class);
+        customerRepository = mock(CustomerRepository.class);
+        when(dashboardService.getStats()).thenReturn(DashboardStatsDTO.builder().totalUsers(10L).activeUsers(8L).build());
+        when(accountStatsService.getAccountStats()).thenReturn(accounts(5L));
+        List<StatusTypeCount> counts = List.of(
+            count(CustomerStatus.ACTIVE, CustomerType.INDIVIDUAL, 7L),
+            count(CustomerStatus.BLOCKED, CustomerType.CORPORATE, 1L));
+        when(customerRepository.countGroupedByStatusAndType()).thenReturn(counts);
+
+        service = new MetricsStreamService(dashboardService, accountStatsService, customerRepository, objectMapper);
+        ReflectionTestUtils.setField(service, "emitterTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(service, "heartbeatMs", 60_000L);
+        ReflectionTestUtils.setField(service, "fullRefreshMs", 3_600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void producerIsIdleWithoutSubscribers() {
+        service.produce();
+
+        verify(dashboardService, never()).getStats();
+        verify(accountStatsService, never()).getAccountStats();
+    }
+
+    @Test
+    void unchangedTickReusesTheCurrentFrame() {
+        service.subscribe();
+        service.produce();
+        service.produce();
+
+        verify(accountStatsService, times(1)).getAccountStats();
+        assertThat(frameVersion()).isEqualTo(1L);
+    }
+
+    @Test
+    void changeProducesADeltaOfOnlyTheChangedMetrics() throws Exception {
+        service.subscribe();
+        service.produce();
+
+        when(accountStatsService.getAccountStats()).thenReturn(accounts(6L));
+        service.onAccountChanged(new AccountChangedEvent(List.of()));
+        service.produce();
+
+        assertThat(frameVersion()).isEqualTo(2L);
+        JsonNode delta = objectMapper.readTree((String) ReflectionTestUtils.getField(frame(), "deltaJson"));
+        assertThat(delta.get("type").asText()).isEqualTo("DELTA");
+        assertThat(delta.get("metrics").properties()).extracting(Map.Entry::getKey).containsExactly("accounts.active");
+        assertThat(delta.get("metrics").get("accounts.active").asLong()).isEqualTo(6L);
+    }
+
+    @Test
+    void customerCountersFollowEventsWithoutRequerying() {
+        service.subscribe();
+        service.produce();
+
+        service.onStatusChanged(new StatusChangedEvent("Customer", 3L, "ACTIVE", "BLOCKED"));
+        service.onStatusChanged(new StatusChangedEvent("Customer", 9L, null, "ACTIVE", "CORPORATE"));
+        service.onCustomersImported(new CustomersImportedEvent(1L, Map.of(CustomerType.INDIVIDUAL, 5L)));
+        service.produce();
+
+        Map<String, Object> metrics = metrics();
+        assertThat(metrics.get("customers.active")).isEqualTo(12L);
+        assertThat(metrics.get("customers.blocked")).isEqualTo(2L);
+        assertThat(metrics.get("customers.individual")).isEqualTo(12L);
+        assertThat(metrics.get("customers.corporate")).isEqualTo(2L);
+        verify(customerRepository, times(1)).countGroupedByStatusAndType();
+    }
+
+    @Test
+    void creationWithoutCustomerTypeForcesARecount() {
+        service.subscribe();
+        service.produce();
+
+        service.onStatusChanged(new StatusChangedEvent("Customer", 9L, null, "ACTIVE"));
+        service.produce();
+
+        verify(customerRepository, times(2)).countGroupedByStatusAndType();
+    }
+
+    private Object frame() {
+        return ReflectionTestUtils.getField(service, "currentFrame");
+    }
+
+    private long frameVersion() {
+        return (long) ReflectionTestUtils.getField(frame(), "version");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> metrics() {
+        return (Map<String, Object>) ReflectionTestUtils.getField(frame(), "metrics");
+    }
+
+    private static AccountStatsDTO accounts(long active) {
+        return AccountStatsDTO.builder().totalActive(active).totalActiveBalance(BigDecimal.ZERO).build();
+    }
+
+    private static StatusTypeCount count(CustomerStatus status, CustomerType type, long total) {
+        StatusTypeCount count = mock(StatusTypeCount.class);
+        when(count.getStatus()).thenReturn(status);
+        when(count.getCustomerType()).thenReturn(type);
+        when(count.getTotal()).thenReturn(total);
+        return count;
+    }
+}
@@ -0,0 +1,120 @@
+package com.secbank.cbs.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MoneyMath versus BigDecimal benchmark / 定点运算与BigDecimal性能对比
+ * Times daily accrual and withholding tax over chunk-sized arrays of random accounts, once with
+ * the {@link MoneyMath} kernels and once with the BigDecimal formula accrual used before
+ * (balances and rates already read as BigDecimal, as a ResultSet returns them). Both paths
+ * must give the same totals. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=MoneyMathBenchmarkTest [-Dbenchmark.accounts=N] [-Dbenchmark.rounds=N]}.
+ * 按批次数组比较定点内核与BigDecimal公式的日计息与代扣税吞吐量，两者结果必须一致
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class MoneyMathBenchmarkTest {
+
+    private static final int CHUNK = 1000;
+    private static final int BASIS = 365;
+    private static final long TAX_RATE = 2_000;
+    private static final int WARMUP_ROUNDS = 5;
+
+    /** Keeps the JIT from discarding either loop / 防止JIT消除循环 */
+    private static volatile long sink;
+
+    @Test
+    void accrualAndTaxAgainstBigDecimal() {
+        int accounts = Integer.getInteger("benchmark.accounts", 1_000_000);
+        int rounds = Integer.getInteger("benchmark.rounds", 10);
+        SplittableRandom random = new SplittableRandom(42);
+
+        long[] balances = new long[accounts];
+        long[] rates = new long[accounts];
+        int[] days = new int[accounts];
+        BigDecimal[] balanceDecimals = new BigDecimal[accounts];
+        BigDecimal[] rateDecimals = new BigDecimal[accounts];
+        for (int i = 0; i < accounts; i++) {
+            // Up to 100M pesos at up to 8% for 1-3 days, the spread of a nightly accrual run
+            balances[i] = random.nextLong(10_000_000_000L);
+            rates[i] = random.nextLong(801);
+            days[i] = 1 + random.nextInt(3);
+            balanceDecimals[i] = MoneyMath.fromMinor(balances[i]);
+            rateDecimals[i] = BigDecimal.valueOf(rates[i], MoneyMath.RATE_SCALE);
+        }
+        BigDecimal taxRate = BigDecimal.valueOf(TAX_RATE, MoneyMath.RATE_SCALE);
+        BigDecimal basis = BigDecimal.valueOf(BASIS);
+
+        long[] chunkBalances = new long[CHUNK];
+        long[] chunkRates = new long[CHUNK];
+        int[] chunkDays = new int[CHUNK];
+        long[] accruals = new long[CHUNK];
+        long[] taxes = new long[CHUNK];
+        Runnable fixedPoint = () -> {
+            long total = 0;
+            for (int from = 0; from < accounts; from += CHUNK) {
+                int count = Math.min(CHUNK, accounts - from);
+                // Copy into the chunk arrays, as the accrual job fills them from a chunk's rows
+                System.arraycopy(balances, from, chunkBalances, 0, count);
+                System.arraycopy(rates, from, chunkRates, 0, count);
+                System.arraycopy(days, from, chunkDays, 0, count);
+                MoneyMath.accrual(chunkBalances, chunkRates, chunkDays, BASIS, accruals, count);
+                MoneyMath.applyRate(accruals, TAX_RATE, taxes, count);
+                for (int i = 0; i < count; i++) {
+                    total += accruals[i] - taxes[i];
+                }
+            }
+            sink = total;
+        };
+        Runnable bigDecimal = () -> {
+            long total = 0;
+            for (int i = 0; i < accounts; i++) {
+                BigDecimal accrual = balanceDecimals[i]
+                    .multiply(rateDecimals[i])
+                    .multiply(BigDecimal.valueOf(days[i]))
+                    .divide(basis, MoneyMath.AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+                BigDecimal tax = accrual.multiply(taxRate).setScale(MoneyMath.AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+                total += accrual.subtract(tax).unscaledValue().longValueExact();
+            }
+            sink = total;
+        };
+
+        double fixedNanos = time("MoneyMath", fixedPoint, accounts, rounds);
+        long fixedTotal = sink;
+        double decimalNanos = time("BigDecimal", bigDecimal, accounts, rounds);
+        long decimalTotal = sink;
+
+        assertThat(fixedTotal).as("net accrual total").isEqualTo(decimalTotal);
+        log.info("MoneyMath is {}x faster than BigDecimal over {} accounts / 定点运算加速比",
+            String.format("%.1f", decimalNanos / fixedNanos), accounts);
+    }
+
+    /** Best-of-rounds nanoseconds per account; the fastest round is the least disturbed by GC and JIT. */
+    private static double time(String name, Runnable run, int accounts, int rounds) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run.run();
+        }
+        long best = Long.MAX_VALUE;
+        long sum = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            run.run();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            sum += elapsed;
+        }
+        double nanosPerOp = (double) best / accounts;
+        log.info("{}: {} accounts, best {} ms, mean {} ms, {} ns/account, {} accounts/s", name, accounts,
+            String.format("%.1f", best / 1e6), String.format("%.1f", sum / 1e6 / rounds),
+            String.format("%.1f", nanosPerOp), String.format("%,.0f", 1e9 / nanosPerOp));
+        return nanosPerOp;
+    }
+}
@@ -0,0 +1,163 @@
+package com.secbank.cbs.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MoneyMath against BigDecimal / 定点运算与BigDecimal对照测试
+ * Random operands, including products that overflow a long and exact half-way ties, must give
+ * the same result as the BigDecimal formula rounded half-even.
+ */
+class MoneyMathTest {
+
+    private static final long SEED = 20240611L;
+    private static final int ROUNDS = 200_000;
+
+    @Test
+    void divideHalfEvenRoundsTiesToEven() {
+        assertThat(MoneyMath.divideHalfEven(5, 2)).isEqualTo(2);
+        assertThat(MoneyMath.divideHalfEven(15, 2)).isEqualTo(8);
+        assertThat(MoneyMath.divideHalfEven(-5, 2)).isEqualTo(-2);
+        assertThat(MoneyMath.divideHalfEven(-15, 2)).isEqualTo(-8);
+        assertThat(MoneyMath.divideHalfEven(25_000, 10_000)).isEqualTo(2);
+        assertThat(MoneyMath.divideHalfEven(35_000, 10_000)).isEqualTo(4);
+        assertThat(MoneyMath.divideHalfEven(Long.MAX_VALUE, 2)).isEqualTo(referenceDivide(Long.MAX_VALUE, 2));
+        assertThat(MoneyMath.divideHalfEven(Long.MIN_VALUE + 1, 2)).isEqualTo(referenceDivide(Long.MIN_VALUE + 1, 2));
+    }
+
+    @Test
+    void divideHalfEvenMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < ROUNDS; i++) {
+            long divisor;
+            long numerator;
+            if (i % 3 == 0) {
+                divisor = 2 * (1 + random.nextLong(50_000));
+                numerator = tie(random, divisor);
+            } else {
+                divisor = 1 + random.nextLong(i % 2 == 0 ? 100_000 : Long.MAX_VALUE);
+                numerator = random.nextLong();
+            }
+            assertThat(MoneyMath.divideHalfEven(numerator, divisor))
+                .as("%d / %d", numerator, divisor)
+                .isEqualTo(referenceDivide(numerator, divisor));
+        }
+    }
+
+    @Test
+    void applyRateMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        int overflowed = 0;
+        int ties = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long amount;
+            long rate;
+            if (i % 3 == 0) {
+                amount = random.nextLong(-10_000_000_000L, 10_000_000_000L);
+                rate = random.nextLong(MoneyMath.RATE_ONE + 1);
+            } else if (i % 3 == 1) {
+                // Half a centavo per centavo: every odd amount is a tie, rounding up or down by parity
+                amount = random.nextLong(-1_000_000, 1_000_000);
+                rate = MoneyMath.RATE_ONE / 2;
+            } else {
+                amount = random.nextLong();
+                rate = random.nextLong(MoneyMath.RATE_ONE + 1);
+            }
+            if (overflows(amount, rate)) {
+                overflowed++;
+            }
+            if (Math.floorMod(amount * rate, MoneyMath.RATE_ONE) == MoneyMath.RATE_ONE / 2 && !overflows(amount, rate)) {
+                ties++;
+            }
+            BigDecimal expected = MoneyMath.fromMinor(amount).multiply(BigDecimal.valueOf(rate, MoneyMath.RATE_SCALE));
+            assertThat(MoneyMath.applyRate(amount, rate))
+                .as("%d x %d", amount, rate)
+                .isEqualTo(minor(expected));
+        }
+        assertThat(overflowed).as("BigInteger fallback exercised").isGreaterThan(ROUNDS / 10);
+        assertThat(ties).as("half-way ties exercised").isGreaterThan(ROUNDS / 10);
+    }
+
+    @Test
+    void accrualMatchesBigDecimal() {
+        SplittableRandom random = new SplittableRandom(SEED + 2);
+        int overflowed = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            int basis = random.nextBoolean() ? 365 : 360;
+            int days = 1 + random.nextInt(366);
+            long rate = random.nextLong(MoneyMath.RATE_ONE + 1);
+            // Large balances overflow balance * rate (or * days) but the result still fits a long
+            long balance = i % 2 == 0
+                ? random.nextLong(-100_000_000_000L, 100_000_000_000L)
+                : random.nextLong(-(Long.MAX_VALUE / 4), Long.MAX_VALUE / 4);
+            if (overflows(balance, rate) || overflows(balance * rate, days)) {
+                overflowed++;
+            }
+            BigDecimal expected = MoneyMath.fromMinor(balance)
+                .multiply(BigDecimal.valueOf(rate, MoneyMath.RATE_SCALE))
+                .multiply(BigDecimal.valueOf(days))
+                .divide(BigDecimal.valueOf(basis), MoneyMath.AMOUNT_SCALE, RoundingMode.HALF_EVEN);
+            assertThat(MoneyMath.accrual(balance, rate, days, basis))
+                .as("%d x %d x %d / %d", balance, rate, days, basis)
+                .isEqualTo(expected.unscaledValue().longValueExact());
+        }
+        assertThat(overflowed).as("BigInteger fallback exercised").isGreaterThan(ROUNDS / 10);
+    }
+
+    @Test
+    void accrualTiesRoundToEven() {
+        // 1 centavo at 50% for 365/365 days is exactly half a centavo: rounds to 0; 3 centavos to 2
+        assertThat(MoneyMath.accrual(1, 5_000, 365, 365)).isZero();
+        assertThat(MoneyMath.accrual(3, 5_000, 365, 365)).isEqualTo(2);
+        assertThat(MoneyMath.accrual(-3, 5_000, 365, 365)).isEqualTo(-2);
+    }
+
+    @Test
+    void chunkKernelsMatchScalarCalls() {
+        SplittableRandom random = new SplittableRandom(SEED + 3);
+        int count = 1_000;
+        long[] balances = new long[count + 5];
+        long[] rates = new long[count + 5];
+        int[] days = new int[count + 5];
+        for (int i = 0; i < count; i++) {
+            balances[i] = random.nextLong(-(Long.MAX_VALUE / 4), Long.MAX_VALUE / 4);
+            rates[i] = random.nextLong(MoneyMath.RATE_ONE + 1);
+            days[i] = 1 + random.nextInt(31);
+        }
+        long[] accruals = new long[count + 5];
+        long[] taxes = new long[count + 5];
+        MoneyMath.accrual(balances, rates, days, 365, accruals, count);
+        MoneyMath.applyRate(balances, 2_000, taxes, count);
+        for (int i = 0; i < count; i++) {
+            assertThat(accruals[i]).isEqualTo(MoneyMath.accrual(balances[i], rates[i], days[i], 365));
+            assertThat(taxes[i]).isEqualTo(MoneyMath.applyRate(balances[i], 2_000));
+        }
+        // Slots past count are left alone
+        assertThat(accruals[count]).isZero();
+    }
+
+    /** A numerator exactly half-way between two multiples of an even divisor. */
+    private static long tie(SplittableRandom random, long divisor) {
+        long quotient = random.nextLong(-1_000_000, 1_000_000);
+        return quotient * divisor + (quotient < 0 ? -divisor / 2 : divisor / 2);
+    }
+
+    private static long referenceDivide(long numerator, long divisor) {
+        return new BigDecimal(numerator)
+            .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_EVEN)
+            .longValueExact();
+    }
+
+    private static long minor(BigDecimal amount) {
+        return amount.setScale(MoneyMath.AMOUNT_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+    }
+
+    private static boolean overflows(long a, long b) {
+        return Math.multiplyHigh(a, b) != ((a * b) >> 63);
+    }
+}
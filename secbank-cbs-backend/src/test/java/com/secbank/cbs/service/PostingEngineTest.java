@@ -0,0 +1,136 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.config.LedgerSchemaInitializer;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.dto.PostingResultDTO;
+import com.secbank.cbs.event.AccountChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Posting engine group commit / 记账引擎组提交测试
+ */
+class PostingEngineTest {
+
+    private static final long ACCOUNT_ID = 11L;
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpleMeterRegistry meterRegistry;
+    private PostingEngine engine;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        meterRegistry = new SimpleMeterRegistry();
+
+        ResultSet lockResult = mock(ResultSet.class);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getBoolean(1)).thenReturn(true);
+        PreparedStatement lockStatement = mock(PreparedStatement.class);
+        when(lockStatement.executeQuery()).thenReturn(lockResult);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(lockStatement);
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+
+        when(jdbcTemplate.queryForList("SELECT shard FROM posting_engine_checkpoints", Integer.class)).thenReturn(List.of());
+        when(jdbcTemplate.queryForList(startsWith("SELECT nextval"), eq(Long.class), any()))
+            .thenAnswer(invocation -> LongStream.rangeClosed(1, (int) invocation.getArgument(2)).boxed().toList());
+        ResultSet account = mock(ResultSet.class);
+        when(account.getLong("id")).thenReturn(ACCOUNT_ID);
+        when(account.getString("account_number")).thenReturn("SA0011");
+        when(account.getString("status")).thenReturn("ACTIVE");
+        when(account.getString("currency")).thenReturn("PHP");
+        when(account.getBigDecimal("current_balance")).thenReturn(new BigDecimal("1000.00"));
+        when(account.getLong("branch_id")).thenReturn(1L);
+        when(account.getLong("account_type_id")).thenReturn(1L);
+        when(account.getObject("open_date", LocalDate.class)).thenReturn(LocalDate.of(2025, 1, 1));
+        when(jdbcTemplate.query(startsWith("SELECT id, account_number"), any(RowMapper.class), eq(ACCOUNT_ID)))
+            .thenAnswer(invocation -> List.of(((RowMapper<?>) invocation.getArgument(1)).mapRow(account, 0)));
+
+        engine = new PostingEngine(jdbcTemplate, mock(PlatformTransactionManager.class), dataSource, eventPublisher,
+            meterRegistry, mock(LedgerSchemaInitializer.class), mock(DailyLimitService.class),
+            1, 16, 8, 60_000, 10_000, 7301, false, "unused", 1024, "WAL-SUSPENSE");
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void committedBatchStandsWhenAnAccountChangeListenerFails() throws Exception {
+        doThrow(new IllegalStateException("statistics upsert failed"))
+            .when(eventPublisher).publishEvent(any(AccountChangedEvent.class));
+
+        PostingResultDTO first = engine.submit(deposit("100.00"), 7L).get(5, TimeUnit.SECONDS);
+        PostingResultDTO second = engine.submit(deposit("50.00"), 7L).get(5, TimeUnit.SECONDS);
+
+        assertThat(first.getBalances().get(0).getCurrentBalance()).isEqualByComparingTo("1100.00");
+        assertThat(second.getBalances().get(0).getCurrentBalance()).isEqualByComparingTo("1150.00");
+        // The in-memory balance was kept, not dropped as after a failed batch
+        verify(jdbcTemplate, times(1)).query(startsWith("SELECT id, account_number"), any(RowMapper.class), anyLong());
+        assertThat(engine.unflushedDelta(ACCOUNT_ID)).isEqualTo(15_000L);
+        // Callers are acknowledged before the event goes out; stopping joins the shard thread
+        engine.stop();
+        assertThat(meterRegistry.counter("posting_engine.listener.failures").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("posting_engine.entries.posted").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("posting_engine.entries.rejected").count()).isZero();
+    }
+
+    @Test
+    void committedBatchPublishesOneChangePerAccount() throws Exception {
+        engine.submit(deposit("100.00"), 7L).get(5, TimeUnit.SECONDS);
+
+        verify(eventPublisher).publishEvent(org.mockito.ArgumentMatchers.<AccountChangedEvent>argThat(event ->
+            AccountChangedEvent.SOURCE_POSTING_ENGINE.equals(event.getSource())
+                && event.getChanges().size() == 1
+                && event.getChanges().get(0).getBefore().getCurrentBalance().compareTo(new BigDecimal("1000.00")) == 0
+                && event.getChanges().get(0).getAfter().getCurrentBalance().compareTo(new BigDecimal("1100.00")) == 0));
+    }
+
+    private static PostingRequest deposit(String amount) {
+        return PostingRequest.builder()
+            .txnType("CASH_DEPOSIT")
+            .description("Cash deposit")
+            .currency("PHP")
+            .legs(List.of(
+                Leg.builder().glCode("CASH-VAULT").direction(Direction.DEBIT).amount(new BigDecimal(amount)).build(),
+                Leg.builder().accountId(ACCOUNT_ID).direction(Direction.CREDIT).amount(new BigDecimal(amount)).build()))
+            .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.secbank.cbs.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Posting WAL benchmark / 记账预写日志基准测试
+ * Appends full journal entries to one shard's WAL in group-commit batches and reports appends
+ * per second and fsync latency percentiles. fsync latency is only meaningful on the disk the
+ * engine will use, so point {@code benchmark.wal.dir} at it. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=PostingWalBenchmarkTest [-Dbenchmark.records=N]
+ * [-Dbenchmark.batch=N] [-Dbenchmark.wal.dir=/path]}.
+ * 按组提交批次追加完整分录，统计每秒追加数与fsync延迟分位数
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class PostingWalBenchmarkTest {
+
+    private static final int RECORDS_PER_SEGMENT = 262_144;
+    private static final LocalDate ENTRY_DATE = LocalDate.of(2026, 3, 2);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void groupCommitAppends() throws Exception {
+        long records = Long.getLong("benchmark.records", 2_000_000L);
+        int batch = Integer.getInteger("benchmark.batch", 64);
+        String dir = System.getProperty("benchmark.wal.dir");
+        Path directory = dir != null ? Files.createTempDirectory(Path.of(dir), "wal-bench") : tempDir;
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        Timer fsyncTimer = Timer.builder("posting_engine.wal.fsync")
+            .publishPercentiles(0.5, 0.99, 0.999)
+            .register(registry);
+        List<PostingWal.WalLeg> legs = List.of(
+            new PostingWal.WalLeg(null, 'D', 150_000L),
+            new PostingWal.WalLeg("CASH-VAULT", 'C', 150_000L));
+
+        long start = System.nanoTime();
+        try (PostingWal wal = new PostingWal(directory, 0, RECORDS_PER_SEGMENT, fsyncTimer)) {
+            for (long seq = 1; seq <= records; seq++) {
+                wal.append(new PostingWal.WalRecord(seq, 0, seq % 100_000 + 1, 7L, System.currentTimeMillis(),
+                    ENTRY_DATE, "TXN-" + seq, "PHP", "CASH_WITHDRAWAL", legs));
+                if (seq % batch == 0) {
+                    wal.sync();
+                }
+            }
+            wal.sync();
+            long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Appended {} records in batches of {} in {} ms ({} appends/s, {} fsyncs)", records, batch,
+                elapsedMs, records * 1000 / elapsedMs, fsyncTimer.count());
+
+            HistogramSnapshot snapshot = fsyncTimer.takeSnapshot();
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                log.info("fsync p{}: {} ms", percentile.percentile() * 100,
+                    String.format("%.3f", percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            log.info("fsync max: {} ms", String.format("%.3f", snapshot.max(TimeUnit.MILLISECONDS)));
+
+            assertThat(wal.recover(records - batch)).hasSize(batch);
+        } finally {
+            if (dir != null) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+                }
+            }
+        }
+    }
+}
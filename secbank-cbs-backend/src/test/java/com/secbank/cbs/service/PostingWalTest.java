@@ -0,0 +1,108 @@
+package com.secbank.cbs.service;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Posting write-ahead log / 记账预写日志测试
+ */
+class PostingWalTest {
+
+    private static final LocalDate ENTRY_DATE = LocalDate.of(2026, 3, 2);
+
+    @TempDir
+    Path directory;
+
+    private final Timer fsyncTimer = Timer.builder("posting_engine.wal.fsync").register(new SimpleMeterRegistry());
+
+    @Test
+    void recoversFullEntriesAfterReopening() {
+        PostingWal.WalRecord withdrawal = record(1, List.of(
+            new PostingWal.WalLeg(null, 'D', 150_000L),
+            new PostingWal.WalLeg("CASH-VAULT", 'C', 150_000L)));
+        try (PostingWal wal = new PostingWal(directory, 3, 16, fsyncTimer)) {
+            wal.append(withdrawal);
+            wal.append(record(2, List.of(new PostingWal.WalLeg(null, 'C', 1L))));
+        }
+
+        try (PostingWal reopened = new PostingWal(directory, 3, 16, fsyncTimer)) {
+            assertThat(reopened.recover(0)).hasSize(2).first().isEqualTo(withdrawal);
+            assertThat(reopened.recover(1)).extracting(PostingWal.WalRecord::seq).containsExactly(2L);
+        }
+        assertThat(fsyncTimer.count()).isEqualTo(1);
+    }
+
+    @Test
+    void tornRecordEndsTheLog() throws IOException {
+        try (PostingWal wal = new PostingWal(directory, 0, 16, fsyncTimer)) {
+            for (long seq = 1; seq <= 3; seq++) {
+                wal.append(record(seq, List.of(new PostingWal.WalLeg(null, 'C', seq))));
+            }
+            wal.sync();
+        }
+        // Flip one byte of the second record's amount, as a torn write would leave it
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), PostingWal.RECORD_SIZE + 140);
+        }
+
+        try (PostingWal reopened = new PostingWal(directory, 0, 16, fsyncTimer)) {
+            assertThat(reopened.recover(0)).extracting(PostingWal.WalRecord::seq).containsExactly(1L);
+        }
+    }
+
+    @Test
+    void truncateDeletesOnlyFullyCommittedSegments() throws IOException {
+        try (PostingWal wal = new PostingWal(directory, 0, 2, fsyncTimer)) {
+            for (long seq = 1; seq <= 5; seq++) {
+                wal.append(record(seq, List.of(new PostingWal.WalLeg(null, 'C', seq))));
+            }
+            wal.sync();
+            assertThat(segments()).hasSize(3);
+
+            wal.truncate(3);
+            assertThat(segments()).hasSize(2);
+            assertThat(wal.recover(0)).extracting(PostingWal.WalRecord::seq).containsExactly(3L, 4L, 5L);
+
+            wal.truncate(5);
+            assertThat(segments()).hasSize(1);
+        }
+    }
+
+    @Test
+    void entryThatDoesNotFitIsRejected() {
+        try (PostingWal wal = new PostingWal(directory, 0, 16, fsyncTimer)) {
+            PostingWal.WalLeg leg = new PostingWal.WalLeg(null, 'C', 1L);
+            assertThatThrownBy(() -> wal.append(record(1, List.of(leg, leg, leg, leg, leg))))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> wal.append(record(1, List.of(new PostingWal.WalLeg("GL-CODE-LONGER-THAN-20", 'C', 1L)))))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("shard-0"))) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static PostingWal.WalRecord record(long seq, List<PostingWal.WalLeg> legs) {
+        return new PostingWal.WalRecord(seq, 0, 1000 + seq, 7L, 1_772_400_000_000L + seq, ENTRY_DATE,
+            "TXN-" + seq, "PHP", "CASH_WITHDRAWAL", legs);
+    }
+}
@@ -0,0 +1,115 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.entity.Branch;
+import com.secbank.cbs.entity.Permission;
+import com.secbank.cbs.entity.Role;
+import com.secbank.cbs.event.ReferenceDataChangedEvent;
+import com.secbank.cbs.event.ReferenceDataChangedEvent.Kind;
+import com.secbank.cbs.repository.AccountTypeRepository;
+import com.secbank.cbs.repository.BranchRepository;
+import com.secbank.cbs.repository.PermissionRepository;
+import com.secbank.cbs.repository.RoleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reference data cache versions and ETags / 参考数据缓存版本与ETag测试
+ */
+class ReferenceDataCacheTest {
+
+    private BranchRepository branchRepository;
+    private RoleRepository roleRepository;
+    private List<Branch> branches;
+
+    @BeforeEach
+    void setUp() {
+        branchRepository = mock(BranchRepository.class);
+        roleRepository = mock(RoleRepository.class);
+        branches = new ArrayList<>(List.of(branch(2L, "Makati"), branch(1L, "Head Office")));
+        when(branchRepository.findAll()).thenAnswer(invocation -> List.copyOf(branches));
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of());
+    }
+
+    @Test
+    void refreshWithoutChangesKeepsVersionAndETag() {
+        ReferenceDataCache cache = newCache();
+        cache.refreshAll();
+        long version = cache.getVersion(Kind.BRANCH);
+        String etag = cache.getETag(Kind.BRANCH);
+
+        cache.refreshAll();
+        cache.onReferenceDataChanged(new ReferenceDataChangedEvent(Kind.BRANCH));
+
+        assertThat(cache.getVersion(Kind.BRANCH)).isEqualTo(version);
+        assertThat(cache.getETag(Kind.BRANCH)).isEqualTo(etag);
+    }
+
+    @Test
+    void changedRowsMoveVersionAndETag() {
+        ReferenceDataCache cache = newCache();
+        cache.refreshAll();
+        long version = cache.getVersion(Kind.BRANCH);
+        String etag = cache.getETag(Kind.BRANCH);
+        String roleETag = cache.getETag(Kind.ROLE);
+
+        branches.set(0, branch(2L, "Makati City"));
+        cache.onReferenceDataChanged(new ReferenceDataChangedEvent(Kind.BRANCH));
+
+        assertThat(cache.getVersion(Kind.BRANCH)).isEqualTo(version + 1);
+        assertThat(cache.getETag(Kind.BRANCH)).isNotEqualTo(etag);
+        assertThat(cache.getETag(Kind.ROLE)).isEqualTo(roleETag);
+        assertThat(cache.getActiveBranches()).extracting(Branch::getBranchName).containsExactly("Head Office", "Makati City");
+    }
+
+    @Test
+    void nodesServingTheSameRowsServeTheSameETag() {
+        ReferenceDataCache first = newCache();
+        first.refreshAll();
+        // Another node loads the same rows in a different order, later
+        branches = new ArrayList<>(List.of(branches.get(1), branches.get(0)));
+        ReferenceDataCache second = newCache();
+        second.refreshAll();
+
+        assertThat(second.getETag(Kind.BRANCH)).isEqualTo(first.getETag(Kind.BRANCH));
+    }
+
+    @Test
+    void rolePermissionChangeMovesRoleETag() {
+        Role teller = Role.builder().id(1L).roleCode("TELLER").roleName("Teller")
+            .permissions(Set.of(permission(1L, "CASA_ACCOUNT_VIEW"))).build();
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(teller));
+        ReferenceDataCache cache = newCache();
+        cache.refreshAll();
+        String etag = cache.getETag(Kind.ROLE);
+
+        Role granted = Role.builder().id(1L).roleCode("TELLER").roleName("Teller")
+            .permissions(Set.of(permission(1L, "CASA_ACCOUNT_VIEW"), permission(2L, "CASA_ACCOUNT_CREATE"))).build();
+        when(roleRepository.findAllWithPermissions()).thenReturn(List.of(granted));
+        cache.onReferenceDataChanged(new ReferenceDataChangedEvent(Kind.ROLE));
+
+        assertThat(cache.getETag(Kind.ROLE)).isNotEqualTo(etag);
+    }
+
+    private ReferenceDataCache newCache() {
+        return new ReferenceDataCache(mock(AccountTypeRepository.class), branchRepository, roleRepository,
+            mock(PermissionRepository.class), mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+    }
+
+    private static Branch branch(Long id, String name) {
+        return Branch.builder().id(id).branchCode("B" + id).branchName(name).build();
+    }
+
+    private static Permission permission(Long id, String code) {
+        return Permission.builder().id(id).permissionCode(code).permissionName(code).module("CASA").build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.service.StatementService.Format;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Month-end statement benchmark / 月末对账单基准测试
+ * Seeds a million accounts (by default) with a few journal entries each in the current month,
+ * runs {@link StatementService#generate} as CSV and reports statements per second together with
+ * the heap baseline and the peak heap sampled during the run. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=StatementBenchmarkTest [-Dbenchmark.accounts=N]
+ * [-Dbenchmark.lines=N] [-Dbenchmark.branches=N] [-Dbenchmark.partitions=N]}.
+ * 为默认100万账户按当月造日志行，生成CSV对账单并统计每秒对账单数及运行期间的堆内存峰值
+ */
+@SpringBootTest(properties = "app.eod.cron=-")
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class StatementBenchmarkTest {
+
+    /** Seeded ids start here so they never meet journal_seq / 造数ID起点，避开序列取值 */
+    private static final long ID_BASE = 1_000_000_000_000L;
+    private static final long HEAP_SAMPLE_MS = 20;
+    private static final DateTimeFormatter PERIOD_DIRECTORY = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void monthEndStatements() throws Exception {
+        int accounts = Integer.getInteger("benchmark.accounts", 1_000_000);
+        int linesPerAccount = Integer.getInteger("benchmark.lines", 4);
+        int branches = Integer.getInteger("benchmark.branches", 50);
+        int partitions = Integer.getInteger("benchmark.partitions", 8);
+        LocalDate businessDate = LocalDate.now();
+
+        long seedStart = System.nanoTime();
+        BenchmarkData.seedAccounts(jdbcTemplate, "STB", branches, accounts, new BigDecimal("50000.00"),
+            businessDate.minusYears(1));
+        seedLines(businessDate, linesPerAccount);
+        jdbcTemplate.execute("ANALYZE accounts");
+        jdbcTemplate.execute("ANALYZE journal_lines");
+        jdbcTemplate.execute("ANALYZE journal_entries");
+        log.info("Seeded {} accounts with {} lines each in {} ms", accounts, linesPerAccount,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+        Path directory = Files.createTempDirectory("statement-benchmark");
+        try {
+            StatementService statementService = new StatementService(jdbcTemplate, new SimpleMeterRegistry(),
+                directory.toString(), partitions, 500);
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            long baseline = memory.getHeapMemoryUsage().getUsed();
+
+            AtomicLong peak = new AtomicLong(baseline);
+            AtomicBoolean sampling = new AtomicBoolean(true);
+            Thread sampler = Thread.ofPlatform().daemon().name("heap-sampler").start(() -> {
+                while (sampling.get()) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(HEAP_SAMPLE_MS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            long start = System.nanoTime();
+            BatchRunSummaryDTO summary;
+            try {
+                summary = statementService.generate(businessDate, Format.CSV);
+            } finally {
+                sampling.set(false);
+                sampler.join();
+            }
+            long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            long bytes;
+            long footers;
+            try (Stream<Path> files = Files.list(directory.resolve(businessDate.format(PERIOD_DIRECTORY)))) {
+                List<Path> written = files.filter(p -> p.toString().endsWith(".csv")).toList();
+                bytes = 0;
+                footers = 0;
+                for (Path file : written) {
+                    bytes += Files.size(file);
+                    try (Stream<String> lines = Files.lines(file)) {
+                        footers += lines.filter(line -> line.startsWith("F,")).count();
+                    }
+                }
+            }
+
+            log.info("Generated {} statements ({} MB) on {} threads in {} ms: {} statements/s", summary.getProcessed(),
+                bytes / (1024 * 1024), partitions, elapsedMs, summary.getProcessed() * 1000 / elapsedMs);
+            log.info("Heap: baseline {} MB, peak {} MB, peak over baseline {} MB, max {} MB",
+                baseline / (1024 * 1024), peak.get() / (1024 * 1024), (peak.get() - baseline) / (1024 * 1024),
+                memory.getHeapMemoryUsage().getMax() / (1024 * 1024));
+            assertThat(summary.getProcessed()).isEqualTo(accounts);
+            assertThat(footers).isEqualTo(accounts);
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Two-leg entries against a cash GL for every seeded account, spread over the month to date
+     * and alternating credits and debits.
+     */
+    private void seedLines(LocalDate businessDate, int linesPerAccount) {
+        assertThat(linesPerAccount).isBetween(1, 63);
+        LocalDate from = businessDate.withDayOfMonth(1);
+        int days = businessDate.getDayOfMonth();
+        jdbcTemplate.update(
+            "INSERT INTO journal_entries (id, entry_date, reference, txn_type, description, currency, total_amount, posted_at) " +
+            "SELECT ? + a.id * 64 + g, ?::date + ((a.id + g) % ?)::int, 'STB-' || a.id || '-' || g, " +
+            "       CASE WHEN g % 2 = 1 THEN 'CASH_DEPOSIT' ELSE 'CASH_WITHDRAWAL' END, 'Statement benchmark', 'PHP', " +
+            "       (100 + (a.id * 7 + g * 13) % 10000) / 100.0, now() " +
+            "FROM accounts a, generate_series(1, ?) g WHERE a.account_number LIKE 'STB%'",
+            ID_BASE, from, days, linesPerAccount);
+        jdbcTemplate.update(
+            "INSERT INTO journal_lines (id, entry_id, entry_date, line_no, account_id, gl_code, direction, amount) " +
+            "SELECT (? + a.id * 64 + g) * 2 + l.no - 1, ? + a.id * 64 + g, ?::date + ((a.id + g) % ?)::int, l.no, " +
+            "       CASE WHEN l.no = 1 THEN a.id END, CASE WHEN l.no = 2 THEN 'CASH-VAULT' END, " +
+            "       CASE WHEN (g % 2 = 1) = (l.no = 1) THEN 'C' ELSE 'D' END, " +
+            "       (100 + (a.id * 7 + g * 13) % 10000) / 100.0 " +
+            "FROM accounts a, generate_series(1, ?) g, (VALUES (1), (2)) l(no) WHERE a.account_number LIKE 'STB%'",
+            ID_BASE, ID_BASE, from, days, linesPerAccount);
+    }
+}
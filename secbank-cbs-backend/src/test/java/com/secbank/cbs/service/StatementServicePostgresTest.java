@@ -0,0 +1,143 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.BatchRunSummaryDTO;
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingRequest.Leg;
+import com.secbank.cbs.service.StatementService.Format;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statements against PostgreSQL / 基于PostgreSQL的对账单测试
+ * Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = "app.eod.cron=-")
+@Testcontainers(disabledWithoutDocker = true)
+class StatementServicePostgresTest {
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    private static long[] accountIds;
+    private static String[] accountNumbers;
+
+    @BeforeEach
+    void seedAccounts() {
+        if (accountIds == null) {
+            accountIds = BenchmarkData.seedAccounts(jdbcTemplate, "STM", 1, 2, new BigDecimal("500.00"),
+                LocalDate.now().minusMonths(2));
+            accountNumbers = new String[]{accountNumber(accountIds[0]), accountNumber(accountIds[1])};
+            ledgerService.postBatch(List.of(
+                cash(accountIds[0], true, "120.00", "STM-1"),
+                cash(accountIds[0], false, "30.50", "STM-2")), null);
+        }
+    }
+
+    @Test
+    void statementCarriesRunningBalancesAndTotals() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.withDayOfMonth(1);
+
+        List<String> rows = statement(accountIds[0], from, today);
+
+        assertThat(rows).containsExactly(
+            "H," + accountNumbers[0] + ",Benchmark 1,PHP," + from + "," + today + ",500.00",
+            "T," + today + ",STM-1,CASH_DEPOSIT,Counter cash,,120.00,620.00",
+            "T," + today + ",STM-2,CASH_WITHDRAWAL,Counter cash,30.50,,589.50",
+            "F," + accountNumbers[0] + ",30.50,120.00,589.50,2");
+    }
+
+    @Test
+    void linesAfterThePeriodRollTheClosingBalanceBack() {
+        YearMonth lastMonth = YearMonth.now().minusMonths(1);
+
+        List<String> rows = statement(accountIds[0], lastMonth.atDay(1), lastMonth.atEndOfMonth());
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).endsWith(",500.00");
+        assertThat(rows.get(1)).isEqualTo("F," + accountNumbers[0] + ",0.00,0.00,500.00,0");
+    }
+
+    @Test
+    void monthEndRunWritesOneFilePerBranch() throws Exception {
+        LocalDate today = LocalDate.now();
+        // A chunk size of one pages through the branch one account at a time
+        StatementService service = new StatementService(jdbcTemplate, new SimpleMeterRegistry(),
+            directory.toString(), 2, 1);
+        Long branchId = jdbcTemplate.queryForObject("SELECT branch_id FROM accounts WHERE id = ?", Long.class,
+            accountIds[0]);
+
+        BatchRunSummaryDTO summary = service.generate(today, Format.CSV);
+
+        Path file = directory.resolve(today.format(DateTimeFormatter.ofPattern("yyyy-MM")))
+            .resolve("branch-" + branchId + ".csv");
+        List<String> footers = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+            .filter(row -> row.startsWith("F,"))
+            .toList();
+        assertThat(footers).containsExactly(
+            "F," + accountNumbers[0] + ",30.50,120.00,589.50,2",
+            "F," + accountNumbers[1] + ",0.00,0.00,500.00,0");
+        assertThat(summary.getProcessed()).isGreaterThanOrEqualTo(2);
+        assertThat(file.resolveSibling(file.getFileName() + ".tmp")).doesNotExist();
+    }
+
+    private List<String> statement(long accountId, LocalDate from, LocalDate to) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        statementService.writeStatement(accountId, from, to, Format.CSV, Channels.newChannel(out));
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static PostingRequest cash(long accountId, boolean deposit, String amount, String reference) {
+        return PostingRequest.builder()
+            .reference(reference)
+            .txnType(deposit ? "CASH_DEPOSIT" : "CASH_WITHDRAWAL")
+            .description("Counter cash")
+            .currency("PHP")
+            .legs(List.of(
+                Leg.builder().accountId(accountId).direction(deposit ? Direction.CREDIT : Direction.DEBIT)
+                    .amount(new BigDecimal(amount)).build(),
+                Leg.builder().glCode("CASH-VAULT").direction(deposit ? Direction.DEBIT : Direction.CREDIT)
+                    .amount(new BigDecimal(amount)).build()))
+            .build();
+    }
+
+    private String accountNumber(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT account_number FROM accounts WHERE id = ?", String.class, accountId);
+    }
+}
@@ -0,0 +1,172 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.TransferRequest;
+import com.secbank.cbs.exception.BusinessException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Transfer contention benchmark / 转账热点账户争用基准测试
+ * Offers transfers at a fixed rate (10,000/s by default) for a fixed time, open loop: each
+ * transfer is due at its slot whether or not earlier ones have finished, and its latency is
+ * measured from that slot, so queueing behind hot rows is counted. Both sides are drawn from a
+ * Zipf distribution over the accounts, so a handful of hot accounts take most of the traffic
+ * and contend on their row locks. Reports achieved throughput, latency percentiles and the
+ * service's retry counters. Run with
+ * {@code mvn test -Dbenchmark=true -Dtest=TransferBenchmarkTest [-Dbenchmark.rate=N]
+ * [-Dbenchmark.seconds=N] [-Dbenchmark.accounts=N] [-Dbenchmark.zipf=S] [-Dbenchmark.workers=N]}.
+ * 以固定速率开环发起转账（默认每秒1万笔），收付双方按Zipf分布抽取形成热点账户争用；统计吞吐、延迟分位数与重试次数
+ */
+@SpringBootTest(properties = {
+    "app.eod.cron=-",
+    "spring.datasource.hikari.maximum-pool-size=64"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+class TransferBenchmarkTest {
+
+    private static final int HOT_ACCOUNTS = 10;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void skewedTransfersAtTargetRate() throws Exception {
+        int rate = Integer.getInteger("benchmark.rate", 10_000);
+        int seconds = Integer.getInteger("benchmark.seconds", 30);
+        int accounts = Integer.getInteger("benchmark.accounts", 100_000);
+        double exponent = Double.parseDouble(System.getProperty("benchmark.zipf", "1.1"));
+        int workers = Integer.getInteger("benchmark.workers", 64);
+        long[] accountIds = BenchmarkData.seedAccounts(jdbcTemplate, "TRF", 10, accounts,
+            new BigDecimal("1000000.00"), LocalDate.now().minusYears(1));
+        BigDecimal totalBefore = total();
+        double[] cdf = zipfCdf(accounts, exponent);
+
+        Timer latency = Timer.builder("transfer.benchmark.latency")
+            .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+            .register(new SimpleMeterRegistry());
+        double retriesBefore = meterRegistry.counter("transfer.retries").count();
+        double exhaustedBefore = meterRegistry.counter("transfer.retries.exhausted").count();
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long hot = 0;
+        long offered = (long) rate * seconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        SplittableRandom random = new SplittableRandom(42);
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        for (long i = 0; i < offered; i++) {
+            int from = sample(cdf, random);
+            int to = sample(cdf, random);
+            if (to == from) {
+                to = (from + 1) % accounts;
+            }
+            if (from < HOT_ACCOUNTS || to < HOT_ACCOUNTS) {
+                hot++;
+            }
+            TransferRequest request = TransferRequest.builder()
+                .fromAccountId(accountIds[from])
+                .toAccountId(accountIds[to])
+                .amount(BigDecimal.ONE)
+                .currency("PHP")
+                .description("Transfer benchmark")
+                .build();
+            long due = start + i * intervalNanos;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            executor.execute(() -> {
+                try {
+                    transferService.transfer(request, null);
+                    completed.incrementAndGet();
+                } catch (BusinessException e) {
+                    failed.incrementAndGet();
+                }
+                latency.record(System.nanoTime() - due, TimeUnit.NANOSECONDS);
+            });
+        }
+        long offeredMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.MINUTES)).isTrue();
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        log.info("Offered {} transfers at {}/s over {} ms ({}% touching the {} hottest of {} accounts, zipf {})",
+            offered, rate, offeredMs, hot * 100 / offered, HOT_ACCOUNTS, accounts, exponent);
+        log.info("Completed {} and failed {} in {} ms: {} transfers/s on {} workers", completed.get(), failed.get(),
+            elapsedMs, completed.get() * 1000 / elapsedMs, workers);
+        log.info("Retries {}, gave up {}", (long) (meterRegistry.counter("transfer.retries").count() - retriesBefore),
+            (long) (meterRegistry.counter("transfer.retries.exhausted").count() - exhaustedBefore));
+        HistogramSnapshot snapshot = latency.takeSnapshot();
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            log.info("latency p{}: {} ms", percentile.percentile() * 100,
+                String.format("%.2f", percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        log.info("latency max: {} ms", String.format("%.2f", snapshot.max(TimeUnit.MILLISECONDS)));
+
+        // Every transfer either moved money on both sides or not at all
+        assertThat(total()).isEqualByComparingTo(totalBefore);
+        assertThat(completed.get() + failed.get()).isEqualTo(offered);
+    }
+
+    /** Cumulative Zipf probabilities: rank k (0-based) has weight 1 / (k + 1)^s. */
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+
+    private BigDecimal total() {
+        return jdbcTemplate.queryForObject(
+            "SELECT SUM(current_balance) FROM accounts WHERE account_number LIKE 'TRF%'", BigDecimal.class);
+    }
+}
@@ -0,0 +1,113 @@
+package com.secbank.cbs.service;
+
+import com.secbank.cbs.dto.PostingRequest;
+import com.secbank.cbs.dto.PostingRequest.Direction;
+import com.secbank.cbs.dto.PostingResultDTO;
+import com.secbank.cbs.dto.TransferRequest;
+import com.secbank.cbs.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Internal transfers and their retry policy / 内部转账及重试策略测试
+ */
+class TransferServiceTest {
+
+    private LedgerService ledgerService;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private TransferService transferService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = mock(LedgerService.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        transferService = new TransferService(ledgerService, mock(AccountLookupCache.class), jdbcTemplate,
+            mock(PlatformTransactionManager.class), meterRegistry, 3, 1, 2, 500);
+    }
+
+    @Test
+    void postsOneEntryDebitingTheSourceUnderALockTimeout() {
+        PostingResultDTO result = PostingResultDTO.builder().reference("TRF-1").build();
+        when(ledgerService.post(any(), eq(7L))).thenReturn(result);
+
+        assertThat(transferService.transfer(request(), 7L)).isSameAs(result);
+
+        ArgumentCaptor<PostingRequest> posting = ArgumentCaptor.forClass(PostingRequest.class);
+        verify(ledgerService).post(posting.capture(), eq(7L));
+        assertThat(posting.getValue().getTxnType()).isEqualTo("TRANSFER");
+        assertThat(posting.getValue().getLegs()).satisfiesExactly(
+            leg -> assertThat(leg.getAccountId()).isEqualTo(1L),
+            leg -> assertThat(leg.getAccountId()).isEqualTo(2L));
+        assertThat(posting.getValue().getLegs().get(0).getDirection()).isEqualTo(Direction.DEBIT);
+        verify(jdbcTemplate).execute("SET LOCAL lock_timeout = '500ms'");
+    }
+
+    @Test
+    void lockTimeoutIsRetried() {
+        PostingResultDTO result = PostingResultDTO.builder().reference("TRF-1").build();
+        when(ledgerService.post(any(), any()))
+            .thenThrow(new CannotAcquireLockException("lock timeout"))
+            .thenReturn(result);
+
+        assertThat(transferService.transfer(request(), 7L)).isSameAs(result);
+        assertThat(meterRegistry.counter("transfer.retries").count()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        when(ledgerService.post(any(), any())).thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertThatThrownBy(() -> transferService.transfer(request(), 7L)).isInstanceOf(BusinessException.class);
+        verify(ledgerService, times(3)).post(any(), any());
+        assertThat(meterRegistry.counter("transfer.retries.exhausted").count()).isEqualTo(1);
+    }
+
+    @Test
+    void duplicateReferenceIsNotRetried() {
+        when(ledgerService.post(any(), any())).thenThrow(new DuplicateKeyException("uk_journal_entries_reference"));
+
+        assertThatThrownBy(() -> transferService.transfer(request(), 7L))
+            .isInstanceOf(BusinessException.class)
+            .hasMessageContaining("TRF-1");
+        verify(ledgerService, times(1)).post(any(), any());
+    }
+
+    @Test
+    void sameAccountOnBothSidesIsRejected() {
+        TransferRequest request = request();
+        request.setToAccountId(1L);
+
+        assertThatThrownBy(() -> transferService.transfer(request, 7L)).isInstanceOf(BusinessException.class);
+        verify(ledgerService, never()).post(any(), any());
+    }
+
+    private static TransferRequest request() {
+        return TransferRequest.builder()
+            .fromAccountId(1L)
+            .toAccountId(2L)
+            .amount(new BigDecimal("25.00"))
+            .currency("PHP")
+            .reference("TRF-1")
+            .build();
+    }
+}